@@ -5,12 +5,12 @@ import java.io.PrintWriter;
 import java.util.List;
 
 import org.aavso.tools.vstar.data.ValidObservation;
-import org.aavso.tools.vstar.plugin.ObservationSinkPluginBase;
+import org.aavso.tools.vstar.plugin.TextFormatObservationSinkPluginBase;
 
 /**
  * Observation sink
  */
-public class ObservationSink extends ObservationSinkPluginBase {
+public class ObservationSink extends TextFormatObservationSinkPluginBase {
 
     /**
      * Get the display name for this plugin, e.g. for a menu item.
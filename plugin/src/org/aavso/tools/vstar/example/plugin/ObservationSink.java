@@ -22,13 +22,13 @@ import java.io.PrintWriter;
 import java.util.List;
 
 import org.aavso.tools.vstar.data.ValidObservation;
-import org.aavso.tools.vstar.plugin.ObservationSinkPluginBase;
+import org.aavso.tools.vstar.plugin.TextFormatObservationSinkPluginBase;
 
 /**
  * An observation sink plugin that saves observations as simple XML files
  * consisting of time, magnitude, uncertainty, and band.
  */
-public class ObservationSink extends ObservationSinkPluginBase {
+public class ObservationSink extends TextFormatObservationSinkPluginBase {
 
 	@Override
 	public String getDisplayName() {
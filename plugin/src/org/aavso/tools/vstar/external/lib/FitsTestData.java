@@ -47,11 +47,21 @@ public final class FitsTestData {
      * Kepler/TESS archive-style FITS with PDCSAP columns (corrected flux).
      */
     public static byte[] createKeplerArchiveFits() throws FitsException, IOException {
+        return createKeplerArchiveFits(new double[] { 0.5 }, new float[] { 1000f }, new float[] { 10f },
+                new int[] { 0 });
+    }
+
+    /**
+     * Kepler/TESS archive-style FITS with the specified time, flux (both SAP
+     * and PDCSAP), flux error and quality columns, one row per element.
+     */
+    public static byte[] createKeplerArchiveFits(double[] times, float[] fluxes, float[] fluxErrors,
+            int[] quality) throws FitsException, IOException {
         String[] names = { "TIME", "COL1", "COL2", "SAP_FLUX", "SAP_FLUX_ERR", "COL5", "COL6",
                 "PDCSAP_FLUX", "PDCSAP_FLUX_ERR", "QUALITY" };
-        Object[] cols = { new double[] { 0.5 }, new float[] { 0f }, new float[] { 0f },
-                new float[] { 1000f }, new float[] { 10f }, new float[] { 0f }, new float[] { 0f },
-                new float[] { 1000f }, new float[] { 10f }, new int[] { 0 } };
+        float[] zeros = new float[times.length];
+        Object[] cols = { times, zeros, zeros, fluxes, fluxErrors, zeros, zeros, fluxes, fluxErrors,
+                quality };
         return createFits("Kepler", names, cols, 2454833, 0.0);
     }
 
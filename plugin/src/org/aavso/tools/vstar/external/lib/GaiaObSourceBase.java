@@ -33,13 +33,12 @@
 package org.aavso.tools.vstar.external.lib;
 
 import java.awt.Color;
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -57,6 +56,8 @@ import org.aavso.tools.vstar.data.validation.UncertaintyValueValidator;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.MappedObservationFileReader;
+import org.aavso.tools.vstar.input.ObservationPredicate;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
 import org.aavso.tools.vstar.util.Tolerance;
 
@@ -99,8 +100,13 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 
 		protected Map<String, Integer> fieldIndices;
 		
-		private String delimiter = ",";
-		private List<String> lines = null;
+		private char delimiter = ',';
+		private MappedObservationFileReader reader = null;
+
+		// DR3 field indices by band, keyed as for DR2, if the source is in DR3
+		// format, otherwise null.
+		private Map<String, Map<String, Integer>> dr3FieldIndices = null;
+		private int dr3HeaderLineNumber;
 		private Double gaiaEpoch = 2455197.5;
 		// delta T in days within which two observations are considered
 		// close enough to be used together for a transform
@@ -183,31 +189,34 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 
 		}
 
-		private List<String>convertDR3toDR2format(List<String> lines) throws ObservationReadError {
-			String headerLineDR3 = null;
-			int startLineN = 0;
-			for (String line : lines) {
-				String[] fields = line.split(delimiter);
-				if ((indexInArray("g_transit_time", fields) >= 0) &&
-					(indexInArray("bp_obs_time", fields)    >= 0) &&
-					(indexInArray("rp_obs_time", fields))   >= 0) {
-					headerLineDR3 = line;
+		// Find a DR3 format header, i.e. whether the first header line is in
+		// DR3 format, and if found, map each band's fields to the corresponding
+		// DR2 format fields, since each DR3 line contains an observation in
+		// each band.
+		private void findDR3Header() throws IOException, ObservationReadError {
+			String[] fields = null;
+			while (reader.nextLine()) {
+				reader.split(delimiter);
+				if (hasField("source_id")) {
+					if (hasField("g_transit_time") && hasField("bp_obs_time") && hasField("rp_obs_time")) {
+						fields = reader.getFields();
+						dr3HeaderLineNumber = reader.getLineNumber();
+					}
 					break;
 				}
-				startLineN++;
 			}
-			if (headerLineDR3 == null) {
+			reader.rewind();
+
+			if (fields == null) {
 				// assume DR2: formats before DEC 2024 were identical.
 				// gaiaRelease remains "UNKNOWN"
-				return lines;
+				return;
 			} else {
 				// If it is a file source, set the release version to DR3.
 				// It is required for the correct transformation
 				gaiaRelease = GaiaRelease.DR3;
 			}
-			startLineN++;
 			
-			String[] fields = headerLineDR3.split(delimiter);
 			int source_id_idx = indexInArray("source_id", fields);
 			int transit_id_idx = indexInArray("transit_id", fields);
 			int time_g_idx = indexInArray("g_transit_time", fields);
@@ -257,64 +266,40 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 				throw new ObservationReadError("GAIA DR3 Header differs from the expected one");
 			}
 
-			List<String> outList = new ArrayList<String>();
-			
-			// old header (DR2 and pre-Dec 2024 DR3)
-			outList.add("source_id,transit_id,band,time,mag,flux,flux_error,flux_over_error,rejected_by_photometry,rejected_by_variability,other_flags,solution_id");
-
-			// G
-			for (int i = startLineN; i < lines.size(); i++) {
-				String[] values = lines.get(i).split(delimiter);
-				String line = values[source_id_idx];
-				line += delimiter + values[transit_id_idx];
-				line += delimiter + "G"; // band
-				line += delimiter + values[time_g_idx];
-				line += delimiter + values[mag_g_idx];
-				line += delimiter + values[flux_g_idx];
-				line += delimiter + values[flux_g_error_idx];
-				line += delimiter + ""; // we do not use flux_over_error
-				line += delimiter + values[rejected_by_photometry_idx];
-				line += delimiter + values[rejected_by_variability_g_idx];
-				line += delimiter + values[other_flags_g_idx];
-				line += delimiter + values[solution_id_idx];
-				outList.add(line);
-			}
-			// BP
-			for (int i = startLineN; i < lines.size(); i++) {
-				String[] values = lines.get(i).split(delimiter);
-				String line = values[source_id_idx];
-				line += delimiter + values[transit_id_idx];
-				line += delimiter + "BP"; // band
-				line += delimiter + values[time_bp_idx];
-				line += delimiter + values[mag_bp_idx];
-				line += delimiter + values[flux_bp_idx];
-				line += delimiter + values[flux_bp_error_idx];
-				line += delimiter + ""; // we do not use flux_over_error
-				line += delimiter + values[rejected_by_photometry_idx];
-				line += delimiter + values[rejected_by_variability_bp_idx];
-				line += delimiter + values[other_flags_bp_idx];
-				line += delimiter + values[solution_id_idx];
-				outList.add(line);
-			}
-			// RP
-			for (int i = startLineN; i < lines.size(); i++) {
-				String[] values = lines.get(i).split(delimiter);
-				String line = values[source_id_idx];
-				line += delimiter + values[transit_id_idx];
-				line += delimiter + "RP"; // band
-				line += delimiter + values[time_rp_idx];
-				line += delimiter + values[mag_rp_idx];
-				line += delimiter + values[flux_rp_idx];
-				line += delimiter + values[flux_rp_error_idx];
-				line += delimiter + ""; // we do not use flux_over_error
-				line += delimiter + values[rejected_by_photometry_idx];
-				line += delimiter + values[rejected_by_variability_rp_idx];
-				line += delimiter + values[other_flags_rp_idx];
-				line += delimiter + values[solution_id_idx];
-				outList.add(line);
+			// Bands in the order in which they are read.
+			dr3FieldIndices = new LinkedHashMap<String, Map<String, Integer>>();
+			dr3FieldIndices.put("G", dr2FieldIndices(source_id_idx, time_g_idx, mag_g_idx, flux_g_idx,
+					flux_g_error_idx, rejected_by_photometry_idx, rejected_by_variability_g_idx, other_flags_g_idx));
+			dr3FieldIndices.put("BP", dr2FieldIndices(source_id_idx, time_bp_idx, mag_bp_idx, flux_bp_idx,
+					flux_bp_error_idx, rejected_by_photometry_idx, rejected_by_variability_bp_idx, other_flags_bp_idx));
+			dr3FieldIndices.put("RP", dr2FieldIndices(source_id_idx, time_rp_idx, mag_rp_idx, flux_rp_idx,
+					flux_rp_error_idx, rejected_by_photometry_idx, rejected_by_variability_rp_idx, other_flags_rp_idx));
+		}
+
+		// Does the current line have the specified field?
+		private boolean hasField(String name) {
+			for (int i = 0; i < reader.getFieldCount(); i++) {
+				if (reader.fieldEquals(i, name, false)) {
+					return true;
+				}
 			}
-			
-			return outList;
+			return false;
+		}
+
+		// Map a band's DR3 fields to DR2 field names.
+		private Map<String, Integer> dr2FieldIndices(int source_id_idx, int time_idx, int mag_idx, int flux_idx,
+				int flux_error_idx, int rejected_by_photometry_idx, int rejected_by_variability_idx,
+				int other_flags_idx) {
+			Map<String, Integer> indices = new HashMap<String, Integer>();
+			indices.put("source_id", source_id_idx);
+			indices.put("time", time_idx);
+			indices.put("mag", mag_idx);
+			indices.put("flux", flux_idx);
+			indices.put("flux_error", flux_error_idx);
+			indices.put("rejected_by_photometry", rejected_by_photometry_idx);
+			indices.put("rejected_by_variability", rejected_by_variability_idx);
+			indices.put("other_flags", other_flags_idx);
+			return indices;
 		}
 		
 		@Override
@@ -339,11 +324,13 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 //			mag,flux,flux_error,flux_over_error,
 //			rejected_by_photometry,rejected_by_variability,other_flags,solution_id
 
-			lines = convertDR3toDR2format(lines);
+			if (reader == null) {
+				getNumberOfRecords();
+			}
 			
 			setJDflavour(JDflavour.BJD);
 			
-			if (lines.size() == 0) {
+			if (reader.getSize() == 0) {
 				return;
 			}
 			
@@ -359,37 +346,53 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 
 			int obsCount = 0;
 			String firstError = null;
-			for (int i = 0; i < lines.size(); i++) {
-				String line = lines.get(i);
-				if (line != null) {
-					line = line.trim();
-					if (!"".equals(line)) {
-						if (headerFound) {
-							try {
-								ValidObservation vo = readNextObservation(line.split(delimiter), i + 1, transform);
-								if (transform) {
-									// We just separate obs into passband lists to
-									// be collected later
-									cacheObservation(vo, line);
-								} else {
-									// Done with obs, add to final valid list
-									collectObservation(vo);
+			try {
+				if (dr3FieldIndices != null) {
+					// Read the lines after the header once per band.
+					headerFound = true;
+					for (Map.Entry<String, Map<String, Integer>> entry : dr3FieldIndices.entrySet()) {
+						if (!isBandRead(entry.getKey())) {
+							continue;
+						}
+						fieldIndices = entry.getValue();
+						reader.rewind();
+						while (reader.nextLine()) {
+							if (reader.getLineNumber() > dr3HeaderLineNumber && !reader.isBlankLine()) {
+								reader.split(delimiter);
+								String error = isSelected(entry.getKey()) ? readObservation(entry.getKey()) : null;
+								if (error == null) {
+									obsCount++;
+								} else if (firstError == null) {
+									firstError = error;
 								}
-								obsCount++;
-							} catch (Exception e) {
-								// Create an invalid observation.
-								String error = e.getLocalizedMessage();
-								if (firstError == null) firstError = error;
-								InvalidObservation ob = new InvalidObservation(line, error);
-								ob.setRecordNumber(i + 1);
-								addInvalidObservation(ob);
 							}
-						} else {
-							headerFound = checkForHeaderAndFillFieldIndices(line.split(delimiter));
+							incrementProgress();
 						}
 					}
+				} else {
+					while (reader.nextLine()) {
+						if (!reader.isBlankLine()) {
+							reader.split(delimiter);
+							if (headerFound) {
+								if (!isSelected(null)) {
+									incrementProgress();
+									continue;
+								}
+								String error = readObservation(null);
+								if (error == null) {
+									obsCount++;
+								} else if (firstError == null) {
+									firstError = error;
+								}
+							} else {
+								headerFound = checkForHeaderAndFillFieldIndices(reader.getFields());
+							}
+						}
+						incrementProgress();
+					}
 				}
-				incrementProgress();
+			} catch (IOException e) {
+				throw new ObservationReadError("Error reading lines");
 			}
 			
 			if (!headerFound)
@@ -408,6 +411,82 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 			}
 		}
 		
+		// Must DR3 lines be read for the specified band? They need not be if
+		// the predicate rejects the band, unless observations in that band are
+		// needed for transformation.
+		private boolean isBandRead(String bandName) {
+			return transform || getPredicate().acceptsBand(series(bandName));
+		}
+
+		// Could an observation in the specified band (or that given by the band
+		// field if null) from the current line satisfy the predicate, judging by
+		// its time and band? Observations to be transformed are only tested
+		// once transformed, since an observation in one band may be needed to
+		// transform one in another.
+		private boolean isSelected(String bandName) {
+			ObservationPredicate predicate = getPredicate();
+			if (transform || predicate.acceptsAll()) {
+				return true;
+			}
+
+			if (predicate.restrictsJD()) {
+				try {
+					if (!predicate.acceptsJD(reader.getDouble(fieldIndices.get("time")) + gaiaEpoch)) {
+						return false;
+					}
+				} catch (NumberFormatException e) {
+					// Leave it to validation.
+				}
+			}
+
+			if (predicate.restrictsBand()) {
+				SeriesType band = series(bandName != null ? bandName : reader.getField(fieldIndices.get("band")));
+				if (band != null && !predicate.acceptsBand(band)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		// Read an observation in the specified band (or that given by the band
+		// field if null) from the current line, returning an error message if
+		// it is invalid, otherwise null.
+		private String readObservation(String band) {
+			try {
+				ValidObservation vo = readNextObservation(band, reader.getLineNumber(), transform);
+				if (transform) {
+					// We just separate obs into passband lists to
+					// be collected later
+					cacheObservation(vo);
+				} else {
+					// Done with obs, add to final valid list
+					collectObservation(vo);
+				}
+				return null;
+			} catch (Exception e) {
+				// Create an invalid observation.
+				String error = e.getLocalizedMessage();
+				InvalidObservation ob = new InvalidObservation(reader.getLine().trim(), error);
+				ob.setRecordNumber(reader.getLineNumber());
+				addInvalidObservation(ob);
+				return error;
+			}
+		}
+		
+		// The series corresponding to a Gaia band name, or null if unknown.
+		private SeriesType series(String filter) {
+			SeriesType band = null;
+			if ("BP".equals(filter)) {
+				band = gaiaBPseries;
+			} else if ("RP".equals(filter)) {
+				band = gaiaRPseries;
+			} else if ("G".equals(filter)) {
+				band = gaiaGseries;
+			}
+			return band;
+		}
+
 		private boolean checkForHeaderAndFillFieldIndices(String[] fields) {
 			for (Map.Entry<String, Integer> entry : fieldIndices.entrySet()) {
 				int i = indexInArray(entry.getKey(), fields);
@@ -429,7 +508,7 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 			return -1;
 		}		
 
-		private void cacheObservation(ValidObservation obs, String line) 
+		private void cacheObservation(ValidObservation obs) 
 				throws ObservationReadError {
 			
 			if (obs.getBand() == gaiaBPseries) {
@@ -437,7 +516,7 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 			} else if (obs.getBand() == gaiaGseries) {
 				ValidObservationEx obsExt = new ValidObservationEx();
 				obsExt.ob = obs;
-				obsExt.line = line;
+				obsExt.line = reader.getLine().trim();
 				greenList.add(obsExt); // was G
 			} else if (obs.getBand() == gaiaRPseries) {
 				redList.add(obs); // was RP
@@ -646,28 +725,25 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 
 		@Override
 		public Integer getNumberOfRecords() throws ObservationReadError {
-			if (lines == null) {
-				try {
-					readLines();
-				} catch (IOException e) {
-					throw new ObservationReadError("Error reading lines");
+			try {
+				if (reader == null) {
+					reader = new MappedObservationFileReader(getInputStreams().get(0));
+					findDR3Header();
 				}
-			}
-
-			return lines.size();
-		}
-
-		// Read all lines from the source.
-		private void readLines() throws IOException {
-			lines = new ArrayList<String>();
-
-			BufferedReader reader = new BufferedReader(new InputStreamReader(
-					getInputStreams().get(0)));
-
-			String line = null;
-
-			while ((line = reader.readLine()) != null) {
-				lines.add(line);
+				int lineCount = reader.countLines();
+				if (dr3FieldIndices != null) {
+					// DR3 lines are read once per band.
+					int bandCount = 0;
+					for (String bandName : dr3FieldIndices.keySet()) {
+						if (isBandRead(bandName)) {
+							bandCount++;
+						}
+					}
+					lineCount *= bandCount;
+				}
+				return lineCount;
+			} catch (IOException e) {
+				throw new ObservationReadError("Error reading lines");
 			}
 		}
 
@@ -681,12 +757,15 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 		//
 		// See https://www.cosmos.esa.int/web/gaia-users/archive/programmatic-access#Sect_1_ss1.1
 		//
-		private ValidObservation readNextObservation(String[] fields, int recordNumber, boolean transformNeeded)
+		// The fields are those of the current line. A DR3 format line has no
+		// band field, so the band is specified.
+		//
+		private ValidObservation readNextObservation(String bandName, int recordNumber, boolean transformNeeded)
 				throws ObservationValidationError {
 
 			ValidObservation observation = new ValidObservation();
 
-			String source_id = fields[fieldIndices.get("source_id")].trim();
+			String source_id = reader.getField(fieldIndices.get("source_id"));
 			String name = "Gaia";
 			switch (gaiaRelease) {
 				case DR2:
@@ -708,29 +787,23 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 			observation.setObsCode(obsCode);
 
 			DateInfo dateInfo = new DateInfo(julianDayValidator.validate(
-					fields[fieldIndices.get("time")].trim()).getJulianDay()
+					reader.getField(fieldIndices.get("time"))).getJulianDay()
 					+ gaiaEpoch);
 			observation.setDateInfo(dateInfo);
 
-			Magnitude magnitude = magnitudeFieldValidator.validate(fields[fieldIndices.get("mag")].trim());
+			Magnitude magnitude = magnitudeFieldValidator.validate(reader.getField(fieldIndices.get("mag")));
 			observation.setMagnitude(magnitude);
 
-			double flux = Double.parseDouble(fields[fieldIndices.get("flux")].trim());
-			double ferr = Double.parseDouble(fields[fieldIndices.get("flux_error")].trim());
+			double flux = reader.getDouble(fieldIndices.get("flux"));
+			double ferr = reader.getDouble(fieldIndices.get("flux_error"));
 			double uncertainty = -2.5 * Math.log10(flux / (flux + ferr));
 			String uncertaintyStr = String.valueOf(uncertainty);
 			uncertainty = uncertaintyValueValidator.validate(uncertaintyStr);
 			observation.getMagnitude().setUncertainty(uncertainty);
 
-			String filter = fields[fieldIndices.get("band")].trim();
-			SeriesType band;
-			if (filter.equals("BP")) {
-				band = gaiaBPseries;
-			} else if (filter.equals("RP")) {
-				band = gaiaRPseries;
-			} else if (filter.equals("G")) {
-				band = gaiaGseries;
-			} else {
+			String filter = bandName != null ? bandName : reader.getField(fieldIndices.get("band"));
+			SeriesType band = series(filter);
+			if (band == null) {
 				throw new ObservationValidationError("Unexpected Gaia band:"
 						+ filter);
 			}
@@ -744,8 +817,8 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 			//observation.setComments("");
 
 			// use both flags
-			String rejectedByPhotometry = fields[fieldIndices.get("rejected_by_photometry")].trim();
-			String rejectedByVariability = fields[fieldIndices.get("rejected_by_variability")].trim();
+			String rejectedByPhotometry = reader.getField(fieldIndices.get("rejected_by_photometry"));
+			String rejectedByVariability = reader.getField(fieldIndices.get("rejected_by_variability"));
 			if (!ignoreFlags) {
 				if (rejectedByPhotometry.equalsIgnoreCase("TRUE") || rejectedByVariability.equalsIgnoreCase("TRUE")) {
 					observation.setDiscrepant(true);
@@ -755,22 +828,26 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 			if (!transformNeeded) {
 				observation.addDetail("REJECTED_BY_PHOTOMETRY", rejectedByPhotometry, "rejected_by_photometry");
 				observation.addDetail("REJECTED_BY_VARIABILITY", rejectedByVariability, "rejected_by_variability");
-				addDetailAsInteger(observation, "other_flags", fields[fieldIndices.get("other_flags")]);
+				addDetailAsInteger(observation, "other_flags", fieldIndices.get("other_flags"));
 			}
 
 			return observation;
 		}
 		
-		void addDetailAsInteger(ValidObservation observation, String key, String detail) {
-			if (detail != null) {
-				Integer i;
-				try {
-					i = Integer.valueOf(detail.trim());
-				} catch (NumberFormatException e) {
-					return;
-				}
-				observation.addDetail(key.toUpperCase(), i, key);
+		void addDetailAsInteger(ValidObservation observation, String key, int index) {
+			Integer i;
+			try {
+				i = reader.getInt(index);
+			} catch (NumberFormatException e) {
+				return;
 			}
+			observation.addDetail(key.toUpperCase(), i, key);
+		}
+
+		@Override
+		public boolean isSourceOrdered() {
+			// Photometry is grouped by band, not ordered by time overall.
+			return false;
 		}
 
 		@Override
@@ -831,7 +908,7 @@ public abstract class GaiaObSourceBase extends ObservationSourcePluginBase {
 
 		GAIADR2FormatRetriever retriever = new GAIADR2FormatRetriever(transform, true, GaiaRelease.DR2);
 		retriever.getNumberOfRecords();
-		retriever.retrieveObservations();
+		retriever.retrieve();
 
 		List<ValidObservation> gaiaObs = retriever.getValidObservations();
 		if (!transform) {
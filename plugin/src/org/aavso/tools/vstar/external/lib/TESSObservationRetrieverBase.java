@@ -26,7 +26,7 @@
 package org.aavso.tools.vstar.external.lib;
 
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.lang.reflect.Array;
 import java.util.List;
 import java.util.Locale;
 
@@ -38,6 +38,8 @@ import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.data.ValidObservation.JDflavour;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.ObservationPredicate;
+import org.aavso.tools.vstar.input.ParallelIngester;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
 import org.aavso.tools.vstar.ui.dialog.MessageBox;
 import org.aavso.tools.vstar.ui.mediator.StarInfo;
@@ -53,6 +55,9 @@ public abstract class TESSObservationRetrieverBase extends AbstractObservationRe
 
     public static final double INVALID_MAG = 99.99;
 
+    // The number of observations collected at a time.
+    private static final int BATCH_SIZE = 10000;
+
     public enum BinaryTableFieldType {
         UNKNOWN, TIME, FLUX, FLUX_ERROR, QUALITY_FLAGS
     }
@@ -84,16 +89,6 @@ public abstract class TESSObservationRetrieverBase extends AbstractObservationRe
         }
     }
 
-    private class RawObservationData {
-        int row;
-        double time;
-        double intensity;
-        double error;
-        Integer quality;
-    }
-
-    private List<BasicHDU[]> hdusList = null;
-
     private String objName = null;
 
     private ObservationSourcePluginBase hostPlugin;
@@ -101,7 +96,6 @@ public abstract class TESSObservationRetrieverBase extends AbstractObservationRe
     public TESSObservationRetrieverBase(ObservationSourcePluginBase hostPlugin) {
         super(hostPlugin.getVelaFilterStr());
         this.hostPlugin = hostPlugin;
-        this.hdusList = new ArrayList<BasicHDU[]>();
     }
 
     /**
@@ -151,35 +145,93 @@ public abstract class TESSObservationRetrieverBase extends AbstractObservationRe
 
         setJDflavour(JDflavour.BJD);
 
-        // BasicHDU initialization occurs in getNumberOfRecords
-        for (int i = 0; i < hdusList.size(); i++) {
-            try {
-                retrieveObservations(hdusList.get(i));
-            } catch (Exception e) {
-                InputStream stream = hostPlugin.getInputStreams().get(i);
-                String inputName = hostPlugin.nameFromStream(stream);
-                MessageBox.showErrorDialog("FITS Read Error", String.format("Not a valid FITS file: %s", inputName));
+        List<InputStream> streams = hostPlugin.getInputStreams();
+        String[] objNames = new String[streams.size()];
+
+        // Each file is independent, so files are decoded concurrently, each
+        // into observations in JD order, which are then merged. Progress is
+        // reported per file.
+        ParallelIngester<InputStream> ingester = hostPlugin.ingestInputStreams(
+                (index, stream, validObs, invalidObs) -> {
+                    objNames[index] = retrieveObservations(stream, validObs, invalidObs);
+                }, this::wasInterrupted, index -> incrementProgress());
+
+        if (ingester == null) {
+            return;
+        }
+
+        for (Exception e : ingester.getErrors().values()) {
+            MessageBox.showErrorDialog("FITS Read Error", e.getLocalizedMessage());
+        }
+
+        // As for sequential loading, the last file's object name is used.
+        for (String name : objNames) {
+            if (name != null) {
+                objName = name;
             }
         }
+
+        List<ValidObservation> obs = ingester.getValidObservations();
+        for (int i = 0; i < obs.size() && !wasInterrupted(); i += BATCH_SIZE) {
+            collectObservationBatch(obs.subList(i, Math.min(i + BATCH_SIZE, obs.size())));
+        }
+
+        for (InvalidObservation ob : ingester.getInvalidObservations()) {
+            addInvalidObservation(ob);
+        }
     }
 
-    private void retrieveObservations(BasicHDU[] hdus) throws FitsException, ObservationReadError {
+    /**
+     * Read a FITS file's observations.
+     * 
+     * @param stream     The FITS file stream.
+     * @param validObs   The list to which valid observations are added.
+     * @param invalidObs The list to which invalid observations are added.
+     * @return The file's object name; may be null.
+     * @throws ObservationReadError if the file cannot be read or is not valid
+     *                              for this source.
+     */
+    private String retrieveObservations(InputStream stream, List<ValidObservation> validObs,
+            List<InvalidObservation> invalidObs) throws ObservationReadError {
 
-        if (!validateFITS(hdus)) {
-            throw new ObservationReadError();
+        String inputName = hostPlugin.nameFromStream(stream);
+
+        BasicHDU[] hdus;
+        try {
+            hdus = new Fits(stream).read();
+        } catch (Exception e) {
+            throw new ObservationReadError(String.format("Error reading file: %s", inputName));
+        }
+
+        try {
+            if (hdus != null && hdus.length > 1 && hdus[1] instanceof BinaryTableHDU && validateFITS(hdus)) {
+                return retrieveObservations(hdus, validObs, invalidObs);
+            }
+        } catch (Exception e) {
+            // Reported below.
         }
 
+        throw new ObservationReadError(String.format("Not a valid FITS file: %s", inputName));
+    }
+
+    private String retrieveObservations(BasicHDU[] hdus, List<ValidObservation> validObs,
+            List<InvalidObservation> invalidObs) throws FitsException, ObservationReadError {
+
         // KEPLER, TESS, QLP and LightKurve FITS
         if (hdus.length > 1 && hdus[0] instanceof ImageHDU && hdus[1] instanceof BinaryTableHDU) {
 
-            // Lists to store observations before median level adjust
-            List<RawObservationData> rawObsList = new ArrayList<RawObservationData>();
-            List<InvalidObservation> invalidObsList = new ArrayList<InvalidObservation>();
-
             ImageHDU imageHDU = (ImageHDU) hdus[0];
 
-            objName = imageHDU.getObject();
+            String fileObjName = imageHDU.getObject();
             SeriesType seriesType = getSeriesType(hdus);
+
+            // All of a file's observations are in one band and have no
+            // observer code, so if the predicate rejects these, there is no
+            // need to read the table.
+            ObservationPredicate predicate = getPredicate();
+            if (!predicate.acceptsBand(seriesType) || !predicate.acceptsObsCode(null)) {
+                return fileObjName;
+            }
             double refMag = getRefMagnitude(hdus);
             String refMagDescription = getRefMagnitudeDescription(hdus);
 
@@ -195,56 +247,40 @@ public abstract class TESSObservationRetrieverBase extends AbstractObservationRe
                 throw new ObservationReadError("Cannot find determine reference epoch");
             }
 
-            for (int row = 0; row < tableHDU.getNRows() && !wasInterrupted(); row++) {
-                try {
-                    double barytime = ((double[]) tableHDU.getElement(row, timeColumn))[0];
-                    double bjd = barytime + timeRef;
-
-                    float flux = ((float[]) tableHDU.getElement(row, fluxColumn))[0];
-                    float flux_err = 0;
-                    if (fluxErrColumn >= 0) {
-                        flux_err = ((float[]) tableHDU.getElement(row, fluxErrColumn))[0];
-                    }
-                    Integer qualityFlags = null;
-                    if (qalityFlagsColumn >= 0) {
-                        qualityFlags = ((int[]) tableHDU.getElement(row, qalityFlagsColumn))[0];
-                    }
-
-                    if (!Float.isInfinite(flux) && !Float.isInfinite(flux_err) && !Float.isNaN(flux)
-                            && !Float.isNaN(flux_err) && (flux > 0)) {
-                        RawObservationData rawObs = new RawObservationData();
-                        rawObs.row = row;
-                        rawObs.time = bjd;
-                        rawObs.intensity = flux;
-                        rawObs.error = flux_err;
-                        rawObs.quality = qualityFlags;
-
-                        rawObsList.add(rawObs);
-                    } else {
-                        throw new ObservationReadErrorFITS("Invalid flux or flux error", bjd, flux, flux_err);
-                    }
-                } catch (Exception e) {
-                    String input;
-                    if (e instanceof ObservationReadErrorFITS) {
-                        input = String.format(Locale.ENGLISH, "Time = %f, Flux = %f, Flux error = %f",
-                                ((ObservationReadErrorFITS) e).getTime(), ((ObservationReadErrorFITS) e).getFlux(),
-                                ((ObservationReadErrorFITS) e).getFluxError());
-                    } else {
-                        input = "";
-                    }
-                    String error = e.getLocalizedMessage();
-                    InvalidObservation ob = new InvalidObservation(input, error);
+            // Read the columns of interest as whole arrays rather than one
+            // table element at a time.
+            int rows = tableHDU.getNRows();
+            double[] times = getDoubleColumn(tableHDU, timeColumn);
+            double[] fluxes = getDoubleColumn(tableHDU, fluxColumn);
+            double[] fluxErrors = fluxErrColumn >= 0 ? getDoubleColumn(tableHDU, fluxErrColumn) : null;
+            int[] qualityFlags = qalityFlagsColumn >= 0 ? getIntColumn(tableHDU, qalityFlagsColumn) : null;
+
+            // Rows with valid flux values, in order.
+            int[] validRows = new int[rows];
+            int validCount = 0;
+
+            for (int row = 0; row < rows && !wasInterrupted(); row++) {
+                double flux = fluxes[row];
+                double flux_err = fluxErrors != null ? fluxErrors[row] : 0;
+
+                if (!Double.isInfinite(flux) && !Double.isInfinite(flux_err) && !Double.isNaN(flux)
+                        && !Double.isNaN(flux_err) && (flux > 0)) {
+                    validRows[validCount++] = row;
+                } else if (predicate.acceptsJD(times[row] + timeRef)) {
+                    String input = String.format(Locale.ENGLISH, "Time = %f, Flux = %f, Flux error = %f",
+                            times[row] + timeRef, flux, flux_err);
+                    InvalidObservation ob = new InvalidObservation(input, "Invalid flux or flux error");
                     ob.setRecordNumber(row);
-                    invalidObsList.add(ob);
+                    invalidObs.add(ob);
                 }
             }
 
             // Calculating magShift (median of all points)
             double magShift = 15.0; // arbitrary value
             if (refMag != INVALID_MAG) {
-                double flux[] = new double[rawObsList.size()];
-                for (int i = 0; i < rawObsList.size(); i++) {
-                    flux[i] = rawObsList.get(i).intensity;
+                double flux[] = new double[validCount];
+                for (int i = 0; i < validCount; i++) {
+                    flux[i] = fluxes[validRows[i]];
                 }
                 Median median = new Median();
                 double median_flux = median.evaluate(flux);
@@ -252,73 +288,95 @@ public abstract class TESSObservationRetrieverBase extends AbstractObservationRe
                 magShift = refMag - median_inst_mag;
             }
 
-            for (RawObservationData rawObs : rawObsList) {
-                double mag = magShift - 2.5 * Math.log10(rawObs.intensity);
-                double magErr = 1.086 * rawObs.error / rawObs.intensity;
+            String name = fileObjName;
+            if (name == null || "".equals(name.trim())) {
+                name = hostPlugin.getInputName();
+            }
 
-                ValidObservation ob = new ValidObservation();
-                if (objName != null && !"".equals(objName.trim())) {
-                    ob.setName(objName);
-                } else {
-                    ob.setName(hostPlugin.getInputName());
+            // The magnitude shift depends on all valid rows, so rows outside
+            // the predicate's JD range are only rejected now.
+            for (int i = 0; i < validCount && !wasInterrupted(); i++) {
+                int row = validRows[i];
+                if (!predicate.acceptsJD(times[row] + timeRef)) {
+                    continue;
                 }
-                ob.setDateInfo(new DateInfo(rawObs.time));
+
+                double flux = fluxes[row];
+                double flux_err = fluxErrors != null ? fluxErrors[row] : 0;
+
+                double mag = magShift - 2.5 * Math.log10(flux);
+                double magErr = 1.086 * flux_err / flux;
+
+                ValidObservation ob = new ValidObservation();
+                ob.setName(name);
+                ob.setDateInfo(new DateInfo(times[row] + timeRef));
                 ob.setMagnitude(new Magnitude(mag, magErr));
                 ob.setBand(seriesType);
-                ob.setRecordNumber(rawObs.row);
+                ob.setRecordNumber(row);
                 if (refMagDescription != null && refMag != INVALID_MAG) {
                     ob.addDetail("HEADER_MAG", refMag, refMagDescription);
                 }
-                ;
-                ob.addDetail("FLUX", rawObs.intensity, "Flux");
-                if (qalityFlagsColumn >= 0 && rawObs.quality != null) {
-                    ob.addDetail("QUALITY", rawObs.quality, "Quality");
+                ob.addDetail("FLUX", flux, "Flux");
+                if (qualityFlags != null) {
+                    ob.addDetail("QUALITY", qualityFlags[row], "Quality");
                 }
-                collectObservation(ob);
-                incrementProgress();
+                validObs.add(ob);
             }
 
-            for (InvalidObservation ob : invalidObsList) {
-                addInvalidObservation(ob);
-                incrementProgress();
-            }
+            return fileObjName;
         } else {
             throw new ObservationReadError();
         }
     }
 
-    @Override
-    public Integer getNumberOfRecords() throws ObservationReadError {
+    // Return a table column of numeric scalars as an array of doubles.
+    private static double[] getDoubleColumn(BinaryTableHDU tableHDU, int column) throws FitsException {
+        Object data = tableHDU.getColumn(column);
 
-        hdusList.clear();
-
-        for (InputStream fitsStream : hostPlugin.getInputStreams()) {
-            try {
-                Fits fits = new Fits(fitsStream);
-                BasicHDU[] hdus = fits.read();
-                if (hdus.length > 1 && hdus[1] instanceof BinaryTableHDU) {
-                    hdusList.add(hdus);
-                } else {
-                    String msg =
-                            String.format("Not a valid FITS file: %s",
-                                    hostPlugin.nameFromStream(fitsStream));
-                    MessageBox.showErrorDialog("FITS Read Error", msg);
-                }
-            } catch (Exception e) {
-                String msg =
-                        String.format("Error reading file: %s",
-                                hostPlugin.nameFromStream(fitsStream));
-                MessageBox.showErrorDialog("FITS Read Error", msg);
+        if (data instanceof double[]) {
+            return (double[]) data;
+        }
+
+        double[] values = new double[Array.getLength(data)];
+        if (data instanceof float[]) {
+            float[] floats = (float[]) data;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = floats[i];
+            }
+        } else {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Array.getDouble(data, i);
             }
         }
 
-        int records = 0;
-        for (BasicHDU[] hdus : hdusList) {
-            BinaryTableHDU tableHDU = (BinaryTableHDU) hdus[1];
-            records += tableHDU.getNRows();
+        return values;
+    }
+
+    // Return a table column of integer scalars as an array of ints.
+    private static int[] getIntColumn(BinaryTableHDU tableHDU, int column) throws FitsException {
+        Object data = tableHDU.getColumn(column);
+
+        if (data instanceof int[]) {
+            return (int[]) data;
         }
 
-        return records;
+        int[] values = new int[Array.getLength(data)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Array.getInt(data, i);
+        }
+
+        return values;
+    }
+
+    /**
+     * Files are read when observations are retrieved, and progress is
+     * reported per file.
+     * 
+     * @return the number of files
+     */
+    @Override
+    public Integer getNumberOfRecords() throws ObservationReadError {
+        return hostPlugin.getInputStreams().size();
     }
 
     @Override
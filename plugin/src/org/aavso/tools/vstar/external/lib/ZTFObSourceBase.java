@@ -18,11 +18,9 @@
 package org.aavso.tools.vstar.external.lib;
 
 import java.awt.Color;
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.Locale;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -44,6 +42,8 @@ import org.aavso.tools.vstar.data.validation.UncertaintyValueValidator;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.MappedObservationFileReader;
+import org.aavso.tools.vstar.input.ObservationPredicate;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
 import org.aavso.tools.vstar.util.Tolerance;
 
@@ -86,11 +86,11 @@ public abstract class ZTFObSourceBase extends ObservationSourcePluginBase {
 		private Map<String, Integer> fieldIndices;
 		
 		//private String obscode = "ZTF";
-		private String delimiter = null;
+		private char delimiter;
 		//private String objectName;
 		private HashSet<String> ztfObjects;
 		
-		private List<String> lines;
+		private MappedObservationFileReader reader;
 
 		private JulianDayValidator julianDayValidator;
 		private MagnitudeFieldValidator magnitudeFieldValidator;
@@ -124,36 +124,43 @@ public abstract class ZTFObSourceBase extends ObservationSourcePluginBase {
 
 			setJDflavour(JDflavour.HJD);
 
-			if (lines.size() == 0) {
+			if (reader == null) {
+				getNumberOfRecords();
+			}
+
+			if (reader.getSize() == 0) {
 				return;
 			}
-			
+
 			boolean headerFound = false;
 			
 			String firstError = null;
-			for (int i = 0; i < lines.size(); i++) {
-				String line = lines.get(i);
-				if (line != null) {
-					line = line.trim();
-					if (!"".equals(line)) {
+			try {
+				while (reader.nextLine()) {
+					if (!reader.isBlankLine()) {
 						if (headerFound) {
 							try {
-								ValidObservation vo = readNextObservation(line.split(delimiter), i + 1);
-								collectObservation(vo);
+								reader.split(delimiter);
+								if (isSelected()) {
+									ValidObservation vo = readNextObservation(reader.getLineNumber());
+									collectObservation(vo);
+								}
 							} catch (Exception e) {
 								// Create an invalid observation.
 								String error = e.getLocalizedMessage();
 								if (firstError == null) firstError = error;
-								InvalidObservation ob = new InvalidObservation(line, error);
-								ob.setRecordNumber(i + 1);
+								InvalidObservation ob = new InvalidObservation(reader.getLine().trim(), error);
+								ob.setRecordNumber(reader.getLineNumber());
 								addInvalidObservation(ob);
 							}
 						} else {
-							headerFound = checkForHeaderAndFillFieldIndices(line);
+							headerFound = checkForHeaderAndFillFieldIndices();
 						}
 					}
+					incrementProgress();
 				}
-				incrementProgress();
+			} catch (IOException e) {
+				throw new ObservationReadError("Error reading lines");
 			}
 			
 			if (!headerFound)
@@ -165,24 +172,16 @@ public abstract class ZTFObSourceBase extends ObservationSourcePluginBase {
 			
 		}
 		
-		private boolean checkForHeaderAndFillFieldIndices(String line) {
-			String localDelim = "\t";
-			if (checkForHeaderAndFillFieldIndices(line.split(localDelim))) {
-				delimiter = localDelim;
-				return true;
-			} else {
-				localDelim = ",";
-				if (checkForHeaderAndFillFieldIndices(line.split(localDelim))) {
+		// Is the current line a header? Since fields are trimmed, a tab
+		// delimiter also covers the spaces before tabs that occur when the
+		// user copies data from an HTML table generated via VSX "External
+		// Links" ZTF.
+		private boolean checkForHeaderAndFillFieldIndices() {
+			for (char localDelim : new char[] { '\t', ',' }) {
+				reader.split(localDelim);
+				if (checkForHeaderAndFillFieldIndices(reader.getFields())) {
 					delimiter = localDelim;
 					return true;
-				} else {
-					// This special delimiter occurs when the user copies data from an HTML table generated via VSX "External Links" ZTF
-					//localDelim = "\s*\t";
-					localDelim = " *\t";
-					if (checkForHeaderAndFillFieldIndices(line.split(localDelim))) {
-						delimiter = localDelim;
-						return true;
-					}
 				}
 			}
 			return false;
@@ -211,96 +210,118 @@ public abstract class ZTFObSourceBase extends ObservationSourcePluginBase {
 		
 		@Override
 		public Integer getNumberOfRecords() throws ObservationReadError {
-			if (lines == null) {
+			try {
+				if (reader == null) {
+					reader = new MappedObservationFileReader(getInputStreams().get(0));
+				}
+				return reader.countLines();
+			} catch (IOException e) {
+				throw new ObservationReadError("Error reading lines");
+			}
+		}
+
+		// Could the current line satisfy the predicate, judging by its time and
+		// filter? Lines whose time cannot be read are left to be reported as
+		// invalid. Every line's object is noted, since the source name does not
+		// depend on the predicate.
+		private boolean isSelected() {
+			ObservationPredicate predicate = getPredicate();
+			if (predicate.acceptsAll()) {
+				return true;
+			}
+
+			ztfObjects.add(reader.getField(fieldIndices.get("oid")));
+
+			if (predicate.restrictsJD()) {
 				try {
-					readLines();
-				} catch (IOException e) {
-					throw new ObservationReadError("Error reading lines");
+					if (!predicate.acceptsJD(reader.getDouble(fieldIndices.get("hjd")))) {
+						return false;
+					}
+				} catch (NumberFormatException e) {
+					// Leave it to validation.
 				}
 			}
 
-			return lines.size();
+			// ZTF observations have no observer code.
+			return predicate.acceptsBand(band(fieldIndices.get("filtercode")))
+					&& predicate.acceptsObsCode(null);
 		}
 
-		// Read all lines from the source.
-		private void readLines() throws IOException {
-			lines = new ArrayList<String>();
-			BufferedReader reader = new BufferedReader(new InputStreamReader(getInputStreams().get(0)));
-			String line;
-			while ((line = reader.readLine()) != null) {
-				lines.add(line);
+		// The band given by the specified filter code field.
+		private SeriesType band(int filter) {
+			SeriesType band;
+			if (reader.fieldEquals(filter, "zg", false)) {
+				band = ztfgSeries;
+			} else if (reader.fieldEquals(filter, "zr", false)) {
+				band = ztfrSeries;
+			} else if (reader.fieldEquals(filter, "zi", false)) {
+				band = ztfiSeries;
+			} else {
+				band = ztfUnknownSeries;
 			}
+			return band;
 		}
 
-		// ZTF format observation reader.
-		private ValidObservation readNextObservation(String[] fields, int recordNumber)
+		// ZTF format observation reader, from the fields of the current line.
+		private ValidObservation readNextObservation(int recordNumber)
 				throws ObservationValidationError {
 
 			ValidObservation observation = new ValidObservation();
 
-			String name = fields[fieldIndices.get("oid")].trim();
+			String name = reader.getField(fieldIndices.get("oid"));
 			ztfObjects.add(name);
 
 			observation.setRecordNumber(recordNumber);
 			observation.setName(name);
 			//observation.setObsCode(obscode);
 
-			DateInfo dateInfo = new DateInfo(julianDayValidator.validate(fields[fieldIndices.get("hjd")].trim()).getJulianDay());
+			DateInfo dateInfo = new DateInfo(julianDayValidator.validate(reader.getField(fieldIndices.get("hjd"))).getJulianDay());
 			observation.setDateInfo(dateInfo);
 
-			Magnitude magnitude = magnitudeFieldValidator.validate(fields[fieldIndices.get("mag")].trim());
+			Magnitude magnitude = magnitudeFieldValidator.validate(reader.getField(fieldIndices.get("mag")));
 			observation.setMagnitude(magnitude);
-			double uncertainty = uncertaintyValueValidator.validate(fields[fieldIndices.get("magerr")].trim());
+			double uncertainty = uncertaintyValueValidator.validate(reader.getField(fieldIndices.get("magerr")));
 			observation.getMagnitude().setUncertainty(uncertainty);
 
-			String filter = fields[fieldIndices.get("filtercode")].trim();
-			SeriesType band;
-			if (filter.equals("zg")) {
-				band = ztfgSeries;
-			} else if (filter.equals("zr")) {
-				band = ztfrSeries;
-			} else if (filter.equals("zi")) {
-				band = ztfiSeries;
-			} else {
-				band = ztfUnknownSeries;
-			}
-			observation.setBand(band);
+			observation.setBand(band(fieldIndices.get("filtercode")));
 
 			// ValidObservation defaults to STD.
 			observation.setMType(MTypeType.STD);
 
 			//observation.setComments("");
 
-			addDetailAsInteger(observation, "catflags", fields[fieldIndices.get("catflags")]);
-			addDetailAsDouble(observation, "exptime", fields[fieldIndices.get("exptime")]);			
-			addDetailAsDouble(observation, "airmass", fields[fieldIndices.get("airmass")]);
+			addDetailAsInteger(observation, "catflags", fieldIndices.get("catflags"));
+			addDetailAsDouble(observation, "exptime", fieldIndices.get("exptime"));			
+			addDetailAsDouble(observation, "airmass", fieldIndices.get("airmass"));
 			// todo: add other details
 			
 			return observation;
 		}
 		
-		void addDetailAsInteger(ValidObservation observation, String key, String detail) {
-			if (detail != null) {
-				Integer i;
-				try {
-					i = Integer.valueOf(detail.trim());
-				} catch (NumberFormatException e) {
-					return;
-				}
-				observation.addDetail(key.toUpperCase(), i, key);
+		void addDetailAsInteger(ValidObservation observation, String key, int index) {
+			Integer i;
+			try {
+				i = reader.getInt(index);
+			} catch (NumberFormatException e) {
+				return;
 			}
+			observation.addDetail(key.toUpperCase(), i, key);
 		}
 
-		void addDetailAsDouble(ValidObservation observation, String key, String detail) {
-			if (detail != null) {
-				Double d;
-				try {
-					d = Double.valueOf(detail.trim());
-				} catch (NumberFormatException e) {
-					return;
-				}
-				observation.addDetail(key.toUpperCase(), d, key);
+		void addDetailAsDouble(ValidObservation observation, String key, int index) {
+			Double d;
+			try {
+				d = reader.getDouble(index);
+			} catch (NumberFormatException e) {
+				return;
 			}
+			observation.addDetail(key.toUpperCase(), d, key);
+		}
+
+		@Override
+		public boolean isSourceOrdered() {
+			// Light curves may be grouped by object and filter.
+			return false;
 		}
 
 		@Override
@@ -347,7 +368,7 @@ public abstract class ZTFObSourceBase extends ObservationSourcePluginBase {
 
 			ZTFFormatRetriever retriever = new ZTFFormatRetriever();
 			retriever.getNumberOfRecords();
-			retriever.retrieveObservations();
+			retriever.retrieve();
 
 			List<ValidObservation> ztfObs = retriever.getValidObservations();
 			success &= 1 == ztfObs.size();
@@ -320,7 +320,7 @@ public class AAVSOPhotometrySearchExportFormatObservationSource extends Observat
 
             AbstractObservationRetriever retriever = getObservationRetriever();
             try {
-                retriever.retrieveObservations();
+                retriever.retrieve();
 
                 List<ValidObservation> obs = retriever.getValidObservations();
 
@@ -346,7 +346,7 @@ public class AAVSOPhotometrySearchExportFormatObservationSource extends Observat
 
             AbstractObservationRetriever retriever = getObservationRetriever();
             try {
-                retriever.retrieveObservations();
+                retriever.retrieve();
 
                 List<ValidObservation> obs = retriever.getValidObservations();
 
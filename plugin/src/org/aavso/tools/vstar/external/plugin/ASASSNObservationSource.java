@@ -21,9 +21,7 @@ package org.aavso.tools.vstar.external.plugin;
 import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dimension;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -50,6 +48,7 @@ import org.aavso.tools.vstar.data.validation.UncertaintyValueValidator;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.MappedObservationFileReader;
 import org.aavso.tools.vstar.plugin.InputType;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
 //12/02/2018 C. Kotnik added name to observations so they can be
@@ -231,7 +230,7 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 		private Map<String, Integer> fieldIndices;
 		private Map<String, ObsDetailInfo> optionalFieldIndices;
 
-		private List<String> lines;
+		private MappedObservationFileReader reader;
 		
 		private double userDefinedErrLimit;
 		private boolean loadExcludedObs;
@@ -243,7 +242,7 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 		
 		private static final double INVALID_MAG = 99.99;
 		
-		private static final String DELIMITER = ",";
+		private static final char DELIMITER = ',';
 
 		private JulianDayValidator julianDayValidator;
 		private MagnitudeFieldValidator magnitudeFieldValidator;
@@ -292,22 +291,21 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 		public void retrieveObservations() throws ObservationReadError,
 				InterruptedException {
 
-			if (lines.size() == 0) {
-				return;
+			if (reader == null) {
+				getNumberOfRecords();
 			}
-			
+
 			String[] header = null;
 			
 			String firstError = null;
-			for (int i = 0; i < lines.size(); i++) {
-				String line = lines.get(i);
-				if (line != null) {
-					line = line.trim();
-					if (!"".equals(line) && line.charAt(0) != '#') {
+			try {
+				while (reader.nextLine()) {
+					if (!reader.isBlankLine() && !reader.isCommentLine('#')) {
+						reader.split(DELIMITER);
 						if (header != null) {
 							try {
 								ValidObservation ob = readNextObservation(
-										line.split(DELIMITER), i + 1,
+										reader.getLineNumber(),
 										userDefinedErrLimit, loadASASSN_V_as_Johnson_V, loadASASSN_g_as_Sloan_g);
 								if (ob != null)
 								{
@@ -325,16 +323,18 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 								// Create an invalid observation.
 								String error = e.getLocalizedMessage();
 								if (firstError == null) firstError = error;
-								InvalidObservation ob = new InvalidObservation(line, error);
-								ob.setRecordNumber(i + 1);
+								InvalidObservation ob = new InvalidObservation(reader.getLine().trim(), error);
+								ob.setRecordNumber(reader.getLineNumber());
 								addInvalidObservation(ob);
 							}
 						} else {
-							header = checkForHeaderAndFillFieldIndices(line.split(DELIMITER));
+							header = checkForHeaderAndFillFieldIndices(reader.getFields());
 						}
 					}
+					incrementProgress();
 				}
-				incrementProgress();
+			} catch (IOException e) {
+				throw new ObservationReadError("Error reading lines");
 			}
 		}
 
@@ -421,8 +421,9 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 					loadUnknownFilterMagnitudes && (series == SeriesType.Unknown);
 		}
 
+		// Read an observation from the fields of the current line.
 		private ValidObservation readNextObservation(
-				String[] fields, int lineNum,
+				int lineNum,
 				double userDefinedErrLimit, 
 				boolean loadASASSN_V_as_Johnson_V, 
 				boolean loadASASSN_g_as_Sloan_g)
@@ -436,7 +437,7 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 			if (index < 0) {
 				filter = "V";
 			} else {
-				filter = fields[index].trim();
+				filter = reader.getField(index);
 			}
 			
 			if (filter.equals("V"))
@@ -459,9 +460,9 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 
 			ValidObservation observation = new ValidObservation();
 
-			DateInfo hjd = julianDayValidator.validate(fields[fieldIndices.get("HJD")].trim());
-			Magnitude mag = magnitudeFieldValidator.validate(fields[fieldIndices.get("MAG")].trim());
-			double err = uncertaintyValueValidator.validate(fields[fieldIndices.get("MAG_ERR")]);
+			DateInfo hjd = julianDayValidator.validate(reader.getField(fieldIndices.get("HJD")));
+			Magnitude mag = magnitudeFieldValidator.validate(reader.getField(fieldIndices.get("MAG")));
+			double err = uncertaintyValueValidator.validate(reader.getField(fieldIndices.get("MAG_ERR")));
 			if (err == INVALID_MAG) {
 				err = 0.0;
 				if (filter.equals("V"))
@@ -498,10 +499,10 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 				if (info.index >= 0) {
 					switch (info.type) {
 						case REAL:
-							addDetailAsDouble(observation, key, fields[info.index]);
+							addDetailAsDouble(observation, key, info.index);
 							break;
 						default:
-							observation.addDetail(key.toUpperCase(), fields[info.index].trim(), key);
+							observation.addDetail(key.toUpperCase(), reader.getField(info.index), key);
 					}
 					
 				}
@@ -512,44 +513,31 @@ public class ASASSNObservationSource extends ObservationSourcePluginBase {
 			if (index < 0) {
 				observation.addDetail("ASASSN_BAND", "", "ASASSN_BAND");
 			} else {
-				observation.addDetail("ASASSN_BAND", fields[index].trim(), "ASASSN_BAND");
+				observation.addDetail("ASASSN_BAND", filter, "ASASSN_BAND");
 			}
 			
 			return observation;
 		}
 		
-		void addDetailAsDouble(ValidObservation observation, String key, String detail) {
-			if (detail != null) {
-				Double d;
-				try {
-					d = Double.valueOf(detail.trim());
-				} catch (NumberFormatException e) {
-					return;
-				}
-				observation.addDetail(key.toUpperCase(), d, key);
+		void addDetailAsDouble(ValidObservation observation, String key, int index) {
+			Double d;
+			try {
+				d = reader.getDouble(index);
+			} catch (NumberFormatException e) {
+				return;
 			}
+			observation.addDetail(key.toUpperCase(), d, key);
 		}
 
 		@Override
 		public Integer getNumberOfRecords() throws ObservationReadError {
-			if (lines == null) {
-				try {
-					readLines();
-				} catch (IOException e) {
-					throw new ObservationReadError("Error reading lines");
+			try {
+				if (reader == null) {
+					reader = new MappedObservationFileReader(getInputStreams().get(0));
 				}
-			}
-
-			return lines.size();
-		}
-
-		// Read all lines from the source.
-		private void readLines() throws IOException {
-			lines = new ArrayList<String>();
-			BufferedReader reader = new BufferedReader(new InputStreamReader(getInputStreams().get(0)));
-			String line;
-			while ((line = reader.readLine()) != null) {
-				lines.add(line);
+				return reader.countLines();
+			} catch (IOException e) {
+				throw new ObservationReadError("Error reading lines");
 			}
 		}
 	
@@ -373,7 +373,7 @@ public class BMinusVObservationSource extends ObservationSourcePluginBase {
 			// create B-V observations
 			AbstractObservationRetriever retriever = getObservationRetriever();
 			retriever.getNumberOfRecords(); // identifies B & V observations
-			retriever.retrieveObservations();
+			retriever.retrieve();
 
 			List<ValidObservation> bvObs = retriever.getValidObservations();
 
@@ -18,9 +18,7 @@
 
 package org.aavso.tools.vstar.external.plugin;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
@@ -44,13 +42,15 @@ import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.exception.ObservationValidationWarning;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.MappedObservationFileReader;
+import org.aavso.tools.vstar.input.ObservationPredicate;
 import org.aavso.tools.vstar.plugin.InputType;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
 import org.aavso.tools.vstar.ui.mediator.StarInfo;
 import org.aavso.tools.vstar.util.Pair;
 
+import org.aavso.tools.vstar.vela.CompiledVeLaProgram;
 import org.aavso.tools.vstar.vela.VeLaInterpreter;
-import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment;
 import org.aavso.tools.vstar.vela.Operand;
 import org.aavso.tools.vstar.vela.Type;
 import org.aavso.tools.vstar.vela.VeLaParseError;
@@ -182,7 +182,7 @@ public class FlexibleTextFileFormatObservationSource extends
 		private double dateAdd = 0.0;
 		private boolean ignoreValidationErrors = false;
 		private boolean escapingQuotes = false;
-		private List<String> lines = null;
+		private MappedObservationFileReader reader = null;
 		
 		private Hashtable<KnownFields, Integer> fieldMap; 
 
@@ -193,6 +193,7 @@ public class FlexibleTextFileFormatObservationSource extends
 		private ValflagValidator valflagValidator;
 
 		private VeLaInterpreter vela = null;
+		private CompiledVeLaProgram velaFilter = null;
 
 		/**
 		 * Constructor
@@ -217,15 +218,19 @@ public class FlexibleTextFileFormatObservationSource extends
 				InterruptedException {
 
 			try {
-				int lineNum = 0;
 				boolean terminateReading = false;
 
-				for (String line : lines) {
+				if (reader == null) {
+					getNumberOfRecords();
+				}
+
+				while (reader.nextLine()) {
 					if (wasInterrupted())
 						break;
-					lineNum++;
+					int lineNum = reader.getLineNumber();
+					// Lines are split with quotes, so are read as strings.
+					String line = reader.getLine();
 					try {
-						if (line == null) continue;
 						line = line.replaceFirst("\n", "").replaceFirst("\r", "");
 						if (isNullOrEmpty(line)) continue;
 						if (line.startsWith("#")) {
@@ -243,7 +248,7 @@ public class FlexibleTextFileFormatObservationSource extends
 							}
 						} else {
 							String[] fields = splitWithQuotes(line,	delimiter, multispaceDelimiter,	DEFAULT_QUOTEMARK, escapingQuotes);
-							ValidObservation ob = readNextObservation(fields);
+							ValidObservation ob = isSelected(fields) ? readNextObservation(fields) : null;
 							if (ob != null) {
 								ob.setRecordNumber(lineNum);
 								collectObservation(ob);
@@ -297,23 +302,13 @@ public class FlexibleTextFileFormatObservationSource extends
 
 		@Override
 		public Integer getNumberOfRecords() throws ObservationReadError {
-			if (lines == null) {
-				try {
-					readLines();
-				} catch (IOException e) {
-					throw new ObservationReadError("Error reading lines");
+			try {
+				if (reader == null) {
+					reader = new MappedObservationFileReader(getInputStreams().get(0));
 				}
-			}
-			return lines.size();
-		}
-
-		// Read all lines from the source.
-		private void readLines() throws IOException {
-			lines = new ArrayList<String>();
-			BufferedReader reader = new BufferedReader(new InputStreamReader(getInputStreams().get(0)));
-			String line = null;
-			while ((line = reader.readLine()) != null) {
-				lines.add(line);
+				return reader.countLines();
+			} catch (IOException e) {
+				throw new ObservationReadError("Error reading lines");
 			}
 		}
 
@@ -593,6 +588,57 @@ public class FlexibleTextFileFormatObservationSource extends
 			return new Pair<String, String>(delimCharAsString, null);
 		}
 
+		// Could the observation with the specified fields satisfy the
+		// predicate, judging by its time, filter and observer code, which are
+		// determined as by readNextObservation()? Fields that cannot be read
+		// are left to be reported as invalid.
+		private boolean isSelected(String[] fields) {
+			ObservationPredicate predicate = getPredicate();
+			if (predicate.acceptsAll()) {
+				return true;
+			}
+
+			int timeColumn = fieldMap.get(KnownFields.TIME);
+			if (predicate.restrictsJD() && timeColumn >= 0 && fields.length > timeColumn) {
+				try {
+					if (!predicate.acceptsJD(Double.parseDouble(fields[timeColumn].trim()) + dateAdd)) {
+						return false;
+					}
+				} catch (NumberFormatException e) {
+					// Leave it to validation.
+				}
+			}
+
+			if (predicate.restrictsBand()) {
+				String filter = field(fields, KnownFields.FILTER, defFilter);
+				SeriesType band = isNullOrEmpty(filter) ? SeriesType.Unspecified
+						: SeriesType.getSeriesFromShortName(filter);
+				if (!predicate.acceptsBand(band)) {
+					return false;
+				}
+			}
+
+			if (predicate.restrictsObsCode()) {
+				String obscode = field(fields, KnownFields.OBSCODE, defObsCode);
+				if (!predicate.acceptsObsCode(isNullOrEmpty(obscode) ? null : obscode)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		// The trimmed value of the specified field, or the default value if
+		// absent or empty.
+		private String field(String[] fields, KnownFields key, String defaultValue) {
+			String value = null;
+			int column = fieldMap.get(key);
+			if (column >= 0 && fields.length > column) {
+				value = fields[column].trim();
+			}
+			return isNullOrEmpty(value) ? defaultValue : value;
+		}
+
 		// Read the next observation.
 		private ValidObservation readNextObservation(String[] fields) 
 				throws ObservationValidationError, ObservationValidationWarning {
@@ -727,10 +773,12 @@ public class FlexibleTextFileFormatObservationSource extends
 					vela = new VeLaInterpreter();
 
 				boolean includeObservation = true;
-				vela.pushEnvironment(new VeLaValidObservationEnvironment(
-						observation));
 				try {
-					Optional<Operand> result = vela.program(filterVeLa);
+					// Parse the filter once rather than for each observation.
+					if (velaFilter == null)
+						velaFilter = vela.compileForObservations(filterVeLa);
+
+					Optional<Operand> result = velaFilter.evaluate(observation);
 					if (result.isPresent()) {
 						if (result.get().getType() == Type.BOOLEAN) {
 							includeObservation = result.get().booleanVal();
@@ -743,8 +791,6 @@ public class FlexibleTextFileFormatObservationSource extends
 					if (isNullOrEmpty(error))
 						error = e.toString();
 					observationWarnings = addObservationWarning(observationWarnings, "VeLa filter error: " + error);
-				} finally {
-					vela.popEnvironment();
 				}
 
 				if (!includeObservation)
@@ -907,7 +953,7 @@ public class FlexibleTextFileFormatObservationSource extends
 
 			AbstractObservationRetriever retriever = getObservationRetriever();
 			retriever.getNumberOfRecords();
-			retriever.retrieveObservations();
+			retriever.retrieve();
 
 			success &= 1 == retriever.getValidObservations().size();
 			ValidObservation ob = retriever.getValidObservations().get(0);
@@ -405,7 +405,7 @@ public class KeplerFITSObservationSource extends ObservationSourcePluginBase {
 
 			KeplerFITSObservationRetriever retriever = new KeplerFITSObservationRetriever(false);
 			retriever.getNumberOfRecords();
-			retriever.retrieveObservations();
+			retriever.retrieve();
 
 			List<ValidObservation> obs = retriever.getValidObservations();
 			success &= 1 == obs.size();
@@ -197,7 +197,7 @@ public class LightKurveFITSObservationSource extends ObservationSourcePluginBase
 
             LightKurveFITSObservationRetriever retriever = new LightKurveFITSObservationRetriever();
             retriever.getNumberOfRecords();
-            retriever.retrieveObservations();
+            retriever.retrieve();
 
             List<ValidObservation> obs = retriever.getValidObservations();
             success &= 1 == obs.size();
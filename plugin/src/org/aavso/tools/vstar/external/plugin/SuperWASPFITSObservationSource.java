@@ -35,6 +35,7 @@ import org.aavso.tools.vstar.data.SeriesType;
 import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.ObservationPredicate;
 import org.aavso.tools.vstar.plugin.InputType;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
 import org.aavso.tools.vstar.ui.NumberSelectionPane;
@@ -175,6 +176,8 @@ public class SuperWASPFITSObservationSource extends ObservationSourcePluginBase
 				throws FitsException, ObservationReadError {
 
 			List<ValidObservation> obs = new ArrayList<ValidObservation>();
+
+			ObservationPredicate predicate = getPredicate();
 			
 			// PMAK: minMagErr/maxMagErr are not used anymore
 			//double minMagErr = Double.MAX_VALUE;
@@ -196,18 +199,42 @@ public class SuperWASPFITSObservationSource extends ObservationSourcePluginBase
 						throw new ObservationReadError("Not a valid FITS file");
 					}					
 										
+					// All observations are in one band and have no observer
+					// code, so if the predicate rejects these, there is no
+					// need to read the table.
+					if (!predicate.acceptsBand(loadRaw ? superWaspSeries_raw : superWaspSeries)
+							|| !predicate.acceptsObsCode(null)) {
+						continue;
+					}
+
+					// Read whole columns rather than one table element at a
+					// time.
 					int tableRows = tableHDU.getNRows();
+					int[] tmids = (int[]) tableHDU.getColumn(0);
+					float[] rawFluxes = (float[]) tableHDU.getColumn(1);
+					float[] rawFluxErrs = (float[]) tableHDU.getColumn(2);
+					float[] tamFluxes = (float[]) tableHDU.getColumn(3);
+					float[] tamFluxErrs = (float[]) tableHDU.getColumn(4);
+					String[] imageIds = (String[]) tableHDU.getColumn(5);
+					short[] ccdXs = (short[]) tableHDU.getColumn(6);
+					short[] ccdYs = (short[]) tableHDU.getColumn(7);
+
 					for (int row = 0; row < tableRows && !wasInterrupted(); row++) {
 						try {
-							int tmid = ((int[]) tableHDU.getElement(row, 0))[0];
-							float rawFlux = ((float[]) tableHDU.getElement(row, 1))[0];
-							float rawFluxErr = ((float[]) tableHDU.getElement(row, 2))[0];
-
-							float tamFlux = ((float[]) tableHDU.getElement(row, 3))[0];
-							float tamFluxErr = ((float[]) tableHDU.getElement(row, 4))[0];
-							String imageId = (String) tableHDU.getElement(row, 5);
-							short ccdX = ((short[]) tableHDU.getElement(row, 6))[0];
-							short ccdY = ((short[]) tableHDU.getElement(row, 7))[0];
+							int tmid = tmids[row];
+							double hjd = tmid / 86400.0 + jdRef;
+							if (!predicate.acceptsJD(hjd)) {
+								continue;
+							}
+
+							float rawFlux = rawFluxes[row];
+							float rawFluxErr = rawFluxErrs[row];
+
+							float tamFlux = tamFluxes[row];
+							float tamFluxErr = tamFluxErrs[row];
+							String imageId = imageIds[row];
+							short ccdX = ccdXs[row];
+							short ccdY = ccdYs[row];
 							// short flag = ((short[]) tableHDU.getElement(row,
 							// 8))[0];
 							
@@ -215,7 +242,6 @@ public class SuperWASPFITSObservationSource extends ObservationSourcePluginBase
 							float fluxErr = loadRaw ? rawFluxErr : tamFluxErr;
 							
 							if (flux > 1 && flux - fluxErr > 0) {
-								double hjd = tmid / 86400.0 + jdRef;
 								double mag = 15.0 - 2.5 * Math.log(flux)
 										/ Math.log(10.0);
 								double magErr = 1.086 * fluxErr / flux;
@@ -265,8 +291,8 @@ public class SuperWASPFITSObservationSource extends ObservationSourcePluginBase
 				if (magErr >= magErrThreshold) {
 					ob.setExcluded(true);
 				}
-				collectObservation(ob);
 			}
+			collectObservationBatch(obs);
 		}
 
 		@Override
@@ -35,8 +35,10 @@ import org.aavso.tools.vstar.util.Tolerance;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
 import org.aavso.tools.vstar.util.model.AbstractModel;
 import org.aavso.tools.vstar.util.prefs.NumericPrecisionPrefs;
+import org.aavso.tools.vstar.vela.FunctionExecutor;
 import org.aavso.tools.vstar.vela.Operand;
 import org.aavso.tools.vstar.vela.Type;
+import org.aavso.tools.vstar.vela.VeLaEvalError;
 import org.aavso.tools.vstar.vela.VeLaInterpreter;
 import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment;
 import org.apache.commons.math.FunctionEvaluationException;
@@ -179,11 +181,19 @@ public class VeLaModelCreator extends ModelCreatorPluginBase {
     class VeLaUnivariateRealFunction implements DifferentiableUnivariateRealFunction {
 
         private VeLaInterpreter vela;
-        private String funcName;
+        private FunctionExecutor function;
 
         public VeLaUnivariateRealFunction(VeLaInterpreter vela, String funcName) {
             this.vela = vela;
-            this.funcName = funcName;
+
+            // Resolve the function once so that it can be invoked directly for
+            // each point rather than via a generated function call string.
+            Optional<FunctionExecutor> executor = vela.lookupFunction(funcName, Type.REAL);
+            if (executor.isPresent()) {
+                function = executor.get();
+            } else {
+                throw new VeLaEvalError(funcName.toLowerCase() + "(t:real):real undefined");
+            }
         }
 
         /**
@@ -196,11 +206,9 @@ public class VeLaModelCreator extends ModelCreatorPluginBase {
          */
         @Override
         public double value(double t) throws FunctionEvaluationException {
-            String funCall = funcName + "(" + NumericPrecisionPrefs.formatTime(t) + ")";
-            Optional<Operand> result = vela.program(funCall);
-            if (result.isPresent()) {
-                return result.get().doubleVal();
-            } else {
+            try {
+                return function.invokeAsDouble(t);
+            } catch (VeLaEvalError e) {
                 throw new FunctionEvaluationException(t);
             }
         }
@@ -355,15 +363,15 @@ public class VeLaModelCreator extends ModelCreatorPluginBase {
             if (!interrupted) {
                 try {
                     if (velaModelFunctionStr != null) {
-                        // Evaluate the VeLa model code.
+                        // Compile and evaluate the VeLa model code.
                         // A univariate function f(t:real):real is
                         // assumed to exist after this completes.
-                        vela.program(velaModelFunctionStr);
+                        vela.compile(velaModelFunctionStr).evaluate();
 
                         String funcName = FUNC_NAME;
 
                         // Has a model function been defined?
-                        if (!vela.lookupFunctions(FUNC_NAME).isPresent()) {
+                        if (!vela.lookupFunction(FUNC_NAME, Type.REAL).isPresent()) {
                             MessageBox.showErrorDialog("VeLa Model Error", "f(t:real):real undefined");
                         } else {
                             function = new VeLaUnivariateRealFunction(vela, funcName);
@@ -373,13 +381,18 @@ public class VeLaModelCreator extends ModelCreatorPluginBase {
 
                             String comment = "\n" + velaModelFunctionStr;
 
+                            // An environment that makes each observation
+                            // in turn available to VeLa code.
+                            VeLaValidObservationEnvironment obEnv = new VeLaValidObservationEnvironment();
+
                             // Create fit and residual observations.
                             for (int i = 0; i < obs.size() && !interrupted; i++) {
                                 ValidObservation ob = obs.get(i);
 
                                 // Push an environment that makes the
                                 // observation available to VeLa code.
-                                vela.pushEnvironment(new VeLaValidObservationEnvironment(ob));
+                                obEnv.setObservation(ob);
+                                vela.pushEnvironment(obEnv);
 
                                 // Issue #487: a VeLa function string has no
                                 // inherent way to indicate whether t is a
@@ -417,7 +430,7 @@ public class VeLaModelCreator extends ModelCreatorPluginBase {
 
                             // Has a derivative function been defined?
                             // If so, carry out extrema determination.
-                            if (vela.lookupFunctions(DERIV_FUNC_NAME).isPresent()) {
+                            if (vela.lookupFunction(DERIV_FUNC_NAME, Type.REAL).isPresent()) {
                                 // Use a real VeLa resolution variable
                                 // if it exists, else use a value of
                                 // 0.1.
@@ -90,10 +90,9 @@ import org.aavso.tools.vstar.ui.mediator.StarInfo;
 import org.aavso.tools.vstar.util.Pair;
 import org.aavso.tools.vstar.util.help.Help;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
-import org.aavso.tools.vstar.util.prefs.NumericPrecisionPrefs;
 import org.aavso.tools.vstar.vela.FunctionExecutor;
-import org.aavso.tools.vstar.vela.Operand;
 import org.aavso.tools.vstar.vela.Type;
+import org.aavso.tools.vstar.vela.VeLaEvalError;
 import org.aavso.tools.vstar.vela.VeLaInterpreter;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -252,7 +251,14 @@ public class VeLaObSource extends ObservationSourcePluginBase {
 		// Evaluate the VeLa model code.
 		vela.program(veLaCode);
 
-		// Check if a model function "FUNC_NAME(T:REAL):REAL" is defined 		
+		// Check that a model function is defined.
+		getModelFunction(vela);
+
+		return vela;
+	}
+
+	// Return the model function "FUNC_NAME(T:REAL):REAL"
+	private FunctionExecutor getModelFunction(VeLaInterpreter vela) throws ObservationReadError {
 		Optional<List<FunctionExecutor>> functions = vela.lookupFunctions(FUNC_NAME); 
 		if (functions.isPresent()) {
 			List<FunctionExecutor> funcExecutors = functions.get();
@@ -262,7 +268,7 @@ public class VeLaObSource extends ObservationSourcePluginBase {
 				if (paramTypes != null && paramTypes.size() == 1 && paramTypes.get(0) == Type.REAL) {
 					Optional<Type> returnType = executor.getReturnType();
 					if (returnType.isPresent() && returnType.get() == Type.REAL)
-						return vela;
+						return executor;
 				}
 			}
 		}
@@ -290,6 +296,10 @@ public class VeLaObSource extends ObservationSourcePluginBase {
 			
 			VeLaInterpreter vela = createVeLaInterpreter(veLaCode);
 
+			// Invoke the model function directly for each point rather
+			// than interpreting a function call string.
+			FunctionExecutor function = getModelFunction(vela);
+
 			Double magVal = null;
 			
 			double step = (maxJD - minJD) / (points - 1);
@@ -298,11 +308,9 @@ public class VeLaObSource extends ObservationSourcePluginBase {
 				
 				double time = minJD + i * step;
 				
-				String funCall = FUNC_NAME + "(" + NumericPrecisionPrefs.formatTime(time) + ")";
-				Optional<Operand> result = vela.program(funCall);
-				if (result.isPresent() && result.get().getType() == Type.REAL) {
-					magVal = result.get().doubleVal();
-				} else {
+				try {
+					magVal = function.invokeAsDouble(time);
+				} catch (VeLaEvalError e) {
 					throw new ObservationReadError("VeLa expression: Expected a Real value");
 				}
 
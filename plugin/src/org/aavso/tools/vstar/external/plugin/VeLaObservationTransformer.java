@@ -38,10 +38,10 @@ import org.aavso.tools.vstar.ui.undo.IUndoableAction;
 import org.aavso.tools.vstar.ui.vela.VeLaDialog;
 import org.aavso.tools.vstar.util.Pair;
 import org.aavso.tools.vstar.util.notification.Listener;
+import org.aavso.tools.vstar.vela.CompiledVeLaProgram;
 import org.aavso.tools.vstar.vela.Operand;
 import org.aavso.tools.vstar.vela.Type;
 import org.aavso.tools.vstar.vela.VeLaInterpreter;
-import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment;
 
 /**
  * This plugin allows a VeLa function to be used for observation transformation.
@@ -102,6 +102,9 @@ public class VeLaObservationTransformer extends ObservationTransformerPluginBase
                     }
                     // Note: there being no unconditional break here is on purpose!
                 case REDO:
+                    // Parse the function call once for all observations.
+                    CompiledVeLaProgram funCall = vela.compileForObservations("do()");
+
                     for (SeriesType seriesType : series) {
                         for (ValidObservation ob : seriesInfo.getObservations(seriesType)) {
                             // Store old magnitude for undo
@@ -117,15 +120,10 @@ public class VeLaObservationTransformer extends ObservationTransformerPluginBase
                             }
                             errs.get(seriesType).add(magnitude.getUncertainty());
 
-                            // Push an environment that makes the
-                            // observation available to VeLa code...
-                            vela.pushEnvironment(new VeLaValidObservationEnvironment(ob));
-
-                            // ...and call the function with the current
-                            // observation's magnitude and error values.
-                            String funCall = String.format("do()", magnitude.getMagValue(), magnitude.getUncertainty());
-
-                            Optional<Operand> result = vela.program(funCall);
+                            // Call the function in an environment that makes
+                            // the observation's magnitude and error values
+                            // available to VeLa code.
+                            Optional<Operand> result = funCall.evaluate(ob);
 
                             if (result.isPresent() && result.get().getType() == Type.LIST) {
                                 Operand op = result.get();
@@ -155,9 +153,6 @@ public class VeLaObservationTransformer extends ObservationTransformerPluginBase
                                 ok = false;
                                 MessageBox.showErrorDialog("VeLa Error", "Expected a 2 element result list");
                             }
-
-                            // Push current observation's environment.
-                            vela.popEnvironment();
                         }
                     }
                     break;
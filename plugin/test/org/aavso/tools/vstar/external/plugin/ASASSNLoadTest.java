@@ -0,0 +1,114 @@
+package org.aavso.tools.vstar.external.plugin;
+
+import java.util.List;
+
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.data.ValidObservation.JDflavour;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.util.Tolerance;
+
+import junit.framework.TestCase;
+
+/**
+ * Loads ASAS-SN files via both the mapped and heap paths of the file reader.
+ */
+public class ASASSNLoadTest extends TestCase {
+
+    private static final String[] CLASSIC_LINES = {
+            "HJD,UT Date,Camera,FWHM,Limit,mag,mag_err,flux(mJy),flux_err,Filter\n",
+            "2458000.47009,2017-09-03.9710173,be,1.77,15.518,14.839,0.117,4.448,0.477,V\n",
+            "2458002.51020,2017-09-06.0112978,be,2.03,14.814,>14.814,99.990,4.020,0.911,V\n",
+            "2458003.1,2017-09-07.0,bf,1.80,16.0,14.5,0.05,5.0,0.2,g\n" };
+
+    private static final String[] V2_LINES = {
+            "# ASAS-SN Sky Patrol\n",
+            "# Comment\n",
+            "\n",
+            "JD,Flux,Flux Error,Mag,Mag Error,Limit,FWHM,Filter,Quality\n",
+            "2457148.1143957,26.0455,0.1300,12.9204,0.0054,16.9278,1.70,V,G\n",
+            "2457164.0441139,27.0177,0.0732,12.8807,0.0029,17.5513,1.98,V,B\n" };
+
+    private static class ASASSNTestAccess extends ASASSNObservationSource {
+        AbstractObservationRetriever load(String[] lines, boolean mapped) throws Exception {
+            setInputInfo(LoadTestInput.streams(lines, mapped), "ASAS-SN test");
+            AbstractObservationRetriever retriever = new ASASSNFileReader(99.99, true, true, true, false,
+                    false, false);
+            retriever.retrieve();
+            return retriever;
+        }
+    }
+
+    public ASASSNLoadTest(String name) {
+        super(name);
+    }
+
+    public void testClassicMapped() throws Exception {
+        checkClassic(new ASASSNTestAccess().load(CLASSIC_LINES, true));
+    }
+
+    public void testClassicHeap() throws Exception {
+        checkClassic(new ASASSNTestAccess().load(CLASSIC_LINES, false));
+    }
+
+    public void testClassicCRLFMapped() throws Exception {
+        checkClassic(new ASASSNTestAccess().load(LoadTestInput.crlf(CLASSIC_LINES), true));
+    }
+
+    public void testV2Mapped() throws Exception {
+        checkV2(new ASASSNTestAccess().load(V2_LINES, true));
+    }
+
+    public void testV2Heap() throws Exception {
+        checkV2(new ASASSNTestAccess().load(V2_LINES, false));
+    }
+
+    public void testV2CRLFMapped() throws Exception {
+        checkV2(new ASASSNTestAccess().load(LoadTestInput.crlf(V2_LINES), true));
+    }
+
+    private void checkClassic(AbstractObservationRetriever retriever) {
+        assertEquals(0, retriever.getInvalidObservations().size());
+        assertEquals(JDflavour.HJD, retriever.getJDflavour());
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(3, obs.size());
+
+        ValidObservation ob = obs.get(0);
+        assertTrue(Tolerance.areClose(2458000.47009, ob.getJD(), 1e-9, true));
+        assertTrue(Tolerance.areClose(14.839, ob.getMag(), 1e-6, true));
+        assertTrue(Tolerance.areClose(0.117, ob.getMagnitude().getUncertainty(), 1e-6, true));
+        assertEquals("ASAS-SN V", ob.getBand().getDescription());
+        assertEquals("2017-09-03.9710173", ob.getDetail("UT").getStrVal());
+        assertEquals("be", ob.getDetail("CAMERA").getStrVal());
+        assertTrue(Tolerance.areClose(15.518, ob.getDetail("LIMIT").getRealVal(), 1e-6, true));
+        assertTrue(Tolerance.areClose(4.448, ob.getDetail("FLUX").getRealVal(), 1e-6, true));
+        assertEquals("V", ob.getDetail("ASASSN_BAND").getStrVal());
+
+        // An uncertainty of 99.99 denotes a limit.
+        ob = obs.get(1);
+        assertTrue(Tolerance.areClose(14.814, ob.getMag(), 1e-6, true));
+        assertEquals("ASAS-SN V 5\u03C3 limit", ob.getBand().getDescription());
+
+        ob = obs.get(2);
+        assertEquals("ASAS-SN g", ob.getBand().getDescription());
+        assertEquals("g", ob.getDetail("ASASSN_BAND").getStrVal());
+    }
+
+    private void checkV2(AbstractObservationRetriever retriever) {
+        assertEquals(0, retriever.getInvalidObservations().size());
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(2, obs.size());
+
+        ValidObservation ob = obs.get(0);
+        assertTrue(Tolerance.areClose(2457148.1143957, ob.getJD(), 1e-9, true));
+        assertTrue(Tolerance.areClose(12.9204, ob.getMag(), 1e-6, true));
+        assertTrue(Tolerance.areClose(0.0054, ob.getMagnitude().getUncertainty(), 1e-6, true));
+        assertTrue(Tolerance.areClose(26.0455, ob.getDetail("FLUX").getRealVal(), 1e-6, true));
+        assertTrue(Tolerance.areClose(0.13, ob.getDetail("FLUX_ERR").getRealVal(), 1e-6, true));
+        assertEquals("G", ob.getDetail("QUALITY").getStrVal());
+        assertEquals(5, ob.getRecordNumber());
+
+        ob = obs.get(1);
+        assertEquals("B", ob.getDetail("QUALITY").getStrVal());
+        assertEquals("ASAS-SN V", ob.getBand().getDescription());
+    }
+}
@@ -39,6 +39,11 @@ public class AllTests {
 		suite.addTestSuite(PiecewiseLinearModelTest.class);
 		suite.addTestSuite(ConvertHelperTest.class);
 		suite.addTestSuite(HipparcosLoadTest.class);
+		suite.addTestSuite(KeplerFITSLoadTest.class);
+		suite.addTestSuite(ZTFLoadTest.class);
+		suite.addTestSuite(GaiaLoadTest.class);
+		suite.addTestSuite(ASASSNLoadTest.class);
+		suite.addTestSuite(FlexibleTextLoadTest.class);
 		// $JUnit-END$
 		
 		return suite;
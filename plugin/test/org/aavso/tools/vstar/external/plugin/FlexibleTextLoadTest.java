@@ -0,0 +1,96 @@
+package org.aavso.tools.vstar.external.plugin;
+
+import java.util.List;
+
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.data.ValidObservation.JDflavour;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.util.Tolerance;
+
+import junit.framework.TestCase;
+
+/**
+ * Loads Flexible Text Format files via both the mapped and heap paths of the
+ * file reader.
+ */
+public class FlexibleTextLoadTest extends TestCase {
+
+    private static final String[] LINES = {
+            "# A comment\n",
+            "#NAME=X Test\n",
+            "#FIELDS=time,mag,magerr,,filter,obscode,comments\n",
+            "#DELIM=comma\n",
+            "#DATE=HJD\n",
+            "#MAGSHIFT=0.5\n",
+            "\n",
+            "2450000.1,5.0,0.01,ignored,V,ABC,\"first, quoted\"\n",
+            "2450001.2,5.5,0.02,ignored,B,DEF,second\n" };
+
+    public FlexibleTextLoadTest(String name) {
+        super(name);
+    }
+
+    public void testCommaMapped() throws Exception {
+        checkObservations(load(LINES, true), 8);
+    }
+
+    public void testCommaHeap() throws Exception {
+        checkObservations(load(LINES, false), 8);
+    }
+
+    public void testCommaCRLFMapped() throws Exception {
+        checkObservations(load(LoadTestInput.crlf(LINES), true), 8);
+    }
+
+    public void testTabMapped() throws Exception {
+        String[] lines = { "#FIELDS=time,mag,magerr,,filter,obscode,comments\n",
+                "#DELIM=tab\n",
+                "#DATE=HJD\n",
+                "#MAGSHIFT=0.5\n",
+                "2450000.1\t5.0\t0.01\tignored\tV\tABC\tfirst, quoted\n",
+                "2450001.2\t5.5\t0.02\tignored\tB\tDEF\tsecond\n" };
+        checkObservations(load(lines, true), 5);
+    }
+
+    public void testInvalidLineNumber() throws Exception {
+        String[] lines = { "#FIELDS=time,mag\n", "2450000.1,5.0\n", "2450001.2,x\n" };
+        AbstractObservationRetriever retriever = load(lines, true);
+        assertEquals(1, retriever.getValidObservations().size());
+        assertEquals(1, retriever.getInvalidObservations().size());
+        assertEquals(3, retriever.getInvalidObservations().get(0).getRecordNumber());
+    }
+
+    private AbstractObservationRetriever load(String[] lines, boolean mapped) throws Exception {
+        FlexibleTextFileFormatObservationSource plugin = new FlexibleTextFileFormatObservationSource();
+        plugin.setInputInfo(LoadTestInput.streams(lines, mapped), "flex test");
+        AbstractObservationRetriever retriever = plugin.getObservationRetriever();
+        retriever.retrieve();
+        return retriever;
+    }
+
+    // The first observation is on the specified line.
+    private void checkObservations(AbstractObservationRetriever retriever, int firstLine) {
+        assertEquals(0, retriever.getInvalidObservations().size());
+        assertEquals(JDflavour.HJD, retriever.getJDflavour());
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(2, obs.size());
+
+        ValidObservation ob = obs.get(0);
+        assertTrue(Tolerance.areClose(2450000.1, ob.getJD(), 1e-9, true));
+        assertTrue(Tolerance.areClose(5.5, ob.getMag(), 1e-6, true));
+        assertTrue(Tolerance.areClose(0.01, ob.getMagnitude().getUncertainty(), 1e-6, true));
+        assertEquals(SeriesType.Johnson_V, ob.getBand());
+        assertEquals("ABC", ob.getObsCode());
+        assertEquals("first, quoted", ob.getComments());
+        assertEquals(firstLine, ob.getRecordNumber());
+
+        ob = obs.get(1);
+        assertTrue(Tolerance.areClose(2450001.2, ob.getJD(), 1e-9, true));
+        assertTrue(Tolerance.areClose(6.0, ob.getMag(), 1e-6, true));
+        assertEquals(SeriesType.Johnson_B, ob.getBand());
+        assertEquals("DEF", ob.getObsCode());
+        assertEquals("second", ob.getComments());
+        assertEquals(firstLine + 1, ob.getRecordNumber());
+    }
+}
@@ -0,0 +1,136 @@
+package org.aavso.tools.vstar.external.plugin;
+
+import java.util.List;
+
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.data.ValidObservation.JDflavour;
+import org.aavso.tools.vstar.external.lib.GaiaObSourceBase;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.plugin.InputType;
+import org.aavso.tools.vstar.util.Tolerance;
+
+import junit.framework.TestCase;
+
+/**
+ * Loads Gaia DR2 and DR3 files via both the mapped and heap paths of the file
+ * reader.
+ */
+public class GaiaLoadTest extends TestCase {
+
+    private static final String[] DR2_LINES = {
+            "source_id,transit_id,band,time,mag,flux,flux_error,flux_over_error,rejected_by_photometry,rejected_by_variability,other_flags,solution_id\n",
+            "1951343009975999744,1,G,1000.0,10.0,1000.0,10.0,,false,false,4097,1\n",
+            "1951343009975999744,1,BP,1000.0,11.0,1000.0,10.0,,false,true,0,1\n",
+            "1951343009975999744,1,RP,1000.0,12.0,1000.0,10.0,,false,false,0,1\n" };
+
+    private static final String[] DR3_LINES = {
+            "solution_id,source_id,transit_id,g_transit_time,g_transit_flux,g_transit_flux_error,g_transit_flux_over_error,g_transit_mag,bp_obs_time,bp_flux,bp_flux_error,bp_flux_over_error,bp_mag,rp_obs_time,rp_flux,rp_flux_error,rp_flux_over_error,rp_mag,variability_flag_g_reject,variability_flag_bp_reject,variability_flag_rp_reject,g_other_flags,bp_other_flags,rp_other_flags,rejected_by_photometry\n",
+            "1,1951343009975999744,1,1000.0,1000.0,10.0,100.0,10.0,1000.1,1000.0,10.0,100.0,11.0,1000.2,1000.0,10.0,100.0,12.0,false,false,false,1,2,3,false\n",
+            "1,1951343009975999744,2,1001.0,1000.0,10.0,100.0,10.5,1001.1,1000.0,10.0,100.0,11.5,1001.2,1000.0,10.0,100.0,12.5,false,false,false,1,2,3,false\n" };
+
+    // Flux error of 10 on a flux of 1000.
+    private static final double UNCERTAINTY = 2.5 * Math.log10(1.01);
+
+    private static class GaiaTestAccess extends GaiaObSourceBase {
+        GaiaTestAccess(boolean dr3) {
+            paramGaiaRelease = dr3 ? GaiaRelease.DR3 : GaiaRelease.DR2;
+        }
+
+        AbstractObservationRetriever load(String[] lines, boolean mapped) throws Exception {
+            setInputInfo(LoadTestInput.streams(lines, mapped), "Gaia test");
+            AbstractObservationRetriever retriever = getObservationRetriever();
+            retriever.retrieve();
+            return retriever;
+        }
+
+        @Override
+        public InputType getInputType() {
+            return InputType.FILE;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Gaia load test";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Gaia load test";
+        }
+    }
+
+    public GaiaLoadTest(String name) {
+        super(name);
+    }
+
+    public void testDR2Mapped() throws Exception {
+        checkDR2(new GaiaTestAccess(false).load(DR2_LINES, true));
+    }
+
+    public void testDR2Heap() throws Exception {
+        checkDR2(new GaiaTestAccess(false).load(DR2_LINES, false));
+    }
+
+    public void testDR2CRLFMapped() throws Exception {
+        checkDR2(new GaiaTestAccess(false).load(LoadTestInput.crlf(DR2_LINES), true));
+    }
+
+    public void testDR3Mapped() throws Exception {
+        checkDR3(new GaiaTestAccess(true).load(DR3_LINES, true));
+    }
+
+    public void testDR3Heap() throws Exception {
+        checkDR3(new GaiaTestAccess(true).load(DR3_LINES, false));
+    }
+
+    public void testDR3CRLFMapped() throws Exception {
+        checkDR3(new GaiaTestAccess(true).load(LoadTestInput.crlf(DR3_LINES), true));
+    }
+
+    private void checkDR2(AbstractObservationRetriever retriever) {
+        assertEquals(0, retriever.getInvalidObservations().size());
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(3, obs.size());
+
+        ValidObservation ob = obs.get(0);
+        checkObservation(ob, "Gaia G", 1000.0, 10.0);
+        assertEquals("GaiaDR2 1951343009975999744", ob.getName());
+        assertFalse(ob.isDiscrepant());
+        assertEquals(4097, ob.getDetail("OTHER_FLAGS").getIntVal());
+
+        ob = obs.get(1);
+        checkObservation(ob, "Gaia BP", 1000.0, 11.0);
+        assertTrue(ob.isDiscrepant());
+        assertEquals("true", ob.getDetail("REJECTED_BY_VARIABILITY").getStrVal());
+
+        checkObservation(obs.get(2), "Gaia RP", 1000.0, 12.0);
+    }
+
+    private void checkDR3(AbstractObservationRetriever retriever) {
+        assertEquals(0, retriever.getInvalidObservations().size());
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(6, obs.size());
+
+        // Each line is read once per band, then the observations are sorted
+        // by time.
+        checkObservation(obs.get(0), "Gaia G", 1000.0, 10.0);
+        checkObservation(obs.get(1), "Gaia BP", 1000.1, 11.0);
+        checkObservation(obs.get(2), "Gaia RP", 1000.2, 12.0);
+        checkObservation(obs.get(3), "Gaia G", 1001.0, 10.5);
+        checkObservation(obs.get(4), "Gaia BP", 1001.1, 11.5);
+        checkObservation(obs.get(5), "Gaia RP", 1001.2, 12.5);
+
+        ValidObservation ob = obs.get(1);
+        assertEquals("GaiaDR3 1951343009975999744", ob.getName());
+        assertEquals(2, ob.getDetail("OTHER_FLAGS").getIntVal());
+        assertEquals(2, ob.getRecordNumber());
+    }
+
+    private void checkObservation(ValidObservation ob, String band, double time, double mag) {
+        assertEquals(band, ob.getBand().getDescription());
+        assertTrue(Tolerance.areClose(time + 2455197.5, ob.getJD(), 1e-6, true));
+        assertTrue(Tolerance.areClose(mag, ob.getMag(), 1e-6, true));
+        assertTrue(Tolerance.areClose(UNCERTAINTY, ob.getMagnitude().getUncertainty(), 1e-6, true));
+        assertEquals(JDflavour.BJD, ob.getJDflavour());
+    }
+}
@@ -0,0 +1,174 @@
+package org.aavso.tools.vstar.external.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.external.lib.FitsTestData;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.ObservationPredicate;
+import org.aavso.tools.vstar.util.Tolerance;
+
+import junit.framework.TestCase;
+
+/**
+ * Loads multi-row Kepler archive FITS data via the Kepler/TESS retriever.
+ */
+public class KeplerFITSLoadTest extends TestCase {
+
+    public KeplerFITSLoadTest(String name) {
+        super(name);
+    }
+
+    public void testLoadRows() throws Exception {
+        int rows = 25000;
+
+        double[] times = new double[rows];
+        float[] fluxes = new float[rows];
+        float[] fluxErrors = new float[rows];
+        int[] quality = new int[rows];
+
+        for (int i = 0; i < rows; i++) {
+            times[i] = i * 0.02;
+            fluxes[i] = 1000f + i % 100;
+            fluxErrors[i] = 10f;
+            quality[i] = i % 3;
+        }
+
+        // Invalid flux and flux error values.
+        fluxes[10] = Float.NaN;
+        fluxes[20] = 0f;
+        fluxErrors[30] = Float.POSITIVE_INFINITY;
+
+        AbstractObservationRetriever retriever = load(FitsTestData.createKeplerArchiveFits(times, fluxes,
+                fluxErrors, quality));
+
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(rows - 3, obs.size());
+        assertEquals(3, retriever.getInvalidObservations().size());
+        assertEquals(10, retriever.getInvalidObservations().get(0).getRecordNumber());
+
+        ValidObservation ob = obs.get(11);
+        assertEquals(12, ob.getRecordNumber());
+        assertTrue(Tolerance.areClose(2454833.24, ob.getJD(), 1e-6, true));
+        assertTrue(Tolerance.areClose(15.0 - 2.5 * Math.log10(1012), ob.getMag(), 1e-6, true));
+        assertTrue(Tolerance.areClose(1.086 * 10 / 1012, ob.getMagnitude().getUncertainty(), 1e-6, true));
+        assertEquals(1012.0, ob.getDetail("FLUX").getRealVal());
+        assertEquals(0, (int) ob.getDetail("QUALITY").getIntVal());
+        assertEquals("TEST", ob.getName());
+
+        for (int i = 1; i < obs.size(); i++) {
+            assertTrue(obs.get(i - 1).getJD() < obs.get(i).getJD());
+        }
+    }
+
+    public void testLoadFilesMergedByJD() throws Exception {
+        int files = 6;
+        int rows = 1000;
+
+        // Files with interleaved times, as for overlapping sectors.
+        byte[][] fits = new byte[files][];
+        for (int f = 0; f < files; f++) {
+            double[] times = new double[rows];
+            float[] fluxes = new float[rows];
+            float[] fluxErrors = new float[rows];
+            int[] quality = new int[rows];
+
+            for (int i = 0; i < rows; i++) {
+                times[i] = (i * files + f) * 0.01;
+                fluxes[i] = 1000f + f;
+                fluxErrors[i] = 10f;
+            }
+
+            fits[f] = FitsTestData.createKeplerArchiveFits(times, fluxes, fluxErrors, quality);
+        }
+
+        AbstractObservationRetriever retriever = load(fits);
+
+        assertEquals(Integer.valueOf(files), retriever.getNumberOfRecords());
+
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(files * rows, obs.size());
+        assertTrue(retriever.getInvalidObservations().isEmpty());
+
+        for (int i = 0; i < obs.size(); i++) {
+            assertTrue(Tolerance.areClose(2454833 + i * 0.01, obs.get(i).getJD(), 1e-6, true));
+            assertEquals(1000.0 + i % files, obs.get(i).getDetail("FLUX").getRealVal());
+        }
+    }
+
+    public void testLoadWithPredicate() throws Exception {
+        int rows = 1000;
+
+        double[] times = new double[rows];
+        float[] fluxes = new float[rows];
+        float[] fluxErrors = new float[rows];
+        int[] quality = new int[rows];
+
+        for (int i = 0; i < rows; i++) {
+            times[i] = i * 0.02;
+            fluxes[i] = 1000f + i % 100;
+            fluxErrors[i] = 10f;
+        }
+
+        // An invalid flux value outside the JD range is not reported.
+        fluxes[10] = Float.NaN;
+
+        byte[] fits = FitsTestData.createKeplerArchiveFits(times, fluxes, fluxErrors, quality);
+
+        Map<Integer, ValidObservation> allObs = new HashMap<Integer, ValidObservation>();
+        for (ValidObservation ob : load(fits).getValidObservations()) {
+            allObs.put(ob.getRecordNumber(), ob);
+        }
+
+        AbstractObservationRetriever retriever = load(new ObservationPredicate(2454837.99, 2454843.01, null, null),
+                fits);
+
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(251, obs.size());
+        assertTrue(retriever.getInvalidObservations().isEmpty());
+
+        // Magnitudes are relative to all of the file's observations.
+        for (ValidObservation ob : obs) {
+            ValidObservation expected = allObs.get(ob.getRecordNumber());
+            assertEquals(expected.getJD(), ob.getJD());
+            assertEquals(expected.getMag(), ob.getMag());
+        }
+
+        retriever = load(new ObservationPredicate(null, null,
+                new HashSet<SeriesType>(Arrays.asList(SeriesType.Johnson_V)), null), fits);
+        assertTrue(retriever.getValidObservations().isEmpty());
+        assertTrue(retriever.getInvalidObservations().isEmpty());
+    }
+
+    // Helpers
+
+    private AbstractObservationRetriever load(byte[]... fits) throws Exception {
+        return load(ObservationPredicate.ALL, fits);
+    }
+
+    private AbstractObservationRetriever load(ObservationPredicate predicate, byte[]... fits) throws Exception {
+        KeplerFITSObservationSource source = new KeplerFITSObservationSource();
+        source.setTestMode(true);
+
+        List<InputStream> streams = new ArrayList<InputStream>();
+        for (byte[] bytes : fits) {
+            streams.add(new ByteArrayInputStream(bytes));
+        }
+        source.setInputInfo(streams, "kepler test");
+
+        AbstractObservationRetriever retriever = source.getObservationRetriever();
+        retriever.setPredicate(predicate);
+        retriever.getNumberOfRecords();
+        retriever.retrieve();
+
+        return retriever;
+    }
+}
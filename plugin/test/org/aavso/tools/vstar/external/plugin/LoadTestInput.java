@@ -0,0 +1,56 @@
+package org.aavso.tools.vstar.external.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test input for file based observation source plug-ins. A file input stream
+ * is read via memory mapping, any other stream from the heap, so tests load
+ * the same content both ways.
+ */
+class LoadTestInput {
+
+    static List<InputStream> streams(String[] lines, boolean mapped) throws IOException {
+        StringBuffer content = new StringBuffer();
+        for (String line : lines) {
+            content.append(line);
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+
+        InputStream in;
+        if (mapped) {
+            File file = File.createTempFile("vstar-load-test", ".txt");
+            file.deleteOnExit();
+            OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+            in = new FileInputStream(file);
+        } else {
+            in = new ByteArrayInputStream(bytes);
+        }
+
+        List<InputStream> streams = new ArrayList<InputStream>();
+        streams.add(in);
+        return streams;
+    }
+
+    // The lines with CRLF line endings.
+    static String[] crlf(String[] lines) {
+        String[] result = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            result[i] = lines[i].replace("\n", "\r\n");
+        }
+        return result;
+    }
+}
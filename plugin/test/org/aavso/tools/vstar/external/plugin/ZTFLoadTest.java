@@ -0,0 +1,92 @@
+package org.aavso.tools.vstar.external.plugin;
+
+import java.util.List;
+
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.data.ValidObservation.JDflavour;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.util.Tolerance;
+
+import junit.framework.TestCase;
+
+/**
+ * Loads ZTF files via both the mapped and heap paths of the file reader.
+ */
+public class ZTFLoadTest extends TestCase {
+
+    private static final String[] COMMA_LINES = {
+            "oid,expid,hjd,mjd,mag,magerr,catflags,filtercode,ra,dec,chi,sharp,filefracday,field,ccdid,qid,limitmag,magzp,magzprms,clrcoeff,clrcounc,exptime,airmass,programid\n",
+            "686103400034440,46392444,2458277.9263033,58277.4248032,15.0,0.01,0,zg,1,1,1,0,1,1,1,1,20.5,26.3,0.03,-0.04,0.0001,30,1.6,1\n",
+            "\n",
+            "686103400034440,46392445,2458278.5,58278,15.5,0.02,32768,zr,1,1,1,0,1,1,1,1,20.5,26.3,0.03,-0.04,0.0001,30,1.2,1\n" };
+
+    private static final String[] TAB_LINES = {
+            "oid \thjd \tmag \tmagerr \tcatflags \tfiltercode \texptime \tairmass\n",
+            "686103400034440 \t2458277.9263033 \t15.0 \t0.01 \t0 \tzg \t30 \t1.6\n",
+            "686103400034440 \t2458278.5 \t15.5 \t0.02 \t32768 \tzr \t30 \t1.2\n" };
+
+    public ZTFLoadTest(String name) {
+        super(name);
+    }
+
+    public void testCommaMapped() throws Exception {
+        checkObservations(load(COMMA_LINES, true));
+    }
+
+    public void testCommaHeap() throws Exception {
+        checkObservations(load(COMMA_LINES, false));
+    }
+
+    public void testCommaCRLFMapped() throws Exception {
+        checkObservations(load(LoadTestInput.crlf(COMMA_LINES), true));
+    }
+
+    public void testTabMapped() throws Exception {
+        checkObservations(load(TAB_LINES, true));
+    }
+
+    public void testTabHeap() throws Exception {
+        checkObservations(load(TAB_LINES, false));
+    }
+
+    public void testInvalidMagnitude() throws Exception {
+        String[] lines = { "oid,hjd,mag,magerr,catflags,filtercode,exptime,airmass\n",
+                "686103400034440,2458277.9263033,15.0,0.01,0,zg,30,1.6\n",
+                "686103400034440,2458278.5,x,0.02,0,zr,30,1.2\n" };
+        AbstractObservationRetriever retriever = load(lines, true);
+        assertEquals(1, retriever.getValidObservations().size());
+        assertEquals(1, retriever.getInvalidObservations().size());
+        assertEquals(3, retriever.getInvalidObservations().get(0).getRecordNumber());
+    }
+
+    private AbstractObservationRetriever load(String[] lines, boolean mapped) throws Exception {
+        ZTFFileObSource plugin = new ZTFFileObSource();
+        plugin.setInputInfo(LoadTestInput.streams(lines, mapped), "ZTF test");
+        AbstractObservationRetriever retriever = plugin.getObservationRetriever();
+        retriever.retrieve();
+        return retriever;
+    }
+
+    private void checkObservations(AbstractObservationRetriever retriever) {
+        assertEquals(0, retriever.getInvalidObservations().size());
+        List<ValidObservation> obs = retriever.getValidObservations();
+        assertEquals(2, obs.size());
+
+        ValidObservation ob = obs.get(0);
+        assertTrue(Tolerance.areClose(2458277.9263033, ob.getJD(), 1e-9, true));
+        assertTrue(Tolerance.areClose(15.0, ob.getMag(), 1e-6, true));
+        assertTrue(Tolerance.areClose(0.01, ob.getMagnitude().getUncertainty(), 1e-6, true));
+        assertEquals("ZTF zg", ob.getBand().getDescription());
+        assertEquals(JDflavour.HJD, ob.getJDflavour());
+        assertEquals("686103400034440", ob.getName());
+        assertEquals(0, ob.getDetail("CATFLAGS").getIntVal());
+        assertTrue(Tolerance.areClose(1.6, ob.getDetail("AIRMASS").getRealVal(), 1e-6, true));
+
+        ob = obs.get(1);
+        assertTrue(Tolerance.areClose(2458278.5, ob.getJD(), 1e-9, true));
+        assertTrue(Tolerance.areClose(15.5, ob.getMag(), 1e-6, true));
+        assertEquals("ZTF zr", ob.getBand().getDescription());
+        assertEquals(32768, ob.getDetail("CATFLAGS").getIntVal());
+        assertTrue(Tolerance.areClose(30.0, ob.getDetail("EXPTIME").getRealVal(), 1e-6, true));
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compact summary of a dataset, i.e. a mapping from series to observations,
+ * computed once so that datasets can be compared without comparing every
+ * observation. It consists of the number of observations in each series and a
+ * 64-bit hash of the series and their observations, in order. Datasets that
+ * are equal have equal fingerprints; datasets with equal fingerprints are
+ * almost certainly equal.
+ */
+public final class DatasetFingerprint {
+
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private final Map<SeriesType, Integer> seriesSizes;
+	private final long hash;
+
+	/**
+	 * Compute the fingerprint of a dataset.
+	 *
+	 * @param obsCategoryMap
+	 *            A mapping from series to observations.
+	 */
+	public DatasetFingerprint(
+			Map<SeriesType, List<ValidObservation>> obsCategoryMap) {
+		seriesSizes = new TreeMap<SeriesType, Integer>();
+
+		long hash = 0;
+
+		// Iterate over the series in a well defined order.
+		Map<SeriesType, List<ValidObservation>> sortedMap = obsCategoryMap instanceof TreeMap ? obsCategoryMap
+				: new TreeMap<SeriesType, List<ValidObservation>>(
+						obsCategoryMap);
+
+		for (Map.Entry<SeriesType, List<ValidObservation>> entry : sortedMap
+				.entrySet()) {
+			List<ValidObservation> obs = entry.getValue();
+			seriesSizes.put(entry.getKey(), obs.size());
+
+			hash = mix(hash, entry.getKey().hashCode());
+			for (ValidObservation ob : obs) {
+				hash = mix(hash, ob.hashCode());
+			}
+		}
+
+		this.hash = hash;
+	}
+
+	/**
+	 * @return the number of observations in each series
+	 */
+	public Map<SeriesType, Integer> getSeriesSizes() {
+		return seriesSizes;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(hash);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof DatasetFingerprint))
+			return false;
+		DatasetFingerprint other = (DatasetFingerprint) obj;
+		return hash == other.hash && seriesSizes.equals(other.seriesSizes);
+	}
+
+	// Combine a hash with a value, such that the result depends upon the
+	// order of combination.
+	private static long mix(long hash, int value) {
+		hash = (hash + value) * MULTIPLIER;
+		return hash ^ (hash >>> 29);
+	}
+}
@@ -0,0 +1,166 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The observation details (e.g. observer code, comparison stars, plugin
+ * specific values) present in a dataset: their keys in order of first
+ * appearance, with their titles and types. Each observation retriever has its
+ * own schema, so datasets, including those loaded concurrently, do not share
+ * this information.
+ */
+public class DetailSchema {
+
+	private final List<String> keys;
+	private final Map<String, Integer> keyToIndex;
+	private final Map<String, String> titles;
+	private final Map<String, Class<?>> types;
+
+	// The detail slots of keys already added (see ValidObservation).
+	private final BitSet slots;
+
+	/**
+	 * Constructor
+	 */
+	public DetailSchema() {
+		keys = new ArrayList<String>();
+		keyToIndex = new HashMap<String, Integer>();
+		titles = new HashMap<String, String>();
+		types = new HashMap<String, Class<?>>();
+		slots = new BitSet();
+	}
+
+	/**
+	 * Add the details of an observation not already present.
+	 *
+	 * @param ob
+	 *            The observation.
+	 */
+	public synchronized void add(ValidObservation ob) {
+		ob.addDetailKeysTo(this);
+	}
+
+	/**
+	 * Add a detail if not already present.
+	 *
+	 * @param key
+	 *            The detail key.
+	 * @param title
+	 *            The detail title, e.g. for use as a table column name.
+	 * @param type
+	 *            The type of the detail's values.
+	 */
+	public synchronized void add(String key, String title, Class<?> type) {
+		if (!keyToIndex.containsKey(key)) {
+			keyToIndex.put(key, keys.size());
+			keys.add(key);
+			titles.put(key, title);
+			types.put(key, type);
+		}
+	}
+
+	/**
+	 * @return the number of details
+	 */
+	public synchronized int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Does the schema contain a detail?
+	 *
+	 * @param key
+	 *            The detail key.
+	 * @return Whether the detail is present.
+	 */
+	public synchronized boolean contains(String key) {
+		return keyToIndex.containsKey(key);
+	}
+
+	/**
+	 * Return the key of a detail.
+	 *
+	 * @param index
+	 *            The detail's index, in order of first appearance.
+	 * @return The detail key.
+	 * @throws IndexOutOfBoundsException
+	 *             if there is no such detail.
+	 */
+	public synchronized String getKey(int index) {
+		return keys.get(index);
+	}
+
+	/**
+	 * Return the index of a detail.
+	 *
+	 * @param key
+	 *            The detail key.
+	 * @return The detail's index, in order of first appearance, or -1 if not
+	 *         present.
+	 */
+	public synchronized int indexOf(String key) {
+		Integer index = keyToIndex.get(key);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * @return the detail keys, in order of first appearance
+	 */
+	public synchronized List<String> getKeys() {
+		return Collections.unmodifiableList(new ArrayList<String>(keys));
+	}
+
+	/**
+	 * Return the title of a detail.
+	 *
+	 * @param key
+	 *            The detail key.
+	 * @return The title, or null if not present.
+	 */
+	public synchronized String getTitle(String key) {
+		return titles.get(key);
+	}
+
+	/**
+	 * Return the type of a detail's values.
+	 *
+	 * @param key
+	 *            The detail key.
+	 * @return The type, or null if not present.
+	 */
+	public synchronized Class<?> getType(String key) {
+		return types.get(key);
+	}
+
+	// Add the detail having the specified slot (see ValidObservation), if not
+	// already present, with the title and type with which it was first added
+	// to an observation of this dataset.
+	void addSlot(int slot, String key, String title, Class<?> type) {
+		if (!slots.get(slot)) {
+			slots.set(slot);
+			add(key, title, type);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The titles and value types of an observation's details, indexed by detail
+ * slot (see ValidObservation), with which each detail was first added to the
+ * observation.
+ *
+ * Instances are immutable. Each is derived from another by adding one detail
+ * and derivations are kept, so observations whose details are added in the
+ * same way, e.g. those of one dataset, share an instance and pay for it with
+ * a single reference. Titles and types are thus recorded per observation and
+ * so per dataset, rather than once for all datasets.
+ */
+final class DetailTitles {
+
+	/**
+	 * The titles of an observation without details.
+	 */
+	static final DetailTitles NONE = new DetailTitles(new String[0],
+			new Class<?>[0]);
+
+	private final String[] titles;
+	private final Class<?>[] types;
+
+	// The derivations made so far, and the most recent, which is almost
+	// always the one required next.
+	private final Map<Derivation, DetailTitles> derivations;
+	private volatile Derivation last;
+
+	private DetailTitles(String[] titles, Class<?>[] types) {
+		this.titles = titles;
+		this.types = types;
+		this.derivations = new HashMap<Derivation, DetailTitles>();
+		this.last = null;
+	}
+
+	/**
+	 * Return these titles with a detail added, unless already present.
+	 *
+	 * @param slot
+	 *            The detail's slot.
+	 * @param title
+	 *            The detail's title; may be null.
+	 * @param type
+	 *            The type of the detail's value.
+	 * @return The titles with the detail added.
+	 */
+	DetailTitles with(int slot, String title, Class<?> type) {
+		if (contains(slot)) {
+			return this;
+		}
+
+		Derivation last = this.last;
+		if (last != null && last.matches(slot, title, type)) {
+			return last.result;
+		}
+
+		return derive(slot, title, type);
+	}
+
+	/**
+	 * Is a detail present?
+	 *
+	 * @param slot
+	 *            The detail's slot.
+	 * @return Whether the detail is present.
+	 */
+	boolean contains(int slot) {
+		return slot < types.length && types[slot] != null;
+	}
+
+	/**
+	 * @param slot
+	 *            The detail's slot.
+	 * @return The detail's title, or null if none or not present.
+	 */
+	String getTitle(int slot) {
+		return slot < titles.length ? titles[slot] : null;
+	}
+
+	/**
+	 * @param slot
+	 *            The detail's slot.
+	 * @return The type of the detail's value, or null if not present.
+	 */
+	Class<?> getType(int slot) {
+		return slot < types.length ? types[slot] : null;
+	}
+
+	private synchronized DetailTitles derive(int slot, String title,
+			Class<?> type) {
+		Derivation derivation = new Derivation(slot, title, type, null);
+
+		DetailTitles result = derivations.get(derivation);
+		if (result == null) {
+			int length = Math.max(slot + 1, types.length);
+			String[] newTitles = Arrays.copyOf(titles, length);
+			Class<?>[] newTypes = Arrays.copyOf(types, length);
+			newTitles[slot] = title;
+			newTypes[slot] = type;
+			result = new DetailTitles(newTitles, newTypes);
+			derivations.put(derivation, result);
+		}
+
+		last = new Derivation(slot, title, type, result);
+
+		return result;
+	}
+
+	// The addition of a detail and, once made, its result.
+	private static final class Derivation {
+		final int slot;
+		final String title;
+		final Class<?> type;
+		final DetailTitles result;
+
+		Derivation(int slot, String title, Class<?> type, DetailTitles result) {
+			this.slot = slot;
+			this.title = title;
+			this.type = type;
+			this.result = result;
+		}
+
+		boolean matches(int slot, String title, Class<?> type) {
+			return this.slot == slot && this.type == type
+					&& Objects.equals(this.title, title);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(slot, title, type);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Derivation)) {
+				return false;
+			}
+			Derivation other = (Derivation) obj;
+			return other.matches(slot, title, type);
+		}
+	}
+}
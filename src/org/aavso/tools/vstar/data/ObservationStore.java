@@ -0,0 +1,1109 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data;
+
+import java.awt.Color;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * <p>
+ * A compact, column-oriented copy of observations, used to write them to and
+ * read them from binary streams (the observation cache and binary observation
+ * files). Each observation's values are copied into primitive arrays
+ * (JD, magnitude, uncertainties, phases, flags and enumeration ordinals),
+ * while series, comment codes, observation types and detail values (observer
+ * codes, comparison stars, names and so on) are dictionary encoded, i.e.
+ * stored as indices into tables of distinct values.
+ * </p>
+ *
+ * <p>
+ * Values are read in bulk by index (e.g. getJD()) or via a View: the index of
+ * an observation's row, through which values are read from the columns
+ * without creating an observation, and values that change during analysis
+ * are written. get() and asList() create observations from rows when
+ * requested, so no per-observation date, magnitude, boxed doubles or details
+ * are retained by the store itself. A store is a copy: observations added to
+ * it are not changed by writes through views, nor views by later changes to
+ * those observations.
+ * </p>
+ *
+ * <p>
+ * A store is not thread-safe.
+ * </p>
+ */
+public class ObservationStore {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	// Binary format identification: "VSOS" and a version number.
+	private static final int FORMAT_MAGIC = 0x56534F53;
+	private static final int FORMAT_VERSION = 1;
+
+	// The size of the chunks in which numeric columns are written.
+	private static final int IO_CHUNK_SIZE = 1 << 16;
+
+	// Flags
+	private static final byte UNCERTAIN = 1;
+	private static final byte TRANSFORMED = 2;
+	private static final byte EXCLUDED = 4;
+	private static final byte HAS_HJD = 8;
+	private static final byte HAS_HQ_UNCERTAINTY = 16;
+	private static final byte HAS_STANDARD_PHASE = 32;
+	private static final byte HAS_PREVIOUS_CYCLE_PHASE = 64;
+
+	private static final MagnitudeModifier[] MAG_MODIFIERS = MagnitudeModifier
+			.values();
+	private static final ValidationType[] VALIDATION_TYPES = ValidationType
+			.values();
+	private static final MTypeType[] MTYPES = MTypeType.values();
+	private static final ValidObservation.JDflavour[] JD_FLAVOURS = ValidObservation.JDflavour
+			.values();
+	private static final Property.propType[] PROP_TYPES = Property.propType
+			.values();
+
+	private int size;
+	private int capacity;
+
+	// Numeric columns. Those that are usually absent are allocated when a
+	// value is first stored.
+	private double[] jd;
+	private double[] mag;
+	private double[] uncertainty;
+	private double[] hjd;
+	private double[] hqUncertainty;
+	private double[] standardPhase;
+	private double[] previousCyclePhase;
+	private int[] recordNumber;
+
+	// Flag and enumeration columns; enumerations are stored as ordinal + 1, 0
+	// denoting null.
+	private byte[] flags;
+	private byte[] magModifier;
+	private byte[] validationType;
+	private byte[] mType;
+	private byte[] jdFlavour;
+
+	// Dictionary encoded columns.
+	private int[] band;
+	private int[] series;
+	private int[] commentCode;
+	private int[] obsType;
+
+	private final Dictionary<SeriesType> seriesDictionary;
+	private final Dictionary<CommentCodes> commentCodeDictionary;
+	private final Dictionary<String> obsTypeDictionary;
+
+	// Detail columns, by key, in order of first use, and detail titles.
+	private final Map<String, int[]> detailColumns;
+	private final Dictionary<Property> detailDictionary;
+	private final Map<String, String> detailTitles;
+
+	/**
+	 * Constructor
+	 */
+	public ObservationStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param initialCapacity
+	 *            The expected number of observations.
+	 */
+	public ObservationStore(int initialCapacity) {
+		size = 0;
+		capacity = Math.max(initialCapacity, 1);
+
+		jd = new double[capacity];
+		mag = new double[capacity];
+		uncertainty = new double[capacity];
+		recordNumber = new int[capacity];
+
+		flags = new byte[capacity];
+		magModifier = new byte[capacity];
+		validationType = new byte[capacity];
+		mType = new byte[capacity];
+		jdFlavour = new byte[capacity];
+
+		band = new int[capacity];
+		series = new int[capacity];
+		commentCode = new int[capacity];
+		obsType = new int[capacity];
+
+		seriesDictionary = new Dictionary<SeriesType>();
+		commentCodeDictionary = new Dictionary<CommentCodes>();
+		obsTypeDictionary = new Dictionary<String>();
+
+		detailColumns = new LinkedHashMap<String, int[]>();
+		detailDictionary = new Dictionary<Property>();
+		detailTitles = new HashMap<String, String>();
+	}
+
+	/**
+	 * Add a copy of an observation to the store.
+	 *
+	 * @param ob
+	 *            The observation, which must have a date and magnitude.
+	 * @return A view of the stored observation.
+	 * @throws IllegalArgumentException
+	 *             if the observation has no date or magnitude.
+	 */
+	public View add(ValidObservation ob) {
+		if (ob.getDateInfo() == null || ob.getMagnitude() == null) {
+			throw new IllegalArgumentException("Observation #"
+					+ ob.getRecordNumber() + " has no date or magnitude.");
+		}
+
+		if (size == capacity) {
+			grow(capacity + (capacity >> 1) + 1);
+		}
+
+		int index = size++;
+
+		recordNumber[index] = ob.getRecordNumber();
+		jd[index] = ob.getDateInfo().getJulianDay();
+		setMagnitude(index, ob.getMagnitude());
+		setHqUncertainty(index, ob.getHqUncertainty());
+		band[index] = seriesDictionary.encode(ob.getBand());
+		series[index] = seriesDictionary.encode(ob.getSeries());
+		commentCode[index] = commentCodeDictionary.encode(ob.getCommentCode());
+		setFlag(index, TRANSFORMED, ob.isTransformed());
+		validationType[index] = encode(ob.getValidationType());
+		setHJD(index, ob.getHJD());
+		mType[index] = encode(ob.getMType());
+		obsType[index] = obsTypeDictionary.encode(ob.getObsType());
+		setStandardPhase(index, ob.getStandardPhase());
+		setPreviousCyclePhase(index, ob.getPreviousCyclePhase());
+		setFlag(index, EXCLUDED, ob.isExcluded());
+		jdFlavour[index] = encode(ob.getJDflavour());
+
+		for (Map.Entry<String, Property> entry : ob.getDetails().entrySet()) {
+			String key = entry.getKey();
+			if (!detailTitles.containsKey(key)) {
+				detailTitles.put(key, ob.getDetailTitle(key));
+			}
+			setDetail(index, key, entry.getValue());
+		}
+
+		return new View(index);
+	}
+
+	/**
+	 * Return a view of an observation.
+	 *
+	 * @param index
+	 *            The observation's index, in order of addition.
+	 * @return The view.
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is out of range.
+	 */
+	public View view(int index) {
+		checkIndex(index);
+		return new View(index);
+	}
+
+	/**
+	 * Return a new observation with the values of an observation in the
+	 * store. Changes to the returned observation are not written back to the
+	 * store.
+	 *
+	 * @param index
+	 *            The observation's index, in order of addition.
+	 * @return The observation.
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is out of range.
+	 */
+	public ValidObservation get(int index) {
+		checkIndex(index);
+		return toObservation(index);
+	}
+
+	/**
+	 * @return the number of observations in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return a list of the observations in the store, in order of addition,
+	 *         each being created by get() when requested
+	 */
+	public List<ValidObservation> asList() {
+		return new ObservationList();
+	}
+
+	/**
+	 * Return the Julian Day of an observation without creating a view.
+	 *
+	 * @param index
+	 *            The observation's index.
+	 * @return The Julian Day.
+	 */
+	public double getJD(int index) {
+		checkIndex(index);
+		return jd[index];
+	}
+
+	/**
+	 * Return the magnitude of an observation without creating a view.
+	 *
+	 * @param index
+	 *            The observation's index.
+	 * @return The magnitude.
+	 */
+	public double getMag(int index) {
+		checkIndex(index);
+		return mag[index];
+	}
+
+	/**
+	 * Return the magnitude uncertainty of an observation without creating a
+	 * view.
+	 *
+	 * @param index
+	 *            The observation's index.
+	 * @return The magnitude uncertainty.
+	 */
+	public double getUncertainty(int index) {
+		checkIndex(index);
+		return uncertainty[index];
+	}
+
+	/**
+	 * Return the number of distinct values of a detail, e.g. the number of
+	 * observers for the observer code detail.
+	 *
+	 * @param key
+	 *            The detail key.
+	 * @return The number of distinct values.
+	 */
+	public int getDistinctDetailCount(String key) {
+		int[] column = detailColumns.get(key);
+		int count = 0;
+
+		if (column != null) {
+			boolean[] seen = new boolean[detailDictionary.size() + 1];
+			for (int i = 0; i < size; i++) {
+				if (column[i] != 0 && !seen[column[i]]) {
+					seen[column[i]] = true;
+					count++;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Reduce the capacity of the store to its size, e.g. once all
+	 * observations have been added.
+	 */
+	public void trimToSize() {
+		if (size < capacity) {
+			grow(Math.max(size, 1));
+		}
+	}
+
+	/**
+	 * <p>
+	 * Write the store's observations to a binary stream, column by column,
+	 * with dictionary encoded columns written as codes followed by their
+	 * dictionaries. The observations can be read back with read().
+	 * </p>
+	 *
+	 * <p>
+	 * Numeric columns are written in bulk, big-endian, so that they can be
+	 * read in bulk from a buffer, e.g. a memory-mapped file. Views of the
+	 * store's observations are unaffected.
+	 * </p>
+	 *
+	 * @param out
+	 *            The output, e.g. a DataOutputStream.
+	 * @throws IOException
+	 *             if an error occurs when writing.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(FORMAT_MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(size);
+
+		writeColumn(out, jd);
+		writeColumn(out, mag);
+		writeColumn(out, uncertainty);
+		writeOptionalColumn(out, hjd);
+		writeOptionalColumn(out, hqUncertainty);
+		writeOptionalColumn(out, standardPhase);
+		writeOptionalColumn(out, previousCyclePhase);
+		writeColumn(out, recordNumber);
+
+		out.write(flags, 0, size);
+		out.write(magModifier, 0, size);
+		out.write(validationType, 0, size);
+		out.write(mType, 0, size);
+		out.write(jdFlavour, 0, size);
+
+		writeColumn(out, band);
+		writeColumn(out, series);
+		writeColumn(out, commentCode);
+		writeColumn(out, obsType);
+
+		out.writeInt(seriesDictionary.size());
+		for (int code = 1; code <= seriesDictionary.size(); code++) {
+			SeriesType type = seriesDictionary.decode(code);
+			writeString(out, type.getDescription());
+			writeString(out, type.getShortName());
+			out.writeInt(type.getColor().getRGB());
+			out.writeBoolean(type.isSynthetic());
+			out.writeBoolean(type.isUserDefined());
+		}
+
+		out.writeInt(commentCodeDictionary.size());
+		for (int code = 1; code <= commentCodeDictionary.size(); code++) {
+			writeString(out, commentCodeDictionary.decode(code).getOrigString());
+		}
+
+		out.writeInt(obsTypeDictionary.size());
+		for (int code = 1; code <= obsTypeDictionary.size(); code++) {
+			writeString(out, obsTypeDictionary.decode(code));
+		}
+
+		out.writeInt(detailDictionary.size());
+		for (int code = 1; code <= detailDictionary.size(); code++) {
+			writeProperty(out, detailDictionary.decode(code));
+		}
+
+		out.writeInt(detailColumns.size());
+		for (Map.Entry<String, int[]> entry : detailColumns.entrySet()) {
+			String title = detailTitles.get(entry.getKey());
+			writeString(out, entry.getKey());
+			writeString(out, title != null ? title : entry.getKey());
+			writeColumn(out, entry.getValue());
+		}
+	}
+
+	/**
+	 * Read observations written by write() into a new store.
+	 *
+	 * @param in
+	 *            The input, e.g. a memory-mapped file, positioned at the
+	 *            start of the observations and left positioned after them.
+	 * @return The store, trimmed to size.
+	 * @throws IOException
+	 *             if an error occurs when reading or the input was not
+	 *             written by write().
+	 */
+	public static ObservationStore read(ByteBuffer in) throws IOException {
+		try {
+			return readStore(in);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated observation store.");
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid observation store.");
+		}
+	}
+
+	private static ObservationStore readStore(ByteBuffer in) throws IOException {
+		if (in.getInt() != FORMAT_MAGIC) {
+			throw new IOException("Not an observation store.");
+		}
+
+		int version = in.getInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported observation store version: "
+					+ version);
+		}
+
+		// Each observation occupies at least its JD, magnitude and
+		// uncertainty.
+		int size = in.getInt();
+		if (size < 0 || size > in.remaining() / (3 * Double.BYTES)) {
+			throw new IOException("Invalid observation store size: " + size);
+		}
+
+		ObservationStore store = new ObservationStore(size);
+		store.size = size;
+
+		readColumn(in, store.jd, size);
+		readColumn(in, store.mag, size);
+		readColumn(in, store.uncertainty, size);
+		store.hjd = readOptionalColumn(in, store.capacity, size);
+		store.hqUncertainty = readOptionalColumn(in, store.capacity, size);
+		store.standardPhase = readOptionalColumn(in, store.capacity, size);
+		store.previousCyclePhase = readOptionalColumn(in, store.capacity,
+				size);
+		readColumn(in, store.recordNumber, size);
+
+		in.get(store.flags, 0, size);
+		in.get(store.magModifier, 0, size);
+		in.get(store.validationType, 0, size);
+		in.get(store.mType, 0, size);
+		in.get(store.jdFlavour, 0, size);
+
+		readColumn(in, store.band, size);
+		readColumn(in, store.series, size);
+		readColumn(in, store.commentCode, size);
+		readColumn(in, store.obsType, size);
+
+		int seriesCount = in.getInt();
+		for (int i = 0; i < seriesCount; i++) {
+			String description = readString(in);
+			String shortName = readString(in);
+			Color color = new Color(in.getInt());
+			boolean synthetic = in.get() != 0;
+			boolean userDefined = in.get() != 0;
+
+			SeriesType type = SeriesType.exists(description) ? SeriesType
+					.getSeriesFromDescription(description) : SeriesType
+					.create(description, shortName, color, synthetic,
+							userDefined);
+			store.seriesDictionary.append(type);
+		}
+
+		int commentCodeCount = in.getInt();
+		for (int i = 0; i < commentCodeCount; i++) {
+			store.commentCodeDictionary.append(new CommentCodes(readString(in)));
+		}
+
+		int obsTypeCount = in.getInt();
+		for (int i = 0; i < obsTypeCount; i++) {
+			store.obsTypeDictionary.append(readString(in));
+		}
+
+		int detailValueCount = in.getInt();
+		for (int i = 0; i < detailValueCount; i++) {
+			store.detailDictionary.append(readProperty(in));
+		}
+
+		int detailColumnCount = in.getInt();
+		for (int i = 0; i < detailColumnCount; i++) {
+			String key = readString(in);
+			String title = readString(in);
+
+			int[] column = new int[store.capacity];
+			readColumn(in, column, size);
+			store.detailColumns.put(key, column);
+			store.detailTitles.put(key, title);
+		}
+
+		store.validateCodes();
+
+		return store;
+	}
+
+	// Helpers
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		}
+	}
+
+	// Set the capacity of all columns.
+	private void grow(int newCapacity) {
+		capacity = newCapacity;
+
+		jd = Arrays.copyOf(jd, capacity);
+		mag = Arrays.copyOf(mag, capacity);
+		uncertainty = Arrays.copyOf(uncertainty, capacity);
+		hjd = copyOf(hjd);
+		hqUncertainty = copyOf(hqUncertainty);
+		standardPhase = copyOf(standardPhase);
+		previousCyclePhase = copyOf(previousCyclePhase);
+		recordNumber = Arrays.copyOf(recordNumber, capacity);
+
+		flags = Arrays.copyOf(flags, capacity);
+		magModifier = Arrays.copyOf(magModifier, capacity);
+		validationType = Arrays.copyOf(validationType, capacity);
+		mType = Arrays.copyOf(mType, capacity);
+		jdFlavour = Arrays.copyOf(jdFlavour, capacity);
+
+		band = Arrays.copyOf(band, capacity);
+		series = Arrays.copyOf(series, capacity);
+		commentCode = Arrays.copyOf(commentCode, capacity);
+		obsType = Arrays.copyOf(obsType, capacity);
+
+		for (Map.Entry<String, int[]> entry : detailColumns.entrySet()) {
+			entry.setValue(Arrays.copyOf(entry.getValue(), capacity));
+		}
+	}
+
+	private double[] copyOf(double[] column) {
+		return column != null ? Arrays.copyOf(column, capacity) : null;
+	}
+
+	private boolean isSet(int index, byte flag) {
+		return (flags[index] & flag) != 0;
+	}
+
+	private void setFlag(int index, byte flag, boolean value) {
+		if (value) {
+			flags[index] |= flag;
+		} else {
+			flags[index] &= ~flag;
+		}
+	}
+
+	private static byte encode(Enum<?> value) {
+		return (byte) (value != null ? value.ordinal() + 1 : 0);
+	}
+
+	private static <T> T decode(T[] values, byte code) {
+		return code != 0 ? values[code - 1] : null;
+	}
+
+	private void writeColumn(DataOutput out, double[] column)
+			throws IOException {
+		ByteBuffer chunk = ByteBuffer.allocate(IO_CHUNK_SIZE);
+		for (int i = 0; i < size; i++) {
+			if (chunk.remaining() < Double.BYTES) {
+				out.write(chunk.array(), 0, chunk.position());
+				chunk.clear();
+			}
+			chunk.putDouble(column[i]);
+		}
+		out.write(chunk.array(), 0, chunk.position());
+	}
+
+	private void writeColumn(DataOutput out, int[] column) throws IOException {
+		ByteBuffer chunk = ByteBuffer.allocate(IO_CHUNK_SIZE);
+		for (int i = 0; i < size; i++) {
+			if (chunk.remaining() < Integer.BYTES) {
+				out.write(chunk.array(), 0, chunk.position());
+				chunk.clear();
+			}
+			chunk.putInt(column[i]);
+		}
+		out.write(chunk.array(), 0, chunk.position());
+	}
+
+	private void writeOptionalColumn(DataOutput out, double[] column)
+			throws IOException {
+		out.writeBoolean(column != null);
+		if (column != null) {
+			writeColumn(out, column);
+		}
+	}
+
+	// Strings are written as a length and UTF-8 bytes, and are not limited
+	// in length as with DataOutput.writeUTF().
+	private static void writeString(DataOutput out, String str)
+			throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void readColumn(ByteBuffer in, double[] column, int size) {
+		in.asDoubleBuffer().get(column, 0, size);
+		in.position(in.position() + size * Double.BYTES);
+	}
+
+	private static void readColumn(ByteBuffer in, int[] column, int size) {
+		in.asIntBuffer().get(column, 0, size);
+		in.position(in.position() + size * Integer.BYTES);
+	}
+
+	private static double[] readOptionalColumn(ByteBuffer in, int capacity,
+			int size) {
+		double[] column = null;
+		if (in.get() != 0) {
+			column = new double[capacity];
+			readColumn(in, column, size);
+		}
+		return column;
+	}
+
+	private static String readString(ByteBuffer in) throws IOException {
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining()) {
+			throw new IOException("Invalid string length in observation store: "
+					+ length);
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeProperty(DataOutput out, Property value)
+			throws IOException {
+		out.writeByte(value.getType().ordinal());
+
+		switch (value.getType()) {
+		case INTEGER:
+			out.writeInt(value.getIntVal());
+			break;
+		case REAL:
+			out.writeDouble(value.getRealVal());
+			break;
+		case BOOLEAN:
+			out.writeBoolean(value.getBoolVal());
+			break;
+		case STRING:
+			writeString(out, value.getStrVal());
+			break;
+		case NONE:
+		default:
+			break;
+		}
+	}
+
+	private static Property readProperty(ByteBuffer in) throws IOException {
+		Property value;
+
+		int type = in.get();
+		if (type < 0 || type >= PROP_TYPES.length) {
+			throw new IOException("Invalid detail type: " + type);
+		}
+
+		switch (PROP_TYPES[type]) {
+		case INTEGER:
+			value = new Property(in.getInt());
+			break;
+		case REAL:
+			value = new Property(in.getDouble());
+			break;
+		case BOOLEAN:
+			value = new Property(in.get() != 0);
+			break;
+		case STRING:
+			value = new Property(readString(in));
+			break;
+		case NONE:
+		default:
+			value = Property.NO_VALUE;
+			break;
+		}
+
+		return value;
+	}
+
+	// Check that the codes read into the store's columns are in range, so
+	// that a corrupt input is reported when read rather than when viewed.
+	private void validateCodes() throws IOException {
+		checkCodes(magModifier, MAG_MODIFIERS.length);
+		checkCodes(validationType, VALIDATION_TYPES.length);
+		checkCodes(mType, MTYPES.length);
+		checkCodes(jdFlavour, JD_FLAVOURS.length);
+
+		checkCodes(band, seriesDictionary.size());
+		checkCodes(series, seriesDictionary.size());
+		checkCodes(commentCode, commentCodeDictionary.size());
+		checkCodes(obsType, obsTypeDictionary.size());
+
+		for (int[] column : detailColumns.values()) {
+			checkCodes(column, detailDictionary.size());
+		}
+	}
+
+	private void checkCodes(byte[] column, int maxCode) throws IOException {
+		for (int i = 0; i < size; i++) {
+			if (column[i] < 0 || column[i] > maxCode) {
+				throw new IOException("Invalid code in observation store: "
+						+ column[i]);
+			}
+		}
+	}
+
+	private void checkCodes(int[] column, int maxCode) throws IOException {
+		for (int i = 0; i < size; i++) {
+			if (column[i] < 0 || column[i] > maxCode) {
+				throw new IOException("Invalid code in observation store: "
+						+ column[i]);
+			}
+		}
+	}
+
+	/**
+	 * A table of distinct values, each identified by a positive code, 0
+	 * denoting null.
+	 */
+	private static class Dictionary<T> {
+
+		private final List<T> values;
+		private final Map<T, Integer> codes;
+
+		public Dictionary() {
+			values = new ArrayList<T>();
+			values.add(null);
+			codes = new HashMap<T, Integer>();
+		}
+
+		public int encode(T value) {
+			if (value == null) {
+				return 0;
+			}
+
+			Integer code = codes.get(value);
+			if (code == null) {
+				code = values.size();
+				values.add(value);
+				codes.put(value, code);
+			}
+			return code;
+		}
+
+		public T decode(int code) {
+			return values.get(code);
+		}
+
+		// Add a value with the next code, as read from a stream.
+		public void append(T value) {
+			codes.put(value, values.size());
+			values.add(value);
+		}
+
+		public int size() {
+			return values.size() - 1;
+		}
+	}
+
+	// Create an observation from a row's values.
+	private ValidObservation toObservation(int index) {
+		ValidObservation ob = new ValidObservation();
+
+		ob.setRecordNumber(recordNumber[index]);
+		ob.setDateInfo(new DateInfo(jd[index]));
+		ob.setMagnitude(getMagnitude(index));
+		ob.setHqUncertainty(getHqUncertainty(index));
+		ob.setBand(seriesDictionary.decode(band[index]));
+		ob.setSeries(seriesDictionary.decode(series[index]));
+		ob.setCommentCode(commentCodeDictionary.decode(commentCode[index]));
+		ob.setTransformed(isSet(index, TRANSFORMED));
+		ob.setValidationType(decode(VALIDATION_TYPES, validationType[index]));
+		ob.setHJD(isSet(index, HAS_HJD) ? new DateInfo(hjd[index]) : null);
+		ob.setMType(decode(MTYPES, mType[index]));
+		ob.setObsType(obsTypeDictionary.decode(obsType[index]));
+		ob.setStandardPhase(getStandardPhase(index));
+		ob.setPreviousCyclePhase(getPreviousCyclePhase(index));
+		ob.setExcluded(isSet(index, EXCLUDED));
+		ob.setJDflavour(decode(JD_FLAVOURS, jdFlavour[index]));
+
+		for (Map.Entry<String, int[]> entry : detailColumns.entrySet()) {
+			int code = entry.getValue()[index];
+			if (code != 0) {
+				ob.addDetail(entry.getKey(), detailDictionary.decode(code),
+						detailTitles.get(entry.getKey()));
+			}
+		}
+
+		return ob;
+	}
+
+	private Magnitude getMagnitude(int index) {
+		return new Magnitude(mag[index], decode(MAG_MODIFIERS,
+				magModifier[index]), isSet(index, UNCERTAIN),
+				uncertainty[index]);
+	}
+
+	private void setMagnitude(int index, Magnitude magnitude) {
+		mag[index] = magnitude.getMagValue();
+		magModifier[index] = encode(magnitude.getMagModifier());
+		setFlag(index, UNCERTAIN, magnitude.isUncertain());
+		uncertainty[index] = magnitude.getUncertainty();
+	}
+
+	private Double getHqUncertainty(int index) {
+		return isSet(index, HAS_HQ_UNCERTAINTY) ? hqUncertainty[index] : null;
+	}
+
+	private void setHqUncertainty(int index, Double value) {
+		if (value != null) {
+			if (hqUncertainty == null) {
+				hqUncertainty = new double[capacity];
+			}
+			hqUncertainty[index] = value;
+		}
+		setFlag(index, HAS_HQ_UNCERTAINTY, value != null);
+	}
+
+	private void setHJD(int index, DateInfo value) {
+		if (value != null) {
+			if (hjd == null) {
+				hjd = new double[capacity];
+			}
+			hjd[index] = value.getJulianDay();
+		}
+		setFlag(index, HAS_HJD, value != null);
+	}
+
+	private Double getStandardPhase(int index) {
+		return isSet(index, HAS_STANDARD_PHASE) ? standardPhase[index] : null;
+	}
+
+	private void setStandardPhase(int index, Double value) {
+		if (value != null) {
+			if (standardPhase == null) {
+				standardPhase = new double[capacity];
+			}
+			standardPhase[index] = value;
+		}
+		setFlag(index, HAS_STANDARD_PHASE, value != null);
+	}
+
+	private Double getPreviousCyclePhase(int index) {
+		return isSet(index, HAS_PREVIOUS_CYCLE_PHASE) ? previousCyclePhase[index]
+				: null;
+	}
+
+	private void setPreviousCyclePhase(int index, Double value) {
+		if (value != null) {
+			if (previousCyclePhase == null) {
+				previousCyclePhase = new double[capacity];
+			}
+			previousCyclePhase[index] = value;
+		}
+		setFlag(index, HAS_PREVIOUS_CYCLE_PHASE, value != null);
+	}
+
+	private Property getDetail(int index, String key) {
+		int[] column = detailColumns.get(key);
+		int code = column != null ? column[index] : 0;
+		return code != 0 ? detailDictionary.decode(code) : Property.NO_VALUE;
+	}
+
+	// Store a detail value; its key was recorded by the observation from
+	// which it was copied.
+	private void setDetail(int index, String key, Property value) {
+		int[] column = detailColumns.get(key);
+		if (column == null) {
+			column = new int[capacity];
+			detailColumns.put(key, column);
+		}
+		column[index] = detailDictionary.encode(value);
+	}
+
+	/**
+	 * <p>
+	 * A view of an observation in the store: the index of its row, through
+	 * which values are read from the store's columns without creating an
+	 * observation, and values that change during analysis (validation type,
+	 * exclusion, series and phases) are written.
+	 * </p>
+	 *
+	 * <p>
+	 * Views are equal if the observations created from them by
+	 * toObservation() are equal.
+	 * </p>
+	 */
+	public final class View {
+
+		private final int index;
+
+		private View(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * @return the index of the observation's row, in order of addition
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the observation's record number
+		 */
+		public int getRecordNumber() {
+			return recordNumber[index];
+		}
+
+		/**
+		 * @return the observation's Julian Day
+		 */
+		public double getJD() {
+			return jd[index];
+		}
+
+		/**
+		 * @return the observation's magnitude value
+		 */
+		public double getMag() {
+			return mag[index];
+		}
+
+		/**
+		 * @return the observation's magnitude uncertainty
+		 */
+		public double getUncertainty() {
+			return uncertainty[index];
+		}
+
+		/**
+		 * @return a new magnitude with the observation's values
+		 */
+		public Magnitude getMagnitude() {
+			return ObservationStore.this.getMagnitude(index);
+		}
+
+		/**
+		 * @return the observation's band
+		 */
+		public SeriesType getBand() {
+			return seriesDictionary.decode(band[index]);
+		}
+
+		/**
+		 * @return the observation's series
+		 */
+		public SeriesType getSeries() {
+			return seriesDictionary.decode(series[index]);
+		}
+
+		/**
+		 * @param series
+		 *            the series to set
+		 */
+		public void setSeries(SeriesType series) {
+			ObservationStore.this.series[index] = seriesDictionary
+					.encode(series);
+		}
+
+		/**
+		 * @return the observation's validation type
+		 */
+		public ValidationType getValidationType() {
+			return decode(VALIDATION_TYPES, validationType[index]);
+		}
+
+		/**
+		 * @param validationType
+		 *            the validation type to set
+		 */
+		public void setValidationType(ValidationType validationType) {
+			ObservationStore.this.validationType[index] = encode(validationType);
+		}
+
+		/**
+		 * @return whether the observation is excluded
+		 */
+		public boolean isExcluded() {
+			return isSet(index, EXCLUDED);
+		}
+
+		/**
+		 * @param excluded
+		 *            whether the observation is excluded
+		 */
+		public void setExcluded(boolean excluded) {
+			setFlag(index, EXCLUDED, excluded);
+		}
+
+		/**
+		 * @return the observation's standard phase, or null if none
+		 */
+		public Double getStandardPhase() {
+			return ObservationStore.this.getStandardPhase(index);
+		}
+
+		/**
+		 * @param standardPhase
+		 *            the standard phase to set; may be null
+		 */
+		public void setStandardPhase(Double standardPhase) {
+			ObservationStore.this.setStandardPhase(index, standardPhase);
+		}
+
+		/**
+		 * @return the observation's previous cycle phase, or null if none
+		 */
+		public Double getPreviousCyclePhase() {
+			return ObservationStore.this.getPreviousCyclePhase(index);
+		}
+
+		/**
+		 * @param previousCyclePhase
+		 *            the previous cycle phase to set; may be null
+		 */
+		public void setPreviousCyclePhase(Double previousCyclePhase) {
+			ObservationStore.this.setPreviousCyclePhase(index,
+					previousCyclePhase);
+		}
+
+		/**
+		 * Return a detail of the observation.
+		 *
+		 * @param key
+		 *            The detail key.
+		 * @return The value, or Property.NO_VALUE if the observation has no
+		 *         such detail.
+		 */
+		public Property getDetail(String key) {
+			return ObservationStore.this.getDetail(index, key);
+		}
+
+		/**
+		 * @return a new observation with this observation's values
+		 */
+		public ValidObservation toObservation() {
+			return ObservationStore.this.toObservation(index);
+		}
+
+		@Override
+		public int hashCode() {
+			return toObservation().hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			return toObservation().equals(((View) obj).toObservation());
+		}
+
+		@Override
+		public String toString() {
+			return toObservation().toString();
+		}
+	}
+
+	/**
+	 * A list of the observations in the store.
+	 */
+	private class ObservationList extends AbstractList<ValidObservation>
+			implements RandomAccess {
+
+		@Override
+		public ValidObservation get(int index) {
+			return ObservationStore.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
@@ -17,14 +17,17 @@
  */
 package org.aavso.tools.vstar.data;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aavso.tools.vstar.ui.mediator.AnalysisType;
 import org.aavso.tools.vstar.ui.mediator.Mediator;
+import org.aavso.tools.vstar.util.Interner;
 import org.aavso.tools.vstar.util.prefs.NumericPrecisionPrefs;
 
 /**
@@ -73,35 +76,26 @@ public class ValidObservation extends Observation {
 		}
 	}
 
-	// Julian Day, calendar date, and cache.
+	// Julian Day, calendar date, and interner.
 	private DateInfo dateInfo = null;
-	private final static WeakHashMap<DateInfo, DateInfo> dateInfoCache;
-	static {
-		dateInfoCache = new WeakHashMap<DateInfo, DateInfo>();
-	}
+	private final static Interner<DateInfo> dateInfoInterner = new Interner<DateInfo>();
 
-	// Magnitude, uncertainty, fainter/brighter-than, and cache.
+	// Magnitude, uncertainty, fainter/brighter-than. Magnitudes are mutable,
+	// so are not interned.
 	private Magnitude magnitude = null;
-	private final static WeakHashMap<Magnitude, Magnitude> magnitudeCache;
-	static {
-		magnitudeCache = new WeakHashMap<Magnitude, Magnitude>();
-	}
 
 	private Double hqUncertainty = null;
 	private SeriesType band = null;
 	private SeriesType series = null; // series and band may differ on copy
 
-	// Comment codes and cache.
+	// Comment codes and interner.
 	private CommentCodes commentCode = null;
-	private final static WeakHashMap<CommentCodes, CommentCodes> commentCodeCache;
-	static {
-		commentCodeCache = new WeakHashMap<CommentCodes, CommentCodes>();
-	}
+	private final static Interner<CommentCodes> commentCodeInterner = new Interner<CommentCodes>();
 
 	private boolean transformed = false;
 	private ValidationType validationType = null;
 
-	// Heliocentric vs Geocentric Julian Date; uses dateInfo cache.
+	// Heliocentric vs Geocentric Julian Date; uses dateInfo interner.
 	private DateInfo hJD = null;
 
 	private MTypeType mType = MTypeType.STD;
@@ -117,27 +111,26 @@ public class ValidObservation extends Observation {
 
 	private boolean excluded = false;
 
-	private JDflavour jdFlavour = JDflavour.UNKNOWN;
+	// The number of changes to any observation's discrepant, excluded or
+	// phase state, i.e. the state that may change after a dataset is loaded.
+	private static volatile long modificationCount = 0;
 
-	// Optional string-based observation details.
-	private Map<String, Property> details;
+	private JDflavour jdFlavour = JDflavour.UNKNOWN;
 
-	// Optional observation detail titles, and shadow save collection.
-	private static Map<String, String> detailTitles = new HashMap<String, String>();
-	private static Map<String, String> savedDetailTitles = null;
+	// Optional string-based observation details, indexed by detail slot, and
+	// the titles and types with which they were added.
+	private Property[] details;
+	private DetailTitles detailTitles;
 
-	// Optional observation detail types, and shadow save collection.
-	// @deprecated
-	private static Map<String, Class<?>> detailTypes = new HashMap<String, Class<?>>();
-	private static Map<String, Class<?>> savedDetailTypes = null;
+	private static final Property[] NO_DETAILS = new Property[0];
 
-	// Ordering of keys via an index of insertion to titles table.
-	private static int detailIndex = 0;
-	private static int savedDetailIndex = 0;
-	private static Map<Integer, String> indexToDetailKey = new HashMap<Integer, String>();
-	private static Map<Integer, String> savedIndexToDetailKey = null;
-	private static Map<String, Integer> detailKeyToIndex = new HashMap<String, Integer>();
-	private static Map<String, Integer> savedDetailKeyToIndex = null;
+	// The slot of each detail key. Slots are shared by all datasets and only
+	// ever added, like interned values; the details present in a dataset, with
+	// their titles, types and order, are recorded in that dataset's
+	// DetailSchema. The key array is written before the slot is published, so
+	// a reader that finds a slot also sees its key.
+	private static final Map<String, Integer> detailSlots = new ConcurrentHashMap<String, Integer>();
+	private static volatile String[] slotKeys = new String[0];
 
 	private final static String nameKey = "NAME";
 	private final static String nameTitle = "Name";
@@ -202,12 +195,8 @@ public class ValidObservation extends Observation {
 		standardDetailKeys.add(creditKey);
 	}
 
-	// A cache of detail values.
-	private static final WeakHashMap<Property, Property> detailValueCache;
-
-	static {
-		detailValueCache = new WeakHashMap<Property, Property>();
-	}
+	// An interner of detail values.
+	private static final Interner<Property> detailValueInterner = new Interner<Property>();
 
 	/**
 	 * Constructor.
@@ -216,7 +205,8 @@ public class ValidObservation extends Observation {
 	 */
 	public ValidObservation() {
 		super(0);
-		details = new HashMap<String, Property>();
+		details = NO_DETAILS;
+		detailTitles = DetailTitles.NONE;
 	}
 
 	/**
@@ -246,7 +236,14 @@ public class ValidObservation extends Observation {
 		ob.setStandardPhase(this.getStandardPhase());
 		ob.setPreviousCyclePhase(this.getPreviousCyclePhase());
 		ob.setExcluded(this.isExcluded());
-		ob.details = new HashMap<String, Property>(this.details);
+		if (holdsOwnDetails()) {
+			ob.details = details.clone();
+			ob.detailTitles = detailTitles;
+		} else {
+			for (Map.Entry<String, Property> entry : this.getDetails().entrySet()) {
+				ob.addDetail(entry.getKey(), entry.getValue(), getDetailTitle(entry.getKey()));
+			}
+		}
 
 		return ob;
 	}
@@ -261,121 +258,62 @@ public class ValidObservation extends Observation {
 		return copy(null);
 	}
 
-	/**
-	 * Reset static non-cache maps and detail index in readiness for a new dataset.
-	 */
-	public static void reset() {
-		if (detailTitles != null) {
-			savedDetailTitles = new HashMap<String, String>(detailTitles);
-			detailTitles.clear();
-		}
-		
-		if (detailTypes != null) {
-			savedDetailTypes = new HashMap<String, Class<?>>(detailTypes);
-			detailTypes.clear();
-		}
-
-		if (indexToDetailKey != null) {
-			savedIndexToDetailKey = new HashMap<Integer, String>(indexToDetailKey);
-			indexToDetailKey.clear();
-		}
-
-		if (detailKeyToIndex != null) {
-			savedDetailKeyToIndex = new HashMap<String, Integer>(detailKeyToIndex);
-			detailKeyToIndex.clear();
-		}
-
-		savedDetailIndex = detailIndex;
-		detailIndex = 0;
-	}
-
-	/**
-	 * Restore static non-cache maps and detail index when a dataset load failure
-	 * occurs.
-	 */
-	public static void restore() {
-		// Don't restore to null values, e.g. in the case of a first observation
-		// load failure, the saved map values may still be at their default of
-		// null.
-
-		if (savedDetailTitles != null) {
-			detailTitles = savedDetailTitles;
-		}
-
-		if (savedDetailTypes != null) {
-			detailTypes = savedDetailTypes;
-		}
-
-		if (savedIndexToDetailKey != null) {
-			indexToDetailKey = savedIndexToDetailKey;
-		}
-
-		if (savedDetailKeyToIndex != null) {
-			detailKeyToIndex = savedDetailKeyToIndex;
-		}
-
-		detailIndex = savedDetailIndex;
-	}
 
 	// Getters and Setters
 
 	/**
-	 * Generic cached value getter.
+	 * Return the interner of dates (Julian Days and HJDs) shared by all
+	 * observations, e.g. for its hit-rate statistics.
 	 * 
-	 * @param <T>   The type of the cached value.
-	 * @param cache The cache in which to look for the value.
-	 * @param value The value to look up.
-	 * @return The present or future cached value.
-	 */
-	private static <T> T getCachedValue(WeakHashMap<T, T> cache, T value) {
-		if (cache.containsKey(value)) {
-			value = cache.get(value);
-		} else {
-			cache.put(value, value);
-		}
-
-		return value;
-	}
-
-	/**
-	 * @return details map
+	 * @return The interner.
 	 */
-	public Map<String, Property> getDetails() {
-		return details;
+	public static Interner<DateInfo> getDateInfoInterner() {
+		return dateInfoInterner;
 	}
 
 	/**
-	 * @return the detailTitles
+	 * Return the interner of comment codes shared by all observations.
+	 * 
+	 * @return The interner.
 	 */
-	public static Map<String, String> getDetailTitles() {
-		return detailTitles;
+	public static Interner<CommentCodes> getCommentCodeInterner() {
+		return commentCodeInterner;
 	}
 
 	/**
-	 * @return the detail types
+	 * Return the interner of detail values (e.g. observer codes, comparison
+	 * stars) shared by all observations.
+	 * 
+	 * @return The interner.
 	 */
-	public static Map<String, Class<?>> getDetailTypes() {
-		return detailTypes;
+	public static Interner<Property> getDetailValueInterner() {
+		return detailValueInterner;
 	}
 
 	/**
-	 * Return the detail key given the detail ordering index.
-	 * 
-	 * @param the detail index
-	 * @return the detail key
+	 * @return a map of this observation's details; changes to it do not affect
+	 *         the observation
 	 */
-	public static String getDetailKey(int index) {
-		return indexToDetailKey.get(index);
+	public Map<String, Property> getDetails() {
+		Map<String, Property> map = new LinkedHashMap<String, Property>();
+		String[] keys = slotKeys;
+		for (int slot = 0; slot < details.length; slot++) {
+			if (details[slot] != null) {
+				map.put(keys[slot], details[slot]);
+			}
+		}
+		return map;
 	}
 
 	/**
-	 * Return the detail index given the key.
+	 * Return the title with which a detail was first added to this observation.
 	 * 
-	 * @param the detail key
-	 * @return the detail index
+	 * @param key The detail key.
+	 * @return The title, or null if no such detail has been added.
 	 */
-	public static int getDetailIndex(String key) {
-		return detailKeyToIndex.get(key);
+	public String getDetailTitle(String key) {
+		Integer slot = detailSlots.get(key);
+		return slot != null ? detailTitles.getTitle(slot) : null;
 	}
 
 	/**
@@ -388,14 +326,60 @@ public class ValidObservation extends Observation {
 	 */
 	public void addDetail(String key, Property value, String title) {
 		if (key != null && value != null) {
-			value = getCachedValue(detailValueCache, value);
-			details.put(key, value);
-			if (!detailTitles.containsKey(key)) {
-				detailTitles.put(key, title);
-				detailTypes.put(key, value.getClazz());
-				indexToDetailKey.put(detailIndex, key);
-				detailKeyToIndex.put(key, detailIndex);
-				detailIndex++;
+			value = detailValueInterner.intern(value);
+			int slot = detailSlot(key);
+			if (slot >= details.length) {
+				details = Arrays.copyOf(details, slot + 1);
+			}
+			details[slot] = value;
+			detailTitles = detailTitles.with(slot, title, value.getClazz());
+		}
+	}
+
+	// Return the slot of a detail key, allocating one the first time the key
+	// is seen.
+	private static int detailSlot(String key) {
+		Integer slot = detailSlots.get(key);
+		return slot != null ? slot : addDetailSlot(key);
+	}
+
+	private static synchronized int addDetailSlot(String key) {
+		Integer slot = detailSlots.get(key);
+		if (slot == null) {
+			slot = slotKeys.length;
+			String[] keys = Arrays.copyOf(slotKeys, slot + 1);
+			keys[slot] = key;
+			slotKeys = keys;
+			detailSlots.put(key, slot);
+		}
+		return slot;
+	}
+
+	// For unit tests.
+	DetailTitles detailTitles() {
+		return detailTitles;
+	}
+
+	int detailSlotCount() {
+		return details.length;
+	}
+
+	// Add this observation's details, with their titles and types, to a
+	// dataset's schema; called with the schema locked.
+	void addDetailKeysTo(DetailSchema schema) {
+		if (!holdsOwnDetails()) {
+			for (Map.Entry<String, Property> entry : getDetails().entrySet()) {
+				String key = entry.getKey();
+				schema.add(key, getDetailTitle(key), entry.getValue().getClazz());
+			}
+			return;
+		}
+
+		String[] keys = slotKeys;
+		for (int slot = 0; slot < details.length; slot++) {
+			if (details[slot] != null) {
+				schema.addSlot(slot, keys[slot], detailTitles.getTitle(slot),
+						detailTitles.getType(slot));
 			}
 		}
 	}
@@ -453,16 +437,10 @@ public class ValidObservation extends Observation {
 	 *         string.
 	 */
 	public Property getDetail(String key) {
-		return detailExists(key) ? details.get(key) : Property.NO_VALUE;
+		Property value = slotValue(key);
+		return value != null ? value : Property.NO_VALUE;
 	}
 
-	/**
-	 * @return detail titles map value given a key
-	 */
-//	public String getDetailTitle(String key) {
-//		return detailTitles.get(key);
-//	}
-
 	/**
 	 * @return detail types map value given a key
 	 */
@@ -477,7 +455,12 @@ public class ValidObservation extends Observation {
 	 * @return Whether or not detail exists.
 	 */
 	public boolean detailExists(String key) {
-		return details.keySet().contains(key);
+		return slotValue(key) != null;
+	}
+
+	private Property slotValue(String key) {
+		Integer slot = detailSlots.get(key);
+		return slot != null && slot < details.length ? details[slot] : null;
 	}
 
 	/**
@@ -497,7 +480,8 @@ public class ValidObservation extends Observation {
 	 * @return Whether or not the detail title exists.
 	 */
 	public boolean detailTitleExists(String key) {
-		return detailTitles.keySet().contains(key);
+		Integer slot = detailSlots.get(key);
+		return slot != null && detailTitles.contains(slot);
 	}
 
 	/**
@@ -528,7 +512,7 @@ public class ValidObservation extends Observation {
 	 * @param dateInfo the dateInfo to set
 	 */
 	public void setDateInfo(DateInfo dateInfo) {
-		this.dateInfo = getCachedValue(dateInfoCache, dateInfo);
+		this.dateInfo = dateInfoInterner.intern(dateInfo);
 	}
 
 	/**
@@ -542,7 +526,6 @@ public class ValidObservation extends Observation {
 	 * @param magnitude the magnitude to set
 	 */
 	public void setMagnitude(Magnitude magnitude) {
-//		this.magnitude = getCachedValue(magnitudeCache, magnitude);
 		this.magnitude = magnitude;
 	}
 
@@ -572,7 +555,7 @@ public class ValidObservation extends Observation {
 	 * @return whether this observation is discrepant
 	 */
 	public boolean isDiscrepant() {
-		return ValidationType.DISCREPANT.equals(validationType);
+		return ValidationType.DISCREPANT.equals(getValidationType());
 	}
 
 	/**
@@ -584,7 +567,8 @@ public class ValidObservation extends Observation {
 		// we are going from {G,D,P} -> D -> G -> D -> G ... so we are
 		// potentially losing information. This is a good candidate
 		// for undoable edits.
-		this.validationType = discrepant ? ValidationType.DISCREPANT : ValidationType.GOOD;
+		setValidationType(discrepant ? ValidationType.DISCREPANT : ValidationType.GOOD);
+		modificationCount++;
 	}
 
 	/**
@@ -669,14 +653,14 @@ public class ValidObservation extends Observation {
 	 * @param commentCodeStr the comment code string to set
 	 */
 	public void setCommentCode(String commentCodeStr) {
-		this.commentCode = getCachedValue(commentCodeCache, new CommentCodes(commentCodeStr));
+		this.commentCode = commentCodeInterner.intern(new CommentCodes(commentCodeStr));
 	}
 
 	/**
 	 * @param commentCodes the comment codes to set
 	 */
 	public void setCommentCode(CommentCodes commentCodes) {
-		this.commentCode = getCachedValue(commentCodeCache, commentCodes);
+		this.commentCode = commentCodeInterner.intern(commentCodes);
 	}
 
 	/**
@@ -805,7 +789,7 @@ public class ValidObservation extends Observation {
 	 * @param hJD the hJD to set
 	 */
 	public void setHJD(DateInfo hJD) {
-		this.hJD = getCachedValue(dateInfoCache, hJD);
+		this.hJD = dateInfoInterner.intern(hJD);
 	}
 
 	/**
@@ -917,7 +901,10 @@ public class ValidObservation extends Observation {
 	 * @param standardPhase the standardPhase to set
 	 */
 	public void setStandardPhase(Double standardPhase) {
-		this.standardPhase = standardPhase;
+		if (!Objects.equals(this.standardPhase, standardPhase)) {
+			this.standardPhase = standardPhase;
+			modificationCount++;
+		}
 	}
 
 	/**
@@ -931,7 +918,10 @@ public class ValidObservation extends Observation {
 	 * @param previousCyclePhase the previousCyclePhase to set
 	 */
 	public void setPreviousCyclePhase(Double previousCyclePhase) {
-		this.previousCyclePhase = previousCyclePhase;
+		if (!Objects.equals(this.previousCyclePhase, previousCyclePhase)) {
+			this.previousCyclePhase = previousCyclePhase;
+			modificationCount++;
+		}
 	}
 
 	/**
@@ -945,21 +935,36 @@ public class ValidObservation extends Observation {
 	 * @param excluded the excluded to set
 	 */
 	public void setExcluded(boolean excluded) {
-		this.excluded = excluded;
+		if (this.excluded != excluded) {
+			this.excluded = excluded;
+			modificationCount++;
+		}
+	}
+
+	/**
+	 * Return the number of changes made so far to the discrepant, excluded or
+	 * phase state of any observation, i.e. to the state that may change after
+	 * a dataset has been loaded. A value computed from observations, such as
+	 * a dataset fingerprint, may be stale if this has changed since.
+	 * 
+	 * @return the modification count
+	 */
+	public static long getModificationCount() {
+		return modificationCount;
 	}
 
 	/**
 	 * @return true if Heliocentric
 	 */
 	public boolean isHeliocentric() {
-		return jdFlavour == JDflavour.HJD;
+		return getJDflavour() == JDflavour.HJD;
 	}
 
 	/**
 	 * @return true if Barycentric
 	 */
 	public boolean isBarycentric() {
-		return jdFlavour == JDflavour.BJD;
+		return getJDflavour() == JDflavour.BJD;
 	}
 
 	public JDflavour getJDflavour() {
@@ -971,7 +976,7 @@ public class ValidObservation extends Observation {
 	}
 
 	public String getTimeUnits() {
-		return jdFlavour.label;
+		return getJDflavour().label;
 	}
 
 	// Output formatting methods.
@@ -980,163 +985,163 @@ public class ValidObservation extends Observation {
 		StringBuffer strBuf = new StringBuffer();
 
 		if (nonEmptyDetailExists(nameKey)) {
-			strBuf.append(details.get(nameKey));
+			strBuf.append(getDetail(nameKey));
 			strBuf.append("\n");
 		}
 
-		if (dateInfo != null) {
+		if (getDateInfo() != null) {
 			strBuf.append(getTimeUnits());
 			strBuf.append(": ");
-			strBuf.append(NumericPrecisionPrefs.formatTime(dateInfo.getJulianDay()));
+			strBuf.append(NumericPrecisionPrefs.formatTime(getDateInfo().getJulianDay()));
 			strBuf.append("\n");
 
 			strBuf.append("Calendar Date: ");
-			strBuf.append(dateInfo.getCalendarDate());
+			strBuf.append(getDateInfo().getCalendarDate());
 			strBuf.append("\n");
 		}
 
 		// If we are not in phase plot mode, we should not represent ourselves
 		// as having a phase.
 		if (Mediator.getInstance().getAnalysisType() == AnalysisType.PHASE_PLOT) {
-			if (standardPhase != null) {
+			if (getStandardPhase() != null) {
 				strBuf.append("Standard Phase: ");
-				strBuf.append(NumericPrecisionPrefs.formatTime(standardPhase));
+				strBuf.append(NumericPrecisionPrefs.formatTime(getStandardPhase()));
 				strBuf.append("\n");
 			}
 
-			if (previousCyclePhase != null) {
+			if (getPreviousCyclePhase() != null) {
 				strBuf.append("Previous Cycle Phase: ");
-				strBuf.append(NumericPrecisionPrefs.formatTime(previousCyclePhase));
+				strBuf.append(NumericPrecisionPrefs.formatTime(getPreviousCyclePhase()));
 				strBuf.append("\n");
 			}
 		}
 
 		strBuf.append("Magnitude: ");
-		strBuf.append(magnitude.toString());
+		strBuf.append(getMagnitude().toString());
 		strBuf.append("\n");
 
-		if (hqUncertainty != null) {
+		if (getHqUncertainty() != null) {
 			strBuf.append("HQ Uncertainty: ");
-			strBuf.append(NumericPrecisionPrefs.formatMag(hqUncertainty));
+			strBuf.append(NumericPrecisionPrefs.formatMag(getHqUncertainty()));
 			strBuf.append("\n");
 		}
 
-		if (validationType != null) {
+		if (getValidationType() != null) {
 			strBuf.append("Validation: ");
-			strBuf.append(validationType.toString());
+			strBuf.append(getValidationType().toString());
 			strBuf.append("\n");
 		}
 
-		if (obsType != null) {
+		if (getObsType() != null) {
 			strBuf.append("Observation Type: ");
-			strBuf.append(obsType);
+			strBuf.append(getObsType());
 			strBuf.append("\n");
 		}
 
-		if (band != null) {
+		if (getBand() != null) {
 			strBuf.append("Band: ");
-			strBuf.append(band.getDescription());
+			strBuf.append(getBand().getDescription());
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(obsCodeKey)) {
-			strBuf.append(detailTitles.get(obsCodeKey) + ": ");
-			strBuf.append(details.get(obsCodeKey));
+			strBuf.append(getDetailTitle(obsCodeKey) + ": ");
+			strBuf.append(getDetail(obsCodeKey));
 			strBuf.append("\n");
 		}
 
-		if (commentCode != null) {
+		if (getCommentCode() != null) {
 			String str = getCommentCode().getOrigString();
 			if (str.trim().length() != 0) {
 				strBuf.append("Comment Codes:\n");
 				strBuf.append("[");
 				strBuf.append(str);
 				strBuf.append("]\n");
-				strBuf.append(commentCode.toString());
+				strBuf.append(getCommentCode().toString());
 			}
 		}
 
 		if (nonEmptyDetailExists(compStar1Key)) {
-			strBuf.append(detailTitles.get(compStar1Key) + ": ");
-			strBuf.append(details.get(compStar1Key));
+			strBuf.append(getDetailTitle(compStar1Key) + ": ");
+			strBuf.append(getDetail(compStar1Key));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(compStar2Key)) {
-			strBuf.append(detailTitles.get(compStar2Key) + ": ");
-			strBuf.append(details.get(compStar2Key));
+			strBuf.append(getDetailTitle(compStar2Key) + ": ");
+			strBuf.append(getDetail(compStar2Key));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(chartsKey)) {
-			strBuf.append(detailTitles.get(chartsKey) + ": ");
-			strBuf.append(details.get(chartsKey));
+			strBuf.append(getDetailTitle(chartsKey) + ": ");
+			strBuf.append(getDetail(chartsKey));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(commentsKey)) {
-			strBuf.append(detailTitles.get(commentsKey) + ": ");
-			strBuf.append(details.get(commentsKey));
+			strBuf.append(getDetailTitle(commentsKey) + ": ");
+			strBuf.append(getDetail(commentsKey));
 			strBuf.append("\n");
 		}
 
-		if (transformed) {
+		if (isTransformed()) {
 			strBuf.append("Transformed: yes\n");
 		}
 
 		if (nonEmptyDetailExists(airmassKey)) {
-			strBuf.append(detailTitles.get(airmassKey) + ": ");
-			strBuf.append(details.get(airmassKey));
+			strBuf.append(getDetailTitle(airmassKey) + ": ");
+			strBuf.append(getDetail(airmassKey));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(cMagKey)) {
-			strBuf.append(detailTitles.get(cMagKey) + ": ");
-			strBuf.append(details.get(cMagKey));
+			strBuf.append(getDetailTitle(cMagKey) + ": ");
+			strBuf.append(getDetail(cMagKey));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(kMagKey)) {
-			strBuf.append(detailTitles.get(kMagKey) + ": ");
-			strBuf.append(details.get(kMagKey));
+			strBuf.append(getDetailTitle(kMagKey) + ": ");
+			strBuf.append(getDetail(kMagKey));
 			strBuf.append("\n");
 		}
 
-		if (hJD != null) {
+		if (getHJD() != null) {
 			strBuf.append("Heliocentric Julian Day: ");
-			strBuf.append(NumericPrecisionPrefs.formatTime(hJD.getJulianDay()));
+			strBuf.append(NumericPrecisionPrefs.formatTime(getHJD().getJulianDay()));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(groupKey)) {
-			strBuf.append(detailTitles.get(groupKey) + ": ");
-			strBuf.append(details.get(groupKey));
+			strBuf.append(getDetailTitle(groupKey) + ": ");
+			strBuf.append(getDetail(groupKey));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(pubrefKey)) {
-			strBuf.append(detailTitles.get(pubrefKey) + ": ");
-			strBuf.append(details.get(pubrefKey));
+			strBuf.append(getDetailTitle(pubrefKey) + ": ");
+			strBuf.append(getDetail(pubrefKey));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(digitizerKey)) {
-			strBuf.append(detailTitles.get(digitizerKey) + ": ");
-			strBuf.append(details.get(digitizerKey));
+			strBuf.append(getDetailTitle(digitizerKey) + ": ");
+			strBuf.append(getDetail(digitizerKey));
 			strBuf.append("\n");
 		}
 
 		if (nonEmptyDetailExists(creditKey)) {
-			strBuf.append(detailTitles.get(creditKey) + ": ");
-			strBuf.append(details.get(creditKey));
+			strBuf.append(getDetailTitle(creditKey) + ": ");
+			strBuf.append(getDetail(creditKey));
 			strBuf.append("\n");
 		}
 
 		// Add any remaining non-AAVSO details, e.g. for a plugin.
-		for (String key : details.keySet()) {
+		for (String key : getDetails().keySet()) {
 			if (!standardDetailKeys.contains(key)) {
-				strBuf.append(detailTitles.get(key) + ": ");
-				strBuf.append(details.get(key));
+				strBuf.append(getDetailTitle(key) + ": ");
+				strBuf.append(getDetail(key));
 				strBuf.append("\n");
 			}
 		}
@@ -1190,12 +1195,12 @@ public class ValidObservation extends Observation {
 		buf.append(delimiter);
 
 		if (nonEmptyDetailExists(obsCodeKey)) {
-			buf.append(quoteForCSVifNeeded(details.get(obsCodeKey).toString(), delimiter));
+			buf.append(quoteForCSVifNeeded(getDetail(obsCodeKey).toString(), delimiter));
 		}
 		buf.append(delimiter);
 
-		if (this.validationType != null) {
-			buf.append(this.validationType.getValflag());
+		if (getValidationType() != null) {
+			buf.append(getValidationType().getValflag());
 		}
 		buf.append("\n");
 
@@ -1252,7 +1257,7 @@ public class ValidObservation extends Observation {
 		buf.append(delimiter);
 
 		if (nonEmptyDetailExists(obsCodeKey)) {
-			buf.append(quoteForCSVifNeeded(details.get(obsCodeKey).toString(), delimiter));
+			buf.append(quoteForCSVifNeeded(getDetail(obsCodeKey).toString(), delimiter));
 		}
 		buf.append(delimiter);
 
@@ -1289,8 +1294,8 @@ public class ValidObservation extends Observation {
 		}
 		buf.append(delimiter);
 
-		if (this.validationType != null) {
-			buf.append(this.validationType.getValflag());
+		if (getValidationType() != null) {
+			buf.append(getValidationType().getValflag());
 		}
 		buf.append(delimiter);
 
@@ -1305,7 +1310,7 @@ public class ValidObservation extends Observation {
 		buf.append(delimiter);
 
 		if (this.getHJD() != null) {
-			buf.append(hJD.getJulianDay());
+			buf.append(getHJD().getJulianDay());
 		}
 		buf.append(delimiter);
 
@@ -1360,22 +1365,22 @@ public class ValidObservation extends Observation {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((band == null) ? 0 : band.hashCode());
-		result = prime * result + ((commentCode == null) ? 0 : commentCode.hashCode());
-		result = prime * result + ((dateInfo == null) ? 0 : dateInfo.hashCode());
-		result = prime * result + ((details == null) ? 0 : details.hashCode());
-		result = prime * result + (excluded ? 1231 : 1237);
-		result = prime * result + ((hJD == null) ? 0 : hJD.hashCode());
-		result = prime * result + ((hqUncertainty == null) ? 0 : hqUncertainty.hashCode());
-		result = prime * result + ((jdFlavour == null) ? 0 : jdFlavour.hashCode());
-		result = prime * result + ((mType == null) ? 0 : mType.hashCode());
-		result = prime * result + ((magnitude == null) ? 0 : magnitude.hashCode());
-		result = prime * result + ((obsType == null) ? 0 : obsType.hashCode());
-		result = prime * result + ((previousCyclePhase == null) ? 0 : previousCyclePhase.hashCode());
-		result = prime * result + ((series == null) ? 0 : series.hashCode());
-		result = prime * result + ((standardPhase == null) ? 0 : standardPhase.hashCode());
-		result = prime * result + (transformed ? 1231 : 1237);
-		result = prime * result + ((validationType == null) ? 0 : validationType.hashCode());
+		result = prime * result + ((getBand() == null) ? 0 : getBand().hashCode());
+		result = prime * result + ((getCommentCode() == null) ? 0 : getCommentCode().hashCode());
+		result = prime * result + ((getDateInfo() == null) ? 0 : getDateInfo().hashCode());
+		result = prime * result + detailsHashCode();
+		result = prime * result + (isExcluded() ? 1231 : 1237);
+		result = prime * result + ((getHJD() == null) ? 0 : getHJD().hashCode());
+		result = prime * result + ((getHqUncertainty() == null) ? 0 : getHqUncertainty().hashCode());
+		result = prime * result + ((getJDflavour() == null) ? 0 : getJDflavour().hashCode());
+		result = prime * result + ((getMType() == null) ? 0 : getMType().hashCode());
+		result = prime * result + ((getMagnitude() == null) ? 0 : getMagnitude().hashCode());
+		result = prime * result + ((getObsType() == null) ? 0 : getObsType().hashCode());
+		result = prime * result + ((getPreviousCyclePhase() == null) ? 0 : getPreviousCyclePhase().hashCode());
+		result = prime * result + ((getSeries() == null) ? 0 : getSeries().hashCode());
+		result = prime * result + ((getStandardPhase() == null) ? 0 : getStandardPhase().hashCode());
+		result = prime * result + (isTransformed() ? 1231 : 1237);
+		result = prime * result + ((getValidationType() == null) ? 0 : getValidationType().hashCode());
 		return result;
 	}
 
@@ -1388,78 +1393,116 @@ public class ValidObservation extends Observation {
 		if (getClass() != obj.getClass())
 			return false;
 		ValidObservation other = (ValidObservation) obj;
-		if (band == null) {
-			if (other.band != null)
+		if (getBand() == null) {
+			if (other.getBand() != null)
 				return false;
-		} else if (!band.equals(other.band))
+		} else if (!getBand().equals(other.getBand()))
 			return false;
-		if (commentCode == null) {
-			if (other.commentCode != null)
+		if (getCommentCode() == null) {
+			if (other.getCommentCode() != null)
 				return false;
-		} else if (!commentCode.equals(other.commentCode))
+		} else if (!getCommentCode().equals(other.getCommentCode()))
 			return false;
-		if (dateInfo == null) {
-			if (other.dateInfo != null)
+		if (getDateInfo() == null) {
+			if (other.getDateInfo() != null)
 				return false;
-		} else if (!dateInfo.equals(other.dateInfo))
+		} else if (!getDateInfo().equals(other.getDateInfo()))
 			return false;
-		if (details == null) {
-			if (other.details != null)
-				return false;
-		} else if (!details.equals(other.details))
+		if (!detailsEqual(other))
 			return false;
-		if (excluded != other.excluded)
+		if (isExcluded() != other.isExcluded())
 			return false;
-		if (hJD == null) {
-			if (other.hJD != null)
+		if (getHJD() == null) {
+			if (other.getHJD() != null)
 				return false;
-		} else if (!hJD.equals(other.hJD))
+		} else if (!getHJD().equals(other.getHJD()))
 			return false;
-		if (hqUncertainty == null) {
-			if (other.hqUncertainty != null)
+		if (getHqUncertainty() == null) {
+			if (other.getHqUncertainty() != null)
 				return false;
-		} else if (!hqUncertainty.equals(other.hqUncertainty))
+		} else if (!getHqUncertainty().equals(other.getHqUncertainty()))
 			return false;
-		if (jdFlavour != other.jdFlavour)
+		if (getJDflavour() != other.getJDflavour())
 			return false;
-		if (mType != other.mType)
+		if (getMType() != other.getMType())
 			return false;
-		if (magnitude == null) {
-			if (other.magnitude != null)
+		if (getMagnitude() == null) {
+			if (other.getMagnitude() != null)
 				return false;
-		} else if (!magnitude.equals(other.magnitude))
+		} else if (!getMagnitude().equals(other.getMagnitude()))
 			return false;
-		if (obsType == null) {
-			if (other.obsType != null)
+		if (getObsType() == null) {
+			if (other.getObsType() != null)
 				return false;
-		} else if (!obsType.equals(other.obsType))
+		} else if (!getObsType().equals(other.getObsType()))
 			return false;
-		if (previousCyclePhase == null) {
-			if (other.previousCyclePhase != null)
+		if (getPreviousCyclePhase() == null) {
+			if (other.getPreviousCyclePhase() != null)
 				return false;
-		} else if (!previousCyclePhase.equals(other.previousCyclePhase))
+		} else if (!getPreviousCyclePhase().equals(other.getPreviousCyclePhase()))
 			return false;
-		if (series == null) {
-			if (other.series != null)
+		if (getSeries() == null) {
+			if (other.getSeries() != null)
 				return false;
-		} else if (!series.equals(other.series))
+		} else if (!getSeries().equals(other.getSeries()))
 			return false;
-		if (standardPhase == null) {
-			if (other.standardPhase != null)
+		if (getStandardPhase() == null) {
+			if (other.getStandardPhase() != null)
 				return false;
-		} else if (!standardPhase.equals(other.standardPhase))
+		} else if (!getStandardPhase().equals(other.getStandardPhase()))
 			return false;
-		if (transformed != other.transformed)
+		if (isTransformed() != other.isTransformed())
 			return false;
-		if (validationType != other.validationType)
+		if (getValidationType() != other.getValidationType())
 			return false;
 		return true;
 	}
 
+	// Subclasses may hold details elsewhere and override the detail methods.
+	private boolean holdsOwnDetails() {
+		return getClass() == ValidObservation.class;
+	}
+
+	// The hash code of the details map, computed without creating it where
+	// possible.
+	private int detailsHashCode() {
+		if (!holdsOwnDetails()) {
+			return getDetails().hashCode();
+		}
+
+		String[] keys = slotKeys;
+		int hash = 0;
+		for (int slot = 0; slot < details.length; slot++) {
+			if (details[slot] != null) {
+				hash += keys[slot].hashCode() ^ details[slot].hashCode();
+			}
+		}
+		return hash;
+	}
+
+	// Compare details as maps would be compared, without creating them where
+	// possible.
+	private boolean detailsEqual(ValidObservation other) {
+		if (!holdsOwnDetails() || !other.holdsOwnDetails()) {
+			return getDetails().equals(other.getDetails());
+		}
+
+		int length = Math.max(details.length, other.details.length);
+		for (int slot = 0; slot < length; slot++) {
+			Property value = slot < details.length ? details[slot] : null;
+			Property otherValue = slot < other.details.length ? other.details[slot]
+					: null;
+			if (value == null ? otherValue != null : !value.equals(otherValue)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	// Convenience methods.
 
 	public double getJD() {
-		return this.dateInfo.getJulianDay();
+		return getDateInfo().getJulianDay();
 	}
 
 	public void setJD(double jd) {
@@ -1467,7 +1510,7 @@ public class ValidObservation extends Observation {
 	}
 
 	public double getMag() {
-		return this.magnitude.getMagValue();
+		return getMagnitude().getMagValue();
 	}
 
 	// Helpers
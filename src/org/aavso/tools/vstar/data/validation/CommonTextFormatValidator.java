@@ -26,6 +26,7 @@ import org.aavso.tools.vstar.data.SeriesType;
 import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.exception.ObservationValidationWarning;
+import org.aavso.tools.vstar.input.ObservationPredicate;
 import org.aavso.tools.vstar.input.text.ObservationFieldSplitter;
 
 import com.csvreader.CsvReader;
@@ -55,6 +56,13 @@ public class CommonTextFormatValidator {
 
 	protected String[] fields;
 
+	// The current record, if set rather than read by the line reader.
+	private String rawRecord;
+	private String[] values;
+
+	// The predicate against which records are tested before validation.
+	private ObservationPredicate predicate;
+
 	/**
 	 * Constructor.
 	 * 
@@ -93,6 +101,9 @@ public class CommonTextFormatValidator {
 		this.valflagValidator = new ValflagValidator(valflagPatternStr);
 
 		this.fields = null;
+		this.rawRecord = null;
+		this.values = null;
+		this.predicate = ObservationPredicate.ALL;
 	}
 
 	/**
@@ -103,6 +114,8 @@ public class CommonTextFormatValidator {
 	 *             If a read error occurred.
 	 */
 	public boolean next() throws IOException {
+		rawRecord = null;
+		values = null;
 		return lineReader.readRecord();
 	}
 
@@ -112,7 +125,119 @@ public class CommonTextFormatValidator {
 	 * @return The current raw record.
 	 */
 	public String getRawRecord() {
-		return lineReader.getRawRecord();
+		return rawRecord != null ? rawRecord : lineReader.getRawRecord();
+	}
+
+	/**
+	 * Return the values of the current record.
+	 * 
+	 * @return The current record's values.
+	 * @throws IOException
+	 *             If a read error occurred.
+	 */
+	public String[] getValues() throws IOException {
+		return values != null ? values : lineReader.getValues();
+	}
+
+	/**
+	 * Set the current record to one that has already been read, e.g. by
+	 * another validator's line reader, so that records can be read by one
+	 * thread and validated by others.
+	 * 
+	 * @param rawRecord
+	 *            The raw record.
+	 * @param values
+	 *            The record's values, which may be modified by validation.
+	 */
+	public void setRecord(String rawRecord, String[] values) {
+		this.rawRecord = rawRecord;
+		this.values = values;
+	}
+
+	/**
+	 * Set the predicate against which records are tested by isSelected().
+	 * 
+	 * @param predicate
+	 *            The predicate; null accepts all records.
+	 */
+	public void setPredicate(ObservationPredicate predicate) {
+		this.predicate = predicate == null ? ObservationPredicate.ALL
+				: predicate;
+	}
+
+	/**
+	 * Could the current record satisfy the predicate? Only the record's JD,
+	 * band and observer code values are tested, without validating the
+	 * record, so that a record that would be rejected need not be validated.
+	 * A value that cannot be tested (e.g. a malformed JD) does not cause the
+	 * record to be rejected, so that validation can report it.
+	 * 
+	 * @return Whether the record should be validated.
+	 * @throws IOException
+	 *             If a read error occurred.
+	 */
+	public boolean isSelected() throws IOException {
+		if (predicate.acceptsAll()) {
+			return true;
+		}
+
+		String[] values = getValues();
+
+		if (predicate.restrictsJD()) {
+			String jd = value(values, "JD_FIELD");
+			if (jd != null) {
+				try {
+					if (!predicate.acceptsJD(Double.parseDouble(jd))) {
+						return false;
+					}
+				} catch (NumberFormatException e) {
+					// Leave it to validation.
+				}
+			}
+		}
+
+		if (predicate.restrictsBand()) {
+			// Formats without a band field have unspecified bands.
+			SeriesType band = SeriesType.Unspecified;
+			if (fieldIndexMap.containsKey("BAND_FIELD")) {
+				String shortName = value(values, "BAND_FIELD");
+				band = shortName == null ? null : SeriesType
+						.getSeriesFromShortName(shortName);
+			}
+			if (band != null && !predicate.acceptsBand(band)) {
+				return false;
+			}
+		}
+
+		if (predicate.restrictsObsCode()) {
+			String obsCode = value(values, "OBSERVER_CODE_FIELD");
+			if (!predicate.acceptsObsCode(obsCode)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// Return the trimmed, unquoted value of the named field, or null if
+	// absent or empty.
+	private String value(String[] values, String fieldName) {
+		Integer index = fieldIndexMap.get(fieldName);
+
+		String value = null;
+
+		if (index != null && index < values.length) {
+			value = values[index].trim();
+			if (value.length() > 1 && value.startsWith("\"")
+					&& value.endsWith("\"")) {
+				value = value.substring(1, value.length() - 1).trim();
+			}
+			if (value.isEmpty()) {
+				value = null;
+			}
+		}
+
+		return value;
 	}
 
 	/**
@@ -134,7 +259,7 @@ public class CommonTextFormatValidator {
 		ValidObservation observation = null;
 
 		// Get an array of fields split on the expected delimiter.
-		fields = fieldSplitter.getFields();
+		fields = fieldSplitter.getFields(getValues());
 
 		if (fields.length != 0) {
 			// Create a new valid observation, making the assumption
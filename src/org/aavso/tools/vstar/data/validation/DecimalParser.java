@@ -0,0 +1,287 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data.validation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A parser for plain ASCII decimal numbers, e.g. 2454409.02431, -1.5 or
+ * 1.2e-3, that creates neither substrings nor regular expression matchers.
+ * Text may be given as characters or as bytes in an ASCII compatible
+ * encoding.
+ *
+ * A number is only converted if its syntax is one accepted by the caller and
+ * the conversion is exact, i.e. if it has at most 15 or so significant digits
+ * and a small exponent, as for almost all observation fields: the significand
+ * and power of ten are then both exactly representable as doubles and a
+ * single multiplication or division yields the correctly rounded result, as
+ * from Double.parseDouble(). Otherwise NaN is returned and the caller falls
+ * back to its general (and slower) path, which also reports any error.
+ */
+public final class DecimalParser {
+
+	/**
+	 * Permit a leading '-'.
+	 */
+	public static final int MINUS = 1;
+
+	/**
+	 * Permit a leading '+'.
+	 */
+	public static final int PLUS = 2;
+
+	/**
+	 * Permit a number to begin with a decimal point, e.g. ".5".
+	 */
+	public static final int EMPTY_INTEGER_PART = 4;
+
+	/**
+	 * Permit a number to end with a decimal point, e.g. "10.".
+	 */
+	public static final int EMPTY_FRACTION = 8;
+
+	/**
+	 * Permit an exponent without a sign, e.g. "1e5".
+	 */
+	public static final int UNSIGNED_EXPONENT = 16;
+
+	/**
+	 * The plain decimal syntax accepted by Double.parseDouble().
+	 */
+	public static final int JAVA_SYNTAX = MINUS | PLUS | EMPTY_INTEGER_PART
+			| EMPTY_FRACTION | UNSIGNED_EXPONENT;
+
+	// The largest significand that can be represented exactly by a double.
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private DecimalParser() {
+	}
+
+	/**
+	 * Parse a string as a plain decimal number.
+	 *
+	 * @param str
+	 *            The string.
+	 * @param syntax
+	 *            The syntax permitted beyond one or more digits with an
+	 *            optional fraction and signed exponent: a combination of
+	 *            MINUS, PLUS, EMPTY_INTEGER_PART, EMPTY_FRACTION and
+	 *            UNSIGNED_EXPONENT.
+	 * @return The number, or NaN if not a plain decimal number of the
+	 *         specified syntax or not one that can be converted exactly.
+	 */
+	public static double parse(CharSequence str, int syntax) {
+		return parse(str, 0, str.length(), syntax);
+	}
+
+	/**
+	 * Parse part of a byte buffer, e.g. a field of a memory-mapped file, as a
+	 * plain decimal number in an ASCII compatible encoding.
+	 *
+	 * @param bytes
+	 *            The bytes.
+	 * @param start
+	 *            The absolute index of the first byte.
+	 * @param end
+	 *            The absolute index after the last byte.
+	 * @param syntax
+	 *            The syntax permitted, as for parse(CharSequence, int, int,
+	 *            int).
+	 * @return The number, or NaN if not a plain decimal number of the
+	 *         specified syntax or not one that can be converted exactly.
+	 */
+	public static double parse(ByteBuffer bytes, int start, int end,
+			int syntax) {
+		return parse(new AsciiView(bytes), start, end, syntax);
+	}
+
+	/**
+	 * Parse part of a string as a plain decimal number.
+	 *
+	 * @param str
+	 *            The string.
+	 * @param start
+	 *            The index of the first character.
+	 * @param end
+	 *            The index after the last character.
+	 * @param syntax
+	 *            The syntax permitted beyond one or more digits with an
+	 *            optional fraction and signed exponent: a combination of
+	 *            MINUS, PLUS, EMPTY_INTEGER_PART, EMPTY_FRACTION and
+	 *            UNSIGNED_EXPONENT.
+	 * @return The number, or NaN if not a plain decimal number of the
+	 *         specified syntax or not one that can be converted exactly.
+	 */
+	public static double parse(CharSequence str, int start, int end,
+			int syntax) {
+		int i = start;
+
+		boolean negative = false;
+		if (i < end) {
+			char c = str.charAt(i);
+			if (c == '-' && (syntax & MINUS) != 0) {
+				negative = true;
+				i++;
+			} else if (c == '+' && (syntax & PLUS) != 0) {
+				i++;
+			}
+		}
+
+		long mantissa = 0;
+		int scale = 0;
+		boolean exact = true;
+
+		// Integer part.
+		int first = i;
+		for (; i < end; i++) {
+			int digit = str.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			if (mantissa < MAX_EXACT_MANTISSA) {
+				mantissa = mantissa * 10 + digit;
+			} else {
+				exact = false;
+			}
+		}
+		int integerDigits = i - first;
+
+		// Fractional part.
+		if (i < end && str.charAt(i) == '.') {
+			if (integerDigits == 0 && (syntax & EMPTY_INTEGER_PART) == 0) {
+				return Double.NaN;
+			}
+
+			first = ++i;
+			for (; i < end; i++) {
+				int digit = str.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				if (mantissa < MAX_EXACT_MANTISSA) {
+					mantissa = mantissa * 10 + digit;
+					scale--;
+				} else if (digit != 0) {
+					exact = false;
+				}
+			}
+			int fractionDigits = i - first;
+
+			if (fractionDigits == 0
+					&& (integerDigits == 0 || (syntax & EMPTY_FRACTION) == 0)) {
+				return Double.NaN;
+			}
+		} else if (integerDigits == 0) {
+			return Double.NaN;
+		}
+
+		// Exponent.
+		if (i < end && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+				negativeExponent = str.charAt(i) == '-';
+				i++;
+			} else if ((syntax & UNSIGNED_EXPONENT) == 0) {
+				return Double.NaN;
+			}
+
+			int exponent = 0;
+			first = i;
+			for (; i < end; i++) {
+				int digit = str.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				if (exponent < 1000) {
+					exponent = exponent * 10 + digit;
+				}
+			}
+			if (i == first) {
+				return Double.NaN;
+			}
+			scale += negativeExponent ? -exponent : exponent;
+		}
+
+		if (i != end || !exact || mantissa > MAX_EXACT_MANTISSA) {
+			return Double.NaN;
+		}
+
+		double value;
+		if (mantissa == 0) {
+			value = 0;
+		} else if (scale == 0) {
+			value = mantissa;
+		} else if (scale > 0 && scale < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[scale];
+		} else if (scale < 0 && -scale < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-scale];
+		} else {
+			return Double.NaN;
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * A read-only character view of a byte buffer in an ASCII compatible
+	 * encoding, indexed as the buffer is (absolutely), with which bytes may be
+	 * parsed repeatedly without creating a view for each number.
+	 */
+	public static final class AsciiView implements CharSequence {
+
+		private final ByteBuffer bytes;
+
+		/**
+		 * Constructor
+		 *
+		 * @param bytes
+		 *            The bytes, which are not copied.
+		 */
+		public AsciiView(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public int length() {
+			return bytes.limit();
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (bytes.get(index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			byte[] sub = new byte[end - start];
+			bytes.get(start, sub);
+			return new String(sub, StandardCharsets.ISO_8859_1);
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length()).toString();
+		}
+	}
+}
@@ -78,11 +78,17 @@ public class JulianDayValidator extends AbstractStringValidator<DateInfo> {
 		if (this.isLegallyEmpty(str))
 			return null;
 
-		String[] fields = this.regexValidator.validate(str);
+		// Most Julian Days are plain decimals that can be converted without
+		// matching the regex pattern below.
+		double value = DecimalParser.parse(str, 0);
 
-		// By virtue of the regex pattern above,
-		// this must parse as a double.
-		double value = Double.parseDouble(fields[0]);
+		if (Double.isNaN(value)) {
+			String[] fields = this.regexValidator.validate(str);
+
+			// By virtue of the regex pattern above,
+			// this must parse as a double.
+			value = Double.parseDouble(fields[0]);
+		}
 
 		return new DateInfo(value);
 	}
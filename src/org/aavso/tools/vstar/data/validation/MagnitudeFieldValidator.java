@@ -57,7 +57,11 @@ public class MagnitudeFieldValidator extends AbstractStringValidator<Magnitude>
 	}
 
 	public Magnitude validate(String str) throws ObservationValidationError {
-		Magnitude mag = null;
+		Magnitude mag = parse(str);
+
+		if (mag != null) {
+			return mag;
+		}
 
 		String[] fields = this.regexValidator.validate(str);
 
@@ -98,6 +102,37 @@ public class MagnitudeFieldValidator extends AbstractStringValidator<Magnitude>
 
 	// Helpers
 
+	// Parse a magnitude field whose value is a plain decimal, as most are,
+	// without matching the regex pattern, returning null if this is not
+	// possible.
+	private Magnitude parse(String str) {
+		int start = 0;
+		int end = str.length();
+
+		MagnitudeModifier mod = MagnitudeModifier.NO_DELTA;
+		if (start < end) {
+			if (str.charAt(start) == '<') {
+				mod = MagnitudeModifier.FAINTER_THAN;
+				start++;
+			} else if (str.charAt(start) == '>') {
+				mod = MagnitudeModifier.BRIGHTER_THAN;
+				start++;
+			}
+		}
+
+		boolean isUncertain = !Magnitude.IS_UNCERTAIN;
+		if (start < end && str.charAt(end - 1) == ':') {
+			isUncertain = Magnitude.IS_UNCERTAIN;
+			end--;
+		}
+
+		double magnitude = DecimalParser.parse(str, start, end,
+				DecimalParser.MINUS | DecimalParser.EMPTY_FRACTION);
+
+		return Double.isNaN(magnitude) ? null : new Magnitude(magnitude, mod,
+				isUncertain);
+	}
+
 	private MagnitudeModifier getMagModValue(String modStr)
 			throws ObservationValidationError {
 		MagnitudeModifier mod = MagnitudeModifier.NO_DELTA;
@@ -65,13 +65,15 @@ public class MagnitudeValueValidator extends AbstractStringValidator<Double> {
 		if (this.isLegallyEmpty(str))
 			return null;
 
-		double value = 0;
+		double value = DecimalParser.parse(str, DecimalParser.JAVA_SYNTAX);
 
-		try {
-			value = Double.parseDouble(str);
-		} catch (NumberFormatException e) {
-			throw new ObservationValidationError(String.format(LocaleProps
-					.get("REAL_NUMBER_VALIDATOR_KIND_ERR_MSG"), kind, str));
+		if (Double.isNaN(value)) {
+			try {
+				value = Double.parseDouble(str);
+			} catch (NumberFormatException e) {
+				throw new ObservationValidationError(String.format(LocaleProps
+						.get("REAL_NUMBER_VALIDATOR_KIND_ERR_MSG"), kind, str));
+			}
 		}
 
 		return value;
@@ -40,7 +40,24 @@ public class ObserverCodeValidator extends AbstractStringValidator<String> {
 		if (this.isLegallyEmpty(str))
 			return null;
 
-		return this.regexValidator.validate(str)[0];
+		return isObserverCode(str) ? str : this.regexValidator.validate(str)[0];
+	}
+
+	// Is the string one to five ASCII letters or digits? This is equivalent
+	// to the regex pattern but avoids creating a matcher per observation.
+	private boolean isObserverCode(String str) {
+		int length = str.length();
+		if (length == 0 || length > 5) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char c = str.charAt(i);
+			if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+					|| (c >= '0' && c <= '9'))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	protected boolean canBeEmpty() {
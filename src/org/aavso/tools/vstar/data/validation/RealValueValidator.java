@@ -43,7 +43,11 @@ public class RealValueValidator extends AbstractStringValidator<Double> {
         } else {
 
             try {
-                result = Double.parseDouble(str);
+                result = DecimalParser.parse(str, DecimalParser.JAVA_SYNTAX);
+
+                if (Double.isNaN(result)) {
+                    result = Double.parseDouble(str);
+                }
 
                 if (!canBeNegative && result < 0) {
                     throw new ObservationValidationError(String.format(
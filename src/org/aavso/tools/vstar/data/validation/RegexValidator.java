@@ -17,8 +17,6 @@
  */
 package org.aavso.tools.vstar.data.validation;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -59,8 +57,6 @@ public class RegexValidator extends AbstractStringValidator<String[]> {
 	 * @see org.aavso.tools.vstar.util.validation.StringValidatorBase#validate(java.lang.String)
 	 */
 	public String[] validate(String str) throws ObservationValidationError {
-		List<String> groups = new ArrayList<String>();
-		
 		Matcher matcher = pattern.matcher(str);
 		if (!matcher.matches()) {
 			StringBuffer msgBuf = new StringBuffer();
@@ -74,12 +70,13 @@ public class RegexValidator extends AbstractStringValidator<String[]> {
 				msgBuf.append(this.errorNotes);
 			}
 			throw new ObservationValidationError(msgBuf.toString());
-		} else {
-			for (int i=1;i<=matcher.groupCount();i++) {
-				groups.add(matcher.group(i));
-			}
+		}
+
+		String[] groups = new String[matcher.groupCount()];
+		for (int i=1;i<=groups.length;i++) {
+			groups[i-1] = matcher.group(i);
 		}
 		
-		return groups.toArray(new String[0]);
+		return groups;
 	}
 }
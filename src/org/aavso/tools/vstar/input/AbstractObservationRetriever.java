@@ -19,6 +19,7 @@
 package org.aavso.tools.vstar.input;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 
+import org.aavso.tools.vstar.data.DetailSchema;
 import org.aavso.tools.vstar.data.InvalidObservation;
 import org.aavso.tools.vstar.data.Property;
 import org.aavso.tools.vstar.data.SeriesType;
@@ -38,14 +40,15 @@ import org.aavso.tools.vstar.ui.mediator.StarInfo;
 import org.aavso.tools.vstar.ui.mediator.message.ProgressInfo;
 import org.aavso.tools.vstar.ui.mediator.message.ProgressType;
 import org.aavso.tools.vstar.ui.mediator.message.StopRequestMessage;
+import org.aavso.tools.vstar.util.comparator.JDComparator;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
 import org.aavso.tools.vstar.util.notification.Listener;
+import org.aavso.tools.vstar.vela.CompiledVeLaProgram;
 import org.aavso.tools.vstar.vela.Operand;
 import org.aavso.tools.vstar.vela.Type;
 import org.aavso.tools.vstar.vela.VeLaEvalError;
 import org.aavso.tools.vstar.vela.VeLaInterpreter;
 import org.aavso.tools.vstar.vela.VeLaParseError;
-import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment;
 
 /**
  * This is the abstract base class for all observation retrieval classes,
@@ -66,14 +69,37 @@ public abstract class AbstractObservationRetriever {
 
 	private VeLaInterpreter vela;
 
+	// The VeLa filter, compiled on first use.
+	private CompiledVeLaProgram velaFilter;
+
 	private boolean velaErrorReported;
 
+	// The structured predicate pushed down into this retriever.
+	private ObservationPredicate predicate;
+
 	private double minMag;
 	private double maxMag;
 
 	protected boolean interrupted;
 
 	protected JDflavour jdFlavour;
+
+	// Whether observations are appended as collected and sorted once
+	// retrieval is complete, rather than inserted in order; null until set,
+	// in which case the source's declared ordering determines the mode.
+	private Boolean deferredOrdering;
+
+	// Whether valid observations have been appended out of order, and those
+	// collected but not yet added to their category lists.
+	private boolean validObservationsUnordered;
+	private List<ValidObservation> uncategorisedObservations;
+
+	// Whether retrieve() has completed, after which observations are inserted
+	// in order whatever the mode.
+	private boolean retrieved;
+
+	// The details present in this retriever's observations.
+	private DetailSchema detailSchema;
 	
 	/**
 	 * The list of valid observations retrieved.
@@ -114,6 +140,7 @@ public abstract class AbstractObservationRetriever {
 		this.velaFilterStr = velaFilterStr.trim();
 		velaErrorReported = false;
 		vela = new VeLaInterpreter(VERBOSE, ADD_VSTAR_API, Collections.emptyList());
+		predicate = ObservationPredicate.ALL;
 
 		// Create observation category map and add discrepant and excluded
 		// series list so these are available if needed.
@@ -146,6 +173,12 @@ public abstract class AbstractObservationRetriever {
 
 		jdFlavour = JDflavour.JD;
 
+		deferredOrdering = null;
+		validObservationsUnordered = false;
+		uncategorisedObservations = new ArrayList<ValidObservation>();
+		retrieved = false;
+		detailSchema = new DetailSchema();
+
 		Mediator.getInstance().getStopRequestNotifier()
 				.addListener(createStopRequestListener());
 	}
@@ -202,7 +235,27 @@ public abstract class AbstractObservationRetriever {
 	}
 
 	/**
-	 * Retrieve the set of observations from the specified source.
+	 * Retrieve the set of observations from the specified source, then, in
+	 * deferred ordering mode, sort them by JD and add them to their category
+	 * lists. This is the entry point for retrieval; a subclass implements
+	 * retrieveObservations() instead.
+	 * 
+	 * @throws throws ObservationReadError
+	 */
+	public final void retrieve() throws ObservationReadError,
+			InterruptedException {
+		try {
+			retrieveObservations();
+		} finally {
+			completeDeferredOrdering();
+			retrieved = true;
+		}
+	}
+
+	/**
+	 * Retrieve the set of observations from the specified source. Callers
+	 * should use retrieve(), which completes the ordering of observations
+	 * collected in deferred ordering mode.
 	 * 
 	 * @throws throws ObservationReadError
 	 */
@@ -224,7 +277,7 @@ public abstract class AbstractObservationRetriever {
 	public abstract String getSourceName();
 
 	/**
-	 * @return the validObservations
+	 * @return the validObservations, in JD order once retrieval is complete
 	 */
 	public List<ValidObservation> getValidObservations() {
 		return validObservations;
@@ -340,15 +393,107 @@ public abstract class AbstractObservationRetriever {
 	 */
 	public void setVelaFilter(String velaFilterStr) {
 		this.velaFilterStr = velaFilterStr;
+		this.velaFilter = null;
 	}
 
 	/**
-	 * @return the validObservationCategoryMap
+	 * Set the predicate that observations must satisfy to be collected.
+	 * Retrievers may test it against each record's time, band or observer
+	 * code as soon as these have been read, to avoid creating observations
+	 * that would be rejected. Any observation collected that does not
+	 * satisfy it is discarded in any case.
+	 * 
+	 * @param predicate
+	 *            The predicate; null accepts all observations.
+	 */
+	public void setPredicate(ObservationPredicate predicate) {
+		this.predicate = predicate == null ? ObservationPredicate.ALL
+				: predicate;
+	}
+
+	/**
+	 * @return the predicate that observations must satisfy to be collected
+	 */
+	public ObservationPredicate getPredicate() {
+		return predicate;
+	}
+
+	/**
+	 * @return the validObservationCategoryMap, each list being in JD order
+	 *         once retrieval is complete
 	 */
 	public Map<SeriesType, List<ValidObservation>> getValidObservationCategoryMap() {
 		return validObservationCategoryMap;
 	}
 
+	/**
+	 * Does this source yield observations in JD order, or mostly so? If not,
+	 * observations are by default collected in deferred ordering mode (see
+	 * setDeferredOrdering()). A source that interleaves observations, e.g. by
+	 * band or object, should override this to return false.
+	 * 
+	 * @return Whether observations are expected to be in JD order; true by
+	 *         default.
+	 */
+	public boolean isSourceOrdered() {
+		return true;
+	}
+
+	/**
+	 * Is deferred ordering mode in effect?
+	 * 
+	 * @return Whether observations are appended as collected and sorted when
+	 *         retrieval is complete.
+	 */
+	public boolean isDeferredOrdering() {
+		return deferredOrdering != null ? deferredOrdering : !isSourceOrdered();
+	}
+
+	/**
+	 * @return whether observations being collected should be appended, to be
+	 *         ordered when retrieval is complete, i.e. deferred ordering mode
+	 *         is in effect and retrieval is not yet complete
+	 */
+	private boolean isDeferringOrdering() {
+		return !retrieved && isDeferredOrdering();
+	}
+
+	/**
+	 * <p>
+	 * Select whether observations are inserted in JD order as they are
+	 * collected (the default for ordered sources) or appended as collected,
+	 * then sorted when retrieval is complete (the default for unordered
+	 * sources).
+	 * </p>
+	 * 
+	 * <p>
+	 * Insertion costs O(n) per observation that is out of order, so O(n^2) in
+	 * the worst case, whereas in deferred ordering mode, observations are
+	 * sorted by a single O(n log n) stable sort, then added to their category
+	 * lists in one pass. The valid observation and category lists are sorted
+	 * once, when retrieval via retrieve() is complete, and are not in JD order
+	 * until then; observations collected after that are inserted in order. In
+	 * either mode, observations with the same JD remain in the
+	 * order in which they were collected.
+	 * </p>
+	 * 
+	 * @param deferredOrdering
+	 *            Whether to sort observations once rather than inserting them
+	 *            in order; should be set before observations are collected.
+	 */
+	public void setDeferredOrdering(boolean deferredOrdering) {
+		this.deferredOrdering = deferredOrdering;
+	}
+
+	/**
+	 * @return the details (e.g. observer code, plugin specific values) present
+	 *         in this retriever's valid observations, with their titles and
+	 *         order of first appearance
+	 */
+	public DetailSchema getDetailSchema() {
+		return detailSchema;
+	}
+
 	/**
 	 * Are there any series that should be excluded from addition in
 	 * collectAllValidObservations() and collectAllInvalidObservations()?
@@ -362,7 +507,9 @@ public abstract class AbstractObservationRetriever {
 	/**
 	 * Adds all of the specified observations to the current observations,
 	 * including classifying them by series. This can be used for additive load
-	 * operations.
+	 * operations. The specified observations, typically already in JD order,
+	 * are merged with the current observations and with each series in one
+	 * linear pass, rather than inserted one at a time.
 	 * 
 	 * @param obs
 	 *            The list of previously existing valid observations to be
@@ -384,17 +531,36 @@ public abstract class AbstractObservationRetriever {
 			ob.addDetail("SOURCE", new Property(newSourceName), "Source");
 		}
 
+		if (!validObservations.isEmpty()) {
+			detailSchema.add(validObservations.get(0));
+		}
+
 		// Add previously existing obs (those passed to this method).
 		Set<SeriesType> seriesToExclude = seriesToExcludeWhenAdditive();
 
+		List<ValidObservation> obsToAdd = new ArrayList<ValidObservation>(
+				obs.size());
+
 		for (ValidObservation ob : obs) {
 			// If there are no series to exclude or the observation's band is
 			// not in the list of series to be excluded, include it.
 			if (seriesToExclude == null
 					|| !seriesToExclude.contains(ob.getBand())) {
-				collectObservation(ob);
+				obsToAdd.add(ob);
 			}
 		}
+
+		int prefixSize = collectablePrefixSize(obsToAdd);
+
+		mergeValidObservations(selectObservations(obsToAdd.subList(0,
+				prefixSize)));
+
+		// Collecting the first observation not merged (if any) will throw an
+		// exception.
+		for (ValidObservation ob : obsToAdd.subList(prefixSize,
+				obsToAdd.size())) {
+			collectObservation(ob);
+		}
 	}
 
 	/**
@@ -455,6 +621,24 @@ public abstract class AbstractObservationRetriever {
 	 */
 	protected void collectObservation(ValidObservation ob)
 			throws ObservationReadError {
+		if (isSelected(ob) && predicate.accepts(ob)) {
+			addValidObservation(ob);
+			categoriseValidObservation(ob);
+		}
+	}
+
+	/**
+	 * Does an observation have a date and magnitude, and satisfy the VeLa
+	 * filter, if present?
+	 * 
+	 * @param ob
+	 *            The observation.
+	 * @return Whether the observation should be collected.
+	 * @throws ObservationReadError
+	 *             if the observation has no date or magnitude.
+	 */
+	private boolean isSelected(ValidObservation ob)
+			throws ObservationReadError {
 		if (ob.getDateInfo() == null) {
 			throw new ObservationReadError("Observation #"
 					+ ob.getRecordNumber() + " has no date.");
@@ -469,9 +653,13 @@ public abstract class AbstractObservationRetriever {
 
 		// If a VeLa filter string is present, apply it to each observation.
 		if (!NO_VELA_FILTER.equals(velaFilterStr)) {
-			vela.pushEnvironment(new VeLaValidObservationEnvironment(ob));
 			try {
-				Optional<Operand> value = vela.program(velaFilterStr);
+				// Parse the filter once rather than for each observation.
+				if (velaFilter == null) {
+					velaFilter = vela.compileForObservations(velaFilterStr);
+				}
+
+				Optional<Operand> value = velaFilter.evaluate(ob);
 				if (value.isPresent()) {
 					// There may be no value present because everything
 					// is commented or because no expression has been
@@ -500,15 +688,171 @@ public abstract class AbstractObservationRetriever {
 							messageFromException(e));
 					velaErrorReported = true;
 				}
-			} finally {
-				vela.popEnvironment();
 			}
 		}
 
-		if (include) {
+		return include;
+	}
+
+	/**
+	 * <p>
+	 * Add a batch of observations to the list of valid observations, as per
+	 * collectObservation(), in order.
+	 * </p>
+	 * 
+	 * <p>
+	 * If a VeLa filter string is present and can be evaluated column-wise, it
+	 * is applied to the whole batch at once rather than to each observation in
+	 * turn. Otherwise, or if batch evaluation fails, each observation is
+	 * collected individually.
+	 * </p>
+	 * 
+	 * @param obs
+	 *            The valid observations to be added to collections.
+	 * 
+	 * @throws ObservationReadError
+	 *             if an observation has no date or magnitude; observations
+	 *             preceding it will have been collected.
+	 */
+	protected void collectObservationBatch(List<ValidObservation> obs)
+			throws ObservationReadError {
+		int prefixSize = collectablePrefixSize(obs);
+
+		List<ValidObservation> prefix = obs.subList(0, prefixSize);
+
+		if (!predicate.acceptsAll()) {
+			List<ValidObservation> accepted = new ArrayList<ValidObservation>(
+					prefixSize);
+			for (ValidObservation ob : prefix) {
+				if (predicate.accepts(ob)) {
+					accepted.add(ob);
+				}
+			}
+			prefix = accepted;
+		}
+
+		for (ValidObservation ob : selectObservations(prefix)) {
 			addValidObservation(ob);
 			categoriseValidObservation(ob);
 		}
+
+		// Collecting the first observation not in the batch (if any) will
+		// throw an exception.
+		for (ValidObservation ob : obs.subList(prefixSize, obs.size())) {
+			collectObservation(ob);
+		}
+	}
+
+	/**
+	 * Return the length of the longest prefix of observations having dates
+	 * and magnitudes.
+	 * 
+	 * @param obs
+	 *            The observations.
+	 * @return The length of the prefix.
+	 */
+	private int collectablePrefixSize(List<ValidObservation> obs) {
+		int prefixSize = 0;
+		while (prefixSize < obs.size()
+				&& obs.get(prefixSize).getDateInfo() != null
+				&& obs.get(prefixSize).getMagnitude() != null) {
+			prefixSize++;
+		}
+		return prefixSize;
+	}
+
+	/**
+	 * Return those observations that satisfy the VeLa filter, if present, in
+	 * order. If the filter can be evaluated column-wise, it is applied to all
+	 * observations at once rather than to each in turn.
+	 * 
+	 * @param batch
+	 *            The observations, all having dates and magnitudes.
+	 * @return The selected observations.
+	 */
+	private List<ValidObservation> selectObservations(
+			List<ValidObservation> batch) throws ObservationReadError {
+		boolean[] matches = null;
+
+		if (!NO_VELA_FILTER.equals(velaFilterStr)) {
+			try {
+				if (velaFilter == null) {
+					velaFilter = vela.compileForObservations(velaFilterStr);
+				}
+
+				if (velaFilter.isColumnCompiled()) {
+					matches = velaFilter.evaluateBatch(batch);
+				}
+			} catch (VeLaParseError | VeLaEvalError e) {
+				// Selecting each observation will report the error.
+				matches = null;
+			}
+		}
+
+		List<ValidObservation> selected = new ArrayList<ValidObservation>(
+				batch.size());
+
+		if (matches != null) {
+			for (int i = 0; i < matches.length; i++) {
+				if (matches[i]) {
+					selected.add(batch.get(i));
+				}
+			}
+		} else {
+			for (ValidObservation ob : batch) {
+				if (isSelected(ob)) {
+					selected.add(ob);
+				}
+			}
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Merge observations, each having a date and magnitude, with the valid
+	 * observations and their categories. The valid observation list and each
+	 * category list is merged with the observations belonging to it in one
+	 * linear pass, observations being sorted first if not already in JD order.
+	 * Where JDs are equal, existing observations precede merged ones, as if
+	 * the merged observations had been collected after existing ones. This is
+	 * called once retrieval is complete, so existing observations are in JD
+	 * order.
+	 * 
+	 * @param obs
+	 *            The observations to be merged.
+	 */
+	private void mergeValidObservations(List<ValidObservation> obs) {
+		if (!isOrderedByJD(obs)) {
+			obs = new ArrayList<ValidObservation>(obs);
+			sortByJD(obs);
+		}
+
+		Map<SeriesType, List<ValidObservation>> categories = new TreeMap<SeriesType, List<ValidObservation>>();
+
+		for (ValidObservation ob : obs) {
+			updateMagnitudeRange(ob);
+			detailSchema.add(ob);
+
+			if (ob.getJDflavour() == JDflavour.UNKNOWN) {
+				ob.setJDflavour(getJDflavour());
+			}
+
+			SeriesType category = getCategory(ob);
+			List<ValidObservation> categoryObs = categories.get(category);
+			if (categoryObs == null) {
+				categoryObs = new ArrayList<ValidObservation>();
+				categories.put(category, categoryObs);
+			}
+			categoryObs.add(ob);
+		}
+
+		mergeByJD(obs, validObservations);
+
+		for (Map.Entry<SeriesType, List<ValidObservation>> entry : categories
+				.entrySet()) {
+			mergeByJD(entry.getValue(), getCategoryList(entry.getKey()));
+		}
 	}
 
 	/**
@@ -526,13 +870,35 @@ public abstract class AbstractObservationRetriever {
 	 * fainter-than, discrepant or excluded, belongs to a user-defined series,
 	 * or to a particular band. If this observation retriever is reading
 	 * helio/barycentric observations, we set the "JD flavour" on the observation
-	 * as well. The observation is then inserted into a map of categories and
-	 * the valid observation list.
+	 * as well. The observation is then inserted into a map of categories, or
+	 * in deferred ordering mode, will be when retrieval is complete.
 	 * 
 	 * @param validOb
 	 *            A valid observation.
 	 */
 	private void categoriseValidObservation(ValidObservation validOb) {
+		if (validOb.getJDflavour() == JDflavour.UNKNOWN) {
+			validOb.setJDflavour(getJDflavour());
+		}
+
+		if (isDeferringOrdering()) {
+			// Add to the category list when retrieval is complete.
+			uncategorisedObservations.add(validOb);
+		} else {
+			insertObservation(validOb, getCategoryList(getCategory(validOb)));
+		}
+	}
+
+	/**
+	 * Return the category of a valid observation: whether it is fainter-than,
+	 * discrepant or excluded, belongs to a user-defined series, or to a
+	 * particular band.
+	 * 
+	 * @param validOb
+	 *            A valid observation.
+	 * @return The category.
+	 */
+	private SeriesType getCategory(ValidObservation validOb) {
 		SeriesType category = null;
 
 		if (validOb.getMagnitude().isFainterThan()) {
@@ -547,10 +913,18 @@ public abstract class AbstractObservationRetriever {
 			category = validOb.getBand();
 		}
 
-		if (validOb.getJDflavour() == JDflavour.UNKNOWN) {
-			validOb.setJDflavour(getJDflavour());
-		}
+		return category;
+	}
 
+	/**
+	 * Return the list of valid observations in a category, creating it if
+	 * necessary.
+	 * 
+	 * @param category
+	 *            The category.
+	 * @return The category's observation list.
+	 */
+	private List<ValidObservation> getCategoryList(SeriesType category) {
 		List<ValidObservation> validObsList = validObservationCategoryMap
 				.get(category);
 
@@ -559,7 +933,131 @@ public abstract class AbstractObservationRetriever {
 			validObservationCategoryMap.put(category, validObsList);
 		}
 
-		insertObservation(validOb, validObsList);
+		return validObsList;
+	}
+
+	/**
+	 * In deferred ordering mode, sort the valid observations by JD if any were
+	 * collected out of order, then add collected observations to their
+	 * category lists in JD order. The sort is stable, so observations with the
+	 * same JD remain in the order in which they were collected.
+	 */
+	private void completeDeferredOrdering() {
+		if (!validObservationsUnordered
+				&& uncategorisedObservations.isEmpty()) {
+			return;
+		}
+
+		// Typically every valid observation is categorised when collected, in
+		// which case they need only be sorted once.
+		boolean allUncategorised = uncategorisedObservations.size() == validObservations
+				.size();
+		for (int i = 0; allUncategorised
+				&& i < validObservations.size(); i++) {
+			allUncategorised = uncategorisedObservations.get(i) == validObservations
+					.get(i);
+		}
+
+		if (validObservationsUnordered) {
+			sortByJD(validObservations);
+			validObservationsUnordered = false;
+		}
+
+		List<ValidObservation> obs;
+		if (allUncategorised) {
+			obs = validObservations;
+		} else {
+			obs = uncategorisedObservations;
+			sortByJD(obs);
+		}
+
+		// Appends to each category list, unless it already has observations
+		// with later JDs.
+		for (ValidObservation ob : obs) {
+			insertObservation(ob, getCategoryList(getCategory(ob)));
+		}
+
+		uncategorisedObservations = new ArrayList<ValidObservation>();
+	}
+
+	/**
+	 * Sort a list of observations by JD, in parallel for large lists. The sort
+	 * is stable.
+	 * 
+	 * @param obs
+	 *            The list to be sorted.
+	 */
+	private static void sortByJD(List<ValidObservation> obs) {
+		ValidObservation[] array = obs
+				.toArray(new ValidObservation[obs.size()]);
+
+		Arrays.parallelSort(array, JDComparator.instance);
+
+		for (int i = 0; i < array.length; i++) {
+			obs.set(i, array[i]);
+		}
+	}
+
+	/**
+	 * Is a list of observations in JD order?
+	 * 
+	 * @param obs
+	 *            The list.
+	 * @return Whether each observation's JD is no less than that of its
+	 *         predecessor.
+	 */
+	private static boolean isOrderedByJD(List<ValidObservation> obs) {
+		for (int i = 1; i < obs.size(); i++) {
+			if (obs.get(i).getJD() < obs.get(i - 1).getJD()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Merge a list of observations in JD order into another, such that the
+	 * latter remains in JD order (if it already was). Where JDs are equal,
+	 * existing observations precede those being merged.
+	 * 
+	 * @param obs
+	 *            The observations to be merged, in JD order.
+	 * @param target
+	 *            The list into which they are merged.
+	 */
+	private static void mergeByJD(List<ValidObservation> obs,
+			List<ValidObservation> target) {
+		if (obs.isEmpty()) {
+			return;
+		}
+
+		if (target.isEmpty() || obs.get(0).getJD() >= target.get(
+				target.size() - 1).getJD()) {
+			// No interleaving required.
+			target.addAll(obs);
+			return;
+		}
+
+		ValidObservation[] merged = new ValidObservation[obs.size()
+				+ target.size()];
+
+		int i = 0, j = 0, k = 0;
+		while (i < obs.size() && j < target.size()) {
+			if (obs.get(i).getJD() < target.get(j).getJD()) {
+				merged[k++] = obs.get(i++);
+			} else {
+				merged[k++] = target.get(j++);
+			}
+		}
+		while (i < obs.size()) {
+			merged[k++] = obs.get(i++);
+		}
+		while (j < target.size()) {
+			merged[k++] = target.get(j++);
+		}
+
+		target.clear();
+		target.addAll(Arrays.asList(merged));
 	}
 
 	/**
@@ -570,8 +1068,29 @@ public abstract class AbstractObservationRetriever {
 	 *            The valid observation to be added.
 	 */
 	public void addValidObservation(ValidObservation ob) {
-		insertObservation(ob, validObservations);
+		if (isDeferringOrdering()) {
+			// Sort when retrieval is complete.
+			if (!validObservations.isEmpty()
+					&& ob.getJD() < validObservations.get(
+							validObservations.size() - 1).getJD()) {
+				validObservationsUnordered = true;
+			}
+			validObservations.add(ob);
+		} else {
+			insertObservation(ob, validObservations);
+		}
 
+		updateMagnitudeRange(ob);
+		detailSchema.add(ob);
+	}
+
+	/**
+	 * Update min/max magnitude values for the dataset, given an observation.
+	 * 
+	 * @param ob
+	 *            The valid observation.
+	 */
+	private void updateMagnitudeRange(ValidObservation ob) {
 		double uncert = ob.getMagnitude().getUncertainty();
 		// If uncertainty not given, get HQ uncertainty if present.
 		if (uncert == 0.0 && ob.getHqUncertainty() != null) {
@@ -600,7 +1119,8 @@ public abstract class AbstractObservationRetriever {
 	 * override this method if data is expected to be mostly out of order; in
 	 * the worst case, if all elements are out of order, the cost will be O(n^2)
 	 * due to the O(n) traversal being carried out n times for the number of
-	 * observations inserted.
+	 * observations inserted. Alternatively, deferred ordering mode can be
+	 * selected (see setDeferredOrdering()).
 	 * </p>
 	 * 
 	 * @param ob
@@ -621,9 +1141,10 @@ public abstract class AbstractObservationRetriever {
 			// The observation has a JD that is less than that of the
 			// observation at the end of the list. Incur an O(n) cost to
 			// insert the observation into the correct position in order to
-			// satisfy the post-condition.
+			// satisfy the post-condition, after any observations with the
+			// same JD, as the stable sort in deferred ordering mode would.
 			int i = 0;
-			while (i < obListSize && newJD > obs.get(i).getJD()) {
+			while (i < obListSize && newJD >= obs.get(i).getJD()) {
 				i++;
 			}
 			obs.add(i, ob);
@@ -0,0 +1,149 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.aavso.tools.vstar.data.ObservationStore;
+
+/**
+ * <p>
+ * The VStar binary dataset file format (".vstar"): a versioned header
+ * followed by observations written column-wise by ObservationStore, i.e.
+ * primitive JD, magnitude and uncertainty arrays, dictionary encoded series,
+ * comment codes and details, and the detail schema.
+ * </p>
+ *
+ * <p>
+ * Unlike text formats, values are saved exactly and need not be parsed or
+ * validated again when loaded. A file is memory-mapped and its columns read
+ * in bulk.
+ * </p>
+ */
+public class BinaryObservationFile {
+
+	/**
+	 * The file suffix for this format.
+	 */
+	public static final String SUFFIX = "vstar";
+
+	// "VSTR"
+	private static final int MAGIC = 0x56535452;
+	private static final int VERSION = 1;
+
+	// Header flags.
+	private static final byte ORDERED = 1;
+
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+	private ObservationStore store;
+	private boolean ordered;
+
+	/**
+	 * Constructor
+	 *
+	 * @param stream
+	 *            The source stream, which is mapped from its current position
+	 *            if it is a file input stream and is otherwise read to its end.
+	 * @throws IOException
+	 *             if an error occurs while reading the stream or it is not in
+	 *             this format.
+	 */
+	public BinaryObservationFile(InputStream stream) throws IOException {
+		ByteBuffer buffer;
+
+		if (stream instanceof FileInputStream) {
+			FileChannel channel = ((FileInputStream) stream).getChannel();
+			long position = channel.position();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					channel.size() - position);
+		} else {
+			buffer = ByteBuffer.wrap(stream.readAllBytes());
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a VStar binary dataset file.");
+			}
+
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException(
+						"Unsupported VStar binary dataset file version: "
+								+ version);
+			}
+
+			ordered = (buffer.get() & ORDERED) != 0;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated VStar binary dataset file.");
+		}
+
+		store = ObservationStore.read(buffer);
+	}
+
+	/**
+	 * @return the store holding the file's observations
+	 */
+	public ObservationStore getObservationStore() {
+		return store;
+	}
+
+	/**
+	 * @return whether the file's observations are in JD order
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * Write observations in this format.
+	 *
+	 * @param stream
+	 *            The output stream, which is flushed but not closed.
+	 * @param store
+	 *            The store holding the observations to be written.
+	 * @throws IOException
+	 *             if an error occurs when writing.
+	 */
+	public static void write(OutputStream stream, ObservationStore store)
+			throws IOException {
+		boolean ordered = true;
+		for (int i = 1; i < store.size() && ordered; i++) {
+			ordered = store.getJD(i - 1) <= store.getJD(i);
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				stream, OUTPUT_BUFFER_SIZE));
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(ordered ? ORDERED : 0);
+
+		store.write(out);
+
+		out.flush();
+	}
+}
@@ -0,0 +1,521 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.aavso.tools.vstar.data.validation.DecimalParser;
+
+/**
+ * <p>
+ * A line and field reader for delimited text observation sources that works
+ * directly on the bytes of the source rather than on a list of lines.
+ * </p>
+ *
+ * <p>
+ * A local file is memory-mapped, so it is not copied onto the heap at all;
+ * any other source (e.g. a URL) is read into a single byte array. Lines are
+ * terminated by '\n', '\r' or "\r\n", as for BufferedReader.readLine(), and
+ * are split into fields by scanning for a single-byte delimiter. Each field
+ * is trimmed of leading and trailing white space and a trailing empty field is
+ * retained, unlike String.split(). Numeric fields are parsed straight from
+ * bytes; a String is only created when a field or line is requested as such.
+ * </p>
+ *
+ * <p>
+ * Delimiters and numbers are assumed to be ASCII, so the source's character
+ * encoding must be ASCII compatible (e.g. UTF-8 or ISO-8859-1). Strings are
+ * decoded with the platform's default encoding, as for an InputStreamReader.
+ * </p>
+ *
+ * <p>
+ * A reader is not thread-safe.
+ * </p>
+ */
+public class MappedObservationFileReader {
+
+	// Files larger than this are mapped one region at a time; a region is
+	// remapped from the start of any line that crosses its end.
+	private static final int MAX_REGION_SIZE = 1 << 30;
+
+	private final FileChannel channel;
+	private final int maxRegionSize;
+	private final long sourceStart;
+	private final long sourceEnd;
+
+	private final Charset charset;
+
+	// The region of the source currently mapped (or the whole source), and its
+	// offset from the start of the source.
+	private ByteBuffer buffer;
+	private long regionStart;
+
+	// The buffer's bytes as characters, for DecimalParser.
+	private DecimalParser.AsciiView chars;
+
+	// Current line (buffer relative), excluding its terminator, and the start
+	// of the next.
+	private int lineStart;
+	private int lineEnd;
+	private int next;
+	private int lineNumber;
+
+	// Current line's fields (buffer relative), trimmed.
+	private int fieldCount;
+	private int[] fieldStarts;
+	private int[] fieldEnds;
+
+	private byte[] scratch;
+
+	/**
+	 * Constructor
+	 *
+	 * @param stream
+	 *            The source stream, which is mapped from its current position
+	 *            if it is a file input stream and is otherwise read to its end.
+	 * @throws IOException
+	 *             if an error occurs while mapping or reading the stream.
+	 */
+	public MappedObservationFileReader(InputStream stream) throws IOException {
+		this(stream, MAX_REGION_SIZE);
+	}
+
+	// Construct a reader that maps a file in regions of at most the specified
+	// size.
+	MappedObservationFileReader(InputStream stream, int maxRegionSize)
+			throws IOException {
+		this.maxRegionSize = maxRegionSize;
+
+		if (stream instanceof FileInputStream) {
+			channel = ((FileInputStream) stream).getChannel();
+			sourceStart = channel.position();
+			sourceEnd = channel.size();
+			regionStart = -1;
+			map(0);
+		} else {
+			channel = null;
+			buffer = ByteBuffer.wrap(stream.readAllBytes());
+			chars = new DecimalParser.AsciiView(buffer);
+			sourceStart = 0;
+			sourceEnd = buffer.limit();
+			regionStart = 0;
+		}
+
+		charset = Charset.defaultCharset();
+
+		fieldStarts = new int[16];
+		fieldEnds = new int[16];
+		scratch = new byte[256];
+
+		rewind();
+	}
+
+	/**
+	 * @return the size of the source in bytes
+	 */
+	public long getSize() {
+		return sourceEnd - sourceStart;
+	}
+
+	/**
+	 * @return the number of bytes of the source before the start of the next
+	 *         line
+	 */
+	public long getPosition() {
+		return regionStart + next;
+	}
+
+	/**
+	 * Position the reader before the first line of the source.
+	 *
+	 * @throws IOException
+	 *             if an error occurs while mapping the source.
+	 */
+	public void rewind() throws IOException {
+		if (regionStart != 0) {
+			map(0);
+		}
+		lineStart = 0;
+		lineEnd = 0;
+		next = 0;
+		lineNumber = 0;
+		fieldCount = 0;
+	}
+
+	/**
+	 * Count the lines in the source, leaving the reader positioned before the
+	 * first line.
+	 *
+	 * @return The number of lines.
+	 * @throws IOException
+	 *             if an error occurs while mapping the source.
+	 */
+	public int countLines() throws IOException {
+		rewind();
+
+		int count = 0;
+		while (nextLine()) {
+			count++;
+		}
+
+		rewind();
+
+		return count;
+	}
+
+	/**
+	 * Advance to the next line.
+	 *
+	 * @return Whether there is a next line, i.e. whether the end of the source
+	 *         had not been reached.
+	 * @throws IOException
+	 *             if an error occurs while mapping the source or the line is
+	 *             too long to be mapped.
+	 */
+	public boolean nextLine() throws IOException {
+		fieldCount = 0;
+
+		if (regionStart + next >= getSize()) {
+			return false;
+		}
+
+		int end = findLineEnd(next);
+
+		if (end == buffer.limit() && regionStart + end < getSize()) {
+			if (next > 0) {
+				// The line crosses the end of this region.
+				map(regionStart + next);
+				next = 0;
+				end = findLineEnd(0);
+			}
+
+			if (end == buffer.limit() && regionStart + end < getSize()) {
+				// The line does not fit in a region.
+				throw new IOException("Line " + (lineNumber + 1)
+						+ " is longer than the maximum of " + maxRegionSize
+						+ " bytes.");
+			}
+		}
+
+		lineStart = next;
+		lineEnd = end;
+
+		next = end;
+		if (next < buffer.limit() && buffer.get(next) == '\r') {
+			next++;
+			if (next == buffer.limit() && regionStart + next < getSize()) {
+				// Don't split a "\r\n" terminator across regions.
+				map(regionStart + lineStart);
+				lineEnd -= lineStart;
+				next -= lineStart;
+				lineStart = 0;
+			}
+		}
+		if (next < buffer.limit() && buffer.get(next) == '\n'
+				&& (next == lineEnd || buffer.get(next - 1) == '\r')) {
+			next++;
+		}
+
+		lineNumber++;
+
+		return true;
+	}
+
+	/**
+	 * @return the number of the current line, starting from 1, or 0 if before
+	 *         the first line
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the current line, excluding its terminator
+	 */
+	public String getLine() {
+		return decode(lineStart, lineEnd);
+	}
+
+	/**
+	 * @return whether the current line is empty or white space
+	 */
+	public boolean isBlankLine() {
+		return firstNonBlank(lineStart, lineEnd) == lineEnd;
+	}
+
+	/**
+	 * Does the first character of the current line, ignoring leading white
+	 * space, denote a comment?
+	 *
+	 * @param commentChar
+	 *            The (ASCII) comment character, e.g. '#'.
+	 * @return Whether the line is a comment.
+	 */
+	public boolean isCommentLine(char commentChar) {
+		int start = firstNonBlank(lineStart, lineEnd);
+		return start < lineEnd && buffer.get(start) == commentChar;
+	}
+
+	/**
+	 * Split the current line into fields.
+	 *
+	 * @param delimiter
+	 *            The (ASCII) field delimiter.
+	 * @return The number of fields, which is at least 1.
+	 */
+	public int split(char delimiter) {
+		fieldCount = 0;
+
+		int start = lineStart;
+		for (int i = lineStart; i < lineEnd; i++) {
+			if (buffer.get(i) == delimiter) {
+				addField(start, i);
+				start = i + 1;
+			}
+		}
+		addField(start, lineEnd);
+
+		return fieldCount;
+	}
+
+	/**
+	 * @return the number of fields in the current line, or 0 if it has not
+	 *         been split
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * @return the fields of the current line, which must have been split
+	 */
+	public String[] getFields() {
+		String[] fields = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+
+	/**
+	 * Return a field of the current line.
+	 *
+	 * @param index
+	 *            The field's index.
+	 * @return The field, trimmed.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if there is no such field.
+	 */
+	public String getField(int index) {
+		checkField(index);
+		return decode(fieldStarts[index], fieldEnds[index]);
+	}
+
+	/**
+	 * Is a field of the current line empty (after trimming)?
+	 *
+	 * @param index
+	 *            The field's index.
+	 * @return Whether the field is empty.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if there is no such field.
+	 */
+	public boolean isFieldEmpty(int index) {
+		checkField(index);
+		return fieldStarts[index] == fieldEnds[index];
+	}
+
+	/**
+	 * Is a field of the current line equal to an ASCII string?
+	 *
+	 * @param index
+	 *            The field's index.
+	 * @param str
+	 *            The string.
+	 * @param ignoreCase
+	 *            Ignore the case of letters?
+	 * @return Whether the field is equal to the string.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if there is no such field.
+	 */
+	public boolean fieldEquals(int index, String str, boolean ignoreCase) {
+		checkField(index);
+
+		int start = fieldStarts[index];
+		if (fieldEnds[index] - start != str.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < str.length(); i++) {
+			int b = buffer.get(start + i) & 0xFF;
+			int c = str.charAt(i);
+			if (b != c
+					&& (!ignoreCase || b >= 0x80 || Character.toUpperCase(b) != Character
+							.toUpperCase(c))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parse a field of the current line as a double, as Double.parseDouble()
+	 * would.
+	 *
+	 * @param index
+	 *            The field's index.
+	 * @return The value.
+	 * @throws NumberFormatException
+	 *             if the field is not a number.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if there is no such field.
+	 */
+	public double getDouble(int index) throws NumberFormatException {
+		checkField(index);
+
+		double value = DecimalParser.parse(chars, fieldStarts[index],
+				fieldEnds[index], DecimalParser.JAVA_SYNTAX);
+
+		if (Double.isNaN(value)) {
+			// Not a plain decimal number, or not one that can be converted
+			// exactly, so leave it to the library.
+			value = Double.parseDouble(getField(index));
+		}
+
+		return value;
+	}
+
+	/**
+	 * Parse a field of the current line as an int, as Integer.parseInt()
+	 * would.
+	 *
+	 * @param index
+	 *            The field's index.
+	 * @return The value.
+	 * @throws NumberFormatException
+	 *             if the field is not an int.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if there is no such field.
+	 */
+	public int getInt(int index) throws NumberFormatException {
+		checkField(index);
+
+		int start = fieldStarts[index];
+		int end = fieldEnds[index];
+
+		boolean negative = start < end && buffer.get(start) == '-';
+		int first = negative || start < end && buffer.get(start) == '+' ? start + 1
+				: start;
+		int i = first;
+
+		// Accumulate negatively, since |MIN_VALUE| > MAX_VALUE.
+		long value = 0;
+		if (i < end && end - i <= 10) {
+			for (; i < end; i++) {
+				int digit = buffer.get(i) - '0';
+				if (digit < 0 || digit > 9) {
+					break;
+				}
+				value = value * 10 - digit;
+			}
+		}
+
+		if (i != end || i == first || value < Integer.MIN_VALUE
+				|| (!negative && value == Integer.MIN_VALUE)) {
+			// Let the library report the error.
+			return Integer.parseInt(getField(index));
+		}
+
+		return (int) (negative ? value : -value);
+	}
+
+	// Helpers
+
+	// Map the region of the source starting at the specified offset.
+	private void map(long offset) throws IOException {
+		long size = Math.min(getSize() - offset, maxRegionSize);
+		buffer = channel.map(MapMode.READ_ONLY, sourceStart + offset, size);
+		chars = new DecimalParser.AsciiView(buffer);
+		regionStart = offset;
+	}
+
+	// Return the end of the line starting at the specified index, i.e. the
+	// index of its terminator or the buffer's limit.
+	private int findLineEnd(int start) {
+		int limit = buffer.limit();
+		for (int i = start; i < limit; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n' || b == '\r') {
+				return i;
+			}
+		}
+		return limit;
+	}
+
+	private int firstNonBlank(int start, int end) {
+		while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	private void addField(int start, int end) {
+		start = firstNonBlank(start, end);
+		while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+			end--;
+		}
+
+		if (fieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+		}
+
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		fieldCount++;
+	}
+
+	private void checkField(int index) {
+		if (index < 0 || index >= fieldCount) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+	}
+
+	private String decode(int start, int end) {
+		int length = end - start;
+
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start,
+					length, charset);
+		} else {
+			if (scratch.length < length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			buffer.get(start, scratch, 0, length);
+			return new String(scratch, 0, length, charset);
+		}
+	}
+}
@@ -0,0 +1,256 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * <p>
+ * A structured predicate over observations to be retrieved: an inclusive JD
+ * range, a set of bands and a set of observer codes, each of which is
+ * optional.
+ * </p>
+ *
+ * <p>
+ * Unlike a VeLa filter, which is applied to each observation once it has been
+ * created, this predicate is simple enough to be pushed down into an
+ * observation retriever, which can test a record's time, band or observer
+ * code as soon as it has been tokenised and skip the rest of the record if
+ * rejected. Each part of the predicate can therefore be tested separately.
+ * </p>
+ */
+public class ObservationPredicate {
+
+	/**
+	 * The predicate that accepts all observations.
+	 */
+	public static final ObservationPredicate ALL = new ObservationPredicate(
+			null, null, null, null);
+
+	private final Double minJD;
+	private final Double maxJD;
+	private final Set<SeriesType> bands;
+	private final Set<String> obsCodes;
+
+	/**
+	 * Constructor
+	 *
+	 * @param minJD
+	 *            The minimum JD (inclusive), or null for no minimum.
+	 * @param maxJD
+	 *            The maximum JD (inclusive), or null for no maximum.
+	 * @param bands
+	 *            The bands to be accepted, or null for any band.
+	 * @param obsCodes
+	 *            The observer codes to be accepted, or null for any observer.
+	 */
+	public ObservationPredicate(Double minJD, Double maxJD,
+			Set<SeriesType> bands, Set<String> obsCodes) {
+		this.minJD = minJD;
+		this.maxJD = maxJD;
+		this.bands = bands == null ? null : Collections
+				.unmodifiableSet(new HashSet<SeriesType>(bands));
+		this.obsCodes = obsCodes == null ? null : Collections
+				.unmodifiableSet(upperCase(obsCodes));
+	}
+
+	/**
+	 * Create a predicate from user-entered criteria.
+	 *
+	 * @param minJD
+	 *            The minimum JD (inclusive), or null for no minimum.
+	 * @param maxJD
+	 *            The maximum JD (inclusive), or null for no maximum.
+	 * @param bands
+	 *            A comma-separated list of band names or short names, or null
+	 *            or blank for any band.
+	 * @param obsCodes
+	 *            A comma or whitespace separated list of observer codes, or
+	 *            null or blank for any observer.
+	 * @return The predicate.
+	 * @throws IllegalArgumentException
+	 *             if a band is unknown or the JD range is empty.
+	 */
+	public static ObservationPredicate create(Double minJD, Double maxJD,
+			String bands, String obsCodes) {
+		if (minJD != null && maxJD != null && minJD > maxJD) {
+			throw new IllegalArgumentException("Minimum JD " + minJD
+					+ " is greater than maximum JD " + maxJD);
+		}
+
+		Set<SeriesType> bandSet = null;
+		if (bands != null && !bands.trim().isEmpty()) {
+			bandSet = new HashSet<SeriesType>();
+			for (String name : bands.split(",")) {
+				name = name.trim();
+				if (!name.isEmpty()) {
+					bandSet.add(band(name));
+				}
+			}
+		}
+
+		Set<String> obsCodeSet = null;
+		if (obsCodes != null && !obsCodes.trim().isEmpty()) {
+			obsCodeSet = new HashSet<String>(Arrays.asList(obsCodes.trim()
+					.split("[,\\s]+")));
+		}
+
+		return new ObservationPredicate(minJD, maxJD, bandSet, obsCodeSet);
+	}
+
+	/**
+	 * @return the minimum JD (inclusive), or null if there is none
+	 */
+	public Double getMinJD() {
+		return minJD;
+	}
+
+	/**
+	 * @return the maximum JD (inclusive), or null if there is none
+	 */
+	public Double getMaxJD() {
+		return maxJD;
+	}
+
+	/**
+	 * @return the bands to be accepted, or null if any band is accepted
+	 */
+	public Set<SeriesType> getBands() {
+		return bands;
+	}
+
+	/**
+	 * @return the observer codes to be accepted, or null if any observer is
+	 *         accepted
+	 */
+	public Set<String> getObsCodes() {
+		return obsCodes;
+	}
+
+	/**
+	 * @return whether this predicate accepts all observations, in which case
+	 *         there is nothing to test
+	 */
+	public boolean acceptsAll() {
+		return minJD == null && maxJD == null && bands == null
+				&& obsCodes == null;
+	}
+
+	/**
+	 * @return whether this predicate restricts JDs
+	 */
+	public boolean restrictsJD() {
+		return minJD != null || maxJD != null;
+	}
+
+	/**
+	 * @return whether this predicate restricts bands
+	 */
+	public boolean restrictsBand() {
+		return bands != null;
+	}
+
+	/**
+	 * @return whether this predicate restricts observer codes
+	 */
+	public boolean restrictsObsCode() {
+		return obsCodes != null;
+	}
+
+	/**
+	 * Is the specified JD in range?
+	 *
+	 * @param jd
+	 *            The JD.
+	 * @return Whether the JD is accepted.
+	 */
+	public boolean acceptsJD(double jd) {
+		return (minJD == null || jd >= minJD) && (maxJD == null || jd <= maxJD);
+	}
+
+	/**
+	 * Is the specified band accepted?
+	 *
+	 * @param band
+	 *            The band.
+	 * @return Whether the band is accepted.
+	 */
+	public boolean acceptsBand(SeriesType band) {
+		return bands == null || bands.contains(band);
+	}
+
+	/**
+	 * Is the specified observer code accepted?
+	 *
+	 * @param obsCode
+	 *            The observer code, compared case-insensitively; may be null.
+	 * @return Whether the observer code is accepted.
+	 */
+	public boolean acceptsObsCode(String obsCode) {
+		return obsCodes == null
+				|| (obsCode != null && obsCodes.contains(obsCode.toUpperCase()));
+	}
+
+	/**
+	 * Is the specified observation accepted?
+	 *
+	 * @param ob
+	 *            The observation, which must have a date.
+	 * @return Whether the observation is accepted.
+	 */
+	public boolean accepts(ValidObservation ob) {
+		return acceptsJD(ob.getJD()) && acceptsBand(ob.getBand())
+				&& acceptsObsCode(ob.getObsCode());
+	}
+
+	@Override
+	public String toString() {
+		return "JD: " + minJD + ".." + maxJD + ", bands: " + bands
+				+ ", observers: " + obsCodes;
+	}
+
+	// Helpers
+
+	private static SeriesType band(String name) {
+		if (SeriesType.exists(name)) {
+			return SeriesType.getSeriesFromDescription(name);
+		}
+
+		SeriesType band = SeriesType.getSeriesFromShortName(name);
+		if (band == SeriesType.getDefault()
+				&& !name.equals(band.getShortName())) {
+			throw new IllegalArgumentException("Unknown band: " + name);
+		}
+
+		return band;
+	}
+
+	private static Set<String> upperCase(Set<String> obsCodes) {
+		Set<String> codes = new HashSet<String>();
+		for (String obsCode : obsCodes) {
+			codes.add(obsCode.toUpperCase());
+		}
+		return codes;
+	}
+}
@@ -0,0 +1,299 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+import org.aavso.tools.vstar.data.InvalidObservation;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * <p>
+ * Decodes independent observation sources (e.g. the input streams of a
+ * multi-file observation source plug-in) concurrently, with a bounded number
+ * of sources being decoded at once.
+ * </p>
+ *
+ * <p>
+ * Each source is decoded into its own chunk of observations, which is then
+ * sorted by JD. Once all sources have been decoded, the chunks are combined
+ * by a k-way merge on JD, so the valid observations are in JD order and can
+ * be collected by an observation retriever without further sorting.
+ * Observations with equal JDs remain in source order, as if the sources had
+ * been decoded one after another.
+ * </p>
+ *
+ * @param <S>
+ *            The type of a source, e.g. an input stream.
+ */
+public class ParallelIngester<S> {
+
+	/**
+	 * Decodes one source.
+	 *
+	 * @param <S>
+	 *            The type of a source.
+	 */
+	public interface SourceDecoder<S> {
+		/**
+		 * Decode a source. Different sources are decoded concurrently, so a
+		 * decoder must not modify state shared with other sources, e.g. by
+		 * collecting observations.
+		 *
+		 * @param index
+		 *            The index of the source.
+		 * @param source
+		 *            The source.
+		 * @param validObs
+		 *            The list to which valid observations are to be added.
+		 * @param invalidObs
+		 *            The list to which invalid observations are to be added.
+		 * @throws Exception
+		 *             if the source could not be decoded.
+		 */
+		void decode(int index, S source, List<ValidObservation> validObs,
+				List<InvalidObservation> invalidObs) throws Exception;
+	}
+
+	/**
+	 * The default maximum number of sources decoded at once.
+	 */
+	public static final int DEFAULT_MAX_THREADS = Math.max(1, Math.min(4,
+			Runtime.getRuntime().availableProcessors()));
+
+	// How often the waiting thread checks for a stop request.
+	private static final long STOP_POLL_MILLIS = 100;
+
+	private final int maxThreads;
+	private final BooleanSupplier stopRequested;
+
+	private List<ValidObservation> validObservations;
+	private List<InvalidObservation> invalidObservations;
+	private Map<Integer, Exception> errors;
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxThreads
+	 *            The maximum number of sources decoded at once.
+	 * @param stopRequested
+	 *            Has a stop been requested (e.g. via a StopRequestMessage)? If
+	 *            so, decoding is abandoned.
+	 */
+	public ParallelIngester(int maxThreads, BooleanSupplier stopRequested) {
+		this.maxThreads = Math.max(1, maxThreads);
+		this.stopRequested = stopRequested;
+
+		validObservations = new ArrayList<ValidObservation>();
+		invalidObservations = new ArrayList<InvalidObservation>();
+		errors = new TreeMap<Integer, Exception>();
+	}
+
+	/**
+	 * Decode the specified sources, waiting for all to be decoded.
+	 *
+	 * @param sources
+	 *            The sources.
+	 * @param decoder
+	 *            Decodes a source.
+	 * @param sourceDecoded
+	 *            Called on the waiting thread with the index of each source
+	 *            as it is decoded or fails to be decoded, e.g. to report
+	 *            progress; may be null.
+	 * @return Whether all sources were decoded or failed to be decoded; false
+	 *         if a stop was requested first.
+	 * @throws InterruptedException
+	 *             if the waiting thread was interrupted.
+	 */
+	public boolean ingest(List<S> sources, SourceDecoder<S> decoder,
+			IntConsumer sourceDecoded) throws InterruptedException {
+		int n = sources.size();
+
+		List<List<ValidObservation>> chunks = new ArrayList<List<ValidObservation>>(
+				n);
+		List<List<InvalidObservation>> invalidChunks = new ArrayList<List<InvalidObservation>>(
+				n);
+		for (int i = 0; i < n; i++) {
+			chunks.add(null);
+			invalidChunks.add(null);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(maxThreads, n)), r -> {
+					Thread thread = new Thread(r, "Observation ingester");
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		try {
+			CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(
+					executor);
+
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>(n);
+
+			for (int i = 0; i < n; i++) {
+				final int index = i;
+				futures.add(completion.submit(() -> {
+					List<ValidObservation> validObs = new ArrayList<ValidObservation>();
+					List<InvalidObservation> invalidObs = new ArrayList<InvalidObservation>();
+
+					try {
+						decoder.decode(index, sources.get(index), validObs,
+								invalidObs);
+					} catch (Exception e) {
+						synchronized (errors) {
+							errors.put(index, e);
+						}
+						return index;
+					}
+
+					validObs.sort(Comparator
+							.comparingDouble(ValidObservation::getJD));
+
+					synchronized (chunks) {
+						chunks.set(index, validObs);
+						invalidChunks.set(index, invalidObs);
+					}
+
+					return index;
+				}));
+			}
+
+			for (int remaining = n; remaining > 0;) {
+				Future<Integer> future = completion.poll(STOP_POLL_MILLIS,
+						TimeUnit.MILLISECONDS);
+
+				if (future == null) {
+					if (stopRequested.getAsBoolean()) {
+						for (Future<Integer> f : futures) {
+							f.cancel(true);
+						}
+						return false;
+					}
+				} else {
+					remaining--;
+					try {
+						int index = future.get();
+						if (sourceDecoded != null) {
+							sourceDecoded.accept(index);
+						}
+					} catch (ExecutionException e) {
+						// Exceptions thrown by decoders are recorded by the
+						// task itself, so this is an error.
+						if (e.getCause() instanceof Error) {
+							throw (Error) e.getCause();
+						}
+						throw new IllegalStateException(e.getCause());
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		synchronized (chunks) {
+			validObservations = merge(chunks);
+
+			invalidObservations = new ArrayList<InvalidObservation>();
+			for (List<InvalidObservation> invalidObs : invalidChunks) {
+				if (invalidObs != null) {
+					invalidObservations.addAll(invalidObs);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the valid observations from all sources, in JD order
+	 */
+	public List<ValidObservation> getValidObservations() {
+		return validObservations;
+	}
+
+	/**
+	 * @return the invalid observations from all sources, in source order
+	 */
+	public List<InvalidObservation> getInvalidObservations() {
+		return invalidObservations;
+	}
+
+	/**
+	 * @return a mapping from the index of each source that could not be
+	 *         decoded to the exception thrown by the decoder, in index order
+	 */
+	public Map<Integer, Exception> getErrors() {
+		return errors;
+	}
+
+	// Merge chunks of observations, each in JD order, into one list in JD
+	// order, preferring earlier chunks where JDs are equal. Chunks not
+	// decoded are null.
+	private static List<ValidObservation> merge(
+			List<List<ValidObservation>> chunks) {
+		int total = 0;
+		for (List<ValidObservation> chunk : chunks) {
+			if (chunk != null) {
+				total += chunk.size();
+			}
+		}
+
+		List<ValidObservation> merged = new ArrayList<ValidObservation>(total);
+
+		// Each cursor is a chunk index and a position in that chunk.
+		PriorityQueue<int[]> heads = new PriorityQueue<int[]>(Math.max(1,
+				chunks.size()), (a, b) -> {
+			int cmp = Double.compare(chunks.get(a[0]).get(a[1]).getJD(),
+					chunks.get(b[0]).get(b[1]).getJD());
+			return cmp != 0 ? cmp : Integer.compare(a[0], b[0]);
+		});
+
+		for (int i = 0; i < chunks.size(); i++) {
+			if (chunks.get(i) != null && !chunks.get(i).isEmpty()) {
+				heads.add(new int[] { i, 0 });
+			}
+		}
+
+		while (!heads.isEmpty()) {
+			int[] head = heads.poll();
+			List<ValidObservation> chunk = chunks.get(head[0]);
+			merged.add(chunk.get(head[1]));
+
+			if (++head[1] < chunk.size()) {
+				heads.add(head);
+			}
+		}
+
+		return merged;
+	}
+}
@@ -0,0 +1,486 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.aavso.tools.vstar.data.ObservationStore;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.ui.VStar;
+
+/**
+ * <p>
+ * A persistent, on-disk cache of observations retrieved from a source, so
+ * that reloading a star does not require all of its observations to be
+ * retrieved again. The AID web service sources use it; the external web
+ * service plug-ins (e.g. ZTF and Gaia) do not yet.
+ * </p>
+ *
+ * <p>
+ * Each entry is identified by a key consisting of the source, the object
+ * (e.g. an AUID) and a description of any other selection criteria (e.g. the
+ * bands requested), and records the JD range its observations cover. A
+ * request for a range within the covered range can be served from the cache;
+ * a request for a range extending beyond the covered range need only retrieve
+ * the missing tail.
+ * </p>
+ *
+ * <p>
+ * Entries are stored as compressed, column-oriented observation stores, one
+ * file per entry. When the total size of the entries exceeds the cache's
+ * maximum size, the least recently used entries are evicted.
+ * </p>
+ */
+public class ObservationCache {
+
+	/**
+	 * The default cache directory, under the user's home directory.
+	 */
+	public static final String CACHE_DIR = System.getProperty("user.home")
+			+ File.separator + "vstar_cache";
+
+	/**
+	 * The default maximum total size of the cache's entries, in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+	private static final String ENTRY_SUFFIX = ".obs";
+
+	// Entry format identification: "VSOC" and a version number.
+	private static final int ENTRY_MAGIC = 0x56534F43;
+	private static final int ENTRY_VERSION = 1;
+
+	private static ObservationCache instance = null;
+
+	private final File dir;
+	private final long maxSize;
+
+	/**
+	 * Return the default cache, in the default cache directory.
+	 *
+	 * @return The cache.
+	 */
+	public static synchronized ObservationCache getInstance() {
+		if (instance == null) {
+			instance = new ObservationCache(new File(CACHE_DIR),
+					DEFAULT_MAX_SIZE);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param dir
+	 *            The directory in which entries are stored, created when the
+	 *            first entry is stored.
+	 * @param maxSize
+	 *            The maximum total size of the entries, in bytes.
+	 */
+	public ObservationCache(File dir, long maxSize) {
+		this.dir = dir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the directory in which entries are stored
+	 */
+	public File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * @return the maximum total size of the entries, in bytes
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Return the cache entry with the specified key, marking it as most
+	 * recently used.
+	 *
+	 * @param key
+	 *            The key.
+	 * @return The entry, or null if there is no such entry or it cannot be
+	 *         read, in which case it is removed.
+	 */
+	public synchronized Entry get(Key key) {
+		Entry entry = null;
+
+		File file = getFile(key);
+
+		if (file.isFile()) {
+			try {
+				entry = readEntry(file, key);
+				file.setLastModified(System.currentTimeMillis());
+			} catch (IOException e) {
+				VStar.LOGGER.log(Level.WARNING,
+						"Unable to read observation cache entry " + file, e);
+				file.delete();
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Store observations in the cache, replacing any existing entry with the
+	 * same key, then evict least recently used entries if the cache is larger
+	 * than its maximum size.
+	 *
+	 * @param key
+	 *            The key.
+	 * @param minJD
+	 *            The minimum JD of the range covered by the observations.
+	 * @param maxJD
+	 *            The maximum JD of the range covered by the observations.
+	 * @param obs
+	 *            The observations, each of which must have a date and
+	 *            magnitude.
+	 * @throws IOException
+	 *             if the entry cannot be written.
+	 */
+	public synchronized void put(Key key, double minJD, double maxJD,
+			List<ValidObservation> obs) throws IOException {
+
+		ObservationStore store = new ObservationStore(obs.size());
+		for (ValidObservation ob : obs) {
+			store.add(ob);
+		}
+
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create observation cache "
+					+ "directory " + dir);
+		}
+
+		File file = getFile(key);
+
+		// Write to a temporary file, then replace the entry, so that an entry
+		// is never seen partially written.
+		File tempFile = File.createTempFile("entry", ".tmp", dir);
+
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(
+							new FileOutputStream(tempFile))));
+
+			try {
+				out.writeInt(ENTRY_MAGIC);
+				out.writeInt(ENTRY_VERSION);
+				out.writeUTF(key.getSource());
+				out.writeUTF(key.getObject());
+				out.writeUTF(key.getSelection());
+				out.writeDouble(minJD);
+				out.writeDouble(maxJD);
+				store.write(out);
+			} finally {
+				out.close();
+			}
+
+			Files.move(tempFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			tempFile.delete();
+		}
+
+		evict(file);
+	}
+
+	/**
+	 * Remove the entry with the specified key, if present.
+	 *
+	 * @param key
+	 *            The key.
+	 */
+	public synchronized void remove(Key key) {
+		getFile(key).delete();
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public synchronized void clear() {
+		for (File file : getEntryFiles()) {
+			file.delete();
+		}
+	}
+
+	/**
+	 * @return the total size of the cache's entries, in bytes
+	 */
+	public synchronized long getTotalSize() {
+		long totalSize = 0;
+
+		for (File file : getEntryFiles()) {
+			totalSize += file.length();
+		}
+
+		return totalSize;
+	}
+
+	// Helpers
+
+	private File getFile(Key key) {
+		return new File(dir, key.getDigest() + ENTRY_SUFFIX);
+	}
+
+	private File[] getEntryFiles() {
+		File[] files = dir.listFiles((d, name) -> name.endsWith(ENTRY_SUFFIX));
+		return files != null ? files : new File[0];
+	}
+
+	private Entry readEntry(File file, Key key) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new GZIPInputStream(new FileInputStream(file))));
+
+		try {
+			if (in.readInt() != ENTRY_MAGIC || in.readInt() != ENTRY_VERSION) {
+				throw new IOException("Not an observation cache entry.");
+			}
+
+			Key fileKey = new Key(in.readUTF(), in.readUTF(), in.readUTF());
+			if (!fileKey.equals(key)) {
+				throw new IOException("Observation cache entry key mismatch.");
+			}
+
+			double minJD = in.readDouble();
+			double maxJD = in.readDouble();
+			ObservationStore store = ObservationStore.read(ByteBuffer
+					.wrap(in.readAllBytes()));
+
+			return new Entry(minJD, maxJD, store);
+		} finally {
+			in.close();
+		}
+	}
+
+	// Remove the least recently used entries until the cache is no larger
+	// than its maximum size, the specified most recently used entry last.
+	private void evict(File mostRecentFile) {
+		File[] files = getEntryFiles();
+
+		long totalSize = 0;
+		for (File file : files) {
+			totalSize += file.length();
+		}
+
+		if (totalSize > maxSize) {
+			Arrays.sort(files, Comparator.comparing(
+					(File file) -> file.equals(mostRecentFile)).thenComparing(
+					File::lastModified));
+
+			for (File file : files) {
+				if (totalSize <= maxSize) {
+					break;
+				}
+
+				long size = file.length();
+				if (file.delete()) {
+					totalSize -= size;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The key of a cache entry.
+	 */
+	public static class Key {
+
+		private final String source;
+		private final String object;
+		private final String selection;
+
+		/**
+		 * Constructor
+		 *
+		 * @param source
+		 *            The source of the observations, e.g. a plug-in's class
+		 *            name.
+		 * @param object
+		 *            The object, e.g. an AUID or star name.
+		 * @param selection
+		 *            A description of any other criteria by which observations
+		 *            were selected, e.g. the bands requested; may be empty.
+		 */
+		public Key(String source, String object, String selection) {
+			this.source = source;
+			this.object = object;
+			this.selection = selection != null ? selection : "";
+		}
+
+		/**
+		 * @return the source
+		 */
+		public String getSource() {
+			return source;
+		}
+
+		/**
+		 * @return the object
+		 */
+		public String getObject() {
+			return object;
+		}
+
+		/**
+		 * @return the selection criteria
+		 */
+		public String getSelection() {
+			return selection;
+		}
+
+		// A digest of the key, usable as a file name.
+		private String getDigest() {
+			try {
+				MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				byte[] hash = digest.digest((source + "\n" + object + "\n" + selection)
+						.getBytes(StandardCharsets.UTF_8));
+
+				StringBuffer buf = new StringBuffer();
+				for (byte b : hash) {
+					buf.append(String.format("%02x", b));
+				}
+				return buf.toString();
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return (source.hashCode() * 31 + object.hashCode()) * 31
+					+ selection.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return source.equals(other.source) && object.equals(other.object)
+					&& selection.equals(other.selection);
+		}
+
+		@Override
+		public String toString() {
+			return source + ": " + object + " (" + selection + ")";
+		}
+	}
+
+	/**
+	 * A cache entry: observations and the JD range they cover.
+	 */
+	public static class Entry {
+
+		private final double minJD;
+		private final double maxJD;
+		private final ObservationStore store;
+
+		private Entry(double minJD, double maxJD, ObservationStore store) {
+			this.minJD = minJD;
+			this.maxJD = maxJD;
+			this.store = store;
+		}
+
+		/**
+		 * @return the minimum JD of the range covered by the entry
+		 */
+		public double getMinJD() {
+			return minJD;
+		}
+
+		/**
+		 * @return the maximum JD of the range covered by the entry
+		 */
+		public double getMaxJD() {
+			return maxJD;
+		}
+
+		/**
+		 * Does the entry cover the specified JD range?
+		 *
+		 * @param minJD
+		 *            The minimum JD of the range.
+		 * @param maxJD
+		 *            The maximum JD of the range.
+		 * @return Whether the range is within the entry's range.
+		 */
+		public boolean covers(double minJD, double maxJD) {
+			return this.minJD <= minJD && maxJD <= this.maxJD;
+		}
+
+		/**
+		 * @return the number of observations in the entry
+		 */
+		public int size() {
+			return store.size();
+		}
+
+		/**
+		 * Return new observations with the values of the entry's observations
+		 * whose JDs are in the specified range, in the order in which they
+		 * were stored.
+		 *
+		 * @param fromJD
+		 *            The minimum JD, inclusive.
+		 * @param toJD
+		 *            The maximum JD, exclusive.
+		 * @return The observations.
+		 */
+		public List<ValidObservation> getObservations(double fromJD,
+				double toJD) {
+			List<ValidObservation> obs = new ArrayList<ValidObservation>();
+
+			for (int i = 0; i < store.size(); i++) {
+				double jd = store.getJD(i);
+				if (fromJD <= jd && jd < toJD) {
+					obs.add(store.get(i));
+				}
+			}
+
+			return obs;
+		}
+	}
+}
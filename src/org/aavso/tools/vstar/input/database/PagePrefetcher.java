@@ -0,0 +1,191 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input.database;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>
+ * Fetches the numbered pages of a multi-page web service response (e.g. AID
+ * observations from the VSX web service) ahead of their consumer, with a
+ * bounded number of requests in flight, and hands them over in page order.
+ * </p>
+ *
+ * <p>
+ * The consumer decides when the last page has been reached, typically from
+ * its content, and then calls close(), which cancels any pages fetched
+ * speculatively beyond it. Since most responses have a single page, only the
+ * first page is requested at first; the number of pages in flight grows to
+ * the maximum only once the consumer asks for further pages.
+ * </p>
+ *
+ * @param <T>
+ *            The type of a fetched page, e.g. a parsed document.
+ */
+public class PagePrefetcher<T> implements AutoCloseable {
+
+	/**
+	 * Fetches one page.
+	 *
+	 * @param <T>
+	 *            The type of a fetched page.
+	 */
+	public interface PageFetcher<T> {
+		/**
+		 * Fetch a page.
+		 *
+		 * @param pageNum
+		 *            The page number, from 1.
+		 * @return The page.
+		 * @throws Exception
+		 *             if the page could not be fetched.
+		 */
+		T fetch(int pageNum) throws Exception;
+	}
+
+	/**
+	 * The default maximum number of pages in flight.
+	 */
+	public static final int DEFAULT_PAGES_IN_FLIGHT = 4;
+
+	// How often a consumer waiting for a page checks for a stop request.
+	private static final long STOP_POLL_MILLIS = 100;
+
+	private final PageFetcher<T> fetcher;
+	private final int maxPagesInFlight;
+	private final BooleanSupplier stopRequested;
+
+	private final ExecutorService executor;
+
+	// Pages requested but not yet handed over, in page order.
+	private final Deque<Future<T>> pending;
+
+	private int nextPageToRequest;
+	private int nextPageToConsume;
+	private boolean closed;
+
+	/**
+	 * Constructor
+	 *
+	 * @param fetcher
+	 *            Fetches a page given its number.
+	 * @param maxPagesInFlight
+	 *            The maximum number of pages requested but not yet handed
+	 *            over.
+	 * @param stopRequested
+	 *            Has a stop been requested (e.g. via a StopRequestMessage)? If
+	 *            so, no more pages are handed over or requested.
+	 */
+	public PagePrefetcher(PageFetcher<T> fetcher, int maxPagesInFlight,
+			BooleanSupplier stopRequested) {
+		this.fetcher = fetcher;
+		this.maxPagesInFlight = Math.max(1, maxPagesInFlight);
+		this.stopRequested = stopRequested;
+
+		executor = Executors.newFixedThreadPool(this.maxPagesInFlight, r -> {
+			Thread thread = new Thread(r, "Page prefetcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		pending = new ArrayDeque<Future<T>>();
+		nextPageToRequest = 1;
+		nextPageToConsume = 1;
+		closed = false;
+	}
+
+	/**
+	 * Return the next page in page order, waiting for it to be fetched if
+	 * necessary.
+	 *
+	 * @return The page, or null if a stop has been requested or this prefetcher
+	 *         has been closed.
+	 * @throws Exception
+	 *             if the page could not be fetched; the exception thrown by
+	 *             the page fetcher.
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting.
+	 */
+	public T next() throws Exception {
+		if (closed || stopRequested.getAsBoolean()) {
+			return null;
+		}
+
+		// Widen the window as pages are consumed: one page at first, then up
+		// to the maximum.
+		int window = Math.min(maxPagesInFlight, nextPageToConsume);
+		while (nextPageToRequest < nextPageToConsume + window) {
+			final int pageNum = nextPageToRequest++;
+			pending.add(executor.submit(() -> fetcher.fetch(pageNum)));
+		}
+
+		Future<T> future = pending.remove();
+		nextPageToConsume++;
+
+		try {
+			while (true) {
+				try {
+					return future.get(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					if (stopRequested.getAsBoolean()) {
+						close();
+						return null;
+					}
+				}
+			}
+		} catch (ExecutionException e) {
+			close();
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else {
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of pages requested but not yet handed over
+	 */
+	public int getPagesInFlight() {
+		return pending.size();
+	}
+
+	/**
+	 * Cancel any pages not yet handed over and release the fetching threads.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+
+		for (Future<T> future : pending) {
+			future.cancel(true);
+		}
+		pending.clear();
+
+		executor.shutdownNow();
+	}
+}
@@ -71,7 +71,25 @@ public class ObservationFieldSplitter {
 	 *                 simplify validation.
 	 */
 	public String[] getFields() throws IOException, ObservationValidationError {
-		String[] fields = lineReader.getValues();
+		return getFields(lineReader.getValues());
+	}
+
+	/**
+	 * Return the required number of fields given the values of a line that
+	 * has already been read, appending with nulls if too few fields are
+	 * present in the line.
+	 * 
+	 * @param fields
+	 *            The values of the line, which may be modified.
+	 * @return The fields in the line.
+	 * @throws ObservationValidationError
+	 *             If the number of fields does not fall into the required
+	 *             range.
+	 * @postcondition: The returned field array's length must be maxFields to
+	 *                 simplify validation.
+	 */
+	public String[] getFields(String[] fields)
+			throws ObservationValidationError {
 
 		if (fields.length < this.minFields/* || fields.length > this.maxFields*/) {
 			StringBuffer strBuf = new StringBuffer();
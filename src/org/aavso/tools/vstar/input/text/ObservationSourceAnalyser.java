@@ -19,6 +19,8 @@ package org.aavso.tools.vstar.input.text;
 
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.aavso.tools.vstar.data.validation.AAVSODownloadFormatValidator;
 import org.aavso.tools.vstar.data.validation.CommonTextFormatValidator;
@@ -38,11 +40,22 @@ public class ObservationSourceAnalyser {
 	public static final String COMMA_DELIM = ",";
 	public static final String SPACE_DELIM = " +";
 
+	/**
+	 * The default maximum number of lines read by analyseHead() that are then
+	 * unread.
+	 */
+	public static final int DEFAULT_HEAD_LINES = 1000;
+
+	// The maximum number of characters read by analyseHead(), then unread.
+	private static final int HEAD_READ_AHEAD_LIMIT = 1 << 20;
+
 	private LineNumberReader obsSource;
 	private String obsSourceIdentifier;
 	private int lineCount;
+	private boolean lineCountKnown;
 	private NewStarType newStarType;
 	private String delimiter;
+	private List<String> skippedLines;
 
 	/**
 	 * Constructor.
@@ -57,46 +70,150 @@ public class ObservationSourceAnalyser {
 		this.obsSource = obsSource;
 		this.obsSourceIdentifier = obsSourceIdentifier;
 		this.lineCount = 0;
+		this.lineCountKnown = false;
+		this.skippedLines = new ArrayList<String>();
 	}
 
 	/**
-	 * Analyse the source.
+	 * Analyse the source, reading all lines in order to count them.
 	 */
 	public void analyse() throws IOException, ObservationReadError {
 
-		boolean gleanedFormat = false;
-
 		String line = obsSource.readLine();
 		while (line != null) {
 			// Using one line of data, glean format information.
 			// Other than doing this once, just read all lines
 			// so we can get a line count.
-			if (!gleanedFormat) {
-				// Ignore comment or blank line.
-				if (!line.startsWith("#") && !line.matches("^\\s*$")) {
-					// Try different delimiter types to guess CSV or TSV.
-					gleanedFormat = determinedFormat(line, TAB_DELIM);
-					if (!gleanedFormat) {
-						gleanedFormat = determinedFormat(line, COMMA_DELIM);
-						if (!gleanedFormat) {
-							gleanedFormat = determinedFormat(line, SPACE_DELIM);
-							if (!gleanedFormat) {
-								throw new ObservationReadError("'"
-										+ obsSourceIdentifier
-										+ "' is in an unknown format.");
-							}
-						}
-					}
-				}
+			if (newStarType == null) {
+				analyseLine(line);
 			}
 
 			line = obsSource.readLine();
 		}
 
 		this.lineCount = obsSource.getLineNumber();
+		this.lineCountKnown = true;
 		obsSource.close();
 	}
 
+	/**
+	 * <p>
+	 * Analyse the start of the source, reading lines only until the format has
+	 * been determined from the first line of data. The lines read are then
+	 * unread, so that the source can be read from the start, by
+	 * getTextFormatValidator() for example, without being opened again. The
+	 * number of lines in the source is not determined.
+	 * </p>
+	 * 
+	 * <p>
+	 * However many comment and blank lines precede the first line of data,
+	 * they are read. Those that cannot be unread, because there are more than
+	 * maxLines of them or they exceed the source's read-ahead limit, are
+	 * skipped instead and made available via getSkippedLines().
+	 * </p>
+	 * 
+	 * @param maxLines
+	 *            The maximum number of lines to be unread.
+	 * @throws ObservationReadError
+	 *             If the format could not be determined from the first line
+	 *             of data.
+	 */
+	public void analyseHead(int maxLines) throws IOException,
+			ObservationReadError {
+
+		skippedLines = new ArrayList<String>();
+
+		// Lines read since the source was last marked.
+		List<String> lines = new ArrayList<String>();
+		int chars = 0;
+
+		obsSource.mark(HEAD_READ_AHEAD_LIMIT);
+
+		String line = null;
+		while (newStarType == null && (line = obsSource.readLine()) != null) {
+			analyseLine(line);
+
+			if (newStarType == null) {
+				// A comment or blank line. If too many have been read to be
+				// unread, skip them and continue from here.
+				lines.add(line);
+				chars += line.length() + 1;
+
+				if (lines.size() >= maxLines
+						|| chars >= HEAD_READ_AHEAD_LIMIT / 2) {
+					skippedLines.addAll(lines);
+					lines.clear();
+					chars = 0;
+					obsSource.mark(HEAD_READ_AHEAD_LIMIT);
+				}
+			}
+		}
+
+		obsSource.reset();
+	}
+
+	/**
+	 * @return the comment and blank lines at the start of the source skipped by
+	 *         analyseHead(), in order; empty if none
+	 */
+	public List<String> getSkippedLines() {
+		return skippedLines;
+	}
+
+	/**
+	 * Try to determine the format of the source from a line, ignoring comment
+	 * and blank lines.
+	 * 
+	 * @param line
+	 *            The line to be analysed.
+	 * @throws ObservationReadError
+	 *             If the line is neither a comment nor blank and its format
+	 *             could not be determined.
+	 */
+	private void analyseLine(String line) throws ObservationReadError {
+		// Ignore comment or blank line.
+		if (!line.startsWith("#") && !isBlank(line)) {
+			// Try different delimiter types to guess CSV or TSV.
+			boolean gleanedFormat = determinedFormat(line, TAB_DELIM);
+			if (!gleanedFormat) {
+				gleanedFormat = determinedFormat(line, COMMA_DELIM);
+				if (!gleanedFormat) {
+					gleanedFormat = determinedFormat(line, SPACE_DELIM);
+					if (!gleanedFormat) {
+						throw new ObservationReadError("'"
+								+ obsSourceIdentifier
+								+ "' is in an unknown format.");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Is a line empty or all whitespace? This is equivalent to matching the
+	 * regular expression ^\s*$, without doing so.
+	 * 
+	 * @param line
+	 *            The line.
+	 * @return Whether the line is blank.
+	 */
+	static boolean isBlank(String line) {
+		for (int i = 0; i < line.length(); i++) {
+			switch (line.charAt(i)) {
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\u000B':
+			case '\f':
+			case '\r':
+				break;
+			default:
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Try to determine the format of the file from a single line: TSV vs CSV
 	 * and simple vs download format.
@@ -125,12 +242,21 @@ public class ObservationSourceAnalyser {
 	}
 
 	/**
-	 * @return the lineCount
+	 * @return the number of lines in the source, if known (see
+	 *         isLineCountKnown()), otherwise 0
 	 */
 	public int getLineCount() {
 		return lineCount;
 	}
 
+	/**
+	 * @return whether the source has been analysed in full, such that the
+	 *         number of lines in it is known
+	 */
+	public boolean isLineCountKnown() {
+		return lineCountKnown;
+	}
+
 	/**
 	 * @return the newStarType
 	 */
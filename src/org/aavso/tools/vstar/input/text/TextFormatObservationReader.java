@@ -18,6 +18,14 @@
 package org.aavso.tools.vstar.input.text;
 
 import java.io.LineNumberReader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.aavso.tools.vstar.data.InvalidObservation;
 import org.aavso.tools.vstar.data.MTypeType;
@@ -27,22 +35,58 @@ import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.exception.ObservationValidationWarning;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.ui.mediator.Mediator;
 import org.aavso.tools.vstar.ui.mediator.StarInfo;
+import org.aavso.tools.vstar.ui.mediator.message.ProgressInfo;
+import org.aavso.tools.vstar.ui.mediator.message.ProgressType;
 
 /**
+ * <p>
  * This class reads a variable star data file format containing lines of text or
  * comma separated fields, and yields a collection of observations for one star.
+ * </p>
+ * 
+ * <p>
+ * The source is read in a single pass. Records are read in chunks, each of
+ * which is validated by a worker thread while subsequent chunks are read, and
+ * the validated records are then collected in source order.
+ * </p>
+ * 
+ * <p>
+ * Records whose JD, band or observer code do not satisfy this reader's
+ * predicate are skipped without being validated.
+ * </p>
  * 
  * REQ_VSTAR_SIMPLE_TEXT_FILE_READ REQ_VSTAR_AAVSO_DATA_DOWNLOAD_FILE_READ
  */
 public class TextFormatObservationReader extends AbstractObservationRetriever {
 
+	/**
+	 * The number of records in a chunk validated by one worker.
+	 */
+	public static final int CHUNK_SIZE = 2048;
+
+	// When the size of the source is known, progress is reported in units of
+	// this many characters read.
+	private static final int PROGRESS_UNIT = 1024;
+
 	private LineNumberReader reader;
 
 	private ObservationSourceAnalyser analyser;
 
+	private Long sourceSize;
+
+	private int threadCount;
+
 	private String objName;
 
+	// The number of records collected.
+	private int recordNum;
+
+	// Progress made and reported, in characters or records.
+	private long progressAmount;
+	private long progressReported;
+
 	/**
 	 * Constructor
 	 * 
@@ -60,9 +104,46 @@ public class TextFormatObservationReader extends AbstractObservationRetriever {
 	 */
 	public TextFormatObservationReader(LineNumberReader reader,
 			ObservationSourceAnalyser analyser, String velaFilterStr) {
-		super(analyser.getLineCount(), velaFilterStr);
+		this(reader, analyser, null, velaFilterStr);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param reader
+	 *            The reader that is the source of the observation.
+	 * @param analyser
+	 *            An observation file analyser, which need only have analysed
+	 *            the head of the source.
+	 * @param sourceSize
+	 *            The size of the source in bytes, by which progress is
+	 *            measured, or null if not known, in which case progress is
+	 *            measured in lines if the analyser counted them.
+	 * @param velaFilterStr
+	 *            The VeLa filter string to be applied for each observation
+	 *            before being added to the valid observation list.
+	 */
+	public TextFormatObservationReader(LineNumberReader reader,
+			ObservationSourceAnalyser analyser, Long sourceSize,
+			String velaFilterStr) {
+		super(analyser.isLineCountKnown() ? analyser.getLineCount()
+				: DEFAULT_CAPACITY, velaFilterStr);
 		this.reader = reader;
 		this.analyser = analyser;
+		this.sourceSize = sourceSize;
+		this.threadCount = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Set the number of threads used to read and validate records. With one
+	 * thread, records are validated as they are read.
+	 * 
+	 * @param threadCount
+	 *            The number of threads; by default, the number of available
+	 *            processors.
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
 	}
 
 	/**
@@ -70,65 +151,79 @@ public class TextFormatObservationReader extends AbstractObservationRetriever {
 	 */
 	public void retrieveObservations() throws ObservationReadError {
 
+		ExecutorService executor = null;
+
 		try {
 			objName = null;
+			recordNum = 0;
+			progressAmount = 0;
+			progressReported = 0;
 
 			CommonTextFormatValidator validator = this.analyser
 					.getTextFormatValidator(reader);
 
-			int lineNum = 0;
-
-			while (validator.next() && !wasInterrupted()) {
-				// Ignore comment, blank line or column header line
-				// (e.g. JD,Magnitude,...).
-				String line = validator.getRawRecord();
-				lineNum++;
-
-				if (!line.startsWith("#") && !line.matches("^\\s*$")
-						&& !isColumnHeaderLine(line)) {
-
-					try {
-						ValidObservation validOb = validator.validate();
-						if (validOb != null) {
-							addValidObservation(validOb, lineNum);
-						}
-					} catch (ObservationValidationError e) {
-						InvalidObservation invalidOb = new InvalidObservation(
-								validator.getRawRecord(), e.getMessage());
-						invalidOb.setRecordNumber(lineNum);
-						addInvalidObservation(invalidOb);
-					} catch (ObservationValidationWarning e) {
-						InvalidObservation invalidOb = new InvalidObservation(
-								validator.getRawRecord(), e.getMessage(), true);
-						invalidOb.setRecordNumber(lineNum);
-						addInvalidObservation(invalidOb);
-
-						addValidObservation(e.getObservation(), lineNum);
+			// Any comment and blank lines skipped when the head of the source
+			// was analysed precede the rest of the source. Empty lines are
+			// not records, as for the validator's CSV reader.
+			List<Record> skipped = new ArrayList<Record>();
+			for (String line : analyser.getSkippedLines()) {
+				if (!line.isEmpty()) {
+					skipped.add(new Record(line, null));
+				}
+			}
+			collect(validate(skipped));
+
+			// Chunks being validated, in source order; bounded so that the
+			// reader does not get too far ahead of the collector.
+			int workers = Math.max(1, threadCount - 1);
+			Deque<Future<List<Record>>> pending = new ArrayDeque<Future<List<Record>>>();
+
+			List<Record> chunk = readChunk(validator);
+
+			while (!chunk.isEmpty() && !wasInterrupted()) {
+				final List<Record> records = chunk;
+
+				if (threadCount <= 1) {
+					collect(validate(records));
+				} else {
+					if (executor == null) {
+						executor = Executors.newFixedThreadPool(workers);
 					}
-				} else if (line.startsWith("#")) {
-					// Directives
-					String[] pair = line.toUpperCase().split("=");
-					if (pair.length == 2) {
-						if ("#NAME".equals(pair[0])) {
-							objName = pair[1];
-						}
+
+					pending.add(executor.submit(() -> validate(records)));
+
+					if (pending.size() >= 2 * workers) {
+						collect(pending.remove().get());
 					}
 				}
 
-				incrementProgress();
+				chunk = readChunk(validator);
+			}
+
+			while (!pending.isEmpty() && !wasInterrupted()) {
+				collect(pending.remove().get());
 			}
 		} catch (Throwable t) {
 			throw new ObservationReadError(
 					"Error when attempting to read observation source.");
 		} finally {
-			// TODO: once analyser moved into here
-			// lines.clear();
+			if (executor != null) {
+				executor.shutdownNow();
+			}
 		}
 	}
 
 	@Override
 	public Integer getNumberOfRecords() throws ObservationReadError {
-		return analyser.getLineCount();
+		Integer records = null;
+
+		if (sourceSize != null) {
+			records = (int) Math.max(1, sourceSize / PROGRESS_UNIT);
+		} else if (analyser.isLineCountKnown()) {
+			records = analyser.getLineCount();
+		}
+
+		return records;
 	}
 
 	@Override
@@ -158,6 +253,157 @@ public class TextFormatObservationReader extends AbstractObservationRetriever {
 
 	// Helpers
 
+	/**
+	 * A record read from the source and, unless a comment or blank, the result
+	 * of validating it.
+	 */
+	private static class Record {
+		final String line;
+		final String[] values;
+
+		boolean isComment;
+		boolean isBlank;
+		boolean isHeaderCandidate;
+		boolean isRejected;
+
+		ValidObservation validOb;
+		String error;
+		boolean isWarning;
+
+		Record(String line, String[] values) {
+			this.line = line;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Read the next chunk of records.
+	 * 
+	 * @param validator
+	 *            The validator whose line reader reads the source.
+	 * @return The records read, none at the end of the source.
+	 */
+	private List<Record> readChunk(CommonTextFormatValidator validator)
+			throws Exception {
+		List<Record> records = new ArrayList<Record>(CHUNK_SIZE);
+
+		while (records.size() < CHUNK_SIZE && validator.next()) {
+			records.add(new Record(validator.getRawRecord(), validator
+					.getValues()));
+		}
+
+		return records;
+	}
+
+	/**
+	 * Validate a chunk of records, possibly in a worker thread, and without
+	 * reference to the state of this reader (other than the analyser, which is
+	 * not modified).
+	 * 
+	 * @param records
+	 *            The records.
+	 * @return The validated records.
+	 */
+	private List<Record> validate(List<Record> records) throws Exception {
+		// Each chunk is validated by its own validator since validators are
+		// not thread-safe.
+		CommonTextFormatValidator validator = analyser
+				.getTextFormatValidator(new LineNumberReader(
+						new StringReader("")));
+		validator.setPredicate(getPredicate());
+
+		for (Record record : records) {
+			String line = record.line;
+
+			// Ignore comment, blank line or column header line
+			// (e.g. JD,Magnitude,...), which is validated anyway in case it
+			// turns out not to be the first line of data.
+			if (line.startsWith("#")) {
+				record.isComment = true;
+			} else if (ObservationSourceAnalyser.isBlank(line)) {
+				record.isBlank = true;
+			} else {
+				record.isHeaderCandidate = isColumnHeaderCandidate(line);
+
+				validator.setRecord(line, record.values);
+
+				if (!validator.isSelected()) {
+					record.isRejected = true;
+					continue;
+				}
+
+				try {
+					record.validOb = validator.validate();
+				} catch (ObservationValidationError e) {
+					record.error = e.getMessage();
+				} catch (ObservationValidationWarning e) {
+					record.error = e.getMessage();
+					record.isWarning = true;
+					record.validOb = e.getObservation();
+				}
+			}
+		}
+
+		return records;
+	}
+
+	/**
+	 * Collect a chunk of validated records, in source order.
+	 * 
+	 * @param records
+	 *            The validated records.
+	 */
+	private void collect(List<Record> records) throws ObservationReadError {
+		for (Record record : records) {
+			int lineNum = ++recordNum;
+
+			if (record.isComment) {
+				// Directives
+				String[] pair = record.line.toUpperCase().split("=");
+				if (pair.length == 2) {
+					if ("#NAME".equals(pair[0])) {
+						objName = pair[1];
+					}
+				}
+			} else if (!record.isBlank && !record.isRejected
+					&& !(record.isHeaderCandidate && isBeforeFirstObservation())) {
+				if (record.error != null) {
+					InvalidObservation invalidOb = new InvalidObservation(
+							record.line, record.error, record.isWarning);
+					invalidOb.setRecordNumber(lineNum);
+					addInvalidObservation(invalidOb);
+				}
+
+				if (record.validOb != null) {
+					addValidObservation(record.validOb, lineNum);
+				}
+			}
+
+			progressAmount += sourceSize != null ? record.line.length() + 1
+					: 1;
+		}
+
+		reportProgress();
+	}
+
+	/**
+	 * Notify progress listeners of progress made since last reported, in
+	 * whole units.
+	 */
+	private void reportProgress() {
+		long units = sourceSize != null ? progressAmount / PROGRESS_UNIT
+				: progressAmount;
+
+		if (units > progressReported) {
+			Mediator.getInstance()
+					.getProgressNotifier()
+					.notifyListeners(
+							new ProgressInfo(ProgressType.INCREMENT_PROGRESS,
+									(int) (units - progressReported)));
+			progressReported = units;
+		}
+	}
+
 	private void addValidObservation(ValidObservation validOb, int lineNum)
 			throws ObservationReadError {
 		if (validOb.getMType() == MTypeType.STD) {
@@ -166,9 +412,17 @@ public class TextFormatObservationReader extends AbstractObservationRetriever {
 		}
 	}
 
-	// Is the specified line a column header?
-	private boolean isColumnHeaderLine(String line) {
-		return validObservations.isEmpty() && invalidObservations.isEmpty()
-				&& line.matches("^[A-Za-z].+$");
+	// Have no observations, valid or invalid, been collected yet?
+	private boolean isBeforeFirstObservation() {
+		return validObservations.isEmpty() && invalidObservations.isEmpty();
+	}
+
+	// Could the specified line be a column header? This is equivalent to
+	// matching the regular expression ^[A-Za-z].+$, given a line with no line
+	// terminators.
+	private static boolean isColumnHeaderCandidate(String line) {
+		char c = line.isEmpty() ? 0 : line.charAt(0);
+		return line.length() > 1
+				&& ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'));
 	}
 }
@@ -18,7 +18,7 @@
 package org.aavso.tools.vstar.plugin;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -39,16 +39,18 @@ public abstract class ObservationSinkPluginBase implements IPlugin {
 	protected boolean testMode = false;
 
 	/**
-	 * Save the specified observations.
+	 * Save the specified observations. Plug-ins that save observations in a
+	 * text format may instead extend TextFormatObservationSinkPluginBase and
+	 * write to a PrintWriter.
 	 * 
-	 * @param writer
-	 *            A text writer.
+	 * @param stream
+	 *            An output stream, which is flushed but not closed.
 	 * @param obs
 	 *            A list of observations.
 	 * @param delimiter
 	 *            The field delimiter to use; may be null.
 	 */
-	abstract public void save(PrintWriter writer,
+	abstract public void save(OutputStream stream,
 			List<ValidObservation> obs, String delimiter) throws IOException;
 
 	/**
@@ -27,10 +27,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
 
 import org.aavso.tools.vstar.data.SeriesType;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.ObservationPredicate;
+import org.aavso.tools.vstar.input.ParallelIngester;
+import org.aavso.tools.vstar.input.ParallelIngester.SourceDecoder;
 import org.aavso.tools.vstar.ui.mediator.NewStarType;
 import org.aavso.tools.vstar.ui.resources.LoginInfo;
 
@@ -60,6 +65,8 @@ public abstract class ObservationSourcePluginBase implements IPlugin {
 
 	protected String velaFilterStr;
 
+	protected ObservationPredicate predicate;
+
 	/**
 	 * Constructor
 	 * 
@@ -72,6 +79,7 @@ public abstract class ObservationSourcePluginBase implements IPlugin {
 		streamNameMap = new HashMap<InputStream, String>();
 		isAdditive = false;
 		velaFilterStr = "";
+		predicate = ObservationPredicate.ALL;
 	}
 
 	/**
@@ -96,6 +104,23 @@ public abstract class ObservationSourcePluginBase implements IPlugin {
 	 */
 	public abstract AbstractObservationRetriever getObservationRetriever() throws IOException, ObservationReadError;
 
+	/**
+	 * Get an observation retriever via getObservationRetriever() and push this
+	 * plug-in's predicate down into it.
+	 *
+	 * @return An observation retriever, or null if none was created, e.g. because
+	 *         a plug-in's configuration dialog was cancelled.
+	 */
+	public AbstractObservationRetriever createObservationRetriever() throws IOException, ObservationReadError {
+		AbstractObservationRetriever retriever = getObservationRetriever();
+
+		if (retriever != null) {
+			retriever.setPredicate(predicate);
+		}
+
+		return retriever;
+	}
+
 	/**
 	 * Get the name of the star associated with the current observation dataset.
 	 * 
@@ -324,6 +349,58 @@ public abstract class ObservationSourcePluginBase implements IPlugin {
 		this.velaFilterStr = velaFilterStr;
 	}
 
+	/**
+	 * @return the predicate that retrieved observations must satisfy
+	 */
+	public ObservationPredicate getPredicate() {
+		return predicate;
+	}
+
+	/**
+	 * Set the predicate that retrieved observations must satisfy, which is
+	 * passed to this plug-in's observation retriever so that records can be
+	 * rejected as soon as their time, band or observer code has been read.
+	 * 
+	 * @param predicate the predicate; null accepts all observations
+	 */
+	public void setPredicate(ObservationPredicate predicate) {
+		this.predicate = predicate == null ? ObservationPredicate.ALL : predicate;
+	}
+
+	/**
+	 * <p>
+	 * Decode this plug-in's input streams concurrently, e.g. when multiple
+	 * files have been selected (see isMultipleFileSelectionAllowed()), with at
+	 * most ParallelIngester.DEFAULT_MAX_THREADS streams being decoded at once.
+	 * </p>
+	 * 
+	 * <p>
+	 * Each stream is decoded into a chunk of observations sorted by JD, and
+	 * the chunks are then merged on JD. An observation retriever can then
+	 * collect the ingester's valid observations in order (e.g. via
+	 * collectObservationBatch()) and add its invalid observations.
+	 * </p>
+	 * 
+	 * @param decoder       Decodes an input stream, given its index.
+	 * @param stopRequested Has a stop been requested? If so, decoding is
+	 *                      abandoned; typically the retriever's
+	 *                      wasInterrupted() method.
+	 * @param streamDecoded Called with the index of each stream as it is
+	 *                      decoded or fails to be decoded, e.g. to report
+	 *                      progress per stream; may be null.
+	 * @return The ingester, holding observations and decoding errors, or null
+	 *         if a stop was requested before all streams were decoded.
+	 * @throws InterruptedException if the current thread was interrupted while
+	 *                              waiting for streams to be decoded.
+	 */
+	public ParallelIngester<InputStream> ingestInputStreams(SourceDecoder<InputStream> decoder,
+			BooleanSupplier stopRequested, IntConsumer streamDecoded) throws InterruptedException {
+		ParallelIngester<InputStream> ingester = new ParallelIngester<InputStream>(
+				ParallelIngester.DEFAULT_MAX_THREADS, stopRequested);
+
+		return ingester.ingest(getInputStreams(), decoder, streamDecoded) ? ingester : null;
+	}
+
 	/**
 	 * This method returns the NewStarType enumerated value. Most observation
 	 * sources will use the default implementation, a few may override it.
@@ -376,7 +453,7 @@ public abstract class ObservationSourcePluginBase implements IPlugin {
 		setInputInfo(streams, inputName);
 
 		AbstractObservationRetriever retriever = getObservationRetriever();
-		retriever.retrieveObservations();
+		retriever.retrieve();
 
 		return retriever;
 	}
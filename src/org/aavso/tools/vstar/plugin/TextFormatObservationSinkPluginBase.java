@@ -0,0 +1,79 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package org.aavso.tools.vstar.plugin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * <p>
+ * This is the base class for observation sink plug-ins that save observations
+ * in a text format.
+ * </p>
+ * <p>
+ * Observations are written to a PrintWriter, the text being encoded in the
+ * character set given by getCharset(), UTF-8 unless overridden.
+ * </p>
+ */
+public abstract class TextFormatObservationSinkPluginBase extends
+		ObservationSinkPluginBase {
+
+	/**
+	 * Save the specified observations.
+	 * 
+	 * @param writer
+	 *            A text writer.
+	 * @param obs
+	 *            A list of observations.
+	 * @param delimiter
+	 *            The field delimiter to use; may be null.
+	 */
+	abstract public void save(PrintWriter writer,
+			List<ValidObservation> obs, String delimiter) throws IOException;
+
+	/**
+	 * Save the specified observations as text via save(PrintWriter, List,
+	 * String), encoded in the character set given by getCharset().
+	 * 
+	 * @see org.aavso.tools.vstar.plugin.ObservationSinkPluginBase#save(java.io.OutputStream,
+	 *      java.util.List, java.lang.String)
+	 */
+	@Override
+	public void save(OutputStream stream, List<ValidObservation> obs,
+			String delimiter) throws IOException {
+		PrintWriter writer = new PrintWriter(new BufferedWriter(
+				new OutputStreamWriter(stream, getCharset())));
+		save(writer, obs, delimiter);
+		writer.flush();
+	}
+
+	/**
+	 * @return the character set in which text is saved
+	 */
+	public Charset getCharset() {
+		return StandardCharsets.UTF_8;
+	}
+}
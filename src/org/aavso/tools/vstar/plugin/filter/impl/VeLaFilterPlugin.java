@@ -18,7 +18,6 @@
 package org.aavso.tools.vstar.plugin.filter.impl;
 
 import java.util.List;
-import java.util.Optional;
 
 import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.plugin.CustomFilterPluginBase;
@@ -26,12 +25,10 @@ import org.aavso.tools.vstar.ui.dialog.MessageBox;
 import org.aavso.tools.vstar.util.Logic;
 import org.aavso.tools.vstar.util.Pair;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
-import org.aavso.tools.vstar.vela.Operand;
-import org.aavso.tools.vstar.vela.Type;
+import org.aavso.tools.vstar.vela.CompiledVeLaProgram;
 import org.aavso.tools.vstar.vela.VeLaEvalError;
 import org.aavso.tools.vstar.vela.VeLaInterpreter;
 import org.aavso.tools.vstar.vela.VeLaParseError;
-import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment;
 
 /**
  * This filter plug-in allows for the creation of complex VeLa expressions for
@@ -74,14 +71,17 @@ public class VeLaFilterPlugin extends CustomFilterPluginBase {
 			velaFilterExpr = dialog.getVeLaExpression();
 
 			try {
-				for (ValidObservation ob : obs) {
-					vela.pushEnvironment(new VeLaValidObservationEnvironment(ob));
+				// Parse the filter expression once for all observations.
+				CompiledVeLaProgram velaFilter = vela
+						.compileForObservations(velaFilterExpr);
 
-					Optional<Operand> result = vela.program(velaFilterExpr);
-					
-					boolean does_match = result.isPresent()
-							&& result.get().getType() == Type.BOOLEAN
-							&& result.get().booleanVal();
+				// Evaluate the filter over the whole batch of observations.
+				boolean[] matches = velaFilter.evaluateBatch(obs);
+
+				for (int i = 0; i < matches.length; i++) {
+					ValidObservation ob = obs.get(i);
+
+					boolean does_match = matches[i];
 
 					if (does_match) {
 						/**
@@ -101,8 +101,6 @@ public class VeLaFilterPlugin extends CustomFilterPluginBase {
 							addToSubset(ob);
 						}
 					}
-
-					vela.popEnvironment();
 				}
 
 				repr = new Pair<String, String>(dialog.getFilterName(),
@@ -0,0 +1,92 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.plugin.ob.sink.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.aavso.tools.vstar.data.ObservationStore;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.input.BinaryObservationFile;
+import org.aavso.tools.vstar.plugin.ObservationSinkPluginBase;
+import org.aavso.tools.vstar.ui.mediator.Mediator;
+import org.aavso.tools.vstar.ui.mediator.message.ProgressInfo;
+import org.aavso.tools.vstar.util.locale.LocaleProps;
+
+/**
+ * An observation sink plugin for VStar binary dataset file saves (see
+ * BinaryObservationFile).
+ */
+public class BinaryFormatObservationSinkPlugin extends
+		ObservationSinkPluginBase {
+
+	private final static Map<String, String> DELIMS;
+	private final static Map<String, String> SUFFIXES;
+
+	static {
+		// Fields are not delimited, but the file save dialog selects a
+		// suffix by delimiter.
+		DELIMS = new TreeMap<String, String>();
+		DELIMS.put("None", "");
+
+		SUFFIXES = new TreeMap<String, String>();
+		SUFFIXES.put("None", BinaryObservationFile.SUFFIX);
+	}
+
+	@Override
+	public void save(OutputStream stream, List<ValidObservation> obs,
+			String delimiter) throws IOException {
+		ObservationStore store = new ObservationStore(Math.max(obs.size(), 1));
+
+		for (ValidObservation ob : obs) {
+			// Exclude excluded observations from the output file, as for
+			// text format files.
+			if (!ob.isExcluded()) {
+				store.add(ob);
+			}
+
+			Mediator.getInstance().getProgressNotifier()
+					.notifyListeners(ProgressInfo.INCREMENT_PROGRESS);
+		}
+
+		BinaryObservationFile.write(stream, store);
+	}
+
+	@Override
+	public Map<String, String> getDelimiterNameValuePairs() {
+		return DELIMS;
+	}
+
+	@Override
+	public Map<String, String> getDelimiterSuffixValuePairs() {
+		return SUFFIXES;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return LocaleProps.get("BINARY_FORMAT_FILE");
+	}
+
+	@Override
+	public String getDescription() {
+		return "Save as VStar binary dataset file.";
+	}
+}
@@ -20,13 +20,14 @@ package org.aavso.tools.vstar.plugin.ob.sink.impl;
 import java.util.Map;
 import java.util.TreeMap;
 
-import org.aavso.tools.vstar.plugin.ObservationSinkPluginBase;
+import org.aavso.tools.vstar.plugin.TextFormatObservationSinkPluginBase;
 import org.aavso.tools.vstar.util.help.Help;
 
 /**
  * Common base class for text format sink plugins.
  */
-public abstract class CommonTextFormatSinkPluginBase extends ObservationSinkPluginBase {
+public abstract class CommonTextFormatSinkPluginBase extends
+		TextFormatObservationSinkPluginBase {
 	protected final static Map<String, String> DELIMS;
 	protected final static Map<String, String> SUFFIXES;
 
@@ -0,0 +1,276 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.plugin.ob.src.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * <p>
+ * Reads one page of an AID web service response with a streaming (StAX)
+ * parser, so that observations can be collected as the page is read rather
+ * than after the whole page has been parsed into a document.
+ * </p>
+ *
+ * <p>
+ * Observations are either the attributes of Observation elements or CSV text
+ * in a Data element. The page's observation count, present if more pages
+ * follow, is given by a Count element or a Data element's Count attribute,
+ * and is noted as the page is read.
+ * </p>
+ */
+public class AIDPageReader {
+
+	// The size of the chunks in which the parser reports long text, e.g. CSV
+	// data, rather than all at once; a JDK parser property.
+	private static final String CDATA_CHUNK_SIZE_PROPERTY = "jdk.xml.cdataChunkSize";
+	private static final int CDATA_CHUNK_SIZE = 8192;
+
+	private final InputStream stream;
+	private final XMLStreamReader reader;
+
+	private Integer obsCount;
+	private int dataElementCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param stream
+	 *            The page's input stream, from which characters not permitted
+	 *            in XML 1.0 are filtered out; closed by close().
+	 * @throws XMLStreamException
+	 *             if the page cannot be read.
+	 */
+	public AIDPageReader(InputStream stream) throws XMLStreamException {
+		this.stream = stream;
+		// Factories are not necessarily thread-safe, and concurrent loads
+		// may read pages at once.
+		reader = createFactory().createXMLStreamReader(
+				new UTF8FilteringInputStream(stream));
+		obsCount = null;
+		dataElementCount = 0;
+	}
+
+	/**
+	 * Advance to the next element with the specified name.
+	 *
+	 * @param name
+	 *            The element's local name.
+	 * @return Whether such an element was found before the end of the page.
+	 * @throws XMLStreamException
+	 *             if the page cannot be read.
+	 */
+	public boolean nextElement(String name) throws XMLStreamException {
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+				String localName = reader.getLocalName();
+
+				if ("Count".equals(localName)) {
+					obsCount = parseCount(reader.getElementText());
+				} else if ("Data".equals(localName)) {
+					dataElementCount++;
+					String count = reader.getAttributeValue(null, "Count");
+					if (count != null) {
+						obsCount = parseCount(count);
+					}
+				}
+
+				if (name.equals(localName)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Read the remainder of the page, e.g. to find an observation count
+	 * following the observations.
+	 *
+	 * @throws XMLStreamException
+	 *             if the page cannot be read.
+	 */
+	public void finish() throws XMLStreamException {
+		nextElement("");
+	}
+
+	/**
+	 * @return the number of attributes of the current element
+	 */
+	public int getAttributeCount() {
+		return reader.getAttributeCount();
+	}
+
+	/**
+	 * @param n
+	 *            The index of an attribute of the current element.
+	 * @return the attribute's local name
+	 */
+	public String getAttributeName(int n) {
+		return reader.getAttributeLocalName(n);
+	}
+
+	/**
+	 * @param n
+	 *            The index of an attribute of the current element.
+	 * @return the attribute's value
+	 */
+	public String getAttributeValue(int n) {
+		return reader.getAttributeValue(n);
+	}
+
+	/**
+	 * Return a reader of the current element's text, e.g. CSV data in a CDATA
+	 * section, which is parsed as it is read. The page must not otherwise be
+	 * read until the text has been read.
+	 *
+	 * @return The reader.
+	 */
+	public Reader getElementTextReader() {
+		return new ElementTextReader();
+	}
+
+	/**
+	 * @return the page's observation count, or null if none has been read,
+	 *         i.e. if no more pages follow once the page has been read
+	 */
+	public Integer getObsCount() {
+		return obsCount;
+	}
+
+	/**
+	 * @return the number of Data elements read
+	 */
+	public int getDataElementCount() {
+		return dataElementCount;
+	}
+
+	/**
+	 * Return the number of the page following this one, once this page has
+	 * been read.
+	 *
+	 * @param pageNum
+	 *            This page's number.
+	 * @return The next page number, or null if no more pages follow.
+	 */
+	public Integer getNextPageNum(Integer pageNum) {
+		return pageNum != null && obsCount != null ? pageNum + 1 : null;
+	}
+
+	/**
+	 * Close the page's parser and input stream.
+	 */
+	public void close() {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			// Nothing to do.
+		}
+
+		try {
+			stream.close();
+		} catch (IOException e) {
+			// Nothing to do.
+		}
+	}
+
+	// Helpers
+
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+		try {
+			factory.setProperty(CDATA_CHUNK_SIZE_PROPERTY, CDATA_CHUNK_SIZE);
+		} catch (IllegalArgumentException e) {
+			// Not a JDK parser, which may report text all at once.
+		}
+
+		return factory;
+	}
+
+	private Integer parseCount(String count) {
+		count = count.trim();
+		return count.length() != 0 ? Integer.parseInt(count) : null;
+	}
+
+	/**
+	 * A reader of the current element's text, obtained from the parser chunk
+	 * by chunk.
+	 */
+	private class ElementTextReader extends Reader {
+
+		private String chunk = "";
+		private int pos = 0;
+		private boolean ended = false;
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+
+			while (pos == chunk.length()) {
+				if (ended) {
+					return -1;
+				}
+
+				try {
+					switch (reader.next()) {
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						chunk = reader.getText();
+						pos = 0;
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						ended = true;
+						break;
+					case XMLStreamConstants.START_ELEMENT:
+						throw new IOException("Unexpected element in text: "
+								+ reader.getLocalName());
+					default:
+						// Comments, processing instructions.
+						break;
+					}
+				} catch (XMLStreamException e) {
+					throw new IOException(e.getLocalizedMessage(), e);
+				}
+			}
+
+			int n = Math.min(len, chunk.length() - pos);
+			chunk.getChars(pos, pos + n, cbuf, off);
+			pos += n;
+
+			return n;
+		}
+
+		@Override
+		public void close() {
+			// The page is closed by its reader.
+		}
+	}
+}
@@ -17,19 +17,12 @@
  */
 package org.aavso.tools.vstar.plugin.ob.src.impl;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import org.aavso.tools.vstar.data.DateInfo;
 import org.aavso.tools.vstar.data.InvalidObservation;
 import org.aavso.tools.vstar.data.MTypeType;
@@ -40,15 +33,11 @@ import org.aavso.tools.vstar.data.ValidationType;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.cache.ObservationCache;
+import org.aavso.tools.vstar.input.database.PagePrefetcher;
 import org.aavso.tools.vstar.ui.VStar;
 import org.aavso.tools.vstar.ui.mediator.StarInfo;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
-import org.w3c.dom.CharacterData;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import com.csvreader.CsvReader;
 
@@ -85,28 +74,53 @@ public class AIDWebServiceCSV2ObservationSourcePlugin extends
 			}
 		}
 
+		String seriesStr = seriesBuf.toString();
+		String obsCodes = starSelector.getObsCodes();
+		boolean minFields = starSelector.loadMinimalFields();
+
+		// Observations for the requested range, series and so on may have
+		// been cached by a previous request. The whole time range is from
+		// the earliest observation to now.
+		double minJD;
+		double maxJD;
+
 		if (starSelector.wantAllData()) {
+			minJD = Double.NEGATIVE_INFINITY;
+			maxJD = currentJD();
+		} else {
+			minJD = starSelector.getMinDate().getJulianDay();
+			maxJD = starSelector.getMaxDate().getJulianDay();
+		}
+
+		ObservationCache.Key key = new ObservationCache.Key(getClass()
+				.getName(), auid, "band=" + seriesStr + "&obscode=" + obsCodes
+				+ "&minfields=" + minFields + "&filter=" + getVelaFilterStr());
+
+		Double fromJD = lookUpCache(key, minJD, maxJD);
+
+		if (fromJD != null && fromJD == Double.NEGATIVE_INFINITY) {
 			// Request AID data for object over whole time range and for the
 			// requested series.
-			urlStr = createAIDUrlForAUID(auid, seriesBuf.toString(),
-					starSelector.getObsCodes(),
-					starSelector.loadMinimalFields());
+			urlStr = createAIDUrlForAUID(auid, seriesStr, obsCodes, minFields);
 		} else {
 			// Request AID data for object over a range and for the
-			// requested series.
-			urlStr = createAIDUrlForAUID(auid, starSelector.getMinDate()
-					.getJulianDay(), starSelector.getMaxDate().getJulianDay(),
-					seriesBuf.toString(), starSelector.getObsCodes(),
-					starSelector.loadMinimalFields());
+			// requested series; only for the range not cached, if any.
+			urlStr = createAIDUrlForAUID(auid, fromJD != null ? fromJD
+					: minJD, maxJD, seriesStr, obsCodes, minFields);
 		}
 
-		urlStrs.add(urlStr);
+		if (fromJD != null) {
+			urlStrs.add(urlStr);
+		}
 
 		return urlStr;
 	}
 
 	class VSXAIDCSVObservationRetriever extends AbstractObservationRetriever {
 
+		// The number of observations collected at once as a page is read.
+		private static final int BATCH_SIZE = 1000;
+
 		public VSXAIDCSVObservationRetriever() {
 			super(getVelaFilterStr());
 			info.setRetriever(this);
@@ -126,50 +140,17 @@ public class AIDWebServiceCSV2ObservationSourcePlugin extends
 		public void retrieveObservations() throws ObservationReadError,
 				InterruptedException {
 
-			// Read observations over potentially many "pages" for each URL.
-			String urlStr = urlStrs.get(0);
-
-			Integer pageNum = 1;
+			// Collect any cached observations, then retrieve the rest, if
+			// any.
+			collectObservationBatch(getCachedObservations());
 
-			do {
-				try {
-					String currUrlStr = urlStr;
-					if (pageNum != null) {
-						currUrlStr += "&page=" + pageNum;
-					}
+			if (!urlStrs.isEmpty()) {
+				retrievePages(urlStrs.get(0));
+			}
 
-					URL vsxUrl = new URL(currUrlStr);
-
-					DocumentBuilderFactory factory = DocumentBuilderFactory
-							.newInstance();
-					DocumentBuilder builder = factory.newDocumentBuilder();
-
-					InputStream stream = new UTF8FilteringInputStream(
-							vsxUrl.openStream());
-					Document document = builder.parse(stream);
-
-					document.getDocumentElement().normalize();
-
-					pageNum = requestObservationDetails(document, pageNum);
-
-				} catch (MalformedURLException e) {
-					throw new ObservationReadError(
-							"Unable to obtain information for "
-									+ info.getDesignation());
-				} catch (ParserConfigurationException e) {
-					throw new ObservationReadError(
-							"Unable to obtain information for "
-									+ info.getDesignation());
-				} catch (SAXException e) {
-					throw new ObservationReadError(
-							"Unable to obtain information for "
-									+ info.getDesignation());
-				} catch (IOException e) {
-					throw new ObservationReadError(
-							"Unable to obtain information for "
-									+ info.getDesignation());
-				}
-			} while (pageNum != null && !interrupted);
+			if (!interrupted) {
+				updateCache(getValidObservations());
+			}
 		}
 
 		@Override
@@ -185,97 +166,119 @@ public class AIDWebServiceCSV2ObservationSourcePlugin extends
 		// Helpers
 
 		/**
-		 * Retrieve all observation details from the document.
+		 * Retrieve observations over potentially many "pages", fetching later
+		 * pages while earlier ones are collected.
 		 * 
-		 * @param document
-		 *            The document from which to extract observations.
-		 * @param pageNum
-		 *            The page number of the document to read.
-		 * @return The next page number to read or null if not a multi-page
-		 *         document.
-		 * @throws ObservationReadError
-		 *             If an error occurs when reading the document.
+		 * @param urlStr
+		 *            The URL, to which a page number is appended for each page.
 		 */
-		private Integer requestObservationDetails(Document document,
-				Integer pageNum) throws ObservationReadError {
+		private void retrievePages(String urlStr) throws ObservationReadError,
+				InterruptedException {
 
-			// Has an observation count been supplied?
-			// If so, more observations remain than the ones about to be
-			// retrieved here.
-			Integer obsCount = null;
+			PagePrefetcher<InputStream> pages = createPagePrefetcher(urlStr,
+					this::wasInterrupted);
 
-			NodeList obsCountNodes = document.getElementsByTagName("Count");
-			if (obsCountNodes.getLength() != 0) {
-				Element obsCountElt = (Element) obsCountNodes.item(0);
-				obsCount = Integer.parseInt(obsCountElt.getTextContent());
-			}
+			try {
+				Integer pageNum = 1;
+
+				do {
+					InputStream page = pages.next();
+					if (page == null) {
+						break;
+					}
 
-			if (obsCount == null) {
-				pageNum = null;
+					pageNum = requestObservationDetails(page, pageNum);
+				} while (pageNum != null && !interrupted);
+			} catch (ObservationReadError e) {
+				throw e;
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new ObservationReadError(
+						"Unable to obtain information for "
+								+ info.getDesignation());
+			} finally {
+				pages.close();
 			}
+		}
 
-			NodeList dataNodes = document.getElementsByTagName("Data");
+		/**
+		 * Retrieve all observation details from a page, collecting them as
+		 * the page is read.
+		 * 
+		 * @param stream
+		 *            The page's input stream.
+		 * @param pageNum
+		 *            The page number of the page to read.
+		 * @return The next page number to read or null if not a multi-page
+		 *         response or this is the last page.
+		 * @throws ObservationReadError
+		 *             If an error occurs when reading the page.
+		 */
+		private Integer requestObservationDetails(InputStream stream,
+				Integer pageNum) throws ObservationReadError {
 
-			if (dataNodes.getLength() != 0) {
-				Element dataElt = (Element) dataNodes.item(0);
-				String data = getCharacterDataFromElement(dataElt);
+			// If an observation count is supplied, more observations remain
+			// than the ones about to be retrieved here. The page reader notes
+			// it wherever it appears in the page.
+			AIDPageReader page = null;
 
-				BufferedReader streamReader = new BufferedReader(
-						new StringReader(data));
+			try {
+				page = new AIDPageReader(stream);
 
-				try {
-					CsvReader csvReader = new CsvReader(streamReader);
+				if (page.nextElement("Data")) {
+					CsvReader csvReader = new CsvReader(
+							page.getElementTextReader());
 
 					if (csvReader.readHeaders()) {
 						int recordNum = 1;
 
+						// Collect observations in batches so that any VeLa
+						// filter is applied to many of them at once.
+						List<ValidObservation> batch = new ArrayList<ValidObservation>(
+								BATCH_SIZE);
+
 						while (csvReader.readRecord()) {
 							ValidObservation ob = retrieveNextObservation(
 									csvReader, recordNum);
 
 							if (ob != null) {
-								collectObservation(ob);
+								batch.add(ob);
+
+								if (batch.size() == BATCH_SIZE) {
+									collectObservationBatch(batch);
+									batch.clear();
+								}
 							}
 
 							incrementProgress();
 
 							recordNum++;
 						}
+
+						collectObservationBatch(batch);
 					} else {
 						throw new ObservationReadError(
 								"No CSV header in AID data stream");
 					}
-				} catch (Exception e) {
-					throw new ObservationReadError(e.getLocalizedMessage());
-				}
-			} else {
-				pageNum = null;
-			}
 
-			if (pageNum != null) {
-				pageNum++;
-			}
+					page.finish();
 
-			return pageNum;
-		}
-
-		/**
-		 * Extract and return CDATA element text from the specified element.
-		 * 
-		 * @param e
-		 *            The element possibly containing CDATA
-		 * @return The element's CDATA text
-		 */
-		private String getCharacterDataFromElement(Element e) {
-			String data = "";
-
-			Node child = e.getFirstChild();
-			if (child instanceof CharacterData) {
-				CharacterData cd = (CharacterData) child;
-				data = cd.getData();
+					pageNum = page.getNextPageNum(pageNum);
+				} else {
+					pageNum = null;
+				}
+			} catch (ObservationReadError e) {
+				throw e;
+			} catch (Exception e) {
+				throw new ObservationReadError(e.getLocalizedMessage());
+			} finally {
+				if (page != null) {
+					page.close();
+				}
 			}
 
-			return data;
+			return pageNum;
 		}
 
 		/**
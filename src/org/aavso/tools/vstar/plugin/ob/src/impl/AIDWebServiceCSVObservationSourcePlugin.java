@@ -17,16 +17,8 @@
  */
 package org.aavso.tools.vstar.plugin.ob.src.impl;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 
 import org.aavso.tools.vstar.data.DateInfo;
 import org.aavso.tools.vstar.data.InvalidObservation;
@@ -38,14 +30,9 @@ import org.aavso.tools.vstar.data.ValidationType;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.database.PagePrefetcher;
 import org.aavso.tools.vstar.ui.mediator.StarInfo;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
-import org.w3c.dom.CharacterData;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 import com.csvreader.CsvReader;
 
@@ -116,49 +103,34 @@ public class AIDWebServiceCSVObservationSourcePlugin extends
 				InterruptedException {
 
 			// Iterate over each series-based URL reading observations over
-			// potentially many "pages" for each URL.
+			// potentially many "pages" for each URL, fetching later pages
+			// while earlier ones are collected.
 			for (String urlStr : urlStrs) {
-				Integer pageNum = 1;
-
-				do {
-					try {
-						String currUrlStr = urlStr;
-						if (pageNum != null) {
-							currUrlStr += "&page=" + pageNum;
-						}
-
-						URL vsxUrl = new URL(currUrlStr);
+				PagePrefetcher<InputStream> pages = createPagePrefetcher(urlStr,
+						this::wasInterrupted);
 
-						DocumentBuilderFactory factory = DocumentBuilderFactory
-								.newInstance();
-						DocumentBuilder builder = factory.newDocumentBuilder();
-
-						InputStream stream = new UTF8FilteringInputStream(
-								vsxUrl.openStream());
-						Document document = builder.parse(stream);
-
-						document.getDocumentElement().normalize();
+				try {
+					Integer pageNum = 1;
 
-						pageNum = requestObservationDetails(document, pageNum);
+					do {
+						InputStream page = pages.next();
+						if (page == null) {
+							break;
+						}
 
-					} catch (MalformedURLException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					} catch (ParserConfigurationException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					} catch (SAXException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					} catch (IOException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					}
-				} while (pageNum != null && !interrupted);
+						pageNum = requestObservationDetails(page, pageNum);
+					} while (pageNum != null && !interrupted);
+				} catch (ObservationReadError e) {
+					throw e;
+				} catch (InterruptedException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new ObservationReadError(
+							"Unable to obtain information for "
+									+ info.getDesignation());
+				} finally {
+					pages.close();
+				}
 			}
 		}
 
@@ -175,46 +147,32 @@ public class AIDWebServiceCSVObservationSourcePlugin extends
 		// Helpers
 
 		/**
-		 * Retrieve all observation details from the document.
+		 * Retrieve all observation details from a page, collecting them as
+		 * the page is read.
 		 * 
-		 * @param document
-		 *            The document from which to extract observations.
+		 * @param stream
+		 *            The page's input stream.
 		 * @param pageNum
-		 *            The page number of the document to read.
+		 *            The page number of the page to read.
 		 * @return The next page number to read or null if not a multi-page
-		 *         document.
+		 *         response or this is the last page.
 		 * @throws ObservationReadError
-		 *             If an error occurs when reading the document.
+		 *             If an error occurs when reading the page.
 		 */
-		private Integer requestObservationDetails(Document document,
+		private Integer requestObservationDetails(InputStream stream,
 				Integer pageNum) throws ObservationReadError {
 
-			// Has an observation count been supplied?
-			// If so, more observations remain than the ones about to be
-			// retrieved here.
-			Integer obsCount = null;
-
-			NodeList obsCountNodes = document.getElementsByTagName("Count");
-			if (obsCountNodes.getLength() != 0) {
-				Element obsCountElt = (Element) obsCountNodes.item(0);
-				obsCount = Integer.parseInt(obsCountElt.getTextContent());
-			}
-
-			if (obsCount == null) {
-				pageNum = null;
-			}
+			// If an observation count is supplied, more observations remain
+			// than the ones about to be retrieved here. The page reader notes
+			// it wherever it appears in the page.
+			AIDPageReader page = null;
 
-			NodeList dataNodes = document.getElementsByTagName("Data");
-
-			if (dataNodes.getLength() == 1) {
-				Element dataElt = (Element) dataNodes.item(0);
-				String data = getCharacterDataFromElement(dataElt);
-
-				try {
-					BufferedReader streamReader = new BufferedReader(
-							new StringReader(data));
+			try {
+				page = new AIDPageReader(stream);
 
-					CsvReader csvReader = new CsvReader(streamReader);
+				if (page.nextElement("Data")) {
+					CsvReader csvReader = new CsvReader(
+							page.getElementTextReader());
 
 					if (csvReader.readHeaders()) {
 						while (csvReader.readRecord()) {
@@ -230,38 +188,27 @@ public class AIDWebServiceCSVObservationSourcePlugin extends
 						throw new ObservationReadError(
 								"No CSV header in AID data stream");
 					}
-				} catch (Exception e) {
-					throw new ObservationReadError(e.getLocalizedMessage());
-				}
-			} else {
-				throw new ObservationReadError(
-						"Only one Data element expected in CSV AID data stream");
-			}
-
-			if (pageNum != null) {
-				pageNum++;
-			}
 
-			return pageNum;
-		}
+					page.finish();
+				}
 
-		/**
-		 * Extract and return CDATA element text from the specified element.
-		 * 
-		 * @param e
-		 *            The element possibly containing CDATA
-		 * @return The element's CDATA text
-		 */
-		private String getCharacterDataFromElement(Element e) {
-			String data = "";
+				if (page.getDataElementCount() != 1) {
+					throw new ObservationReadError(
+							"Only one Data element expected in CSV AID data stream");
+				}
 
-			Node child = e.getFirstChild();
-			if (child instanceof CharacterData) {
-				CharacterData cd = (CharacterData) child;
-				data = cd.getData();
+				pageNum = page.getNextPageNum(pageNum);
+			} catch (ObservationReadError e) {
+				throw e;
+			} catch (Exception e) {
+				throw new ObservationReadError(e.getLocalizedMessage());
+			} finally {
+				if (page != null) {
+					page.close();
+				}
 			}
 
-			return data;
+			return pageNum;
 		}
 
 		/**
@@ -17,19 +17,32 @@
  */
 package org.aavso.tools.vstar.plugin.ob.src.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
 
 import org.aavso.tools.vstar.data.MTypeType;
 import org.aavso.tools.vstar.data.Magnitude;
 import org.aavso.tools.vstar.data.MagnitudeModifier;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.data.ValidationType;
 import org.aavso.tools.vstar.data.validation.MagnitudeFieldValidator;
 import org.aavso.tools.vstar.exception.CancellationException;
+import org.aavso.tools.vstar.input.ObservationPredicate;
+import org.aavso.tools.vstar.input.cache.ObservationCache;
+import org.aavso.tools.vstar.input.database.PagePrefetcher;
 import org.aavso.tools.vstar.input.database.VSXWebServiceStarInfoSource;
 import org.aavso.tools.vstar.plugin.InputType;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
+import org.aavso.tools.vstar.ui.VStar;
 import org.aavso.tools.vstar.ui.dialog.StarSelectorDialog;
 import org.aavso.tools.vstar.ui.mediator.NewStarType;
 import org.aavso.tools.vstar.ui.mediator.StarInfo;
@@ -41,6 +54,8 @@ public abstract class AIDWebServiceObservationSourcePluginBase extends
 		ObservationSourcePluginBase {
 
 	protected static final int MAX_OBS_AT_ONCE = 50000;
+	protected static final double UNIX_EPOCH_JD = 2440587.5;
+	protected static final double MILLIS_PER_DAY = 86400000.0;
 	protected static final String BASE_URL = ResourceAccessor.getVsxApiUrlBase();
 	protected String view;
 	protected String method;
@@ -48,6 +63,21 @@ public abstract class AIDWebServiceObservationSourcePluginBase extends
 	protected StarInfo info;
 	protected StarSelectorDialog starSelector;
 	protected List<String> urlStrs;
+	protected int pagesInFlight = PagePrefetcher.DEFAULT_PAGES_IN_FLIGHT;
+
+	// The observation cache, if any, and whether to retrieve all requested
+	// observations again, replacing any cached.
+	protected ObservationCache cache = ObservationCache.getInstance();
+	protected boolean refreshCache = false;
+
+	// The cache key and JD range of the current request, and the cached
+	// observations with which the request is served; no key if the request is
+	// not cached.
+	protected ObservationCache.Key cacheKey;
+	protected double cacheMinJD;
+	protected double cacheMaxJD;
+	protected ObservationCache.Entry cacheEntry;
+	protected List<ValidObservation> cachedObs;
 
 	/**
 	 * Constructor
@@ -245,6 +275,7 @@ public abstract class AIDWebServiceObservationSourcePluginBase extends
 
 		if (!starSelector.isCancelled()) {
 			setAdditive(starSelector.isLoadAdditive());
+			setRefreshCache(starSelector.refreshCachedData());
 
 			String auid = starSelector.getAuid();
 			String starName = starSelector.getStarName();
@@ -278,6 +309,17 @@ public abstract class AIDWebServiceObservationSourcePluginBase extends
 
 			setVelaFilterStr(starSelector.getVeLaFilter());
 
+			Double minJD = null;
+			Double maxJD = null;
+			if (!starSelector.wantAllData()) {
+				minJD = starSelector.getMinDate().getJulianDay();
+				maxJD = starSelector.getMaxDate().getJulianDay();
+			}
+
+			setPredicate(createPredicate(minJD, maxJD,
+					starSelector.getSelectedSeries(),
+					starSelector.getObsCodes()));
+
 			String urlStr = addURLs(auid);
 
 			// Return a list containing one URL to satisfy logic in new star
@@ -292,6 +334,37 @@ public abstract class AIDWebServiceObservationSourcePluginBase extends
 		return urls;
 	}
 
+	/**
+	 * Create the predicate corresponding to the star selector's JD range, band
+	 * and observer code criteria, to be pushed down into the retriever, e.g.
+	 * so that cached or over-inclusive web service results are restricted to
+	 * what was requested.
+	 * 
+	 * @param minJD
+	 *            The minimum JD, or null if all data is wanted.
+	 * @param maxJD
+	 *            The maximum JD, or null if all data is wanted.
+	 * @param series
+	 *            The selected series; empty or null for any band.
+	 * @param obsCodes
+	 *            A comma-delimited string of observer codes, or null for any
+	 *            observer.
+	 * @return The predicate.
+	 */
+	protected static ObservationPredicate createPredicate(Double minJD,
+			Double maxJD, List<SeriesType> series, String obsCodes) {
+		Set<SeriesType> bands = null;
+		if (series != null && !series.isEmpty()) {
+			bands = new HashSet<SeriesType>(series);
+		}
+
+		ObservationPredicate predicate = ObservationPredicate.create(minJD,
+				maxJD, null, obsCodes);
+
+		return new ObservationPredicate(predicate.getMinJD(),
+				predicate.getMaxJD(), bands, predicate.getObsCodes());
+	}
+
 	@Override
 	public NewStarType getNewStarType() {
 		return NewStarType.NEW_STAR_FROM_DATABASE;
@@ -329,6 +402,200 @@ public abstract class AIDWebServiceObservationSourcePluginBase extends
 		urlStrs.add(urlStr);
 	}
 
+	/**
+	 * Set the maximum number of pages of a multi-page response fetched at
+	 * once.
+	 * 
+	 * @param pagesInFlight
+	 *            The number of pages; 1 to fetch pages strictly in sequence.
+	 */
+	public void setPagesInFlight(int pagesInFlight) {
+		this.pagesInFlight = pagesInFlight;
+	}
+
+	/**
+	 * Set the observation cache.
+	 * 
+	 * @param cache
+	 *            The cache; null if observations are not to be cached.
+	 */
+	public void setObservationCache(ObservationCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Set whether to retrieve all requested observations again rather than
+	 * serve any from the observation cache, replacing those cached.
+	 * 
+	 * @param refreshCache
+	 *            Whether to refresh the cache.
+	 */
+	public void setRefreshCache(boolean refreshCache) {
+		this.refreshCache = refreshCache;
+	}
+
+	/**
+	 * <p>
+	 * Determine which of the observations requested for the specified cache
+	 * key and JD range can be served from the observation cache, and which
+	 * must be retrieved.
+	 * </p>
+	 * 
+	 * <p>
+	 * If the cache has an entry covering the range, all observations are
+	 * served from it. If the entry covers the start but not the end of the
+	 * range, the observations before the end of the entry's range are served
+	 * from it and only those from then on need be retrieved. Otherwise, all
+	 * observations are retrieved. The observations to be served are those
+	 * returned by getCachedObservations().
+	 * </p>
+	 * 
+	 * @param key
+	 *            The cache key for the target and selection criteria.
+	 * @param minJD
+	 *            The minimum JD of the requested range.
+	 * @param maxJD
+	 *            The maximum JD of the requested range.
+	 * @return The JD from which observations must be retrieved, or null if
+	 *         all are served from the cache.
+	 */
+	protected Double lookUpCache(ObservationCache.Key key, double minJD,
+			double maxJD) {
+		cacheKey = cache != null ? key : null;
+		cacheMinJD = minJD;
+		cacheMaxJD = maxJD;
+		cacheEntry = null;
+		cachedObs = new ArrayList<ValidObservation>();
+
+		Double fromJD = minJD;
+
+		if (cacheKey != null && !refreshCache) {
+			ObservationCache.Entry entry = cache.get(cacheKey);
+
+			if (entry != null && entry.getMinJD() <= minJD
+					&& minJD <= entry.getMaxJD()) {
+				if (maxJD <= entry.getMaxJD()) {
+					cachedObs = entry.getObservations(minJD,
+							Math.nextUp(maxJD));
+					fromJD = null;
+				} else {
+					// Observations at the end of the entry's range are
+					// retrieved again, in case more have been added since.
+					cachedObs = entry.getObservations(minJD, entry.getMaxJD());
+					cacheEntry = entry;
+					fromJD = entry.getMaxJD();
+				}
+			}
+		}
+
+		return fromJD;
+	}
+
+	/**
+	 * @return the cached observations with which the current request is
+	 *         served, as determined by lookUpCache(); empty if none
+	 */
+	protected List<ValidObservation> getCachedObservations() {
+		return cachedObs != null ? cachedObs
+				: new ArrayList<ValidObservation>();
+	}
+
+	/**
+	 * Store the observations of the current request in the observation
+	 * cache, once they have been retrieved, together with any cached
+	 * observations before the requested range whose entry was extended.
+	 * Nothing is stored if the request is not cached.
+	 * 
+	 * @param obs
+	 *            All observations of the request, cached and retrieved.
+	 */
+	protected void updateCache(List<ValidObservation> obs) {
+		if (cacheKey != null) {
+			double minJD = cacheMinJD;
+			List<ValidObservation> entryObs = obs;
+
+			if (cacheEntry != null) {
+				// Extend the entry's range to the end of the requested range.
+				minJD = cacheEntry.getMinJD();
+				entryObs = cacheEntry.getObservations(minJD, cacheMinJD);
+				entryObs.addAll(obs);
+			}
+
+			try {
+				cache.put(cacheKey, minJD, cacheMaxJD, entryObs);
+			} catch (IOException e) {
+				logCacheError(e);
+			}
+
+			clearCacheRequest();
+		}
+	}
+
+	private void logCacheError(IOException e) {
+		VStar.LOGGER.log(Level.WARNING, "Unable to cache observations for "
+				+ cacheKey, e);
+	}
+
+	private void clearCacheRequest() {
+		cacheKey = null;
+		cacheEntry = null;
+		cachedObs = null;
+	}
+
+	/**
+	 * @return the current Julian Day
+	 */
+	protected double currentJD() {
+		return UNIX_EPOCH_JD + System.currentTimeMillis() / MILLIS_PER_DAY;
+	}
+
+	/**
+	 * Create a prefetcher of the pages of the response for the specified URL,
+	 * each to be read with an AIDPageReader.
+	 * 
+	 * @param urlStr
+	 *            The URL, to which a page number is appended for each page.
+	 * @param stopRequested
+	 *            Has a stop been requested?
+	 * @return The prefetcher, which the caller must close.
+	 */
+	protected PagePrefetcher<InputStream> createPagePrefetcher(
+			final String urlStr, BooleanSupplier stopRequested) {
+		return new PagePrefetcher<InputStream>(
+				pageNum -> fetchPage(urlStr, pageNum), pagesInFlight,
+				stopRequested);
+	}
+
+	/**
+	 * Fetch one page of the response for the specified URL.
+	 * 
+	 * @param urlStr
+	 *            The URL.
+	 * @param pageNum
+	 *            The page number.
+	 * @return The page's input stream, which the caller must close.
+	 */
+	protected InputStream fetchPage(String urlStr, int pageNum)
+			throws IOException {
+		URL vsxUrl = new URL(urlStr + "&page=" + pageNum);
+		InputStream stream = vsxUrl.openStream();
+
+		if (pagesInFlight == 1 || pageNum == 1) {
+			// The page is requested only when it is about to be read, so
+			// stream it from the connection, allowing its observations to be
+			// collected as they arrive.
+			return stream;
+		} else {
+			// Fetch the whole page, which is read after earlier pages. Its
+			// bytes are much smaller than a parsed document.
+			try {
+				return new ByteArrayInputStream(stream.readAllBytes());
+			} finally {
+				stream.close();
+			}
+		}
+	}
+
 	/**
 	 * Create one or more URLs, adding them to the URL string list, for the
 	 * specified target AUID.
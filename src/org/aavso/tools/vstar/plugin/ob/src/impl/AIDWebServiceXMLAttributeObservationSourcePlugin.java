@@ -17,14 +17,9 @@
  */
 package org.aavso.tools.vstar.plugin.ob.src.impl;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.aavso.tools.vstar.data.DateInfo;
 import org.aavso.tools.vstar.data.InvalidObservation;
@@ -34,14 +29,9 @@ import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.data.ValidationType;
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.database.PagePrefetcher;
 import org.aavso.tools.vstar.ui.mediator.StarInfo;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 /**
  * This intrinsic observation source plug-in retrieves AID observations via the
@@ -110,47 +100,31 @@ public class AIDWebServiceXMLAttributeObservationSourcePlugin extends
 			// Iterate over each series-based URL reading observations over
 			// potentially many "pages" for each URL.
 			for (String urlStr : urlStrs) {
-				Integer pageNum = 1;
+				PagePrefetcher<InputStream> pages = createPagePrefetcher(urlStr,
+						this::wasInterrupted);
 
-				do {
-					try {
-						String currUrlStr = urlStr;
-						if (pageNum != null) {
-							currUrlStr += "&page=" + pageNum;
+				try {
+					Integer pageNum = 1;
+
+					do {
+						InputStream page = pages.next();
+						if (page == null) {
+							break;
 						}
 
-						URL vsxUrl = new URL(currUrlStr);
-
-						DocumentBuilderFactory factory = DocumentBuilderFactory
-								.newInstance();
-						DocumentBuilder builder = factory.newDocumentBuilder();
-
-						InputStream stream = new UTF8FilteringInputStream(
-								vsxUrl.openStream());
-						Document document = builder.parse(stream);
-
-						document.getDocumentElement().normalize();
-
-						pageNum = requestObservationDetails(document, pageNum);
-
-					} catch (MalformedURLException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					} catch (ParserConfigurationException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					} catch (SAXException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					} catch (IOException e) {
-						throw new ObservationReadError(
-								"Unable to obtain information for "
-										+ info.getDesignation());
-					}
-				} while (pageNum != null && !interrupted);
+						pageNum = requestObservationDetails(page, pageNum);
+					} while (pageNum != null && !interrupted);
+				} catch (ObservationReadError e) {
+					throw e;
+				} catch (InterruptedException e) {
+					throw e;
+				} catch (Exception e) {
+					throw new ObservationReadError(
+							"Unable to obtain information for "
+									+ info.getDesignation());
+				} finally {
+					pages.close();
+				}
 			}
 		}
 
@@ -167,76 +141,69 @@ public class AIDWebServiceXMLAttributeObservationSourcePlugin extends
 		// Helpers
 
 		/**
-		 * Retrieve all observation details from the document.
+		 * Retrieve all observation details from a page, collecting them as
+		 * the page is read.
 		 * 
-		 * @param document
-		 *            The document from which to extract observations.
+		 * @param stream
+		 *            The page's input stream.
 		 * @param pageNum
-		 *            The page number of the document to read.
+		 *            The page number of the page to read.
 		 * @return The next page number to read or null if not a multi-page
-		 *         document.
+		 *         response or this is the last page.
 		 * @throws ObservationReadError
-		 *             If an error occurs when reading the document.
+		 *             If an error occurs when reading the page.
 		 */
-		private Integer requestObservationDetails(Document document,
+		private Integer requestObservationDetails(InputStream stream,
 				Integer pageNum) throws ObservationReadError {
 
-			// Has an observation count been supplied?
-			// If so, more observations remain than the ones about to be
+			// If an observation count is supplied (as the Data element's Count
+			// attribute), more observations remain than the ones about to be
 			// retrieved here.
-			Integer obsCount = null;
-
-			NodeList dataNodes = document.getElementsByTagName("Data");
-
-			if (dataNodes.getLength() == 1) {
-				Element dataElt = (Element) dataNodes.item(0);
-				String count = dataElt.getAttribute("Count");
-				if (count != null && count.trim().length() != 0) {
-					obsCount = Integer.parseInt(count);
-				}
-			}
-
-			if (obsCount == null) {
-				pageNum = null;
-			}
+			AIDPageReader page = null;
 
-			NodeList obsNodes = document.getElementsByTagName("Observation");
+			try {
+				page = new AIDPageReader(stream);
 
-			for (int i = 0; i < obsNodes.getLength(); i++) {
+				while (!interrupted && page.nextElement("Observation")) {
+					ValidObservation ob = retrieveObservation(page);
 
-				if (interrupted)
-					break;
-
-				NamedNodeMap obsDetails = obsNodes.item(i).getAttributes();
-
-				ValidObservation ob = retrieveObservation(new NamedNodeMapSequence(
-						obsDetails));
+					if (ob != null) {
+						collectObservation(ob);
+					}
 
-				if (ob != null) {
-					collectObservation(ob);
+					incrementProgress();
 				}
 
-				incrementProgress();
-			}
+				if (page.getDataElementCount() != 1) {
+					pageNum = null;
+				}
 
-			if (pageNum != null) {
-				pageNum++;
+				pageNum = page.getNextPageNum(pageNum);
+			} catch (XMLStreamException e) {
+				throw new ObservationReadError(
+						"Unable to obtain information for "
+								+ info.getDesignation());
+			} finally {
+				if (page != null) {
+					page.close();
+				}
 			}
 
 			return pageNum;
 		}
 
 		/**
-		 * Given an XML node of some kind (Element, Node) corresponding to the
-		 * details of a single observation, retrieve that observation.
+		 * Given a page whose current element is an Observation, corresponding
+		 * to the details of a single observation, retrieve that observation.
 		 * 
 		 * @param obsDetails
-		 *            A sequence of observation details.
+		 *            A page reader positioned at an Observation element, whose
+		 *            attributes are the observation's details.
 		 * @return The observation.
 		 * @throws ObservationReadError
 		 *             if an error occurred during observation processing.
 		 */
-		private ValidObservation retrieveObservation(INodeSequence obsDetails)
+		private ValidObservation retrieveObservation(AIDPageReader obsDetails)
 				throws ObservationReadError {
 
 			Integer id = null;
@@ -265,14 +232,13 @@ public class AIDWebServiceXMLAttributeObservationSourcePlugin extends
 			String digitizer = null;
 			String name = info.getDesignation();
 
-			for (int j = 0; j < obsDetails.getLength(); j++) {
+			for (int j = 0; j < obsDetails.getAttributeCount(); j++) {
 
 				if (interrupted)
 					break;
 
-				Node detailNode = obsDetails.item(j);
-				String nodeName = detailNode.getNodeName();
-				String nodeValue = detailNode.getTextContent();
+				String nodeName = obsDetails.getAttributeName(j);
+				String nodeValue = obsDetails.getAttributeValue(j);
 
 				if ("Id".equalsIgnoreCase(nodeName)) {
 					id = Integer.parseInt(nodeValue);
@@ -0,0 +1,140 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.plugin.ob.src.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.aavso.tools.vstar.data.ObservationStore;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.exception.ObservationReadError;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.BinaryObservationFile;
+import org.aavso.tools.vstar.plugin.InputType;
+import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
+import org.aavso.tools.vstar.ui.mediator.Mediator;
+import org.aavso.tools.vstar.ui.mediator.message.ProgressInfo;
+import org.aavso.tools.vstar.ui.mediator.message.ProgressType;
+import org.aavso.tools.vstar.util.locale.LocaleProps;
+
+/**
+ * This intrinsic plug-in reads a VStar binary dataset file (see
+ * BinaryObservationFile), as saved by BinaryFormatObservationSinkPlugin. The
+ * file is memory-mapped and its observations read column-wise, without being
+ * parsed or validated again. As for any other source, each observation of the
+ * loaded dataset is then created in full, so loading still takes time and
+ * heap in proportion to the number of observations.
+ */
+public class BinaryFormatObservationSourcePlugin extends
+		ObservationSourcePluginBase {
+
+	// The number of observations collected at a time.
+	private static final int BATCH_SIZE = 10000;
+
+	@Override
+	public String getDisplayName() {
+		return LocaleProps.get("FILE_MENU_NEW_STAR_FROM_BINARY_FILE");
+	}
+
+	@Override
+	public String getDescription() {
+		return "Observation source for VStar binary dataset files";
+	}
+
+	@Override
+	public InputType getInputType() {
+		return InputType.FILE;
+	}
+
+	@Override
+	public String getGroup() {
+		return "Internal";
+	}
+
+	@Override
+	public List<String> getAdditionalFileExtensions() {
+		return Arrays.asList(BinaryObservationFile.SUFFIX);
+	}
+
+	@Override
+	public AbstractObservationRetriever getObservationRetriever()
+			throws IOException, ObservationReadError {
+		BinaryObservationFile file = new BinaryObservationFile(
+				getInputStreams().get(0));
+
+		return new BinaryFormatObservationRetriever(file);
+	}
+
+	class BinaryFormatObservationRetriever extends
+			AbstractObservationRetriever {
+
+		private ObservationStore store;
+		private boolean ordered;
+
+		public BinaryFormatObservationRetriever(BinaryObservationFile file) {
+			super(file.getObservationStore().size(), getVelaFilterStr());
+			store = file.getObservationStore();
+			ordered = file.isOrdered();
+		}
+
+		@Override
+		public void retrieveObservations() throws ObservationReadError,
+				InterruptedException {
+			for (int i = 0; i < store.size() && !wasInterrupted(); i += BATCH_SIZE) {
+				// Create each observation of the batch once; a list view of
+				// the store would create one each time it is read.
+				int end = Math.min(i + BATCH_SIZE, store.size());
+				List<ValidObservation> batch = new ArrayList<ValidObservation>(
+						end - i);
+				for (int j = i; j < end; j++) {
+					batch.add(store.get(j));
+				}
+				collectObservationBatch(batch);
+
+				Mediator.getInstance()
+						.getProgressNotifier()
+						.notifyListeners(
+								new ProgressInfo(
+										ProgressType.INCREMENT_PROGRESS, batch
+												.size()));
+			}
+		}
+
+		@Override
+		public Integer getNumberOfRecords() throws ObservationReadError {
+			return store.size();
+		}
+
+		@Override
+		public boolean isSourceOrdered() {
+			return ordered;
+		}
+
+		@Override
+		public String getSourceName() {
+			return getInputName();
+		}
+
+		@Override
+		public String getSourceType() {
+			return "VStar Binary File";
+		}
+	}
+}
@@ -17,14 +17,12 @@
  */
 package org.aavso.tools.vstar.plugin.ob.src.impl;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.aavso.tools.vstar.exception.ObservationReadError;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
@@ -45,6 +43,8 @@ import org.aavso.tools.vstar.util.locale.LocaleProps;
 public class TextFormatObservationSourcePlugin extends
 		ObservationSourcePluginBase {
 
+	private static final int READ_BUFFER_SIZE = 1 << 16;
+
 	private ObservationSourceAnalyser analyser;
 
 	@Override
@@ -80,46 +80,25 @@ public class TextFormatObservationSourcePlugin extends
 	@Override
 	public AbstractObservationRetriever getObservationRetriever() throws IOException, ObservationReadError {
 
-		AbstractObservationRetriever retriever = null;
-
-		byte[] allBytes = null;
-		List<byte[]> byteArrayList = new ArrayList<byte[]>();
-		int total = 0;
-
 		InputStream stream = getInputStreams().get(0);
 
-		BufferedReader streamReader = new BufferedReader(
-				new InputStreamReader(stream));
-
-		// Obtain bytes from stream in order to re-use in analyser and
-		// reader.
-		String line;
-		while ((line = streamReader.readLine()) != null) {
-
-			byte[] bytes = line.getBytes();
-			byteArrayList.add(bytes);
-			total += bytes.length + 1;
-		}
-
-		int i = 0;
-		allBytes = new byte[total];
-		for (byte[] bytes : byteArrayList) {
-			for (byte b : bytes) {
-				allBytes[i++] = b;
-			}
-			allBytes[i++] = '\n';
+		Long sourceSize = null;
+		if (stream instanceof FileInputStream) {
+			sourceSize = ((FileInputStream) stream).getChannel().size();
+		} else if (stream instanceof ByteArrayInputStream) {
+			sourceSize = (long) stream.available();
 		}
 
-		// Analyse the observation file and create an observation retriever.
-		analyser = new ObservationSourceAnalyser(new LineNumberReader(
-				new InputStreamReader(new ByteArrayInputStream(allBytes))),
-				getInputName());
-		analyser.analyse();
+		LineNumberReader reader = new LineNumberReader(new InputStreamReader(
+				stream), READ_BUFFER_SIZE);
 
-		retriever = new TextFormatObservationReader(new LineNumberReader(
-				new InputStreamReader(new ByteArrayInputStream(allBytes))),
-				analyser, getVelaFilterStr());
+		// Determine the format from the first lines of the source, which are
+		// then read again, along with the rest of the source, by the
+		// observation retriever in a single pass.
+		analyser = new ObservationSourceAnalyser(reader, getInputName());
+		analyser.analyseHead(ObservationSourceAnalyser.DEFAULT_HEAD_LINES);
 
-		return retriever;
+		return new TextFormatObservationReader(reader, analyser, sourceSize,
+				getVelaFilterStr());
 	}
 }
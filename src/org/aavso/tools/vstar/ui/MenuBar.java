@@ -296,6 +296,7 @@ public class MenuBar extends JMenuBar {
 				String itemName = plugin.getDisplayName();
 				if (plugin.getInputType() == InputType.NONE || plugin.getInputType() == InputType.URL
 						|| LocaleProps.get("FILE_MENU_NEW_STAR_FROM_FILE").equals(itemName)
+						|| LocaleProps.get("FILE_MENU_NEW_STAR_FROM_BINARY_FILE").equals(itemName)
 						|| PluginManager.shouldAllObsSourcePluginsBeInFileMenu()) {
 
 					JMenuItem obSourceMenuItem = new JMenuItem(itemName);
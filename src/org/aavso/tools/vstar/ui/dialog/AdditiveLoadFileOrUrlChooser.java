@@ -35,6 +35,7 @@ import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
 
+import org.aavso.tools.vstar.input.ObservationPredicate;
 import org.aavso.tools.vstar.plugin.InputType;
 import org.aavso.tools.vstar.plugin.ObservationSourcePluginBase;
 import org.aavso.tools.vstar.plugin.PluginComponentFactory;
@@ -59,6 +60,10 @@ public class AdditiveLoadFileOrUrlChooser {
     private TextField urlField;
     private TextArea obsTextField;
     private TextArea velaFilterField;
+    private DoubleField minJDField;
+    private DoubleField maxJDField;
+    private TextField bandsField;
+    private TextField obsCodesField;
     private List<String> DEFAULT_EXTENSIONS = new ArrayList<String>();
     private List<String> extensions = new ArrayList<String>();
     private Map<String, ObservationSourcePluginBase> plugins;
@@ -99,6 +104,8 @@ public class AdditiveLoadFileOrUrlChooser {
         velaFilterField = pair.first;
         accessoryPane.add(pair.second);
 
+        accessoryPane.add(createCriteriaPane());
+
         fileChooser.setAccessory(accessoryPane);
     }
 
@@ -130,6 +137,19 @@ public class AdditiveLoadFileOrUrlChooser {
         return velaFilterField.getValue().trim();
     }
 
+    /**
+     * Returns the load criteria as a predicate to be pushed down into the
+     * observation retriever.
+     * 
+     * @return the predicate; ObservationPredicate.ALL if no criteria were given.
+     * @throws IllegalArgumentException if a band is unknown or the JD range is
+     *                                  empty.
+     */
+    public ObservationPredicate getPredicate() {
+        return ObservationPredicate.create(minJDField.getValue(), maxJDField.getValue(), bandsField.getValue(),
+                obsCodesField.getValue());
+    }
+
     /**
      * This component provides an additive load checkbox.
      */
@@ -143,6 +163,32 @@ public class AdditiveLoadFileOrUrlChooser {
         return panel;
     }
 
+    /**
+     * This component provides optional JD range, band and observer criteria
+     * for the observations to be loaded.
+     */
+    private JPanel createCriteriaPane() {
+        JPanel pane = new JPanel();
+        pane.setLayout(new BoxLayout(pane, BoxLayout.PAGE_AXIS));
+        pane.setBorder(BorderFactory.createTitledBorder("Load Criteria"));
+
+        minJDField = new DoubleField("Minimum JD", null, null, null);
+        pane.add(minJDField.getUIComponent());
+
+        maxJDField = new DoubleField("Maximum JD", null, null, null);
+        pane.add(maxJDField.getUIComponent());
+
+        bandsField = new TextField("Bands", "", false, true);
+        bandsField.getUIComponent().setToolTipText("Comma-separated bands to load, e.g. Visual, Johnson V");
+        pane.add(bandsField.getUIComponent());
+
+        obsCodesField = new TextField("Observer Codes", "", false, true);
+        obsCodesField.getUIComponent().setToolTipText("Observer codes to load");
+        pane.add(obsCodesField.getUIComponent());
+
+        return pane;
+    }
+
     /**
      * This component creates a URL request button and corresponding action.
      */
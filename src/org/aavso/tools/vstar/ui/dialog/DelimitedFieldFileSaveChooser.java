@@ -97,9 +97,10 @@ public class DelimitedFieldFileSaveChooser {
 
 		String selectedDelimiterName = (String) delimiterChooser
 				.getSelectedItem();
-		String suffix = delimiter2suffixes.get(selectedDelimiterName);
+		String suffix = delimiter2suffixes != null ? delimiter2suffixes
+				.get(selectedDelimiterName) : null;
 
-		if (!file.getName().endsWith(suffix) && delimiter2suffixes != null) {
+		if (suffix != null && !file.getName().endsWith(suffix)) {
 			file = new File(file.getAbsolutePath() + "." + suffix);
 		}
 
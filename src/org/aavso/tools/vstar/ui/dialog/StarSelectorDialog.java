@@ -69,6 +69,7 @@ public class StarSelectorDialog extends AbstractOkCancelDialog {
     private JCheckBox allDataCheckBox;
     private JCheckBox additiveLoadCheckbox;
     private JCheckBox minFieldsCheckbox;
+    private JCheckBox refreshCacheCheckbox;
 
     // TODO: add a show counts button/checkbox that displays the counts for data
     // based upon the criteria specified in a dialog similar to Info
@@ -215,6 +216,16 @@ public class StarSelectorDialog extends AbstractOkCancelDialog {
         return minFieldsCheckbox.isSelected();
     }
 
+    /**
+     * Return whether or not to retrieve all observations again rather than
+     * load any previously cached.
+     * 
+     * @return Whether or not to refresh cached observations.
+     */
+    public boolean refreshCachedData() {
+        return refreshCacheCheckbox.isSelected();
+    }
+
     /**
      * Return the selected series.
      */
@@ -416,6 +427,8 @@ public class StarSelectorDialog extends AbstractOkCancelDialog {
         panel.add(Box.createRigidArea(new Dimension(10, 10)));
         panel.add(createMinFieldsCheckBoxPane());
         panel.add(Box.createRigidArea(new Dimension(10, 10)));
+        panel.add(createRefreshCacheCheckBoxPane());
+        panel.add(Box.createRigidArea(new Dimension(10, 10)));
         panel.add(createAllDataCheckBoxPane());
 
         return panel;
@@ -430,6 +443,15 @@ public class StarSelectorDialog extends AbstractOkCancelDialog {
         return panel;
     }
 
+    private JPanel createRefreshCacheCheckBoxPane() {
+        JPanel panel = new JPanel();
+
+        refreshCacheCheckbox = new JCheckBox("Refresh cached data?");
+        panel.add(refreshCacheCheckbox);
+
+        return panel;
+    }
+
     private JPanel createAdditiveLoadCheckboxPane() {
         JPanel panel = new JPanel();
 
@@ -43,6 +43,7 @@ import javax.swing.JTable.PrintMode;
 import javax.swing.SwingWorker;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import org.aavso.tools.vstar.data.DatasetFingerprint;
 import org.aavso.tools.vstar.data.InvalidObservation;
 import org.aavso.tools.vstar.data.SeriesType;
 import org.aavso.tools.vstar.data.ValidObservation;
@@ -1223,18 +1224,28 @@ public class Mediator {
 
             freeListeners();
 
+            // Create a message to notify whoever is listening that a new star
+            // has been loaded.
+            NewStarMessage newStarMsg = new NewStarMessage(newStarType, starInfo, validObsList, newObsCategoryMap,
+                    starInfo.getRetriever().getMinMag(), starInfo.getRetriever().getMaxMag(),
+                    starInfo.getRetriever().getSourceName());
+
             if (!addObs) {
                 newStarMessageList.clear();
             } else {
                 // Exclude all but the most recent new star message if the newly
                 // loaded dataset's series+observations are the same as that
-                // of any previously loaded dataset.
+                // of any previously loaded dataset. Fingerprints are compared
+                // rather than the observations themselves. The merged
+                // dataset's fingerprint is computed once here and kept with
+                // its message, as is that of each previous dataset when first
+                // compared, until an observation is next edited.
                 List<NewStarMessage> dupMessages = new ArrayList<NewStarMessage>();
 
+                DatasetFingerprint fingerprint = newStarMsg.getFingerprint();
+
                 for (NewStarMessage msg : getNewStarMessageList()) {
-                    // We need to check that both SeriesType and the corresponding observations are
-                    // the same.
-                    if (newObsCategoryMap.entrySet().equals(msg.getObsCategoryMap().entrySet())) {
+                    if (fingerprint.equals(msg.getFingerprint())) {
                         dupMessages.add(msg);
                     }
                 }
@@ -1244,12 +1255,6 @@ public class Mediator {
                 }
             }
 
-            // Create a message to notify whoever is listening that a new star
-            // has been loaded.
-            NewStarMessage newStarMsg = new NewStarMessage(newStarType, starInfo, validObsList, newObsCategoryMap,
-                    starInfo.getRetriever().getMinMag(), starInfo.getRetriever().getMaxMag(),
-                    starInfo.getRetriever().getSourceName());
-
             newStarMessageList.add(newStarMsg);
 
             // This is a specific fix for tracker 3007948.
@@ -1257,7 +1262,7 @@ public class Mediator {
 
             // Observation table and plot.
             validObsTableModel = new ValidObservationTableModel(newObsCategoryMap, validObsList,
-                    newStarType.getRawDataTableColumnInfoSource());
+                    newStarType.getRawDataTableColumnInfoSource(newStarMsg.getDetailSchema()));
 
             // Observation-and-mean table and plot.
             obsAndMeanPlotModel = new ObservationAndMeanPlotModel(newObsCategoryMap, JDCoordSource.instance,
@@ -1530,7 +1535,8 @@ public class Mediator {
         // Table and plot models.
         ValidObservationTableModel validObsTableModel = new ValidObservationTableModel(
                 phasedValidObservationCategoryMap, validObsList, // TODO: phased obs?
-                getLatestNewStarMessage().getNewStarType().getPhasePlotTableColumnInfoSource());
+                getLatestNewStarMessage().getNewStarType().getPhasePlotTableColumnInfoSource(
+                        getLatestNewStarMessage().getDetailSchema()));
 
         // Observation-and-mean plot and table.
         ContinuousModelFunction rawModelFuncModel = obsAndMeanPlotModel.getModelFunction();
@@ -17,6 +17,7 @@
  */
 package org.aavso.tools.vstar.ui.mediator;
 
+import org.aavso.tools.vstar.data.DetailSchema;
 import org.aavso.tools.vstar.data.validation.AAVSOFormatFieldInfoSource;
 import org.aavso.tools.vstar.data.validation.IFieldInfoSource;
 import org.aavso.tools.vstar.data.validation.SimpleFormatFieldInfoSource;
@@ -93,9 +94,13 @@ public enum NewStarType {
 	}
 
 	/**
+	 * @param detailSchema
+	 *            The details present in the dataset; determines the columns
+	 *            of arbitrary source tables.
 	 * @return the rawDataTableColumnInfoSource
 	 */
-	public ITableColumnInfoSource getRawDataTableColumnInfoSource() {
+	public ITableColumnInfoSource getRawDataTableColumnInfoSource(
+			DetailSchema detailSchema) {
 		ITableColumnInfoSource source = null;
 		
 		switch (this) {
@@ -109,7 +114,7 @@ public enum NewStarType {
 			source = new SimpleFormatRawDataColumnInfoSource();
 			break;
 		case NEW_STAR_FROM_ARBITRARY_SOURCE:
-			source = new ArbitraryFormatRawDataColumnInfoSource();   
+			source = new ArbitraryFormatRawDataColumnInfoSource(detailSchema);   
 			break;
 		}
 		
@@ -117,9 +122,13 @@ public enum NewStarType {
 	}
 
 	/**
+	 * @param detailSchema
+	 *            The details present in the dataset; determines the columns
+	 *            of arbitrary source tables.
 	 * @return the phasePlotTableColumnInfoSource
 	 */
-	public ITableColumnInfoSource getPhasePlotTableColumnInfoSource() {
+	public ITableColumnInfoSource getPhasePlotTableColumnInfoSource(
+			DetailSchema detailSchema) {
 		ITableColumnInfoSource source = null;
 		
 		switch (this) {
@@ -133,7 +142,7 @@ public enum NewStarType {
 			source = new SimpleFormatPhasePlotColumnInfoSource();
 			break;
 		case NEW_STAR_FROM_ARBITRARY_SOURCE:
-			source = new ArbitraryFormatPhasePlotColumnInfoSource();   
+			source = new ArbitraryFormatPhasePlotColumnInfoSource(detailSchema);   
 			break;
 		}
 		
@@ -21,6 +21,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.aavso.tools.vstar.data.DatasetFingerprint;
+import org.aavso.tools.vstar.data.DetailSchema;
 import org.aavso.tools.vstar.data.SeriesType;
 import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.ui.mediator.NewStarType;
@@ -40,6 +42,12 @@ public class NewStarMessage {
 	private double maxMag;
 	private String source;
 
+	// Computed when first requested, i.e. when the dataset is first compared
+	// with another, and kept until an observation's discrepant, excluded or
+	// phase state changes.
+	private DatasetFingerprint fingerprint;
+	private long fingerprintModificationCount;
+
 	/**
 	 * Constructor.
 	 * 
@@ -71,6 +79,7 @@ public class NewStarMessage {
 		this.minMag = minMag;
 		this.maxMag = maxMag;
 		this.source = source;
+		this.fingerprint = null;
 	}
 
 	/**
@@ -94,6 +103,18 @@ public class NewStarMessage {
 		return starInfo;
 	}
 
+	/**
+	 * @return the details present in the star's observations, as recorded by
+	 *         its retriever; empty if there is no retriever
+	 */
+	public DetailSchema getDetailSchema() {
+		if (starInfo != null && starInfo.getRetriever() != null) {
+			return starInfo.getRetriever().getDetailSchema();
+		} else {
+			return new DetailSchema();
+		}
+	}
+
 	/**
 	 * @return the observation list for the star
 	 */
@@ -108,6 +129,28 @@ public class NewStarMessage {
 		return obsCategoryMap;
 	}
 
+	/**
+	 * Return the fingerprint of the series and observations, computing it the
+	 * first time this is called; loading a dataset does not incur the cost of
+	 * a pass over its observations unless it is compared with another. The
+	 * fingerprint is recomputed if any observation has since been marked as
+	 * discrepant or excluded (or not), or had its phase changed, since these
+	 * are part of an observation's state.
+	 * 
+	 * @return the fingerprint of the series and observations
+	 */
+	public DatasetFingerprint getFingerprint() {
+		long modificationCount = ValidObservation.getModificationCount();
+
+		if (fingerprint == null
+				|| fingerprintModificationCount != modificationCount) {
+			fingerprint = new DatasetFingerprint(obsCategoryMap);
+			fingerprintModificationCount = modificationCount;
+		}
+
+		return fingerprint;
+	}
+
 	/**
 	 * @return the minimum magnitude
 	 */
@@ -17,6 +17,7 @@
  */
 package org.aavso.tools.vstar.ui.model.list;
 
+import org.aavso.tools.vstar.data.DetailSchema;
 import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.util.prefs.NumericPrecisionPrefs;
 
@@ -38,6 +39,16 @@ public class ArbitraryFormatPhasePlotColumnInfoSource extends
 		COLUMN_NAMES.put(PHASE_COLUMN_NAME, PHASE_COLUMN);
 	}
 
+	/**
+	 * Constructor
+	 * 
+	 * @param detailSchema
+	 *            The details present in the dataset, one column per detail.
+	 */
+	public ArbitraryFormatPhasePlotColumnInfoSource(DetailSchema detailSchema) {
+		super(detailSchema);
+	}
+
 	@Override
 	public int getColumnCount() {
 		return super.getColumnCount() + 1;
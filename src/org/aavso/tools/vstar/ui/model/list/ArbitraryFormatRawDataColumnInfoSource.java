@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.aavso.tools.vstar.data.DetailSchema;
 import org.aavso.tools.vstar.data.Property;
 import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.util.locale.LocaleProps;
@@ -64,16 +65,28 @@ public class ArbitraryFormatRawDataColumnInfoSource implements
 		COLUMN_NAMES.put(DISCREPANT_COLUMN_NAME, DISCREPANT_COLUMN);
 	}
 
+	private DetailSchema detailSchema;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param detailSchema
+	 *            The details present in the dataset, one column per detail.
+	 */
+	public ArbitraryFormatRawDataColumnInfoSource(DetailSchema detailSchema) {
+		this.detailSchema = detailSchema;
+	}
+
 	@Override
 	public int getColumnCount() {
-		int detailCount = ValidObservation.getDetailTitles().size();
+		int detailCount = detailSchema.size();
 		return DISCREPANT_COLUMN + detailCount + 1;
 	}
 
 	@Override
 	public Collection<String> getColumnNames() {
 		List<String> names = new ArrayList<String>(COLUMN_NAMES.keySet());
-		names.addAll(ValidObservation.getDetailTitles().keySet());
+		names.addAll(detailSchema.getKeys());
 		return names;
 	}
 
@@ -109,9 +122,8 @@ public class ArbitraryFormatRawDataColumnInfoSource implements
 			columnName = DISCREPANT_COLUMN_NAME;
 			break;
 		default:
-			String key = ValidObservation.getDetailKey(index
-					- DISCREPANT_COLUMN - 1);
-			columnName = ValidObservation.getDetailTitles().get(key);
+			String key = detailSchema.getKey(index - DISCREPANT_COLUMN - 1);
+			columnName = detailSchema.getTitle(key);
 			break;
 		}
 
@@ -177,9 +189,8 @@ public class ArbitraryFormatRawDataColumnInfoSource implements
 			value = ob.isDiscrepant();
 			break;
 		default:
-			String key = ValidObservation.getDetailKey(index
-					- DISCREPANT_COLUMN - 1);
-			value = ob.getDetails().get(key);
+			String key = detailSchema.getKey(index - DISCREPANT_COLUMN - 1);
+			value = ob.detailExists(key) ? ob.getDetail(key) : null;
 			break;
 		}
 
@@ -195,9 +206,8 @@ public class ArbitraryFormatRawDataColumnInfoSource implements
 			throw new IllegalArgumentException("Null column name");
 		} else if (COLUMN_NAMES.containsKey(name)) {
 			index = COLUMN_NAMES.get(name);
-		} else if (ValidObservation.getDetailTitles().containsKey(name)) {
-			index = ValidObservation.getDetailIndex(name) + DISCREPANT_COLUMN
-					+ 1;
+		} else if (detailSchema.contains(name)) {
+			index = detailSchema.indexOf(name) + DISCREPANT_COLUMN + 1;
 		} else {
 			throw new IllegalArgumentException("No column name: " + name);
 		}
@@ -19,7 +19,7 @@ package org.aavso.tools.vstar.ui.pane.list;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Optional;
+import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -28,16 +28,16 @@ import javax.swing.JCheckBox;
 import javax.swing.JPanel;
 import javax.swing.JTextArea;
 import javax.swing.RowFilter;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 
 import org.aavso.tools.vstar.data.ValidObservation;
 import org.aavso.tools.vstar.ui.model.list.ValidObservationTableModel;
 import org.aavso.tools.vstar.util.Logic;
-import org.aavso.tools.vstar.vela.Operand;
-import org.aavso.tools.vstar.vela.Type;
+import org.aavso.tools.vstar.vela.CompiledVeLaProgram;
 import org.aavso.tools.vstar.vela.VeLaInterpreter;
-import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment;
 
 /**
  * A VeLa list search pane component.
@@ -49,6 +49,8 @@ public class VeLaListSearchPane<S extends TableModel> extends JPanel {
 
 	private TableRowSorter<S> rowSorter;
 	private RowFilter defaultRowFilter;
+	// The current VeLa row filter, if any, which listens for table changes.
+	private TableModelListener velaRowFilter;
 
 	private JButton searchButton;
 	private JButton resetButton;
@@ -142,9 +144,17 @@ public class VeLaListSearchPane<S extends TableModel> extends JPanel {
 	}
 
 	private void restoreDefaultRowFilter() {
+		removeVeLaRowFilterListener();
 		rowSorter.setRowFilter(defaultRowFilter);
 	}
 
+	private void removeVeLaRowFilterListener() {
+		if (velaRowFilter != null) {
+			model.removeTableModelListener(velaRowFilter);
+			velaRowFilter = null;
+		}
+	}
+
 	/**
 	 * Set the filter on the row sorter.
 	 * 
@@ -152,6 +162,13 @@ public class VeLaListSearchPane<S extends TableModel> extends JPanel {
 	 *            the rowFilter to set
 	 */
 	public void setRowFilter(RowFilter rowFilter) {
+		removeVeLaRowFilterListener();
+
+		if (rowFilter instanceof TableModelListener) {
+			velaRowFilter = (TableModelListener) rowFilter;
+			model.addTableModelListener(velaRowFilter);
+		}
+
 		rowSorter.setRowFilter(rowFilter);
 	}
 
@@ -170,9 +187,15 @@ public class VeLaListSearchPane<S extends TableModel> extends JPanel {
 
 	// VeLa row filter class
 
-	class VeLaRowFilter extends RowFilter<Object, Object> {
+	class VeLaRowFilter extends RowFilter<Object, Object> implements
+			TableModelListener {
 		private VeLaInterpreter vela;
 		private VeLaListSearchPane<? extends TableModel> searchPane;
+		private CompiledVeLaProgram program;
+
+		// Per-observation filter results, evaluated over all observations at
+		// once and discarded when the expression or table model changes.
+		private boolean[] matches;
 
 		public VeLaRowFilter(VeLaInterpreter vela,
 				VeLaListSearchPane<? extends TableModel> searchPane) {
@@ -180,6 +203,11 @@ public class VeLaListSearchPane<S extends TableModel> extends JPanel {
 			this.searchPane = searchPane;
 		}
 
+		@Override
+		public void tableChanged(TableModelEvent e) {
+			matches = null;
+		}
+
 		@Override
 		public boolean include(
 				javax.swing.RowFilter.Entry<? extends Object, ? extends Object> entry) {
@@ -189,13 +217,22 @@ public class VeLaListSearchPane<S extends TableModel> extends JPanel {
 			Integer rowIndex = (Integer) entry.getIdentifier();
 
 			if (rowIndex != null) {
-				ValidObservation ob = model.getObservations().get(rowIndex);
-				vela.pushEnvironment(new VeLaValidObservationEnvironment(ob));
-				Optional<Operand> value = vela.program(searchPane
-						.getVeLaExpression());
-				result = value.isPresent()
-						&& value.get().getType() == Type.BOOLEAN
-						&& value.get().booleanVal();
+				List<ValidObservation> obs = model.getObservations();
+				ValidObservation ob = obs.get(rowIndex);
+
+				// Parse the expression once rather than for each row.
+				String expr = searchPane.getVeLaExpression();
+				if (program == null || !program.getSource().equals(expr)) {
+					program = vela.compileForObservations(expr);
+					matches = null;
+				}
+
+				// Evaluate the expression for all rows rather than each row.
+				if (matches == null || matches.length != obs.size()) {
+					matches = program.evaluateBatch(obs);
+				}
+
+				result = matches[rowIndex];
 
 				/**
 				 * Use logical implication, p => q, where p is the observation's
@@ -209,8 +246,6 @@ public class VeLaListSearchPane<S extends TableModel> extends JPanel {
 						searchPane.includeDiscrepant());
 				result &= Logic.imp(ob.isExcluded(),
 						searchPane.includeExcluded());
-
-				vela.popEnvironment();
 			}
 
 			return result;
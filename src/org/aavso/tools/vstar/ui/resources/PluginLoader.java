@@ -36,9 +36,11 @@ import org.aavso.tools.vstar.plugin.ObservationToolPluginBase;
 import org.aavso.tools.vstar.plugin.ObservationTransformerPluginBase;
 import org.aavso.tools.vstar.plugin.filter.impl.VeLaFilterPlugin;
 import org.aavso.tools.vstar.plugin.model.impl.ApacheCommonsPolynomialFitCreatorPlugin;
+import org.aavso.tools.vstar.plugin.ob.sink.impl.BinaryFormatObservationSinkPlugin;
 import org.aavso.tools.vstar.plugin.ob.sink.impl.DownloadFormatObservationSinkPlugin;
 import org.aavso.tools.vstar.plugin.ob.sink.impl.SimpleFormatObservationSinkPlugin;
 import org.aavso.tools.vstar.plugin.ob.src.impl.AIDWebServiceCSV2ObservationSourcePlugin;
+import org.aavso.tools.vstar.plugin.ob.src.impl.BinaryFormatObservationSourcePlugin;
 import org.aavso.tools.vstar.plugin.ob.src.impl.TextFormatObservationSourcePlugin;
 import org.aavso.tools.vstar.plugin.period.PeriodAnalysisPluginBase;
 import org.aavso.tools.vstar.plugin.period.impl.DcDftFrequencyRangePeriodAnalysisPlugin;
@@ -183,6 +185,7 @@ public class PluginLoader {
 		// First, add AAVSO observation reader plug-ins.
 		obSourcePlugins.add(new AIDWebServiceCSV2ObservationSourcePlugin());
 		obSourcePlugins.add(new TextFormatObservationSourcePlugin());
+		obSourcePlugins.add(new BinaryFormatObservationSourcePlugin());
 
 		// Next, add all external observation source plug-ins.
 		for (IPlugin plugin : plugins) {
@@ -200,9 +203,11 @@ public class PluginLoader {
 	public static List<ObservationSinkPluginBase> getObservationSinkPlugins() {
 		List<ObservationSinkPluginBase> obSinkPlugins = new ArrayList<ObservationSinkPluginBase>();
 
-		// First, add simple and AAVSO download text format plug-ins.
+		// First, add simple and AAVSO download text format and binary format
+		// plug-ins.
 		obSinkPlugins.add(new SimpleFormatObservationSinkPlugin());
 		obSinkPlugins.add(new DownloadFormatObservationSinkPlugin());
+		obSinkPlugins.add(new BinaryFormatObservationSinkPlugin());
 
 		// Next, add all external observation sink plug-ins.
 		for (IPlugin plugin : plugins) {
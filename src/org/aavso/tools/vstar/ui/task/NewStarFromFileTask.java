@@ -96,9 +96,7 @@ public class NewStarFromFileTask extends SwingWorker<Void, Void> {
 					new LineNumberReader(new FileReader(obsFile.getPath())),
 					analyser, AbstractObservationRetriever.NO_VELA_FILTER);
 
-			ValidObservation.reset();
-
-			textFormatReader.retrieveObservations();
+			textFormatReader.retrieve();
 
 			if (!isCancelled()) {
 				if (textFormatReader.getValidObservations().isEmpty()) {
@@ -121,8 +119,6 @@ public class NewStarFromFileTask extends SwingWorker<Void, Void> {
 						isAdditiveLoad);
 			}
 		} catch (Throwable t) {
-			ValidObservation.restore();
-
 			MessageBox.showErrorDialog(Mediator.getUI().getComponent(),
 					"New Star From File Read Error", t);
 		}
@@ -177,6 +177,7 @@ public class NewStarFromObSourcePluginTask extends SwingWorker<Void, Void> {
                         }
 
                         obSourcePlugin.setVelaFilterStr(fileChooser.getVeLaFilter());
+                        obSourcePlugin.setPredicate(fileChooser.getPredicate());
                     } else {
                         throw new CancellationException();
                     }
@@ -239,7 +240,7 @@ public class NewStarFromObSourcePluginTask extends SwingWorker<Void, Void> {
             // Retrieve the observations. If the retriever can return
             // the number of records, we can show updated progress,
             // otherwise just show busy state.
-            retriever = obSourcePlugin.getObservationRetriever();
+            retriever = obSourcePlugin.createObservationRetriever();
 
             // #PMAK#20211229#1#:
             // if the retriever has configuration dialog (see, for example, ASAS-SN plug-in)
@@ -315,14 +316,8 @@ public class NewStarFromObSourcePluginTask extends SwingWorker<Void, Void> {
                 mediator.getProgressNotifier().notifyListeners(ProgressInfo.START_PROGRESS);
             }
 
-            // Note: A reset may cause problems if isAdditive() is true, so make
-            // conditional.
-            if (!obSourcePlugin.isAdditive()) {
-                ValidObservation.reset();
-            }
-
             try {
-                retriever.retrieveObservations();
+                retriever.retrieve();
 
                 if (retriever.getValidObservations().isEmpty()) {
                     String msg = "No observations found.";
@@ -338,10 +333,8 @@ public class NewStarFromObSourcePluginTask extends SwingWorker<Void, Void> {
                 closeStreams();
             }
         } catch (InterruptedException e) {
-            ValidObservation.restore();
             done();
         } catch (Throwable t) {
-            ValidObservation.restore();
             done();
             MessageBox.showErrorDialog("Observation Source Read Error", t.getLocalizedMessage());
         }
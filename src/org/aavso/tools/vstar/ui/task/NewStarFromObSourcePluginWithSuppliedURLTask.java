@@ -124,13 +124,7 @@ public class NewStarFromObSourcePluginWithSuppliedURLTask extends
 				// about the side effects of this method.
 				retriever.getNumberOfRecords();
 
-				// Note: A reset may cause problems if isAdditive() is true, so make
-				// conditional.
-				if (!obSourcePlugin.isAdditive()) {
-					ValidObservation.reset();
-				}
-
-				retriever.retrieveObservations();
+				retriever.retrieve();
 
 				if (retriever.getValidObservations().isEmpty()) {
 					throw new ObservationReadError(
@@ -149,16 +143,12 @@ public class NewStarFromObSourcePluginWithSuppliedURLTask extends
 			}
 
 		} catch (InterruptedException e) {
-			ValidObservation.restore();
-
 			mediator.getProgressNotifier().notifyListeners(
 					ProgressInfo.COMPLETE_PROGRESS);
 
 			mediator.getProgressNotifier().notifyListeners(
 					ProgressInfo.CLEAR_PROGRESS);
 		} catch (Throwable t) {
-			ValidObservation.restore();
-
 			MessageBox.showErrorDialog(
 					"New Star From Observation Source Read Error", t);
 
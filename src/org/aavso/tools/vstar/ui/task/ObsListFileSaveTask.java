@@ -17,8 +17,10 @@
  */
 package org.aavso.tools.vstar.ui.task;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 import javax.swing.SwingWorker;
@@ -70,8 +72,8 @@ public class ObsListFileSaveTask extends SwingWorker<Void, Void> {
 
         Mediator.getUI().getStatusPane().setMessage("Saving " + outFile.getName() + "...");
 
-        try (PrintWriter writer = new PrintWriter(outFile)) {
-            plugin.save(writer, observations, delimiter);
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(outFile))) {
+            plugin.save(stream, observations, delimiter);
         } catch (Exception ex) {
             error = ex.getLocalizedMessage();
         }
@@ -0,0 +1,254 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * A thread-safe interner of immutable values: it maps each value to a
+ * canonical instance equal to it, so that equal values can share one
+ * instance.
+ * </p>
+ *
+ * <p>
+ * Canonical instances are weakly referenced, so are discarded once no longer
+ * referenced elsewhere. They are held in a concurrent map keyed by weak
+ * references that compare equal if their values are, so looking up a value
+ * takes no lock and threads interning values at once, e.g. when validating
+ * observations in parallel, rarely contend. Entries whose values have been
+ * discarded are removed as values are interned.
+ * </p>
+ *
+ * @param <T>
+ *            The type of value, which must be immutable, at least with
+ *            respect to equals() and hashCode().
+ */
+public class Interner<T> {
+
+	private static final int DEFAULT_CONCURRENCY = 16;
+
+	// Each key is a canonical instance's reference, mapped to itself.
+	private final ConcurrentHashMap<Object, Canonical<T>> canonicals;
+	private final ReferenceQueue<T> discarded;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+
+	/**
+	 * Constructor
+	 */
+	public Interner() {
+		this(DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param concurrency
+	 *            The expected number of threads interning values at once.
+	 */
+	public Interner(int concurrency) {
+		canonicals = new ConcurrentHashMap<Object, Canonical<T>>(16, 0.75f,
+				Math.max(concurrency, 1));
+		discarded = new ReferenceQueue<T>();
+
+		hits = new LongAdder();
+		misses = new LongAdder();
+	}
+
+	/**
+	 * Return the canonical instance of a value, which becomes the canonical
+	 * instance if there is none.
+	 *
+	 * @param value
+	 *            The value; may be null.
+	 * @return The canonical instance, or null if the value is null.
+	 */
+	public T intern(T value) {
+		if (value == null) {
+			return null;
+		}
+
+		expungeDiscarded();
+
+		Canonical<T> ref = canonicals.get(new Probe(value));
+		T canonical = ref != null ? ref.get() : null;
+
+		if (canonical == null) {
+			Canonical<T> newRef = new Canonical<T>(value, discarded);
+
+			while (canonical == null) {
+				ref = canonicals.putIfAbsent(newRef, newRef);
+				if (ref == null) {
+					// The value is now the canonical instance.
+					misses.increment();
+					return value;
+				}
+
+				canonical = ref.get();
+				if (canonical == null) {
+					// Discarded since found equal; try again without it.
+					canonicals.remove(ref, ref);
+				}
+			}
+		}
+
+		hits.increment();
+
+		return canonical;
+	}
+
+	/**
+	 * @return the number of canonical instances currently held
+	 */
+	public int size() {
+		expungeDiscarded();
+		return canonicals.size();
+	}
+
+	/**
+	 * Discard all canonical instances. Values already interned remain valid
+	 * but will no longer be shared with values subsequently interned.
+	 */
+	public void clear() {
+		canonicals.clear();
+		expungeDiscarded();
+	}
+
+	/**
+	 * @return the number of values interned that were equal to an existing
+	 *         canonical instance, since creation or the last statistics reset
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of values interned that became canonical instances,
+	 *         since creation or the last statistics reset
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the proportion of values interned that were equal to an
+	 *         existing canonical instance, or 0 if none have been interned
+	 */
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return total != 0 ? (double) hitCount / total : 0;
+	}
+
+	/**
+	 * Reset the hit and miss counts, leaving canonical instances intact.
+	 */
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d held, %d hits, %d misses, hit rate %.1f%%",
+				size(), getHitCount(), getMissCount(), getHitRate() * 100);
+	}
+
+	// Helpers
+
+	// Remove the entries of canonical instances that have been discarded.
+	private void expungeDiscarded() {
+		Reference<? extends T> ref;
+		while ((ref = discarded.poll()) != null) {
+			canonicals.remove(ref, ref);
+		}
+	}
+
+	/**
+	 * A weak reference to a canonical instance, equal to another such
+	 * reference or to a probe whose values are equal. Once its value has been
+	 * discarded, it is equal only to itself.
+	 */
+	private static final class Canonical<T> extends WeakReference<T> {
+		private final int hash;
+
+		Canonical(T value, ReferenceQueue<T> queue) {
+			super(value, queue);
+			hash = value.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			T value = get();
+			if (value == null) {
+				return false;
+			}
+
+			if (obj instanceof Canonical) {
+				return value.equals(((Canonical<?>) obj).get());
+			} else if (obj instanceof Probe) {
+				return value.equals(((Probe) obj).value);
+			} else {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * A value being looked up, equal to the reference to an equal canonical
+	 * instance.
+	 */
+	private static final class Probe {
+		private final Object value;
+
+		Probe(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Canonical) {
+				return value.equals(((Canonical<?>) obj).get());
+			} else if (obj instanceof Probe) {
+				return value.equals(((Probe) obj).value);
+			} else {
+				return false;
+			}
+		}
+	}
+}
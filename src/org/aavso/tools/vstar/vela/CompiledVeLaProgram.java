@@ -0,0 +1,246 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.vela.VeLaColumnCompiler.ColumnNode;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * A VeLa program that has been lexed, parsed and turned into an AST once, and
+ * which can be evaluated any number of times against the interpreter that
+ * compiled it without incurring the cost of parsing again, e.g. a filter
+ * applied to each observation as it is loaded. A program consisting of a
+ * single expression may additionally have been compiled to a tree of closures
+ * by {@link VeLaClosureCompiler} and, if it is a Boolean expression over
+ * observation properties, to a column tree by {@link VeLaColumnCompiler} for
+ * evaluation over whole batches of observations.<br/>
+ * 
+ * Like the interpreter on which it is evaluated, a compiled program is not
+ * thread-safe and must be confined to one thread at a time. In particular, a
+ * program compiled for observations is evaluated against a single observation
+ * environment (the cursor) against which its closure tree was compiled, so
+ * overlapping evaluations would see each other's observations; such misuse
+ * results in an IllegalStateException rather than wrong results. A program may
+ * be handed from one thread to another between evaluations.
+ */
+public class CompiledVeLaProgram {
+
+    private VeLaInterpreter vela;
+    private String source;
+    private AST ast;
+    private Optional<VeLaNode> root;
+    private VeLaValidObservationEnvironment cursor;
+    private Optional<ColumnNode> columnRoot;
+
+    // The thread currently evaluating the program against the cursor, if
+    // any, with which to detect overlapping evaluations.
+    private final AtomicReference<Thread> evaluator = new AtomicReference<Thread>();
+
+    /**
+     * Constructor
+     *
+     * @param vela   The interpreter that compiled the program and on which it
+     *               will be evaluated.
+     * @param source The VeLa source code of the program.
+     * @param ast    The abstract syntax tree resulting from compilation; may be
+     *               null if there is nothing to evaluate.
+     * @param root   The optional root of a closure tree compiled from the AST,
+     *               evaluated in preference to the AST if present.
+     * @param cursor The observation environment against which the closure tree
+     *               was compiled, if any; may be null.
+     */
+    protected CompiledVeLaProgram(VeLaInterpreter vela, String source, AST ast, Optional<VeLaNode> root,
+            VeLaValidObservationEnvironment cursor) {
+        this(vela, source, ast, root, cursor, Optional.empty());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param vela       The interpreter that compiled the program and on which
+     *                   it will be evaluated.
+     * @param source     The VeLa source code of the program.
+     * @param ast        The abstract syntax tree resulting from compilation; may
+     *                   be null if there is nothing to evaluate.
+     * @param root       The optional root of a closure tree compiled from the
+     *                   AST, evaluated in preference to the AST if present.
+     * @param cursor     The observation environment against which the closure
+     *                   tree was compiled, if any; may be null.
+     * @param columnRoot The optional root of a column tree compiled from the
+     *                   AST, used for batch evaluation if present and Boolean.
+     */
+    protected CompiledVeLaProgram(VeLaInterpreter vela, String source, AST ast, Optional<VeLaNode> root,
+            VeLaValidObservationEnvironment cursor, Optional<ColumnNode> columnRoot) {
+        this.vela = vela;
+        this.source = source;
+        this.ast = ast;
+        this.root = root;
+        this.cursor = cursor;
+        this.columnRoot = columnRoot.filter(node -> node.getType() == Type.BOOLEAN);
+    }
+
+    /**
+     * @return the VeLa source code of this program
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the abstract syntax tree of this program, possibly null
+     */
+    public AST getAST() {
+        return ast;
+    }
+
+    /**
+     * @return whether this program was compiled to a tree of closures
+     */
+    public boolean isClosureCompiled() {
+        return root.isPresent();
+    }
+
+    /**
+     * @return whether this program was compiled to a Boolean column tree, such
+     *         that batch evaluation is carried out column-wise
+     */
+    public boolean isColumnCompiled() {
+        return columnRoot.isPresent();
+    }
+
+    /**
+     * Evaluate the program in the interpreter's current environment.
+     *
+     * @return An optional result, depending upon whether a value was left on the
+     *         stack.
+     * @throws VeLaEvalError If an evaluation error occurs.
+     */
+    public Optional<Operand> evaluate() throws VeLaEvalError {
+        if (root.isPresent()) {
+            return Optional.ofNullable(root.get().eval());
+        } else {
+            return vela.evalToResult(ast);
+        }
+    }
+
+    /**
+     * Evaluate the program with the specified environment pushed onto the
+     * interpreter's environment stack for the duration of the evaluation, e.g.
+     * an environment that makes an observation's properties available.
+     *
+     * @param environment The environment in which to evaluate the program.
+     * @return An optional result, depending upon whether a value was left on the
+     *         stack.
+     * @throws VeLaEvalError If an evaluation error occurs.
+     */
+    public Optional<Operand> evaluate(VeLaEnvironment<Operand> environment) throws VeLaEvalError {
+        vela.pushEnvironment(environment);
+        try {
+            return evaluate();
+        } finally {
+            vela.popEnvironment();
+        }
+    }
+
+    /**
+     * Evaluate the program with the specified observation's properties
+     * available. A single observation environment is re-pointed at each
+     * observation rather than a new environment being created each time, so
+     * this must not be called by more than one thread at a time.
+     *
+     * @param ob The observation.
+     * @return An optional result, depending upon whether a value was left on the
+     *         stack.
+     * @throws VeLaEvalError         If an evaluation error occurs.
+     * @throws IllegalStateException If the program is already being evaluated.
+     */
+    public Optional<Operand> evaluate(ValidObservation ob) throws VeLaEvalError {
+        if (!evaluator.compareAndSet(null, Thread.currentThread())) {
+            throw new IllegalStateException(
+                    "\"" + source + "\" is already being evaluated by " + evaluator.get());
+        }
+
+        try {
+            if (cursor == null) {
+                cursor = new VeLaValidObservationEnvironment();
+            }
+
+            cursor.setObservation(ob);
+
+            return evaluate(cursor);
+        } finally {
+            evaluator.set(null);
+        }
+    }
+
+    /**
+     * Evaluate the program as a filter over a batch of observations. If the
+     * program was compiled to a column tree, it is evaluated column-wise over
+     * the whole batch, large batches being split across cores; otherwise it is
+     * evaluated for each observation in turn.
+     *
+     * @param obs The observations.
+     * @return For each observation, whether the program yielded true; a
+     *         non-Boolean or absent result counts as false.
+     * @throws VeLaEvalError If an evaluation error occurs.
+     */
+    public boolean[] evaluateBatch(List<ValidObservation> obs) throws VeLaEvalError {
+        boolean[] matches;
+
+        if (columnRoot.isPresent()) {
+            matches = columnRoot.get().evalBooleans(new VeLaColumns(obs));
+        } else {
+            matches = new boolean[obs.size()];
+            for (int i = 0; i < matches.length; i++) {
+                Optional<Operand> result = evaluate(obs.get(i));
+                matches[i] = result.isPresent() && result.get().getType() == Type.BOOLEAN
+                        && result.get().booleanVal();
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * Evaluate the program as a filter over a batch of observation property
+     * columns, e.g. primitive time, magnitude and uncertainty columns.
+     *
+     * @param columns The batch.
+     * @return For each row, whether the program yielded true.
+     * @throws VeLaEvalError If the program was not compiled to a column tree or
+     *                       an evaluation error occurs.
+     */
+    public boolean[] evaluateBatch(VeLaColumns columns) throws VeLaEvalError {
+        if (!columnRoot.isPresent()) {
+            throw new VeLaEvalError("\"" + source + "\" cannot be evaluated over columns");
+        }
+
+        return columnRoot.get().evalBooleans(columns);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
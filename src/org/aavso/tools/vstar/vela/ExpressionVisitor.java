@@ -301,7 +301,7 @@ public class ExpressionVisitor extends VeLaBaseVisitor<AST> {
                 radix = 16;
             }
         }
-        Operand intLiteral = new Operand(Type.INTEGER, Long.parseLong(token, radix));
+        Operand intLiteral = Operand.valueOf(Long.parseLong(token, radix));
         return new AST(token, intLiteral);
     }
 
@@ -316,7 +316,7 @@ public class ExpressionVisitor extends VeLaBaseVisitor<AST> {
     public AST visitBool(BoolContext ctx) {
         String token = ctx.BOOLEAN().getText().toUpperCase();
         boolean value = "TRUE".equalsIgnoreCase(token) ? true : false;
-        Operand booleanLiteral = new Operand(Type.BOOLEAN, value);
+        Operand booleanLiteral = Operand.valueOf(value);
         return new AST(token, booleanLiteral);
     }
 
@@ -18,6 +18,7 @@
 package org.aavso.tools.vstar.vela;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
@@ -118,6 +119,96 @@ public abstract class FunctionExecutor {
         return result;
     }
 
+    /**
+     * Invoke the function directly with the specified actual parameters, i.e.
+     * without going via VeLa source code, checking that the parameters conform and
+     * that the result conforms to the function's return type.
+     * 
+     * @param actualParameters The actual parameters.
+     * @return The optional return value, converted to the return type if
+     *         necessary.
+     * @throws VeLaEvalError If the parameters do not conform or an error occurred
+     *                       during function evaluation.
+     */
+    public Optional<Operand> invoke(Operand... actualParameters) throws VeLaEvalError {
+        List<Operand> params = new ArrayList<Operand>(Arrays.asList(actualParameters));
+
+        if (!conforms(params)) {
+            throw new VeLaEvalError("Invalid parameters for function \"" + this + "\"");
+        }
+
+        return checkResult(apply(params));
+    }
+
+    /**
+     * Invoke a function of one real parameter that returns a numeric value, e.g. a
+     * model function f(t:real):real evaluated over many points. Neither a VeLa
+     * source string nor the AST cache are involved in the call. This
+     * implementation is a convenience wrapper around invoke(), so allocates the
+     * parameter and result operands; subclasses override it with a primitive
+     * path where they can, e.g. a Java method bound to a DoubleUnaryOperator or
+     * a user-defined function whose body compiles to a closure tree.
+     * 
+     * @param x The real parameter.
+     * @return The real result.
+     * @throws VeLaEvalError If the parameter does not conform, no numeric value is
+     *                       returned or an error occurred during function
+     *                       evaluation.
+     */
+    public double invokeAsDouble(double x) throws VeLaEvalError {
+        Optional<Operand> result = invoke(new Operand(Type.REAL, x));
+
+        if (result.isPresent()) {
+            Operand value = result.get().convert(Type.REAL);
+            if (value.getType() == Type.REAL) {
+                return value.doubleVal();
+            }
+        }
+
+        throw new VeLaEvalError("Numeric value expected as result of \"" + this + "\"");
+    }
+
+    /**
+     * Check that a function result conforms to this function's return type,
+     * converting it to that type if necessary.
+     * 
+     * @param result The optional result returned by apply().
+     * @return The optional, possibly converted, result.
+     * @throws VeLaEvalError If the result does not conform to the return type.
+     */
+    protected Optional<Operand> checkResult(Optional<Operand> result) throws VeLaEvalError {
+        Optional<Operand> checkedResult = result;
+
+        if (result.isPresent()) {
+            // The function returned a result.
+            // Does the function have a return type defined?
+            if (returnType.isPresent()) {
+                // Attempt to convert to return type if necessary.
+                Operand convertedResult = result.get().convert(returnType.get());
+                if (convertedResult.getType() == returnType.get()) {
+                    // The returned result was of the expected type or was converted to it.
+                    checkedResult = Optional.of(convertedResult);
+                } else {
+                    // The returned result was not of the expected type.
+                    throw new VeLaEvalError(String.format(
+                            "The expected return type of %s does not match " + "the actual return type of %s.",
+                            this, result.get().getType()));
+                }
+            } else {
+                throw new VeLaEvalError(String.format(
+                        "%s has no return type but a value " + "of type %s was returned.", this,
+                        result.get().getType()));
+            }
+        } else {
+            if (returnType.isPresent()) {
+                // No result was returned but one was expected.
+                throw new VeLaEvalError(String.format("No value was returned by %s.", this));
+            }
+        }
+
+        return checkedResult;
+    }
+
     /**
      * @return the funcName
      */
@@ -17,20 +17,45 @@
  */
 package org.aavso.tools.vstar.vela;
 
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 /**
- * This class executes Java methods.
+ * This class executes Java methods.<br/>
+ * 
+ * Methods are invoked via a method handle bound once, rather than by
+ * reflection on each call. Static methods of one or two double parameters
+ * returning double (e.g. sin, exp, pow) are further bound to primitive
+ * functional interfaces, so that neither parameters nor result are boxed.
+ * Methods for which no handle can be obtained (e.g. inaccessible methods) are
+ * invoked by reflection.
  */
 public class JavaMethodExecutor extends FunctionExecutor {
 
+    private static final MethodType GENERIC_TYPE = MethodType.methodType(Object.class, Object[].class);
+
     private Object instance;
     private Method method;
 
+    // The method handle, taking an array of parameters (including any object
+    // on which to invoke the method) and returning an object, or null if the
+    // method must be invoked by reflection.
+    private MethodHandle handle;
+
+    // Primitive functions of one or two real parameters, or null.
+    private DoubleUnaryOperator unaryFunction;
+    private DoubleBinaryOperator binaryFunction;
+
     /**
      * Construct a Java method executor.
      * 
@@ -57,11 +82,80 @@ public class JavaMethodExecutor extends FunctionExecutor {
             extendedParams.addAll(parameterNames);
             parameterNames = extendedParams;
         }
+
+        bind();
     }
 
     @Override
     public Optional<Operand> apply(List<Operand> operands) throws VeLaEvalError {
-        return invokeJavaMethod(method, operands, getReturnType());
+        Optional<Operand> retVal;
+
+        if (unaryFunction != null && operands.size() == 1 && operands.get(0).getType() == Type.REAL) {
+            retVal = Optional.of(new Operand(Type.REAL, unaryFunction.applyAsDouble(operands.get(0).doubleVal())));
+        } else if (binaryFunction != null && operands.size() == 2 && operands.get(0).getType() == Type.REAL
+                && operands.get(1).getType() == Type.REAL) {
+            retVal = Optional.of(new Operand(Type.REAL,
+                    binaryFunction.applyAsDouble(operands.get(0).doubleVal(), operands.get(1).doubleVal())));
+        } else if (handle != null) {
+            retVal = invokeMethodHandle(operands, getReturnType());
+        } else {
+            retVal = invokeJavaMethod(method, operands, getReturnType());
+        }
+
+        return retVal;
+    }
+
+    @Override
+    public double invokeAsDouble(double x) throws VeLaEvalError {
+        if (unaryFunction != null) {
+            return unaryFunction.applyAsDouble(x);
+        } else {
+            return super.invokeAsDouble(x);
+        }
+    }
+
+    private Optional<Operand> invokeMethodHandle(List<Operand> operands, Optional<Type> retType) {
+        Optional<Operand> retVal = null;
+
+        try {
+            Class<?>[] javaParamTypes = method.getParameterTypes();
+
+            // For non-static methods without an instance, the first operand is
+            // assumed to be the object on which to invoke the method.
+            int receivers = operands.size() - javaParamTypes.length;
+
+            Object[] objParams = new Object[operands.size()];
+            for (int i = 0; i < objParams.length; i++) {
+                Operand op = operands.get(i);
+                if (i < receivers) {
+                    objParams[i] = op.toObject(Type.vela2Java(op.getType()));
+                } else {
+                    objParams[i] = op.toObject(javaParamTypes[i - receivers]);
+                }
+            }
+
+            Object obj;
+            try {
+                obj = (Object) handle.invokeExact(objParams);
+            } catch (Throwable t) {
+                // As per reflective invocation, an exception thrown by the
+                // method itself is wrapped.
+                throw new InvocationTargetException(t);
+            }
+
+            Operand result = Operand.object2Operand(retType.get(), obj);
+
+            if (result != null) {
+                retVal = Optional.of(result);
+            } else {
+                retVal = Optional.of(Operand.NO_VALUE);
+            }
+
+        } catch (Exception e) {
+            throwVeLaEvalError(e);
+        }
+
+        return retVal;
     }
 
     private Optional<Operand> invokeJavaMethod(Method method, List<Operand> operands, Optional<Type> retType) {
@@ -135,6 +229,61 @@ public class JavaMethodExecutor extends FunctionExecutor {
 
     // Helpers
 
+    // Bind the method to a method handle and, for static double functions of
+    // one or two parameters, to a primitive functional interface. Methods
+    // whose parameters do not all correspond to VeLa parameters, or that are
+    // inaccessible, are left to be invoked by reflection.
+    private void bind() {
+        int receivers = !Modifier.isStatic(method.getModifiers()) && instance == null ? 1 : 0;
+
+        if (method.getParameterCount() + receivers != parameterTypes.size()) {
+            return;
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle target = lookup.unreflect(method);
+
+            if (!Modifier.isStatic(method.getModifiers()) && instance != null) {
+                target = target.bindTo(instance);
+            }
+
+            handle = target.asSpreader(Object[].class, parameterTypes.size()).asType(GENERIC_TYPE);
+
+            if (Modifier.isStatic(method.getModifiers()) && method.getReturnType() == double.class) {
+                Class<?>[] javaParamTypes = method.getParameterTypes();
+
+                if (javaParamTypes.length == 1 && javaParamTypes[0] == double.class) {
+                    unaryFunction = (DoubleUnaryOperator) primitiveFunction(lookup, target,
+                            DoubleUnaryOperator.class);
+                } else if (javaParamTypes.length == 2 && javaParamTypes[0] == double.class
+                        && javaParamTypes[1] == double.class) {
+                    binaryFunction = (DoubleBinaryOperator) primitiveFunction(lookup, target,
+                            DoubleBinaryOperator.class);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            handle = null;
+        }
+    }
+
+    // Return an instance of a primitive functional interface whose single
+    // method, applyAsDouble, invokes the static method target, or null if
+    // there is none.
+    private Object primitiveFunction(MethodHandles.Lookup lookup, MethodHandle target, Class<?> functionalInterface) {
+        Object function = null;
+
+        try {
+            function = LambdaMetafactory.metafactory(lookup, "applyAsDouble",
+                    MethodType.methodType(functionalInterface), target.type(), target, target.type()).getTarget()
+                    .invoke();
+        } catch (Throwable t) {
+            // The method handle will be used instead.
+        }
+
+        return function;
+    }
+
     private void throwVeLaEvalError(Exception e) throws VeLaEvalError {
         String msg = e.getLocalizedMessage();
         if (msg == null) {
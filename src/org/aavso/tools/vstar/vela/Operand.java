@@ -27,58 +27,110 @@ import org.aavso.tools.vstar.util.prefs.NumericPrecisionPrefs;
 /**
  * VeLa: VStar expression Language
  *
- * A class that represents typed operands.
+ * A class that represents typed operands.<br/>
  * 
- * Note: should cache Operand instances
+ * An operand holds a single value: a scalar (integer, real or Boolean) in one
+ * primitive field, tagged with which of these it is, or a string, list or
+ * function in one reference field. Accessors for any other kind of value
+ * return the default value (zero, false or null). Setting a value replaces any
+ * other value of the same kind, i.e. scalar or reference.<br/>
+ * 
+ * Operands returned by valueOf() are shared and must not be modified.
  */
 public class Operand {
 
+    // Scalar tags
+    private static final byte NO_SCALAR = 0;
+    private static final byte INTEGER_SCALAR = 1;
+    private static final byte REAL_SCALAR = 2;
+    private static final byte BOOLEAN_SCALAR = 3;
+
+    // Range of shared integer operands
+    private static final int MIN_SHARED_INTEGER = -128;
+    private static final int MAX_SHARED_INTEGER = 1023;
+
     private Type type;
-    private long intVal;
-    private double doubleVal;
-    private String stringVal;
-    private boolean booleanVal;
-    private List<Operand> listVal;
-    private FunctionExecutor functionVal;
+
+    // An integer, the bits of a real, or a Boolean (1 or 0), per the tag.
+    private long scalar;
+    private byte scalarTag;
+
+    // A string, list or function.
+    private Object ref;
 
     public static Operand EMPTY_LIST = new Operand(Type.LIST, Collections.emptyList());
 
     public static Operand NO_VALUE = new Operand(Type.NONE, false);
 
+    private static final Operand TRUE = new Operand(Type.BOOLEAN, true);
+    private static final Operand FALSE = new Operand(Type.BOOLEAN, false);
+
+    private static final Operand[] SHARED_INTEGERS = new Operand[MAX_SHARED_INTEGER - MIN_SHARED_INTEGER + 1];
+
+    static {
+        for (int i = 0; i < SHARED_INTEGERS.length; i++) {
+            SHARED_INTEGERS[i] = new Operand(Type.INTEGER, (long) (i + MIN_SHARED_INTEGER));
+        }
+    }
+
     public Operand(Type type, long value) {
         this.type = type;
-        intVal = value;
+        setIntegerVal(value);
     }
 
     public Operand(Type type, double value) {
         this.type = type;
-        doubleVal = value;
+        setDoubleVal(value);
     }
 
     public Operand(Type type, String value) {
         this.type = type;
-        stringVal = value;
+        ref = value;
     }
 
     public Operand(Type type, boolean value) {
         this.type = type;
-        booleanVal = value;
+        setBooleanVal(value);
     }
 
     public Operand(Type type, List<Operand> value) {
         this.type = type;
-        listVal = value;
+        ref = value;
     }
 
     public Operand(Type type, FunctionExecutor value) {
         this.type = type;
-        functionVal = value;
+        ref = value;
     }
 
     // For object copy
     private Operand() {
     }
 
+    /**
+     * Return a shared Boolean operand.
+     * 
+     * @param value The Boolean value.
+     * @return The operand, which must not be modified.
+     */
+    public static Operand valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Return an integer operand, shared if the value is small.
+     * 
+     * @param value The integer value.
+     * @return The operand, which must not be modified.
+     */
+    public static Operand valueOf(long value) {
+        if (value >= MIN_SHARED_INTEGER && value <= MAX_SHARED_INTEGER) {
+            return SHARED_INTEGERS[(int) value - MIN_SHARED_INTEGER];
+        } else {
+            return new Operand(Type.INTEGER, value);
+        }
+    }
+
     /**
      * @return the type
      */
@@ -97,84 +149,88 @@ public class Operand {
      * @param intVal the intVal to set
      */
     public void setIntegerVal(long intVal) {
-        this.intVal = intVal;
+        scalar = intVal;
+        scalarTag = INTEGER_SCALAR;
     }
 
     /**
      * @param doubleVal the doubleVal to set
      */
     public void setDoubleVal(double doubleVal) {
-        this.doubleVal = doubleVal;
+        scalar = Double.doubleToRawLongBits(doubleVal);
+        scalarTag = REAL_SCALAR;
     }
 
     /**
      * @return the intVal
      */
     public long intVal() {
-        return intVal;
+        return scalarTag == INTEGER_SCALAR ? scalar : 0;
     }
 
     /**
      * @return the doubleVal
      */
     public double doubleVal() {
-        return doubleVal;
+        return scalarTag == REAL_SCALAR ? Double.longBitsToDouble(scalar) : 0;
     }
 
     /**
      * @param stringVal the stringVal to set
      */
     public void setStringVal(String stringVal) {
-        this.stringVal = stringVal;
+        ref = stringVal;
     }
 
     /**
      * @return the stringVal
      */
     public String stringVal() {
-        return stringVal;
+        return ref instanceof String ? (String) ref : null;
     }
 
     /**
      * @param booleanVal the booleanVal to set
      */
     public void setBooleanVal(boolean booleanVal) {
-        this.booleanVal = booleanVal;
+        scalar = booleanVal ? 1 : 0;
+        scalarTag = BOOLEAN_SCALAR;
     }
 
     /**
      * @return the booleanVal
      */
     public boolean booleanVal() {
-        return booleanVal;
+        return scalarTag == BOOLEAN_SCALAR && scalar != 0;
     }
 
     /**
      * @return the listVal
      */
+    @SuppressWarnings("unchecked")
     public List<Operand> listVal() {
-        return listVal;
+        return ref instanceof List ? (List<Operand>) ref : null;
     }
 
     /**
      * @param listVal the listVal to set
      */
     public void setListVal(List<Operand> listVal) {
-        this.listVal = listVal;
+        ref = listVal;
     }
 
     /**
      * @return the functionVal
      */
     public FunctionExecutor functionVal() {
-        return functionVal;
+        return ref instanceof FunctionExecutor ? (FunctionExecutor) ref : null;
     }
 
     /**
      * @param functionVal the functionVal to set
      */
     public void setFunctionVal(FunctionExecutor functionVal) {
-        this.functionVal = functionVal;
+        ref = functionVal;
     }
 
     /**
@@ -191,7 +247,7 @@ public class Operand {
         if (!type.isComposite()) {
             if (type != requiredType) {
                 if (type == Type.INTEGER && requiredType == Type.REAL) {
-                    operand = new Operand(Type.REAL, (double) intVal);
+                    operand = new Operand(Type.REAL, (double) intVal());
                 } else if (type != Type.STRING && requiredType == Type.STRING) {
                     operand = operand.convertToString();
                 }
@@ -211,13 +267,13 @@ public class Operand {
 
         switch (type) {
         case INTEGER:
-            operand = new Operand(Type.STRING, Long.toString(intVal));
+            operand = new Operand(Type.STRING, Long.toString(intVal()));
             break;
         case REAL:
-            operand = new Operand(Type.STRING, NumericPrecisionPrefs.formatOther(doubleVal));
+            operand = new Operand(Type.STRING, NumericPrecisionPrefs.formatOther(doubleVal()));
             break;
         case BOOLEAN:
-            operand = new Operand(Type.STRING, Boolean.toString(booleanVal));
+            operand = new Operand(Type.STRING, Boolean.toString(booleanVal()));
             break;
         default:
             break;
@@ -231,22 +287,22 @@ public class Operand {
 
         switch (type) {
         case INTEGER:
-            str = Long.toString(intVal);
+            str = Long.toString(intVal());
             break;
         case REAL:
-            str = NumericPrecisionPrefs.formatOther(doubleVal);
+            str = NumericPrecisionPrefs.formatOther(doubleVal());
             break;
         case BOOLEAN:
-            str = booleanVal ? "True" : "False";
+            str = booleanVal() ? "True" : "False";
             break;
         case STRING:
-            str = stringVal;
+            str = stringVal();
             break;
         case LIST:
-            str = listVal.toString().replace(",", "");
+            str = listVal().toString().replace(",", "");
             break;
         case FUNCTION:
-            str = functionVal.toString();
+            str = functionVal().toString();
             break;
         default:
             break;
@@ -261,22 +317,22 @@ public class Operand {
 
         switch (type) {
         case INTEGER:
-            str = Long.toString(intVal);
+            str = Long.toString(intVal());
             break;
         case REAL:
-            str = NumericPrecisionPrefs.formatOther(doubleVal);
+            str = NumericPrecisionPrefs.formatOther(doubleVal());
             break;
         case BOOLEAN:
-            str = booleanVal ? "True" : "False";
+            str = booleanVal() ? "True" : "False";
             break;
         case STRING:
-            str = "\"" + stringVal + "\"";
+            str = "\"" + stringVal() + "\"";
             break;
         case LIST:
-            str = listVal.toString().replace(",", "");
+            str = listVal().toString().replace(",", "");
             break;
         case FUNCTION:
-            str = functionVal.toString();
+            str = functionVal().toString();
             break;
         default:
             break;
@@ -326,9 +382,7 @@ public class Operand {
                             arr.add(new Operand(Type.REAL, n));
                         }
                     } else if (obj.getClass() == Type.DBL_ARR.getClass()) {
-                        for (double n : (double[]) obj) {
-                            arr.add(new Operand(Type.REAL, n));
-                        }
+                        arr = new RealList((double[]) obj);
                     } else if (obj.getClass() == Type.DBL_CLASS_ARR.getClass()) {
                         for (Double n : (Double[]) obj) {
                             arr.add(new Operand(Type.REAL, n));
@@ -384,49 +438,52 @@ public class Operand {
 
         switch (type) {
         case INTEGER:
-            obj = numericVeLaToJava(javaType, intVal);
+            obj = numericVeLaToJava(javaType, intVal());
             break;
         case REAL:
-            obj = numericVeLaToJava(javaType, doubleVal);
+            obj = numericVeLaToJava(javaType, doubleVal());
             break;
         case BOOLEAN:
             if (javaType == boolean.class) {
-                obj = booleanVal;
+                obj = booleanVal();
             } else {
                 vela2JavaTypeError(this, javaType);
             }
             break;
         case STRING:
             if (javaType == String.class || javaType == CharSequence.class) {
-                obj = stringVal;
+                obj = stringVal();
             } else {
                 vela2JavaTypeError(this, javaType);
             }
             break;
         case LIST:
             try {
-                if (javaType == Type.DBL_ARR.getClass() || javaType == Type.DBL_CLASS_ARR.getClass()) {
+                List<Operand> listVal = listVal();
+                if (javaType == Type.DBL_ARR.getClass() && listVal instanceof RealList) {
+                    obj = ((RealList) listVal).toDoubleArray();
+                } else if (javaType == Type.DBL_ARR.getClass() || javaType == Type.DBL_CLASS_ARR.getClass()) {
                     double[] reals = new double[listVal.size()];
                     list2Array(Type.REAL, (op, i) -> {
-                        reals[i++] = op.doubleVal;
+                        reals[i++] = op.doubleVal();
                     });
                     obj = reals;
                 } else if (javaType == Type.INT_ARR.getClass()) {
                     long[] ints = new long[listVal.size()];
                     list2Array(Type.INTEGER, (op, i) -> {
-                        ints[i++] = op.intVal;
+                        ints[i++] = op.intVal();
                     });
                     obj = ints;
                 } else if (javaType == Type.BOOL_ARR.getClass()) {
                     boolean[] booleans = new boolean[listVal.size()];
                     list2Array(Type.BOOLEAN, (op, i) -> {
-                        booleans[i++] = op.booleanVal;
+                        booleans[i++] = op.booleanVal();
                     });
                     obj = booleans;
                 } else if (javaType == Type.STR_ARR.getClass()) {
                     String[] strings = new String[listVal.size()];
                     list2Array(Type.STRING, (op, i) -> {
-                        strings[i++] = op.stringVal;
+                        strings[i++] = op.stringVal();
                     });
                     obj = strings;
                 }
@@ -452,14 +509,14 @@ public class Operand {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + (booleanVal ? 1231 : 1237);
+        result = prime * result + (booleanVal() ? 1231 : 1237);
         long temp;
-        temp = Double.doubleToLongBits(doubleVal);
+        temp = Double.doubleToLongBits(doubleVal());
         result = prime * result + (int) (temp ^ (temp >>> 32));
-        result = prime * result + ((functionVal == null) ? 0 : functionVal.hashCode());
-        result = prime * result + (int) (intVal ^ (intVal >>> 32));
-        result = prime * result + ((listVal == null) ? 0 : listVal.hashCode());
-        result = prime * result + ((stringVal == null) ? 0 : stringVal.hashCode());
+        result = prime * result + ((functionVal() == null) ? 0 : functionVal().hashCode());
+        result = prime * result + (int) (intVal() ^ (intVal() >>> 32));
+        result = prime * result + ((listVal() == null) ? 0 : listVal().hashCode());
+        result = prime * result + ((stringVal() == null) ? 0 : stringVal().hashCode());
         result = prime * result + ((type == null) ? 0 : type.hashCode());
         return result;
     }
@@ -473,28 +530,18 @@ public class Operand {
         if (getClass() != obj.getClass())
             return false;
         Operand other = (Operand) obj;
-        if (booleanVal != other.booleanVal)
-            return false;
-        if (Double.doubleToLongBits(doubleVal) != Double.doubleToLongBits(other.doubleVal))
+        if (type != other.type)
             return false;
-        if (functionVal == null) {
-            if (other.functionVal != null)
-                return false;
-        } else if (!functionVal.equals(other.functionVal))
+        if (booleanVal() != other.booleanVal())
             return false;
-        if (intVal != other.intVal)
+        if (Double.doubleToLongBits(doubleVal()) != Double.doubleToLongBits(other.doubleVal()))
             return false;
-        if (listVal == null) {
-            if (other.listVal != null)
-                return false;
-        } else if (!listVal.equals(other.listVal))
+        if (intVal() != other.intVal())
             return false;
-        if (stringVal == null) {
-            if (other.stringVal != null)
+        if (ref == null) {
+            if (other.ref != null)
                 return false;
-        } else if (!stringVal.equals(other.stringVal))
-            return false;
-        if (type != other.type)
+        } else if (!ref.equals(other.ref))
             return false;
         return true;
     }
@@ -503,32 +550,20 @@ public class Operand {
         Operand operand = new Operand();
 
         operand.type = type;
+        operand.scalar = scalar;
+        operand.scalarTag = scalarTag;
 
-        switch (type) {
-        case INTEGER:
-            operand.intVal = intVal;
-            break;
-        case REAL:
-            operand.doubleVal = doubleVal;
-            break;
-        case BOOLEAN:
-            operand.booleanVal = booleanVal;
-            break;
-        case STRING:
-            operand.stringVal = stringVal;
-            break;
-        case LIST:
+        if (ref instanceof RealList) {
+            // Real lists are immutable, so can be shared.
+            operand.ref = ref;
+        } else if (ref instanceof List) {
             List<Operand> list = new ArrayList<Operand>();
-            for (Operand op : listVal) {
+            for (Operand op : listVal()) {
                 list.add(op.copy());
             }
-            operand.listVal = list;
-            break;
-        case FUNCTION:
-            operand.functionVal = functionVal;
-            break;
-        default:
-            break;
+            operand.ref = list;
+        } else {
+            operand.ref = ref;
         }
 
         return operand;
@@ -567,6 +602,7 @@ public class Operand {
      *                     an operand to the ith element of an array.
      */
     private void list2Array(Type requiredType, BiConsumer<Operand, Integer> assigner) {
+        List<Operand> listVal = listVal();
         for (int i = 0; i < listVal.size(); i++) {
             Operand op = listVal.get(i);
             op = op.convert(requiredType);
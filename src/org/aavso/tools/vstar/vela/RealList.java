@@ -0,0 +1,239 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * An immutable VeLa list of reals backed by an array of doubles rather than
+ * one operand per element. Elements are returned as new real operands, so the
+ * list is equal to, and interchangeable with, any other list of the same real
+ * operands.
+ */
+public class RealList extends AbstractList<Operand> implements RandomAccess {
+
+    private final double[] values;
+    private final int size;
+
+    /**
+     * Construct a list of reals from a copy of an array.
+     *
+     * @param values The real values.
+     */
+    public RealList(double[] values) {
+        this(values.clone(), values.length);
+    }
+
+    // Construct a list from the first size elements of an array, which must
+    // not be modified subsequently.
+    private RealList(double[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    @Override
+    public Operand get(int index) {
+        return new Operand(Type.REAL, getReal(index));
+    }
+
+    /**
+     * Return the real value at the specified index, without creating an
+     * operand.
+     *
+     * @param index The index.
+     * @return The real value.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    public double getReal(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return values[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy of the real values in this list
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    @Override
+    public int indexOf(Object obj) {
+        if (obj instanceof Operand && ((Operand) obj).getType() == Type.REAL) {
+            long bits = Double.doubleToLongBits(((Operand) obj).doubleVal());
+            for (int i = 0; i < size; i++) {
+                if (Double.doubleToLongBits(values[i]) == bits) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return indexOf(obj) != -1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof RealList) {
+            RealList other = (RealList) obj;
+            if (size != other.size) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (Double.doubleToLongBits(values[i]) != Double.doubleToLongBits(other.values[i])) {
+                    return false;
+                }
+            }
+            return true;
+        } else {
+            return super.equals(obj);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    /**
+     * Return a list consisting of the elements of this list from the specified
+     * index onwards.
+     *
+     * @param fromIndex The first index.
+     * @return The list.
+     */
+    public RealList from(int fromIndex) {
+        return new RealList(Arrays.copyOfRange(values, fromIndex, size), size - fromIndex);
+    }
+
+    /**
+     * Return a list consisting of the elements of this list followed by those
+     * of another.
+     *
+     * @param other The other list.
+     * @return The list.
+     */
+    public RealList concat(RealList other) {
+        double[] concatenated = Arrays.copyOf(values, size + other.size);
+        System.arraycopy(other.values, 0, concatenated, size, other.size);
+        return new RealList(concatenated, concatenated.length);
+    }
+
+    /**
+     * Return a list consisting of the elements of this list followed by a
+     * value.
+     *
+     * @param value The value.
+     * @return The list.
+     */
+    public RealList append(double value) {
+        double[] appended = Arrays.copyOf(values, size + 1);
+        appended[size] = value;
+        return new RealList(appended, appended.length);
+    }
+
+    /**
+     * Accumulates operands into a list, storing their values in an array of
+     * doubles rather than retaining the operands for as long as all are real.
+     */
+    public static class Builder {
+
+        private double[] reals;
+        private int size;
+
+        // Non-null once a value other than a real has been added.
+        private List<Operand> operands;
+
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * @param capacity The expected number of elements.
+         */
+        public Builder(int capacity) {
+            reals = new double[Math.max(capacity, 1)];
+            size = 0;
+            operands = null;
+        }
+
+        /**
+         * Add an operand.
+         *
+         * @param operand The operand.
+         */
+        public void add(Operand operand) {
+            if (operands == null && operand.getType() == Type.REAL) {
+                add(operand.doubleVal());
+            } else {
+                if (operands == null) {
+                    operands = new ArrayList<Operand>(Math.max(size * 2, 16));
+                    for (int i = 0; i < size; i++) {
+                        operands.add(new Operand(Type.REAL, reals[i]));
+                    }
+                    reals = null;
+                }
+                operands.add(operand);
+            }
+        }
+
+        /**
+         * Add a real value.
+         *
+         * @param value The value.
+         */
+        public void add(double value) {
+            if (operands != null) {
+                operands.add(new Operand(Type.REAL, value));
+            } else {
+                if (size == reals.length) {
+                    reals = Arrays.copyOf(reals, size * 2);
+                }
+                reals[size++] = value;
+            }
+        }
+
+        /**
+         * @return the list of operands added: a real list if all were real, and
+         *         the builder must not be used subsequently
+         */
+        public List<Operand> build() {
+            if (operands != null) {
+                return operands;
+            } else {
+                return new RealList(reals, size);
+            }
+        }
+    }
+}
@@ -29,6 +29,11 @@ public class UserDefinedFunctionExecutor extends FunctionExecutor {
     private Optional<AST> ast;
     private VeLaScope env;
 
+    // The body compiled against a real parameter for invokeAsDouble(), if
+    // possible, and the parameter's value; null until first needed.
+    private Optional<VeLaNode> realBody;
+    private double realArgument;
+
     /**
      * Construct a named function definition
      * 
@@ -74,6 +79,18 @@ public class UserDefinedFunctionExecutor extends FunctionExecutor {
         this(vela, Optional.empty(), parameterNames, parameterTypes, returnType, ast, helpString);
     }
 
+    /**
+     * Return a copy of this function bound to another interpreter, e.g. a new
+     * context of the runtime whose prototype context defined it. The function
+     * body and captured environment are shared.
+     * 
+     * @param vela The interpreter to which the copy is to be bound.
+     * @return The copy.
+     */
+    public UserDefinedFunctionExecutor rebind(VeLaInterpreter vela) {
+        return new UserDefinedFunctionExecutor(vela, this);
+    }
+
     @Override
     public Optional<Operand> apply(List<Operand> operands) throws VeLaEvalError {
         // If the function has a body, push a new scope and the environment if
@@ -115,6 +132,87 @@ public class UserDefinedFunctionExecutor extends FunctionExecutor {
         return result;
     }
 
+    /**
+     * Invoke a function of one real parameter that returns a real value without
+     * binding an operand to the parameter, if its body is an expression that
+     * can be compiled to a closure tree that reads the parameter's value
+     * directly; otherwise, the function is applied as usual. Functions called
+     * by the body are resolved the first time this is called.
+     */
+    @Override
+    public double invokeAsDouble(double x) throws VeLaEvalError {
+        if (realBody == null) {
+            realBody = compileRealBody();
+        }
+
+        if (!realBody.isPresent()) {
+            return super.invokeAsDouble(x);
+        }
+
+        // Restore the previous argument afterwards in case of recursion.
+        double previousArgument = realArgument;
+        realArgument = x;
+
+        if (!env.isEmpty()) {
+            vela.pushEnvironment(env);
+        }
+
+        try {
+            return realBody.get().evalDouble();
+        } finally {
+            if (!env.isEmpty()) {
+                vela.popEnvironment();
+            }
+
+            realArgument = previousArgument;
+        }
+    }
+
+    /**
+     * @return whether invokeAsDouble() evaluates a compiled body, compiling it
+     *         if not yet attempted
+     */
+    boolean isRealBodyCompiled() {
+        if (realBody == null) {
+            realBody = compileRealBody();
+        }
+
+        return realBody.isPresent();
+    }
+
+    // Compile the body of a function of one real parameter that returns a
+    // real value, in the environment in which it is evaluated.
+    private Optional<VeLaNode> compileRealBody() {
+        Optional<VeLaNode> body = Optional.empty();
+
+        if (ast.isPresent() && parameterTypes.size() == 1 && parameterTypes.get(0) == Type.REAL
+                && returnType.equals(Optional.of(Type.REAL))) {
+            if (!env.isEmpty()) {
+                vela.pushEnvironment(env);
+            }
+
+            try {
+                body = new VeLaClosureCompiler(vela, parameterNames.get(0), () -> realArgument).compile(ast.get());
+            } finally {
+                if (!env.isEmpty()) {
+                    vela.popEnvironment();
+                }
+            }
+        }
+
+        return body;
+    }
+
+    // Construct a copy of a function bound to the specified interpreter.
+    private UserDefinedFunctionExecutor(VeLaInterpreter vela, UserDefinedFunctionExecutor function) {
+        super(function.funcName, function.parameterNames, function.parameterTypes, function.returnType,
+                function.helpString);
+
+        this.vela = vela;
+        this.ast = function.ast;
+        this.env = function.env;
+    }
+
     /**
      * Is the function body tail recursive?
      */
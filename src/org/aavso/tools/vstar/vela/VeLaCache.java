@@ -0,0 +1,244 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * A thread-safe least recently used cache bounded by both the number of entries
+ * and their total weight, as determined by a weigher function. Entries are
+ * evicted in least recently used order when either bound is exceeded.
+ * Hit, miss and eviction counts are maintained.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class VeLaCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToLongFunction<K> weigher;
+
+    private final LinkedHashMap<K, V> map;
+
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor
+     *
+     * @param name       The name of the cache, for statistics reporting.
+     * @param maxEntries The maximum number of entries.
+     * @param maxWeight  The maximum total weight of all entries.
+     * @param weigher    A function that yields the weight of an entry given its
+     *                   key.
+     */
+    public VeLaCache(String name, int maxEntries, long maxWeight, ToLongFunction<K> weigher) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+
+        // Access ordered, so iteration starts with the least recently used entry.
+        map = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+        weight = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Return the value associated with the specified key, if present.
+     *
+     * @param key The key.
+     * @return The value or null if not present.
+     */
+    public synchronized V get(K key) {
+        V value = map.get(key);
+
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+
+        return value;
+    }
+
+    /**
+     * Associate a value with a key, evicting least recently used entries if
+     * necessary. An entry whose weight alone exceeds the maximum weight is not
+     * cached.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public synchronized void put(K key, V value) {
+        long entryWeight = weigher.applyAsLong(key);
+
+        if (entryWeight > maxWeight) {
+            return;
+        }
+
+        V oldValue = map.put(key, value);
+
+        if (oldValue == null) {
+            weight += entryWeight;
+        }
+
+        Iterator<Map.Entry<K, V>> iter = map.entrySet().iterator();
+
+        while ((map.size() > maxEntries || weight > maxWeight) && iter.hasNext()) {
+            Map.Entry<K, V> eldest = iter.next();
+            if (eldest.getKey().equals(key)) {
+                // Never evict the entry just added.
+                continue;
+            }
+            weight -= weigher.applyAsLong(eldest.getKey());
+            iter.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Return the value associated with the specified key, computing and caching
+     * it first if not present.
+     *
+     * @param key      The key.
+     * @param function The function that computes a value from a key.
+     * @return The value.
+     */
+    public V computeIfAbsent(K key, Function<K, V> function) {
+        V value = get(key);
+
+        if (value == null) {
+            // The computation takes place outside the lock; two threads may
+            // compute the same value but the result is equivalent.
+            value = function.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Remove all entries and reset statistics.
+     */
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * @return the name of this cache
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return a snapshot of this cache's statistics
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(name, map.size(), weight, hits, misses, evictions);
+    }
+
+    /**
+     * An immutable snapshot of cache statistics.
+     */
+    public static class Statistics {
+        private final String name;
+        private final int size;
+        private final long weight;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        public Statistics(String name, int size, long weight, long hits, long misses, long evictions) {
+            this.name = name;
+            this.size = size;
+            this.weight = weight;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        /**
+         * @return the name of the cache
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the number of entries
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return the total weight of all entries
+         */
+        public long getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return the number of hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the number of misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return the number of evictions
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: size=%d, weight=%d, hits=%d, misses=%d, evictions=%d", name, size, weight,
+                    hits, misses, evictions);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.DoubleSupplier;
+
+import org.aavso.tools.vstar.vela.VeLaNode.BooleanNode;
+import org.aavso.tools.vstar.vela.VeLaNode.ConstantNode;
+import org.aavso.tools.vstar.vela.VeLaNode.DoubleNode;
+import org.aavso.tools.vstar.vela.VeLaNode.IntegerNode;
+import org.aavso.tools.vstar.vela.VeLaNode.OperandNode;
+import org.aavso.tools.vstar.vela.VeLaNode.StringNode;
+import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment.Slot;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * Compiles an expression AST into a tree of closures. Where the types of an
+ * operation's operands are known at compile time (e.g. literals and the
+ * results of other such operations), the operation is specialised for those
+ * types so that it is evaluated on primitive values without type dispatch, an
+ * operand stack or intermediate operands. Symbols that refer to observation
+ * properties may be resolved at compile time against an observation cursor;
+ * other symbols are looked up at run time and operations on them are applied
+ * via the interpreter's operation semantics. Special forms and function calls
+ * are delegated to the interpreter.<br/>
+ * 
+ * A function body may instead be compiled against a single real parameter
+ * whose value is supplied directly, such that the function can be evaluated
+ * without binding an operand to the parameter. In that case, calls to
+ * functions of one real parameter with a real return type are resolved at
+ * compile time and made via FunctionExecutor.invokeAsDouble(), but the body
+ * is not compiled at all if the parameter would be needed by a part of it
+ * that is delegated to the interpreter.
+ */
+public class VeLaClosureCompiler {
+
+    private VeLaInterpreter vela;
+
+    private VeLaValidObservationEnvironment cursor;
+
+    private String parameter;
+    private DoubleSupplier parameterValue;
+    private boolean parameterDelegated;
+
+    private static final List<Type> REAL_PARAMETER = Arrays.asList(Type.REAL);
+
+    /**
+     * Constructor
+     *
+     * @param vela The interpreter in which compiled programs will be evaluated.
+     */
+    public VeLaClosureCompiler(VeLaInterpreter vela) {
+        this(vela, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param vela   The interpreter in which compiled programs will be
+     *               evaluated.
+     * @param cursor An observation environment that will be the top-most
+     *               environment whenever compiled programs are evaluated, such
+     *               that symbols referring to observation properties can be
+     *               resolved at compile time to typed accessors on the cursor's
+     *               current observation; may be null.
+     */
+    public VeLaClosureCompiler(VeLaInterpreter vela, VeLaValidObservationEnvironment cursor) {
+        this.vela = vela;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param vela           The interpreter in which compiled function bodies
+     *                       will be evaluated.
+     * @param parameter      The name of the function's real parameter.
+     * @param parameterValue A supplier of the parameter's current value.
+     */
+    public VeLaClosureCompiler(VeLaInterpreter vela, String parameter, DoubleSupplier parameterValue) {
+        this(vela, null);
+        this.parameter = parameter;
+        this.parameterValue = parameterValue;
+    }
+
+    /**
+     * Compile a program AST into a closure tree if it consists of a single
+     * expression that benefits from compilation.
+     *
+     * @param ast The program's AST; may be null.
+     * @return The optional root of the closure tree.
+     */
+    public Optional<VeLaNode> compile(AST ast) {
+        VeLaNode node = null;
+
+        if (ast != null) {
+            AST expr = ast;
+
+            if (ast.getOp() == Operation.SEQUENCE) {
+                expr = ast.hasChildren() && ast.getChildren().size() == 1 ? ast.head() : null;
+            }
+
+            if (expr != null && (isExpression(expr) || isRealFunctionCall(expr))) {
+                node = compileNode(expr);
+            }
+
+            if (parameterDelegated) {
+                node = null;
+            }
+        }
+
+        return Optional.ofNullable(node);
+    }
+
+    /**
+     * Compile an AST into a closure tree.
+     *
+     * @param ast The AST.
+     * @return The root of the closure tree.
+     */
+    public VeLaNode compileNode(AST ast) {
+        VeLaNode node;
+
+        if (ast.isLiteral()) {
+            node = new ConstantNode(ast.getOperand());
+        } else if (ast.getOp() == Operation.SYMBOL) {
+            node = compileSymbol(ast.getToken());
+        } else if (ast.getOp().arity() == 2) {
+            node = compileBinary(ast.getOp(), compileNode(ast.left()), compileNode(ast.right()));
+        } else if (ast.getOp().arity() == 1) {
+            node = compileUnary(ast.getOp(), compileNode(ast.head()));
+        } else if (isRealFunctionCall(ast)) {
+            node = compileRealFunctionCall(ast);
+        } else {
+            parameterDelegated |= refersToParameter(ast);
+            node = new OperandNode(() -> {
+                vela.eval(ast);
+                return vela.pop("Value expected from \"" + ast.getToken() + "\"");
+            });
+        }
+
+        return node;
+    }
+
+    // Helpers
+
+    private VeLaNode compileSymbol(String symbol) {
+        VeLaNode node = null;
+
+        if (cursor != null) {
+            Optional<Slot> slot = cursor.resolve(symbol);
+            if (slot.isPresent()) {
+                Slot theSlot = slot.get();
+                if (theSlot.getType() == Type.REAL) {
+                    node = new DoubleNode(() -> theSlot.realValue(cursor.getObservation()));
+                } else {
+                    node = new StringNode(() -> theSlot.stringValue(cursor.getObservation()));
+                }
+            }
+        }
+
+        if (parameter != null && parameter.equalsIgnoreCase(symbol)) {
+            node = new DoubleNode(parameterValue);
+        }
+
+        if (node == null) {
+            node = new OperandNode(() -> vela.symbolValue(symbol));
+        }
+
+        return node;
+    }
+
+    // Is the AST a call, from a function body compiled against a real
+    // parameter, of a single named function of one real parameter that
+    // returns a real value, e.g. sin(t)?
+    private boolean isRealFunctionCall(AST ast) {
+        boolean isCall = false;
+
+        if (parameter != null && ast.getOp() == Operation.FUNCALL && ast.hasChildren() && ast.getChildren().size() == 2
+                && ast.head().getOp() == Operation.SYMBOL) {
+            Optional<List<FunctionExecutor>> functions = vela.lookupFunctions(ast.head().getToken().toUpperCase());
+            if (functions.isPresent() && functions.get().size() == 1) {
+                FunctionExecutor function = functions.get().get(0);
+                isCall = REAL_PARAMETER.equals(function.getParameterTypes())
+                        && function.getReturnType().equals(Optional.of(Type.REAL));
+            }
+        }
+
+        return isCall;
+    }
+
+    private VeLaNode compileRealFunctionCall(AST ast) {
+        FunctionExecutor function = vela.lookupFunctions(ast.head().getToken().toUpperCase()).get().get(0);
+
+        VeLaNode argument = compileNode(ast.getChildren().get(1));
+
+        VeLaNode node;
+
+        // An argument whose type is only known at run time is converted to a
+        // real value if numeric, as it would be by the function call.
+        if (!argument.isStaticallyTyped() || isNumeric(argument.getType())) {
+            node = new DoubleNode(() -> function.invokeAsDouble(argument.evalDouble()));
+        } else {
+            parameterDelegated |= refersToParameter(ast);
+            node = new OperandNode(() -> {
+                vela.eval(ast);
+                return vela.pop("Value expected from \"" + ast.getToken() + "\"");
+            });
+        }
+
+        return node;
+    }
+
+    // Does the AST refer to the real parameter anywhere?
+    private boolean refersToParameter(AST ast) {
+        boolean refers = false;
+
+        if (parameter != null) {
+            if (ast.getOp() == Operation.SYMBOL && parameter.equalsIgnoreCase(ast.getToken())) {
+                refers = true;
+            } else if (ast.hasChildren()) {
+                for (AST child : ast.getChildren()) {
+                    if (refersToParameter(child)) {
+                        refers = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return refers;
+    }
+
+    private boolean isExpression(AST ast) {
+        return ast.isLiteral() || ast.getOp() == Operation.SYMBOL || ast.getOp().arity() == 1
+                || ast.getOp().arity() == 2;
+    }
+
+    private VeLaNode compileUnary(Operation op, VeLaNode operand) {
+        VeLaNode node = null;
+
+        if (operand.isStaticallyTyped()) {
+            switch (op) {
+            case NEG:
+                if (operand.getType() == Type.INTEGER) {
+                    node = new IntegerNode(() -> -operand.evalInteger());
+                } else if (operand.getType() == Type.REAL) {
+                    node = new DoubleNode(() -> -operand.evalDouble());
+                }
+                break;
+            case NOT:
+                if (operand.getType() == Type.BOOLEAN) {
+                    node = new BooleanNode(() -> !operand.evalBoolean());
+                } else if (operand.getType() == Type.INTEGER) {
+                    node = new IntegerNode(() -> ~operand.evalInteger());
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        if (node == null) {
+            node = new OperandNode(() -> vela.unaryOperation(op, operand.eval()));
+        }
+
+        return node;
+    }
+
+    private VeLaNode compileBinary(Operation op, VeLaNode left, VeLaNode right) {
+        VeLaNode node = null;
+
+        if (left.isStaticallyTyped() && right.isStaticallyTyped()) {
+            Type leftType = left.getType();
+            Type rightType = right.getType();
+
+            if (leftType == Type.INTEGER && rightType == Type.INTEGER) {
+                node = integerOperation(op, left, right);
+            } else if (isNumeric(leftType) && isNumeric(rightType)) {
+                // At least one real operand, so unify to real.
+                node = realOperation(op, left, right);
+            } else if (leftType == Type.BOOLEAN && rightType == Type.BOOLEAN) {
+                node = booleanOperation(op, left, right);
+            } else if (leftType == Type.STRING && rightType == Type.STRING) {
+                node = stringOperation(op, left, right);
+            }
+        }
+
+        if (node == null) {
+            node = new OperandNode(() -> {
+                Operand operand1 = left.eval();
+                Operand operand2 = right.eval();
+                return vela.binaryOperation(op, operand1, operand2);
+            });
+        }
+
+        return node;
+    }
+
+    private boolean isNumeric(Type type) {
+        return type == Type.INTEGER || type == Type.REAL;
+    }
+
+    private VeLaNode integerOperation(Operation op, VeLaNode left, VeLaNode right) {
+        VeLaNode node = null;
+
+        switch (op) {
+        case ADD:
+            node = new IntegerNode(() -> left.evalInteger() + right.evalInteger());
+            break;
+        case SUB:
+            node = new IntegerNode(() -> left.evalInteger() - right.evalInteger());
+            break;
+        case MUL:
+            node = new IntegerNode(() -> left.evalInteger() * right.evalInteger());
+            break;
+        case DIV:
+            node = new IntegerNode(() -> {
+                long dividend = left.evalInteger();
+                long divisor = right.evalInteger();
+                if (divisor != 0) {
+                    return dividend / divisor;
+                } else {
+                    throw new VeLaEvalError(String.format("%s/%s: division by zero error", dividend, divisor));
+                }
+            });
+            break;
+        case POW:
+            node = new IntegerNode(() -> {
+                long base = left.evalInteger();
+                long exponent = right.evalInteger();
+                long power = base;
+                if (exponent == 0) {
+                    power = 1;
+                } else {
+                    // multiply base by itself n-1 times
+                    for (int i = 1; i <= exponent - 1; i++) {
+                        power *= base;
+                    }
+                }
+                return power;
+            });
+            break;
+        case AND:
+            node = new IntegerNode(() -> left.evalInteger() & right.evalInteger());
+            break;
+        case XOR:
+            node = new IntegerNode(() -> left.evalInteger() ^ right.evalInteger());
+            break;
+        case OR:
+            node = new IntegerNode(() -> left.evalInteger() | right.evalInteger());
+            break;
+        case SHL:
+            node = new IntegerNode(() -> left.evalInteger() << right.evalInteger());
+            break;
+        case SHR:
+            node = new IntegerNode(() -> left.evalInteger() >> right.evalInteger());
+            break;
+        case EQUAL:
+            node = new BooleanNode(() -> left.evalInteger() == right.evalInteger());
+            break;
+        case NOT_EQUAL:
+            node = new BooleanNode(() -> left.evalInteger() != right.evalInteger());
+            break;
+        case GREATER_THAN:
+            node = new BooleanNode(() -> left.evalInteger() > right.evalInteger());
+            break;
+        case LESS_THAN:
+            node = new BooleanNode(() -> left.evalInteger() < right.evalInteger());
+            break;
+        case GREATER_THAN_OR_EQUAL:
+            node = new BooleanNode(() -> left.evalInteger() >= right.evalInteger());
+            break;
+        case LESS_THAN_OR_EQUAL:
+            node = new BooleanNode(() -> left.evalInteger() <= right.evalInteger());
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private VeLaNode realOperation(Operation op, VeLaNode left, VeLaNode right) {
+        VeLaNode node = null;
+
+        switch (op) {
+        case ADD:
+            node = new DoubleNode(() -> left.evalDouble() + right.evalDouble());
+            break;
+        case SUB:
+            node = new DoubleNode(() -> left.evalDouble() - right.evalDouble());
+            break;
+        case MUL:
+            node = new DoubleNode(() -> left.evalDouble() * right.evalDouble());
+            break;
+        case DIV:
+            node = new DoubleNode(() -> {
+                double dividend = left.evalDouble();
+                double divisor = right.evalDouble();
+                double quotient = dividend / divisor;
+                if (!Double.isInfinite(quotient)) {
+                    return quotient;
+                } else {
+                    throw new VeLaEvalError(String.format("%s/%s: division by zero error", dividend, divisor));
+                }
+            });
+            break;
+        case POW:
+            node = new DoubleNode(() -> Math.pow(left.evalDouble(), right.evalDouble()));
+            break;
+        case EQUAL:
+            node = new BooleanNode(() -> left.evalDouble() == right.evalDouble());
+            break;
+        case NOT_EQUAL:
+            node = new BooleanNode(() -> left.evalDouble() != right.evalDouble());
+            break;
+        case GREATER_THAN:
+            node = new BooleanNode(() -> left.evalDouble() > right.evalDouble());
+            break;
+        case LESS_THAN:
+            node = new BooleanNode(() -> left.evalDouble() < right.evalDouble());
+            break;
+        case GREATER_THAN_OR_EQUAL:
+            node = new BooleanNode(() -> left.evalDouble() >= right.evalDouble());
+            break;
+        case LESS_THAN_OR_EQUAL:
+            node = new BooleanNode(() -> left.evalDouble() <= right.evalDouble());
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private VeLaNode booleanOperation(Operation op, VeLaNode left, VeLaNode right) {
+        VeLaNode node = null;
+
+        // Note that, as for the interpreter, both operands of the logical
+        // operators are always evaluated.
+        switch (op) {
+        case AND:
+            node = new BooleanNode(() -> left.evalBoolean() & right.evalBoolean());
+            break;
+        case XOR:
+            node = new BooleanNode(() -> left.evalBoolean() ^ right.evalBoolean());
+            break;
+        case OR:
+            node = new BooleanNode(() -> left.evalBoolean() | right.evalBoolean());
+            break;
+        case EQUAL:
+            node = new BooleanNode(() -> left.evalBoolean() == right.evalBoolean());
+            break;
+        case NOT_EQUAL:
+            node = new BooleanNode(() -> left.evalBoolean() != right.evalBoolean());
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private VeLaNode stringOperation(Operation op, VeLaNode left, VeLaNode right) {
+        VeLaNode node = null;
+
+        switch (op) {
+        case ADD:
+            node = new StringNode(() -> left.evalString() + right.evalString());
+            break;
+        case EQUAL:
+            node = new BooleanNode(() -> left.evalString().equals(right.evalString()));
+            break;
+        case NOT_EQUAL:
+            node = new BooleanNode(() -> !left.evalString().equals(right.evalString()));
+            break;
+        case GREATER_THAN:
+            node = new BooleanNode(() -> left.evalString().compareTo(right.evalString()) > 0);
+            break;
+        case LESS_THAN:
+            node = new BooleanNode(() -> left.evalString().compareTo(right.evalString()) < 0);
+            break;
+        case GREATER_THAN_OR_EQUAL:
+            node = new BooleanNode(() -> left.evalString().compareTo(right.evalString()) >= 0);
+            break;
+        case LESS_THAN_OR_EQUAL:
+            node = new BooleanNode(() -> left.evalString().compareTo(right.evalString()) <= 0);
+            break;
+        case IN:
+            node = new BooleanNode(() -> {
+                String str1 = left.evalString();
+                return right.evalString().contains(str1);
+            });
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+}
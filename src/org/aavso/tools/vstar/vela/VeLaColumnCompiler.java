@@ -0,0 +1,709 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment.Slot;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * Compiles an expression AST into a tree of column nodes, each of which
+ * evaluates its operation over a range of rows of a {@link VeLaColumns} batch
+ * at once, yielding a primitive array (double[], long[], boolean[]) or a
+ * string array. Only expressions whose types are known at compile time are
+ * compiled: literals, symbols referring to observation properties, and
+ * arithmetic, comparison, logical and string operations on these. Any other
+ * expression (e.g. one containing a function call or a variable) yields no
+ * column tree, in which case the caller must evaluate the expression for each
+ * observation in turn.
+ */
+public class VeLaColumnCompiler {
+
+    /**
+     * The number of rows below which a batch is not split further when it is
+     * evaluated across cores.
+     */
+    public static final int PARALLEL_THRESHOLD = 4096;
+
+    private VeLaValidObservationEnvironment resolver;
+
+    // The observation property slots referred to by the compiled expression.
+    private Set<Slot> slots;
+
+    /**
+     * Constructor
+     */
+    public VeLaColumnCompiler() {
+        resolver = new VeLaValidObservationEnvironment();
+        slots = EnumSet.noneOf(Slot.class);
+    }
+
+    /**
+     * Compile a program AST into a column tree if it consists of a single
+     * expression that can be evaluated column-wise.
+     *
+     * @param ast The program's AST; may be null.
+     * @return The optional root of the column tree.
+     */
+    public Optional<ColumnNode> compile(AST ast) {
+        ColumnNode node = null;
+
+        if (ast != null) {
+            AST expr = ast;
+
+            if (ast.getOp() == Operation.SEQUENCE) {
+                expr = ast.hasChildren() && ast.getChildren().size() == 1 ? ast.head() : null;
+            }
+
+            if (expr != null) {
+                node = compileNode(expr);
+            }
+        }
+
+        if (node != null) {
+            node = new ColumnNode(node.type, node.function, slots);
+        }
+
+        return Optional.ofNullable(node);
+    }
+
+    /**
+     * Compile an AST into a column tree.
+     *
+     * @param ast The AST.
+     * @return The root of the column tree or null if the AST cannot be
+     *         evaluated column-wise.
+     */
+    public ColumnNode compileNode(AST ast) {
+        ColumnNode node = null;
+
+        if (ast.isLiteral()) {
+            node = compileLiteral(ast.getOperand());
+        } else if (ast.getOp() == Operation.SYMBOL) {
+            node = compileSymbol(ast.getToken());
+        } else if (ast.getOp().arity() == 2) {
+            ColumnNode left = compileNode(ast.left());
+            ColumnNode right = left == null ? null : compileNode(ast.right());
+            if (right != null) {
+                node = compileBinary(ast.getOp(), left, right);
+            }
+        } else if (ast.getOp().arity() == 1) {
+            ColumnNode operand = compileNode(ast.head());
+            if (operand != null) {
+                node = compileUnary(ast.getOp(), operand);
+            }
+        }
+
+        return node;
+    }
+
+    /**
+     * A function from a range of rows of a batch to a column of values.
+     */
+    @FunctionalInterface
+    public interface RangeFunction {
+        Object apply(VeLaColumns columns, int from, int to) throws VeLaEvalError;
+    }
+
+    /**
+     * A node in a column tree, with a type known at compile time.
+     */
+    public static final class ColumnNode {
+        private final Type type;
+        private final RangeFunction function;
+        private final Set<Slot> slots;
+
+        public ColumnNode(Type type, RangeFunction function) {
+            this(type, function, EnumSet.noneOf(Slot.class));
+        }
+
+        /**
+         * Constructor
+         *
+         * @param type     The type of each of the node's values.
+         * @param function The function that evaluates the node over a range of
+         *                 rows.
+         * @param slots    The observation property slots whose columns are
+         *                 required to evaluate the node.
+         */
+        public ColumnNode(Type type, RangeFunction function, Set<Slot> slots) {
+            this.type = type;
+            this.function = function;
+            this.slots = slots;
+        }
+
+        /**
+         * @return the type of each of this node's values
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Evaluate this node over a range of rows.
+         *
+         * @param columns The batch.
+         * @param from    The first row (inclusive).
+         * @param to      The last row (exclusive).
+         * @return The resulting column: double[], long[], boolean[] or String[]
+         *         according to the node's type.
+         * @throws VeLaEvalError If an evaluation error occurs.
+         */
+        public Object eval(VeLaColumns columns, int from, int to) throws VeLaEvalError {
+            return function.apply(columns, from, to);
+        }
+
+        /**
+         * Evaluate a Boolean node over all rows of a batch, splitting large
+         * batches into ranges that are evaluated in parallel.
+         *
+         * @param columns The batch.
+         * @return The resulting Boolean column.
+         * @throws VeLaEvalError If an evaluation error occurs; if more than one
+         *                       range fails, the error for the first is thrown.
+         */
+        public boolean[] evalBooleans(VeLaColumns columns) throws VeLaEvalError {
+            if (type != Type.BOOLEAN) {
+                throw new VeLaEvalError("Boolean value expected as result");
+            }
+
+            // Extract all required columns up front, in one pass.
+            columns.extract(slots);
+
+            boolean[] result = new boolean[columns.size()];
+
+            if (columns.size() <= PARALLEL_THRESHOLD) {
+                evalInto(columns, 0, columns.size(), result);
+            } else {
+                RangeTask task = new RangeTask(columns, 0, columns.size(), result);
+                ForkJoinPool.commonPool().invoke(task);
+                if (task.error != null) {
+                    throw task.error;
+                }
+            }
+
+            return result;
+        }
+
+        private void evalInto(VeLaColumns columns, int from, int to, boolean[] result) {
+            System.arraycopy(booleans(columns, from, to), 0, result, from, to - from);
+        }
+
+        double[] doubles(VeLaColumns columns, int from, int to) {
+            Object values = eval(columns, from, to);
+
+            if (type == Type.INTEGER) {
+                long[] longs = (long[]) values;
+                double[] doubles = new double[longs.length];
+                for (int i = 0; i < longs.length; i++) {
+                    doubles[i] = longs[i];
+                }
+                values = doubles;
+            }
+
+            return (double[]) values;
+        }
+
+        long[] longs(VeLaColumns columns, int from, int to) {
+            return (long[]) eval(columns, from, to);
+        }
+
+        boolean[] booleans(VeLaColumns columns, int from, int to) {
+            return (boolean[]) eval(columns, from, to);
+        }
+
+        String[] strings(VeLaColumns columns, int from, int to) {
+            return (String[]) eval(columns, from, to);
+        }
+
+        /**
+         * Evaluates a range of rows, recursively halving it until it is
+         * small enough. Errors are recorded rather than propagated through
+         * the fork/join framework so that the original error is rethrown.
+         */
+        @SuppressWarnings("serial")
+        private class RangeTask extends RecursiveAction {
+            private VeLaColumns columns;
+            private int from;
+            private int to;
+            private boolean[] result;
+            private VeLaEvalError error;
+
+            RangeTask(VeLaColumns columns, int from, int to, boolean[] result) {
+                this.columns = columns;
+                this.from = from;
+                this.to = to;
+                this.result = result;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= PARALLEL_THRESHOLD) {
+                    try {
+                        evalInto(columns, from, to, result);
+                    } catch (VeLaEvalError e) {
+                        error = e;
+                    }
+                } else {
+                    int mid = (from + to) >>> 1;
+                    RangeTask lower = new RangeTask(columns, from, mid, result);
+                    RangeTask upper = new RangeTask(columns, mid, to, result);
+                    invokeAll(lower, upper);
+                    error = lower.error != null ? lower.error : upper.error;
+                }
+            }
+        }
+    }
+
+    // Helpers
+
+    private ColumnNode compileLiteral(Operand operand) {
+        ColumnNode node = null;
+
+        switch (operand.getType()) {
+        case INTEGER:
+            long l = operand.intVal();
+            node = new ColumnNode(Type.INTEGER, (columns, from, to) -> {
+                long[] values = new long[to - from];
+                Arrays.fill(values, l);
+                return values;
+            });
+            break;
+        case REAL:
+            double d = operand.doubleVal();
+            node = new ColumnNode(Type.REAL, (columns, from, to) -> {
+                double[] values = new double[to - from];
+                Arrays.fill(values, d);
+                return values;
+            });
+            break;
+        case BOOLEAN:
+            boolean b = operand.booleanVal();
+            node = new ColumnNode(Type.BOOLEAN, (columns, from, to) -> {
+                boolean[] values = new boolean[to - from];
+                Arrays.fill(values, b);
+                return values;
+            });
+            break;
+        case STRING:
+            String s = operand.stringVal();
+            node = new ColumnNode(Type.STRING, (columns, from, to) -> {
+                String[] values = new String[to - from];
+                Arrays.fill(values, s);
+                return values;
+            });
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private ColumnNode compileSymbol(String symbol) {
+        ColumnNode node = null;
+
+        Optional<Slot> slot = resolver.resolve(symbol);
+
+        if (slot.isPresent()) {
+            Slot theSlot = slot.get();
+            slots.add(theSlot);
+            if (theSlot.getType() == Type.REAL) {
+                node = new ColumnNode(Type.REAL,
+                        (columns, from, to) -> Arrays.copyOfRange(columns.realColumn(theSlot), from, to));
+            } else {
+                node = new ColumnNode(Type.STRING,
+                        (columns, from, to) -> Arrays.copyOfRange(columns.stringColumn(theSlot), from, to));
+            }
+        }
+
+        return node;
+    }
+
+    private ColumnNode compileUnary(Operation op, ColumnNode operand) {
+        ColumnNode node = null;
+
+        switch (op) {
+        case NEG:
+            if (operand.getType() == Type.INTEGER) {
+                node = new ColumnNode(Type.INTEGER, (columns, from, to) -> {
+                    long[] values = operand.longs(columns, from, to);
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = -values[i];
+                    }
+                    return values;
+                });
+            } else if (operand.getType() == Type.REAL) {
+                node = new ColumnNode(Type.REAL, (columns, from, to) -> {
+                    double[] values = operand.doubles(columns, from, to);
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = -values[i];
+                    }
+                    return values;
+                });
+            }
+            break;
+        case NOT:
+            if (operand.getType() == Type.BOOLEAN) {
+                node = new ColumnNode(Type.BOOLEAN, (columns, from, to) -> {
+                    boolean[] values = operand.booleans(columns, from, to);
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = !values[i];
+                    }
+                    return values;
+                });
+            } else if (operand.getType() == Type.INTEGER) {
+                node = new ColumnNode(Type.INTEGER, (columns, from, to) -> {
+                    long[] values = operand.longs(columns, from, to);
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = ~values[i];
+                    }
+                    return values;
+                });
+            }
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private ColumnNode compileBinary(Operation op, ColumnNode left, ColumnNode right) {
+        ColumnNode node = null;
+
+        Type leftType = left.getType();
+        Type rightType = right.getType();
+
+        if (leftType == Type.INTEGER && rightType == Type.INTEGER) {
+            node = integerOperation(op, left, right);
+        } else if (isNumeric(leftType) && isNumeric(rightType)) {
+            // At least one real operand, so unify to real.
+            node = realOperation(op, left, right);
+        } else if (leftType == Type.BOOLEAN && rightType == Type.BOOLEAN) {
+            node = booleanOperation(op, left, right);
+        } else if (leftType == Type.STRING && rightType == Type.STRING) {
+            node = stringOperation(op, left, right);
+        }
+
+        return node;
+    }
+
+    private boolean isNumeric(Type type) {
+        return type == Type.INTEGER || type == Type.REAL;
+    }
+
+    private ColumnNode integerOperation(Operation op, ColumnNode left, ColumnNode right) {
+        ColumnNode node = null;
+
+        switch (op) {
+        case ADD:
+            node = longs(left, right, (a, b) -> a + b);
+            break;
+        case SUB:
+            node = longs(left, right, (a, b) -> a - b);
+            break;
+        case MUL:
+            node = longs(left, right, (a, b) -> a * b);
+            break;
+        case DIV:
+            node = longs(left, right, (dividend, divisor) -> {
+                if (divisor != 0) {
+                    return dividend / divisor;
+                } else {
+                    throw new VeLaEvalError(String.format("%s/%s: division by zero error", dividend, divisor));
+                }
+            });
+            break;
+        case POW:
+            node = longs(left, right, (base, exponent) -> {
+                long power = base;
+                if (exponent == 0) {
+                    power = 1;
+                } else {
+                    // multiply base by itself n-1 times
+                    for (int i = 1; i <= exponent - 1; i++) {
+                        power *= base;
+                    }
+                }
+                return power;
+            });
+            break;
+        case AND:
+            node = longs(left, right, (a, b) -> a & b);
+            break;
+        case XOR:
+            node = longs(left, right, (a, b) -> a ^ b);
+            break;
+        case OR:
+            node = longs(left, right, (a, b) -> a | b);
+            break;
+        case SHL:
+            node = longs(left, right, (a, b) -> a << b);
+            break;
+        case SHR:
+            node = longs(left, right, (a, b) -> a >> b);
+            break;
+        case EQUAL:
+        case NOT_EQUAL:
+        case GREATER_THAN:
+        case LESS_THAN:
+        case GREATER_THAN_OR_EQUAL:
+        case LESS_THAN_OR_EQUAL:
+            node = new ColumnNode(Type.BOOLEAN, (columns, from, to) -> {
+                long[] a = left.longs(columns, from, to);
+                long[] b = right.longs(columns, from, to);
+                boolean[] values = new boolean[a.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = compare(op, Long.compare(a[i], b[i]));
+                }
+                return values;
+            });
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private ColumnNode realOperation(Operation op, ColumnNode left, ColumnNode right) {
+        ColumnNode node = null;
+
+        switch (op) {
+        case ADD:
+            node = doubles(left, right, (a, b) -> a + b);
+            break;
+        case SUB:
+            node = doubles(left, right, (a, b) -> a - b);
+            break;
+        case MUL:
+            node = doubles(left, right, (a, b) -> a * b);
+            break;
+        case DIV:
+            node = doubles(left, right, (dividend, divisor) -> {
+                double quotient = dividend / divisor;
+                if (!Double.isInfinite(quotient)) {
+                    return quotient;
+                } else {
+                    throw new VeLaEvalError(String.format("%s/%s: division by zero error", dividend, divisor));
+                }
+            });
+            break;
+        case POW:
+            node = doubles(left, right, Math::pow);
+            break;
+        case EQUAL:
+        case NOT_EQUAL:
+        case GREATER_THAN:
+        case LESS_THAN:
+        case GREATER_THAN_OR_EQUAL:
+        case LESS_THAN_OR_EQUAL:
+            node = doubleComparison(op, left, right);
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private ColumnNode booleanOperation(Operation op, ColumnNode left, ColumnNode right) {
+        ColumnNode node = null;
+
+        switch (op) {
+        case AND:
+        case XOR:
+        case OR:
+        case EQUAL:
+        case NOT_EQUAL:
+            node = new ColumnNode(Type.BOOLEAN, (columns, from, to) -> {
+                boolean[] a = left.booleans(columns, from, to);
+                boolean[] b = right.booleans(columns, from, to);
+                switch (op) {
+                case AND:
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] &= b[i];
+                    }
+                    break;
+                case XOR:
+                case NOT_EQUAL:
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] ^= b[i];
+                    }
+                    break;
+                case OR:
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] |= b[i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < a.length; i++) {
+                        a[i] = a[i] == b[i];
+                    }
+                    break;
+                }
+                return a;
+            });
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private ColumnNode stringOperation(Operation op, ColumnNode left, ColumnNode right) {
+        ColumnNode node = null;
+
+        switch (op) {
+        case ADD:
+            node = new ColumnNode(Type.STRING, (columns, from, to) -> {
+                String[] a = left.strings(columns, from, to);
+                String[] b = right.strings(columns, from, to);
+                for (int i = 0; i < a.length; i++) {
+                    a[i] = a[i] + b[i];
+                }
+                return a;
+            });
+            break;
+        case EQUAL:
+        case NOT_EQUAL:
+        case GREATER_THAN:
+        case LESS_THAN:
+        case GREATER_THAN_OR_EQUAL:
+        case LESS_THAN_OR_EQUAL:
+            node = new ColumnNode(Type.BOOLEAN, (columns, from, to) -> {
+                String[] a = left.strings(columns, from, to);
+                String[] b = right.strings(columns, from, to);
+                boolean[] values = new boolean[a.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = compare(op, a[i].compareTo(b[i]));
+                }
+                return values;
+            });
+            break;
+        case IN:
+            node = new ColumnNode(Type.BOOLEAN, (columns, from, to) -> {
+                String[] a = left.strings(columns, from, to);
+                String[] b = right.strings(columns, from, to);
+                boolean[] values = new boolean[a.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = b[i].contains(a[i]);
+                }
+                return values;
+            });
+            break;
+        default:
+            break;
+        }
+
+        return node;
+    }
+
+    private ColumnNode longs(ColumnNode left, ColumnNode right, LongBinaryOperator function) {
+        return new ColumnNode(Type.INTEGER, (columns, from, to) -> {
+            long[] a = left.longs(columns, from, to);
+            long[] b = right.longs(columns, from, to);
+            for (int i = 0; i < a.length; i++) {
+                a[i] = function.applyAsLong(a[i], b[i]);
+            }
+            return a;
+        });
+    }
+
+    private ColumnNode doubles(ColumnNode left, ColumnNode right, DoubleBinaryOperator function) {
+        return new ColumnNode(Type.REAL, (columns, from, to) -> {
+            double[] a = left.doubles(columns, from, to);
+            double[] b = right.doubles(columns, from, to);
+            for (int i = 0; i < a.length; i++) {
+                a[i] = function.applyAsDouble(a[i], b[i]);
+            }
+            return a;
+        });
+    }
+
+    // Each comparison has its own loop rather than a function applied to each
+    // pair of values, permitting the loops to be optimised independently.
+    private ColumnNode doubleComparison(Operation op, ColumnNode left, ColumnNode right) {
+        return new ColumnNode(Type.BOOLEAN, (columns, from, to) -> {
+            double[] a = left.doubles(columns, from, to);
+            double[] b = right.doubles(columns, from, to);
+            boolean[] values = new boolean[a.length];
+            switch (op) {
+            case EQUAL:
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = a[i] == b[i];
+                }
+                break;
+            case NOT_EQUAL:
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = a[i] != b[i];
+                }
+                break;
+            case GREATER_THAN:
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = a[i] > b[i];
+                }
+                break;
+            case LESS_THAN:
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = a[i] < b[i];
+                }
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = a[i] >= b[i];
+                }
+                break;
+            default:
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = a[i] <= b[i];
+                }
+                break;
+            }
+            return values;
+        });
+    }
+
+    private static boolean compare(Operation op, int comparison) {
+        switch (op) {
+        case EQUAL:
+            return comparison == 0;
+        case NOT_EQUAL:
+            return comparison != 0;
+        case GREATER_THAN:
+            return comparison > 0;
+        case LESS_THAN:
+            return comparison < 0;
+        case GREATER_THAN_OR_EQUAL:
+            return comparison >= 0;
+        default:
+            return comparison <= 0;
+        }
+    }
+}
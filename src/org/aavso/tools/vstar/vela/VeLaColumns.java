@@ -0,0 +1,184 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.vela.VeLaValidObservationEnvironment.Slot;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * A batch of observations viewed as columns of observation property values,
+ * over which an expression compiled by {@link VeLaColumnCompiler} can be
+ * evaluated column-wise. A batch is either backed by a list of observations,
+ * from which columns are extracted when first required, or by primitive time,
+ * magnitude and uncertainty columns.
+ */
+public class VeLaColumns {
+
+    private int size;
+
+    private List<ValidObservation> obs;
+
+    private Map<Slot, double[]> realColumns;
+    private Map<Slot, String[]> stringColumns;
+
+    /**
+     * Construct a batch backed by a list of observations.
+     *
+     * @param obs The observations.
+     */
+    public VeLaColumns(List<ValidObservation> obs) {
+        this.size = obs.size();
+        this.obs = obs;
+        realColumns = new EnumMap<Slot, double[]>(Slot.class);
+        stringColumns = new EnumMap<Slot, String[]>(Slot.class);
+    }
+
+    /**
+     * Construct a batch from primitive columns, all of the same length.
+     *
+     * @param time        The time (JD) column.
+     * @param magnitude   The magnitude column.
+     * @param uncertainty The magnitude uncertainty column.
+     * @throws IllegalArgumentException If the columns differ in length.
+     */
+    public VeLaColumns(double[] time, double[] magnitude, double[] uncertainty) {
+        if (magnitude.length != time.length || uncertainty.length != time.length) {
+            throw new IllegalArgumentException("Columns must be of equal length");
+        }
+
+        this.size = time.length;
+        this.obs = null;
+        realColumns = new EnumMap<Slot, double[]>(Slot.class);
+        realColumns.put(Slot.TIME, time);
+        realColumns.put(Slot.MAGNITUDE, magnitude);
+        realColumns.put(Slot.UNCERTAINTY, uncertainty);
+        stringColumns = new EnumMap<Slot, String[]>(Slot.class);
+    }
+
+    /**
+     * @return the number of rows in this batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Extract the columns of values of the specified slots not yet extracted
+     * in a single pass over the observations, so that each observation is
+     * visited once rather than once per column.
+     *
+     * @param slots The slots.
+     * @throws VeLaEvalError If the batch has no column for one of the slots.
+     */
+    public synchronized void extract(Set<Slot> slots) throws VeLaEvalError {
+        List<Slot> realSlots = new ArrayList<Slot>();
+        List<Slot> stringSlots = new ArrayList<Slot>();
+
+        for (Slot slot : slots) {
+            if (slot.getType() == Type.REAL && !realColumns.containsKey(slot)) {
+                checkBackedByObservations(slot);
+                realSlots.add(slot);
+            } else if (slot.getType() == Type.STRING && !stringColumns.containsKey(slot)) {
+                checkBackedByObservations(slot);
+                stringSlots.add(slot);
+            }
+        }
+
+        if (!realSlots.isEmpty() || !stringSlots.isEmpty()) {
+            double[][] reals = new double[realSlots.size()][size];
+            String[][] strings = new String[stringSlots.size()][size];
+
+            for (int i = 0; i < size; i++) {
+                ValidObservation ob = obs.get(i);
+                for (int j = 0; j < reals.length; j++) {
+                    reals[j][i] = realSlots.get(j).realValue(ob);
+                }
+                for (int j = 0; j < strings.length; j++) {
+                    strings[j][i] = stringSlots.get(j).stringValue(ob);
+                }
+            }
+
+            for (int j = 0; j < reals.length; j++) {
+                realColumns.put(realSlots.get(j), reals[j]);
+            }
+            for (int j = 0; j < strings.length; j++) {
+                stringColumns.put(stringSlots.get(j), strings[j]);
+            }
+        }
+    }
+
+    /**
+     * Return the column of values of a real valued slot.
+     *
+     * @param slot The slot.
+     * @return The column.
+     * @throws VeLaEvalError If the batch has no such column.
+     */
+    public synchronized double[] realColumn(Slot slot) throws VeLaEvalError {
+        double[] column = realColumns.get(slot);
+
+        if (column == null) {
+            checkBackedByObservations(slot);
+            column = new double[size];
+            for (int i = 0; i < size; i++) {
+                column[i] = slot.realValue(obs.get(i));
+            }
+            realColumns.put(slot, column);
+        }
+
+        return column;
+    }
+
+    /**
+     * Return the column of values of a string valued slot.
+     *
+     * @param slot The slot.
+     * @return The column.
+     * @throws VeLaEvalError If the batch has no such column.
+     */
+    public synchronized String[] stringColumn(Slot slot) throws VeLaEvalError {
+        String[] column = stringColumns.get(slot);
+
+        if (column == null) {
+            checkBackedByObservations(slot);
+            column = new String[size];
+            for (int i = 0; i < size; i++) {
+                column[i] = slot.stringValue(obs.get(i));
+            }
+            stringColumns.put(slot, column);
+        }
+
+        return column;
+    }
+
+    // Helpers
+
+    private void checkBackedByObservations(Slot slot) throws VeLaEvalError {
+        if (obs == null) {
+            throw new VeLaEvalError("No " + slot.name().toLowerCase() + " column in batch");
+        }
+    }
+}
@@ -42,7 +42,6 @@ import java.util.stream.Stream;
 
 import org.aavso.tools.vstar.scripting.VStarScriptingAPI;
 import org.aavso.tools.vstar.ui.VStar;
-import org.aavso.tools.vstar.ui.resources.ResourceAccessor;
 import org.aavso.tools.vstar.util.Pair;
 import org.aavso.tools.vstar.util.date.AbstractDateUtil;
 import org.antlr.v4.runtime.ANTLRInputStream;
@@ -58,24 +57,38 @@ public class VeLaInterpreter {
 
     private boolean verbose;
 
-    private List<File> sourceDirectories;
-
     private Stack<Operand> stack;
 
     private Stack<VeLaEnvironment<Operand>> environments;
 
-    // AST and result caches.
-    private static Map<String, AST> exprToAST = new HashMap<String, AST>();
+    // Bounds for the AST cache, the weight of an entry being the length of
+    // its canonical program string.
+    public static final int MAX_AST_CACHE_ENTRIES = 2000;
+    public static final long MAX_AST_CACHE_WEIGHT = 4000000;
+
+    // Bounds for the regular expression pattern cache.
+    public static final int MAX_REGEX_CACHE_ENTRIES = 500;
+    public static final long MAX_REGEX_CACHE_WEIGHT = 500000;
+
+    // AST cache, shared between interpreters.
+    private static VeLaCache<String, AST> exprToAST = new VeLaCache<String, AST>("AST", MAX_AST_CACHE_ENTRIES,
+            MAX_AST_CACHE_WEIGHT, String::length);
 
-    // Regular expression pattern cache.
-    private static Map<String, Pattern> regexPatterns = new HashMap<String, Pattern>();
+    // Regular expression pattern cache, shared between interpreters.
+    private static VeLaCache<String, Pattern> regexPatterns = new VeLaCache<String, Pattern>("REGEX",
+            MAX_REGEX_CACHE_ENTRIES, MAX_REGEX_CACHE_WEIGHT, String::length);
 
+    // Functions collected via reflection over Java classes, shared between
+    // interpreters; guarded by the class lock until initialised.
     private static List<FunctionExecutor> javaClassFunctionExecutors = null;
 
     private VeLaErrorListener errorListener;
 
     /**
      * Construct a VeLa interpreter with an initial scope and intrinsic functions.
+     * The interpreter is a context of a shared runtime for the source
+     * directories, so library code is not parsed or evaluated again unless it
+     * has changed.
      * 
      * @param verbose           Verbose mode?
      * @param addVStarAPI       Add the VStar API?
@@ -83,8 +96,18 @@ public class VeLaInterpreter {
      *                          files (ending in ".vl" or ".vela") to be loaded.
      */
     public VeLaInterpreter(boolean verbose, boolean addVStarAPI, List<File> sourceDirectories) {
+        this(verbose, VeLaRuntime.getRuntime(addVStarAPI, sourceDirectories));
+    }
+
+    /**
+     * Construct a VeLa interpreter as an evaluation context of a runtime, with an
+     * initial scope, intrinsic functions and the runtime's library code.
+     * 
+     * @param verbose Verbose mode?
+     * @param runtime The runtime.
+     */
+    public VeLaInterpreter(boolean verbose, VeLaRuntime runtime) {
         this.verbose = verbose;
-        this.sourceDirectories = sourceDirectories;
 
         errorListener = new VeLaErrorListener();
 
@@ -93,43 +116,22 @@ public class VeLaInterpreter {
 
         environments.push(new VeLaScope());
 
-        // Collect functions from reflection over Java classes
-        Set<Class<?>> permittedTypes = new HashSet<Class<?>>();
-        permittedTypes.add(int.class);
-        permittedTypes.add(double.class);
-        permittedTypes.add(boolean.class);
-        permittedTypes.add(String.class);
-        permittedTypes.add(CharSequence.class);
-        permittedTypes.add(void.class);
-        permittedTypes.add(Type.DBL_ARR.getClass());
-        permittedTypes.add(Type.DBL_CLASS_ARR.getClass());
-        if (addVStarAPI) {
-            // TODO: really needed here?
-            permittedTypes.add(VStarScriptingAPI.class);
-        }
-
-        if (javaClassFunctionExecutors == null) {
-            javaClassFunctionExecutors = new ArrayList<FunctionExecutor>();
-            addFunctionExecutorsFromClass(Math.class, null, permittedTypes, Collections.emptySet());
+        VeLaInterpreter prototype = runtime.getPrototype();
 
-            addFunctionExecutorsFromClass(String.class, null, permittedTypes,
-                    new HashSet<String>(Arrays.asList("JOIN", "FORMAT")));
+        if (prototype == null || verbose) {
+            // intrinsic bindings and functions
+            initBindings();
+            initFunctionExecutors(javaClassFunctionExecutors(runtime.isVStarAPIAdded()));
 
-            if (addVStarAPI) {
-                addFunctionExecutorsFromClass(VStarScriptingAPI.class, VStarScriptingAPI.getInstance(), permittedTypes,
-                        Collections.emptySet());
-            }
+            // standard library code, then user code, which allows user to
+            // override intrinsic/standard library code
+            loadLibraries(runtime);
+        } else {
+            // intrinsic functions, then everything else from the prototype's
+            // global scope, in which library code has already been evaluated
+            initFunctionExecutors(Collections.emptyList());
+            copyGlobalScope(prototype);
         }
-
-        // intrinsic bindings and functions
-        initBindings();
-        initFunctionExecutors();
-
-        // standard library code
-        loadStdLib();
-
-        // allows user to override intrinsic/standard library code
-        loadUserCode();
     }
 
     /**
@@ -240,20 +242,7 @@ public class VeLaInterpreter {
      * @throws VeLaEvalError  If an evaluation error occurs.
      */
     public Optional<Operand> program(File path) throws VeLaParseError, VeLaEvalError {
-        StringBuffer code = new StringBuffer();
-
-        try {
-            try (Stream<String> stream = Files.lines(Paths.get(path.getAbsolutePath()))) {
-                stream.forEachOrdered(line -> {
-                    code.append(line);
-                    code.append("\n");
-                });
-            }
-        } catch (IOException e) {
-            throw new VeLaEvalError("Error when attempting to read VeLa file " + path.getAbsolutePath());
-        }
-
-        return program(code.toString());
+        return program(readFile(path));
     }
 
     /**
@@ -280,8 +269,82 @@ public class VeLaInterpreter {
      * @throws VeLaEvalError  If an evaluation error occurs.
      */
     public Pair<Optional<Operand>, AST> veLaToResultASTPair(String prog) throws VeLaParseError, VeLaEvalError {
-        VeLaParser.SequenceContext tree = getParser(prog).sequence();
-        return commonInterpreter(prog, tree);
+        AST ast = programToAST(prog);
+        return new Pair<Optional<Operand>, AST>(evalToResult(ast), ast);
+    }
+
+    /**
+     * Compile a VeLa program to an AST once, returning a handle that can be
+     * evaluated repeatedly without lexing or parsing the program again. A program
+     * consisting of a single expression is further compiled into a tree of
+     * closures.
+     * 
+     * @param prog The VeLa program string to be compiled.
+     * @return The compiled program.
+     * @throws VeLaParseError If a parse error occurs.
+     */
+    public CompiledVeLaProgram compile(String prog) throws VeLaParseError {
+        return compile(prog, true);
+    }
+
+    /**
+     * Compile a VeLa program to an AST once, returning a handle that can be
+     * evaluated repeatedly without lexing or parsing the program again.
+     * 
+     * @param prog        The VeLa program string to be compiled.
+     * @param useClosures Whether to compile a single expression program into a
+     *                    tree of closures rather than interpret its AST.
+     * @return The compiled program.
+     * @throws VeLaParseError If a parse error occurs.
+     */
+    public CompiledVeLaProgram compile(String prog, boolean useClosures) throws VeLaParseError {
+        AST ast = programToAST(prog);
+
+        Optional<VeLaNode> root = Optional.empty();
+
+        if (useClosures) {
+            root = new VeLaClosureCompiler(this).compile(ast);
+        }
+
+        return new CompiledVeLaProgram(this, prog, ast, root, null);
+    }
+
+    /**
+     * Compile the VeLa program in a file to an AST once, as per compile(String,
+     * boolean) without closure compilation.
+     * 
+     * @param path A path to a file containing a VeLa program string.
+     * @return The compiled program.
+     * @throws VeLaParseError If a parse error occurs.
+     * @throws VeLaEvalError  If the file cannot be read.
+     */
+    public CompiledVeLaProgram compile(File path) throws VeLaParseError, VeLaEvalError {
+        return compile(readFile(path), false);
+    }
+
+    /**
+     * Compile a VeLa program to be evaluated against many observations, e.g. a
+     * filter. Symbols referring to observation properties (e.g. time, magnitude,
+     * band) are resolved once, and a single observation environment is
+     * re-pointed at each observation passed to the compiled program's
+     * evaluate(ValidObservation) method, which should be used to evaluate it.
+     * A Boolean expression over observation properties is also compiled for
+     * column-wise evaluation over whole batches via evaluateBatch().
+     * 
+     * @param prog The VeLa program string to be compiled.
+     * @return The compiled program.
+     * @throws VeLaParseError If a parse error occurs.
+     */
+    public CompiledVeLaProgram compileForObservations(String prog) throws VeLaParseError {
+        AST ast = programToAST(prog);
+
+        VeLaValidObservationEnvironment cursor = new VeLaValidObservationEnvironment();
+
+        Optional<VeLaNode> root = new VeLaClosureCompiler(this, cursor).compile(ast);
+
+        Optional<VeLaColumnCompiler.ColumnNode> columnRoot = new VeLaColumnCompiler().compile(ast);
+
+        return new CompiledVeLaProgram(this, prog, ast, root, cursor, columnRoot);
     }
 
     /**
@@ -394,21 +457,85 @@ public class VeLaInterpreter {
      */
     public Pair<Optional<Operand>, AST> commonInterpreter(String prog, ParserRuleContext tree) throws VeLaEvalError {
 
-        Optional<Operand> result = Optional.empty();
-
         AST ast = commonParseTreeWalker(prog, tree);
 
+        return new Pair<Optional<Operand>, AST>(evalToResult(ast), ast);
+    }
+
+    /**
+     * Evaluate an AST, returning the value left on the stack, if any.
+     * 
+     * @param ast The abstract syntax tree to be evaluated; may be null.
+     * @return An optional result depending upon whether a value is left on the
+     *         stack.
+     * @throws VeLaEvalError If an evaluation error occurs.
+     */
+    Optional<Operand> evalToResult(AST ast) throws VeLaEvalError {
+        Optional<Operand> result = Optional.empty();
+
         if (ast != null) {
-            // Evaluate the abstract syntax tree and cache the result.
             eval(ast);
             if (!stack.isEmpty()) {
                 result = Optional.of(stack.pop());
-            } else {
-                result = Optional.empty();
             }
         }
 
-        return new Pair<Optional<Operand>, AST>(result, ast);
+        return result;
+    }
+
+    /**
+     * Return the AST for a VeLa program, only lexing and parsing the program if
+     * its AST has not already been cached.
+     * 
+     * @param prog The VeLa program string.
+     * @return The corresponding abstract syntax tree.
+     * @throws VeLaParseError If a parse error occurs.
+     */
+    private AST programToAST(String prog) throws VeLaParseError {
+        String canonicalProg = canonicalProgram(prog);
+
+        AST ast = exprToAST.get(canonicalProg);
+
+        if (ast == null) {
+            ast = parseTreeToAST(canonicalProg, getParser(prog).sequence());
+        }
+
+        return ast;
+    }
+
+    /**
+     * Read a VeLa program from a file.
+     * 
+     * @param path A path to a file containing a VeLa program string.
+     * @return The program string.
+     * @throws VeLaEvalError If the file cannot be read.
+     */
+    private static String readFile(File path) throws VeLaEvalError {
+        StringBuffer code = new StringBuffer();
+
+        try {
+            try (Stream<String> stream = Files.lines(Paths.get(path.getAbsolutePath()))) {
+                stream.forEachOrdered(line -> {
+                    code.append(line);
+                    code.append("\n");
+                });
+            }
+        } catch (IOException e) {
+            throw new VeLaEvalError("Error when attempting to read VeLa file " + path.getAbsolutePath());
+        }
+
+        return code.toString();
+    }
+
+    /**
+     * Remove whitespace and change to uppercase to ensure a canonical expression
+     * string for caching purposes.
+     * 
+     * @param prog The VeLa program string.
+     * @return The canonical program string.
+     */
+    private static String canonicalProgram(String prog) {
+        return prog.replace(" ", "").replace("\t", "").toUpperCase();
     }
 
     /**
@@ -423,24 +550,16 @@ public class VeLaInterpreter {
 
         AST ast = null;
 
-        // Remove whitespace and change to uppercase to ensure a canonical
-        // expression string for caching purposes.
-        prog = prog.replace(" ", "").replace("\t", "").toUpperCase();
+        prog = canonicalProgram(prog);
 
         // We cache abstract syntax trees by top-level program string
         // to improve performance.
         // boolean astCached = false;
-        if (exprToAST.containsKey(prog)) {
-            ast = exprToAST.get(prog);
+        ast = exprToAST.get(prog);
+        if (ast != null) {
             // astCached = true;
         } else {
-            ExpressionVisitor visitor = new ExpressionVisitor(this);
-            ast = visitor.visit(tree);
-
-            if (ast != null) {
-                // This relates a VeLa program or expression to an AST.
-                exprToAST.put(prog, ast);
-            }
+            ast = parseTreeToAST(prog, tree);
         }
 
 //		if (verbose && ast != null) {
@@ -454,6 +573,46 @@ public class VeLaInterpreter {
         return ast;
     }
 
+    /**
+     * Walk a parse tree to create an AST and add it to the AST cache.
+     * 
+     * @param canonicalProg The canonical VeLa program string.
+     * @param tree          The parse tree resulting from parsing the VeLa
+     *                      expression.
+     * @return The abstract syntax tree created by walking the parse tree.
+     * @throws VeLaParseError If a parse error occurs.
+     */
+    private AST parseTreeToAST(String canonicalProg, ParserRuleContext tree) throws VeLaParseError {
+        ExpressionVisitor visitor = new ExpressionVisitor(this);
+        AST ast = visitor.visit(tree);
+
+        if (ast != null) {
+            // This relates a VeLa program or expression to an AST.
+            exprToAST.put(canonicalProg, ast);
+        }
+
+        return ast;
+    }
+
+    /**
+     * Return statistics for the AST and regular expression pattern caches shared
+     * by all interpreters.
+     * 
+     * @return A list of cache statistics snapshots.
+     */
+    public static List<VeLaCache.Statistics> getCacheStatistics() {
+        return Arrays.asList(exprToAST.getStatistics(), regexPatterns.getStatistics());
+    }
+
+    /**
+     * Clear the AST and regular expression pattern caches shared by all
+     * interpreters, resetting their statistics.
+     */
+    public static void clearCaches() {
+        exprToAST.clear();
+        regexPatterns.clear();
+    }
+
     /**
      * <p>
      * Given an AST representing a VeLa program, interpret this via a depth first
@@ -487,96 +646,16 @@ public class VeLaInterpreter {
                 // Unary
                 eval(ast.head());
 
-                Operand operand = stack.pop();
+                Operand result = unaryOperation(op, stack.pop());
 
-                switch (op) {
-                case NEG:
-                    switch (operand.getType()) {
-                    case INTEGER:
-                        stack.push(new Operand(Type.INTEGER, -operand.intVal()));
-                        break;
-                    case REAL:
-                        stack.push(new Operand(Type.REAL, -operand.doubleVal()));
-                        break;
-                    case LIST:
-                        List<Operand> negResult = new ArrayList<Operand>();
-                        for (int i = 0; i < operand.listVal().size(); i++) {
-                            Operand scalar = operand.listVal().get(i);
-                            switch (scalar.getType()) {
-                            case INTEGER:
-                                negResult.add(new Operand(Type.INTEGER, -scalar.intVal()));
-                                break;
-                            case REAL:
-                                negResult.add(new Operand(Type.REAL, -scalar.doubleVal()));
-                                break;
-                            default:
-                                binaryOpError(op, Type.INTEGER, Type.REAL);
-                                break;
-                            }
-                        }
-                        stack.push(new Operand(Type.LIST, negResult));
-                        break;
-                    default:
-                        binaryOpError(op, Type.INTEGER, Type.REAL, Type.LIST);
-                        break;
-                    }
-                    break;
-                case NOT:
-                    switch (operand.getType()) {
-                    case BOOLEAN:
-                        stack.push(new Operand(Type.BOOLEAN, !operand.booleanVal()));
-                        break;
-                    case INTEGER:
-                        stack.push(new Operand(Type.INTEGER, ~operand.intVal()));
-                        break;
-                    case LIST:
-                        List<Operand> notResult = new ArrayList<Operand>();
-                        for (int i = 0; i < operand.listVal().size(); i++) {
-                            Operand scalar = operand.listVal().get(i);
-                            switch (scalar.getType()) {
-                            case BOOLEAN:
-                                notResult.add(new Operand(Type.BOOLEAN, !scalar.booleanVal()));
-                                break;
-                            case INTEGER:
-                                notResult.add(new Operand(Type.INTEGER, ~scalar.intVal()));
-                                break;
-                            default:
-                                binaryOpError(op, Type.INTEGER, Type.BOOLEAN);
-                                break;
-                            }
-                        }
-                        stack.push(new Operand(Type.LIST, notResult));
-                        break;
-                    default:
-                        binaryOpError(op, Type.INTEGER, Type.BOOLEAN, Type.LIST);
-                        ;
-                        break;
-                    }
+                if (result != null) {
+                    stack.push(result);
                 }
             } else if (ast.getOp() == Operation.SYMBOL) {
-                // Look up variable or function in the environment stack,
-                // pushing it onto the operand stack if it exists, looking for
-                // and evaluating a function if not, throwing an exception
-                // otherwise.
-                String name = ast.getToken().toUpperCase();
-                // Bound symbol?
-                Optional<Operand> result = lookupBinding(name);
-                if (result.isPresent()) {
-                    stack.push(result.get());
-                } else {
-                    // Function?
-                    Optional<List<FunctionExecutor>> funList = lookupFunctions(name);
-                    if (funList.isPresent()) {
-                        // The first function in the list is chosen in the
-                        // absence of parameter type information.
-                        stack.push(new Operand(Type.FUNCTION, funList.get().get(0)));
-                    } else {
-                        throw new VeLaEvalError("Unknown binding \"" + ast.getToken() + "\"");
-                    }
-                }
+                stack.push(symbolValue(ast.getToken()));
             } else if (ast.getOp() == Operation.LIST) {
                 // Evaluate list elements.
-                List<Operand> elements = new ArrayList<Operand>();
+                RealList.Builder elements = new RealList.Builder(ast.hasChildren() ? ast.getChildren().size() : 0);
 
                 if (ast.hasChildren()) {
                     for (int i = ast.getChildren().size() - 1; i >= 0; i--) {
@@ -589,13 +668,41 @@ public class VeLaInterpreter {
                     }
                 }
 
-                stack.push(new Operand(Type.LIST, elements));
+                stack.push(new Operand(Type.LIST, elements.build()));
             } else if (ast.getOp().isSpecialForm()) {
                 specialForm(ast);
             }
         }
     }
 
+    /**
+     * Look up variable or function in the environment stack, returning its value
+     * if it exists, the first function of that name if not, throwing an exception
+     * otherwise.
+     * 
+     * @param symbol The symbol's token.
+     * @return The bound value or function.
+     * @throws VeLaEvalError If the symbol is not bound.
+     */
+    Operand symbolValue(String symbol) throws VeLaEvalError {
+        String name = symbol.toUpperCase();
+        // Bound symbol?
+        Optional<Operand> result = lookupBinding(name);
+        if (result.isPresent()) {
+            return result.get();
+        } else {
+            // Function?
+            Optional<List<FunctionExecutor>> funList = lookupFunctions(name);
+            if (funList.isPresent()) {
+                // The first function in the list is chosen in the
+                // absence of parameter type information.
+                return new Operand(Type.FUNCTION, funList.get().get(0));
+            } else {
+                throw new VeLaEvalError("Unknown binding \"" + symbol + "\"");
+            }
+        }
+    }
+
     /**
      * Handle special forms.
      * 
@@ -750,6 +857,91 @@ public class VeLaInterpreter {
         }
     }
 
+    /**
+     * Apply a unary operation to the operand, returning the result.
+     * 
+     * @param op      The operation to be applied.
+     * @param operand The operand.
+     * @return The result of the operation.
+     * @throws VeLaEvalError If the operation cannot be applied to the operand.
+     */
+    Operand unaryOperation(Operation op, Operand operand) throws VeLaEvalError {
+        Operand result = null;
+
+        switch (op) {
+        case NEG:
+            switch (operand.getType()) {
+            case INTEGER:
+                result = Operand.valueOf(-operand.intVal());
+                break;
+            case REAL:
+                result = new Operand(Type.REAL, -operand.doubleVal());
+                break;
+            case LIST:
+                RealList.Builder negResult = new RealList.Builder(operand.listVal().size());
+                if (operand.listVal() instanceof RealList) {
+                    RealList reals = (RealList) operand.listVal();
+                    for (int i = 0; i < reals.size(); i++) {
+                        negResult.add(-reals.getReal(i));
+                    }
+                } else {
+                    for (int i = 0; i < operand.listVal().size(); i++) {
+                        Operand scalar = operand.listVal().get(i);
+                        switch (scalar.getType()) {
+                        case INTEGER:
+                            negResult.add(Operand.valueOf(-scalar.intVal()));
+                            break;
+                        case REAL:
+                            negResult.add(-scalar.doubleVal());
+                            break;
+                        default:
+                            binaryOpError(op, Type.INTEGER, Type.REAL);
+                            break;
+                        }
+                    }
+                }
+                result = new Operand(Type.LIST, negResult.build());
+                break;
+            default:
+                binaryOpError(op, Type.INTEGER, Type.REAL, Type.LIST);
+                break;
+            }
+            break;
+        case NOT:
+            switch (operand.getType()) {
+            case BOOLEAN:
+                result = Operand.valueOf(!operand.booleanVal());
+                break;
+            case INTEGER:
+                result = Operand.valueOf(~operand.intVal());
+                break;
+            case LIST:
+                List<Operand> notResult = new ArrayList<Operand>();
+                for (int i = 0; i < operand.listVal().size(); i++) {
+                    Operand scalar = operand.listVal().get(i);
+                    switch (scalar.getType()) {
+                    case BOOLEAN:
+                        notResult.add(Operand.valueOf(!scalar.booleanVal()));
+                        break;
+                    case INTEGER:
+                        notResult.add(Operand.valueOf(~scalar.intVal()));
+                        break;
+                    default:
+                        binaryOpError(op, Type.INTEGER, Type.BOOLEAN);
+                        break;
+                    }
+                }
+                result = new Operand(Type.LIST, notResult);
+                break;
+            default:
+                binaryOpError(op, Type.INTEGER, Type.BOOLEAN, Type.LIST);
+                break;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Apply a binary operation to the values on the stack, consuming them and
      * leaving a result on the stack.
@@ -760,8 +952,27 @@ public class VeLaInterpreter {
         Operand operand2 = stack.pop();
         Operand operand1 = stack.pop();
 
+        Operand result = binaryOperation(op, operand1, operand2);
+
+        if (result != null) {
+            stack.push(result);
+        }
+    }
+
+    /**
+     * Apply a binary operation to the operands, returning the result.
+     * 
+     * @param op       The operation to be applied.
+     * @param operand1 The first operand.
+     * @param operand2 The second operand.
+     * @return The result of the operation.
+     * @throws VeLaEvalError If the operation cannot be applied to the operands.
+     */
+    Operand binaryOperation(Operation op, Operand operand1, Operand operand2) throws VeLaEvalError {
+        Operand result = null;
+
         if (operand1.getType() == Type.LIST || operand2.getType() == Type.LIST) {
-            applyBinaryListOperation(op, operand1, operand2);
+            result = binaryListOperation(op, operand1, operand2);
         } else {
             // TODO Refactor to N methods or define functions for each in
             // Operation/Operand or use lambda for n+m, n-m ...
@@ -781,13 +992,13 @@ public class VeLaInterpreter {
             case ADD:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() + operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() + operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.REAL, operand1.doubleVal() + operand2.doubleVal()));
+                    result = new Operand(Type.REAL, operand1.doubleVal() + operand2.doubleVal());
                     break;
                 case STRING:
-                    stack.push(new Operand(Type.STRING, operand1.stringVal() + operand2.stringVal()));
+                    result = new Operand(Type.STRING, operand1.stringVal() + operand2.stringVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL, Type.STRING);
@@ -797,10 +1008,10 @@ public class VeLaInterpreter {
             case SUB:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() - operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() - operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.REAL, operand1.doubleVal() - operand2.doubleVal()));
+                    result = new Operand(Type.REAL, operand1.doubleVal() - operand2.doubleVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL);
@@ -810,10 +1021,10 @@ public class VeLaInterpreter {
             case MUL:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() * operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() * operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.REAL, operand1.doubleVal() * operand2.doubleVal()));
+                    result = new Operand(Type.REAL, operand1.doubleVal() * operand2.doubleVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL);
@@ -824,16 +1035,16 @@ public class VeLaInterpreter {
                 switch (type) {
                 case INTEGER:
                     if (operand2.intVal() != 0) {
-                        stack.push(new Operand(Type.INTEGER, operand1.intVal() / operand2.intVal()));
+                        result = Operand.valueOf(operand1.intVal() / operand2.intVal());
                     } else {
                         throw new VeLaEvalError(
                                 String.format("%s/%s: division by zero error", operand1.intVal(), operand2.intVal()));
                     }
                     break;
                 case REAL:
-                    Double result = operand1.doubleVal() / operand2.doubleVal();
-                    if (!result.isInfinite()) {
-                        stack.push(new Operand(Type.REAL, result));
+                    Double quotient = operand1.doubleVal() / operand2.doubleVal();
+                    if (!quotient.isInfinite()) {
+                        result = new Operand(Type.REAL, quotient);
                     } else {
                         throw new VeLaEvalError(String.format("%s/%s: division by zero error", operand1.doubleVal(),
                                 operand2.doubleVal()));
@@ -848,20 +1059,20 @@ public class VeLaInterpreter {
                 switch (type) {
                 case INTEGER:
                     long base = operand1.intVal();
-                    long result = base;
+                    long power = base;
                     long exponent = operand2.intVal();
                     if (exponent == 0) {
-                        result = 1;
+                        power = 1;
                     } else {
                         // multiply operand1 by itself n-1 times
                         for (int i = 1; i <= exponent - 1; i++) {
-                            result *= base;
+                            power *= base;
                         }
                     }
-                    stack.push(new Operand(Type.INTEGER, result));
+                    result = Operand.valueOf(power);
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.REAL, Math.pow(operand1.doubleVal(), operand2.doubleVal())));
+                    result = new Operand(Type.REAL, Math.pow(operand1.doubleVal(), operand2.doubleVal()));
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL);
@@ -871,10 +1082,10 @@ public class VeLaInterpreter {
             case AND:
                 switch (type) {
                 case BOOLEAN:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.booleanVal() & operand2.booleanVal()));
+                    result = Operand.valueOf(operand1.booleanVal() & operand2.booleanVal());
                     break;
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() & operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() & operand2.intVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.BOOLEAN);
@@ -884,10 +1095,10 @@ public class VeLaInterpreter {
             case XOR:
                 switch (type) {
                 case BOOLEAN:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.booleanVal() ^ operand2.booleanVal()));
+                    result = Operand.valueOf(operand1.booleanVal() ^ operand2.booleanVal());
                     break;
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() ^ operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() ^ operand2.intVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.BOOLEAN);
@@ -897,10 +1108,10 @@ public class VeLaInterpreter {
             case OR:
                 switch (type) {
                 case BOOLEAN:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.booleanVal() | operand2.booleanVal()));
+                    result = Operand.valueOf(operand1.booleanVal() | operand2.booleanVal());
                     break;
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() | operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() | operand2.intVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.BOOLEAN);
@@ -910,16 +1121,16 @@ public class VeLaInterpreter {
             case EQUAL:
                 switch (type) {
                 case BOOLEAN:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.booleanVal() == operand2.booleanVal()));
+                    result = Operand.valueOf(operand1.booleanVal() == operand2.booleanVal());
                     break;
                 case INTEGER:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.intVal() == operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() == operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.doubleVal() == operand2.doubleVal()));
+                    result = Operand.valueOf(operand1.doubleVal() == operand2.doubleVal());
                     break;
                 case STRING:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.stringVal().equals(operand2.stringVal())));
+                    result = Operand.valueOf(operand1.stringVal().equals(operand2.stringVal()));
                     break;
                 default:
                     binaryOpError(op, Type.BOOLEAN, Type.INTEGER, Type.REAL, Type.STRING);
@@ -929,16 +1140,16 @@ public class VeLaInterpreter {
             case NOT_EQUAL:
                 switch (type) {
                 case BOOLEAN:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.booleanVal() != operand2.booleanVal()));
+                    result = Operand.valueOf(operand1.booleanVal() != operand2.booleanVal());
                     break;
                 case INTEGER:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.intVal() != operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() != operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.doubleVal() != operand2.doubleVal()));
+                    result = Operand.valueOf(operand1.doubleVal() != operand2.doubleVal());
                     break;
                 case STRING:
-                    stack.push(new Operand(Type.BOOLEAN, !operand1.stringVal().equals(operand2.stringVal())));
+                    result = Operand.valueOf(!operand1.stringVal().equals(operand2.stringVal()));
                     break;
                 default:
                     binaryOpError(op, Type.BOOLEAN, Type.INTEGER, Type.REAL, Type.STRING);
@@ -948,13 +1159,13 @@ public class VeLaInterpreter {
             case GREATER_THAN:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.intVal() > operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() > operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.doubleVal() > operand2.doubleVal()));
+                    result = Operand.valueOf(operand1.doubleVal() > operand2.doubleVal());
                     break;
                 case STRING:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.stringVal().compareTo(operand2.stringVal()) > 0));
+                    result = Operand.valueOf(operand1.stringVal().compareTo(operand2.stringVal()) > 0);
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL, Type.STRING);
@@ -964,13 +1175,13 @@ public class VeLaInterpreter {
             case LESS_THAN:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.intVal() < operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() < operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.doubleVal() < operand2.doubleVal()));
+                    result = Operand.valueOf(operand1.doubleVal() < operand2.doubleVal());
                     break;
                 case STRING:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.stringVal().compareTo(operand2.stringVal()) < 0));
+                    result = Operand.valueOf(operand1.stringVal().compareTo(operand2.stringVal()) < 0);
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL, Type.STRING);
@@ -980,13 +1191,13 @@ public class VeLaInterpreter {
             case GREATER_THAN_OR_EQUAL:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.intVal() >= operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() >= operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.doubleVal() >= operand2.doubleVal()));
+                    result = Operand.valueOf(operand1.doubleVal() >= operand2.doubleVal());
                     break;
                 case STRING:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.stringVal().compareTo(operand2.stringVal()) >= 0));
+                    result = Operand.valueOf(operand1.stringVal().compareTo(operand2.stringVal()) >= 0);
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL, Type.STRING);
@@ -996,13 +1207,13 @@ public class VeLaInterpreter {
             case LESS_THAN_OR_EQUAL:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.intVal() <= operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() <= operand2.intVal());
                     break;
                 case REAL:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.doubleVal() <= operand2.doubleVal()));
+                    result = Operand.valueOf(operand1.doubleVal() <= operand2.doubleVal());
                     break;
                 case STRING:
-                    stack.push(new Operand(Type.BOOLEAN, operand1.stringVal().compareTo(operand2.stringVal()) <= 0));
+                    result = Operand.valueOf(operand1.stringVal().compareTo(operand2.stringVal()) <= 0);
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER, Type.REAL, Type.STRING);
@@ -1011,14 +1222,8 @@ public class VeLaInterpreter {
                 break;
             case APPROXIMATELY_EQUAL:
                 if (type == Type.STRING) {
-                    Pattern pattern;
-                    String regex = operand2.stringVal();
-                    if (!regexPatterns.containsKey(regex)) {
-                        pattern = Pattern.compile(regex);
-                        regexPatterns.put(regex, pattern);
-                    }
-                    pattern = regexPatterns.get(regex);
-                    stack.push(new Operand(Type.BOOLEAN, pattern.matcher(operand1.stringVal()).matches()));
+                    Pattern pattern = regexPatterns.computeIfAbsent(operand2.stringVal(), Pattern::compile);
+                    result = Operand.valueOf(pattern.matcher(operand1.stringVal()).matches());
                 } else {
                     binaryOpError(op, Type.STRING);
                     break;
@@ -1027,7 +1232,7 @@ public class VeLaInterpreter {
             case IN:
                 if (type == Type.STRING) {
                     // Is one string contained within another?
-                    stack.push(new Operand(Type.BOOLEAN, operand2.stringVal().contains(operand1.stringVal())));
+                    result = Operand.valueOf(operand2.stringVal().contains(operand1.stringVal()));
                 } else {
                     binaryOpError(op, Type.STRING);
                 }
@@ -1035,7 +1240,7 @@ public class VeLaInterpreter {
             case SHL:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() << operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() << operand2.intVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER);
@@ -1045,7 +1250,7 @@ public class VeLaInterpreter {
             case SHR:
                 switch (type) {
                 case INTEGER:
-                    stack.push(new Operand(Type.INTEGER, operand1.intVal() >> operand2.intVal()));
+                    result = Operand.valueOf(operand1.intVal() >> operand2.intVal());
                     break;
                 default:
                     binaryOpError(op, Type.INTEGER);
@@ -1056,17 +1261,22 @@ public class VeLaInterpreter {
                 break;
             }
         }
+
+        return result;
     }
 
     /**
-     * Apply a binary operation to the operands, one of which is a list, leaving a
-     * result on the stack.
+     * Apply a binary operation to the operands, one of which is a list, returning
+     * the result.
      * 
      * @param op       The operation to be applied.
      * @param operand1 The first operand.
      * @param operand2 The second operand.
+     * @return The result of the operation.
      */
-    private void applyBinaryListOperation(Operation op, Operand operand1, Operand operand2) {
+    private Operand binaryListOperation(Operation op, Operand operand1, Operand operand2) {
+        Operand listResult = null;
+
         switch (op) {
         case IN:
             Pair<Operand, Operand> operands = unifyTypes(operand1, operand2);
@@ -1075,10 +1285,10 @@ public class VeLaInterpreter {
 
             if (operand2.getType() == Type.LIST) {
                 // Is a value contained within a list?
-                stack.push(new Operand(Type.BOOLEAN, operand2.listVal().contains(operand1)));
+                listResult = Operand.valueOf(operand2.listVal().contains(operand1));
             } else if (operand2.getType() == Type.STRING) {
                 // Is one string contained within another?
-                stack.push(new Operand(Type.BOOLEAN, operand2.stringVal().contains(operand1.stringVal())));
+                listResult = Operand.valueOf(operand2.stringVal().contains(operand1.stringVal()));
             } else {
                 String msg = String.format("The second operand must be of type list or string for 'IN' operation", op);
                 throw new VeLaEvalError(msg);
@@ -1086,17 +1296,14 @@ public class VeLaInterpreter {
             break;
 
         default:
-            List<Operand> result = new ArrayList<Operand>();
+            RealList.Builder result = new RealList.Builder();
 
             if (operand1.getType() == Type.LIST && operand2.getType() == Type.LIST) {
                 if (operand1.listVal().size() == operand2.listVal().size()) {
                     for (int i = 0; i < operand1.listVal().size(); i++) {
-                        stack.push(operand1.listVal().get(i));
-                        stack.push(operand2.listVal().get(i));
-                        applyBinaryOperation(op);
-                        result.add(stack.pop());
+                        result.add(binaryOperation(op, operand1.listVal().get(i), operand2.listVal().get(i)));
                     }
-                    stack.push(new Operand(Type.LIST, result));
+                    listResult = new Operand(Type.LIST, result.build());
                 } else {
                     String msg = String.format("Lists must be of equal length " + "for '%s' operation", op);
                     throw new VeLaEvalError(msg);
@@ -1104,23 +1311,19 @@ public class VeLaInterpreter {
             } else if (operand1.getType() != Type.LIST) {
 
                 for (int i = 0; i < operand2.listVal().size(); i++) {
-                    stack.push(operand1);
-                    stack.push(operand2.listVal().get(i));
-                    applyBinaryOperation(op);
-                    result.add(stack.pop());
+                    result.add(binaryOperation(op, operand1, operand2.listVal().get(i)));
                 }
-                stack.push(new Operand(Type.LIST, result));
+                listResult = new Operand(Type.LIST, result.build());
             } else {
                 for (int i = 0; i < operand1.listVal().size(); i++) {
-                    stack.push(operand1.listVal().get(i));
-                    stack.push(operand2);
-                    applyBinaryOperation(op);
-                    result.add(stack.pop());
+                    result.add(binaryOperation(op, operand1.listVal().get(i), operand2));
                 }
-                stack.push(new Operand(Type.LIST, result));
+                listResult = new Operand(Type.LIST, result.build());
             }
             break;
         }
+
+        return listResult;
     }
 
     /**
@@ -1244,38 +1447,134 @@ public class VeLaInterpreter {
     }
 
     /**
-     * Read and interpret the VeLa standard library code.<br/>
-     * A VeLa error should not bring VStar down.<br/>
+     * Collect functions from reflection over Java classes the first time an
+     * interpreter is created.
+     * 
+     * @param addVStarAPI Add the VStar API?
+     * @return The Java class function executors.
      */
-    private void loadStdLib() {
-        try {
-            program(ResourceAccessor.getVeLaStdLibStr());
-        } catch (Throwable t) {
-            VStar.LOGGER.warning("Error when sourcing VeLa standard library code: " + t.getLocalizedMessage());
+    private List<FunctionExecutor> javaClassFunctionExecutors(boolean addVStarAPI) {
+        synchronized (VeLaInterpreter.class) {
+            if (javaClassFunctionExecutors == null) {
+                Set<Class<?>> permittedTypes = new HashSet<Class<?>>();
+                permittedTypes.add(int.class);
+                permittedTypes.add(double.class);
+                permittedTypes.add(boolean.class);
+                permittedTypes.add(String.class);
+                permittedTypes.add(CharSequence.class);
+                permittedTypes.add(void.class);
+                permittedTypes.add(Type.DBL_ARR.getClass());
+                permittedTypes.add(Type.DBL_CLASS_ARR.getClass());
+                if (addVStarAPI) {
+                    // TODO: really needed here?
+                    permittedTypes.add(VStarScriptingAPI.class);
+                }
+
+                javaClassFunctionExecutors = new ArrayList<FunctionExecutor>();
+                addFunctionExecutorsFromClass(Math.class, null, permittedTypes, Collections.emptySet());
+
+                addFunctionExecutorsFromClass(String.class, null, permittedTypes,
+                        new HashSet<String>(Arrays.asList("JOIN", "FORMAT")));
+
+                if (addVStarAPI) {
+                    addFunctionExecutorsFromClass(VStarScriptingAPI.class, VStarScriptingAPI.getInstance(),
+                            permittedTypes, Collections.emptySet());
+                }
+            }
+
+            return javaClassFunctionExecutors;
         }
     }
 
     /**
-     * Read and interpret user-defined code.<br/>
+     * Interpret a runtime's parsed library code: the standard library, then
+     * user-defined code.<br/>
      * A VeLa error should not bring VStar down.<br/>
-     * Ignore all but VeLa files (e.g. could be README files) and directories.
+     * 
+     * @param runtime The runtime.
      */
-    private void loadUserCode() {
-        for (File dir : sourceDirectories) {
-            try {
-                if (dir.isDirectory()) {
-                    for (File file : dir.listFiles()) {
-                        if (file.getName().endsWith(".vl") || file.getName().endsWith(".vela")) {
-                            program(file);
-                        }
-                    }
-                } else {
+    private void loadLibraries(VeLaRuntime runtime) {
+        boolean stdlib = true;
 
+        for (List<AST> library : runtime.getLibraries()) {
+            try {
+                for (AST ast : library) {
+                    evalToResult(ast);
                 }
             } catch (Throwable t) {
-                VStar.LOGGER.warning("Error when sourcing VeLa code: " + t.getLocalizedMessage());
+                VStar.LOGGER.warning((stdlib ? "Error when sourcing VeLa standard library code: "
+                        : "Error when sourcing VeLa code: ") + t.getLocalizedMessage());
+            }
+            stdlib = false;
+        }
+    }
+
+    /**
+     * Populate this interpreter's global scope, containing only intrinsic
+     * functions, from a copy of another interpreter's global scope. Java class
+     * functions are shared, while intrinsic and user-defined functions, and
+     * bindings to them, are replaced by those bound to this interpreter.
+     * 
+     * @param prototype The interpreter whose global scope is to be copied.
+     */
+    private void copyGlobalScope(VeLaInterpreter prototype) {
+        VeLaScope global = (VeLaScope) environments.firstElement();
+        VeLaScope prototypeGlobal = (VeLaScope) prototype.environments.firstElement();
+
+        Map<String, List<FunctionExecutor>> intrinsics = new HashMap<String, List<FunctionExecutor>>(
+                global.getFunctions());
+
+        global.getFunctions().clear();
+
+        for (Map.Entry<String, List<FunctionExecutor>> entry : prototypeGlobal.getFunctions().entrySet()) {
+            List<FunctionExecutor> functions = new ArrayList<FunctionExecutor>(entry.getValue().size());
+            for (FunctionExecutor function : entry.getValue()) {
+                functions.add(rebind(function, intrinsics));
+            }
+            global.getFunctions().put(entry.getKey(), functions);
+        }
+
+        for (Map.Entry<String, Operand> entry : prototypeGlobal.cache.entrySet()) {
+            global.cache.put(entry.getKey(), rebind(entry.getValue().copy(), intrinsics));
+        }
+
+        global.constants.addAll(prototypeGlobal.constants);
+    }
+
+    // Return the function bound to this interpreter corresponding to one
+    // bound to a prototype interpreter, or the function itself if it is not
+    // bound to any interpreter.
+    private FunctionExecutor rebind(FunctionExecutor function, Map<String, List<FunctionExecutor>> intrinsics) {
+        if (function instanceof UserDefinedFunctionExecutor) {
+            return ((UserDefinedFunctionExecutor) function).rebind(this);
+        }
+
+        if (function.getFuncName().isPresent()) {
+            List<FunctionExecutor> candidates = intrinsics.get(function.getFuncName().get());
+            if (candidates != null) {
+                for (FunctionExecutor candidate : candidates) {
+                    if (candidate.getClass() == function.getClass()
+                            && candidate.getParameterTypes().equals(function.getParameterTypes())) {
+                        return candidate;
+                    }
+                }
             }
         }
+
+        return function;
+    }
+
+    // Rebind functions in a copied operand, in place.
+    private Operand rebind(Operand operand, Map<String, List<FunctionExecutor>> intrinsics) {
+        if (operand.getType() == Type.FUNCTION) {
+            operand.setFunctionVal(rebind(operand.functionVal(), intrinsics));
+        } else if (operand.getType() == Type.LIST) {
+            for (Operand element : operand.listVal()) {
+                rebind(element, intrinsics);
+            }
+        }
+
+        return operand;
     }
 
     // ** Function related methods *
@@ -1304,6 +1603,46 @@ public class VeLaInterpreter {
         return functions;
     }
 
+    /**
+     * Given a function name and parameter types, return the function whose formal
+     * parameter types match exactly or which accepts any parameters. A function
+     * bound to a variable of that name is also considered. The function can then
+     * be invoked directly, e.g. via FunctionExecutor.invokeAsDouble(), rather than
+     * by constructing and interpreting a function call string.
+     * 
+     * @param name           The name of the function to look up.
+     * @param parameterTypes The types of the function's formal parameters.
+     * @return The optional function executor.
+     */
+    public Optional<FunctionExecutor> lookupFunction(String name, Type... parameterTypes) {
+        String canonicalName = name.toUpperCase();
+        List<Type> types = Arrays.asList(parameterTypes);
+
+        List<FunctionExecutor> candidates = new ArrayList<FunctionExecutor>();
+
+        Optional<List<FunctionExecutor>> functions = lookupFunctions(canonicalName);
+        if (functions.isPresent()) {
+            candidates.addAll(functions.get());
+        } else {
+            Optional<Operand> value = lookupBinding(canonicalName);
+            if (value.isPresent() && value.get().getType() == Type.FUNCTION) {
+                candidates.add(value.get().functionVal());
+            }
+        }
+
+        Optional<FunctionExecutor> result = Optional.empty();
+
+        for (FunctionExecutor function : candidates) {
+            if (function.getParameterTypes() == FunctionExecutor.ANY_FORMAL_TYPES
+                    || function.getParameterTypes().equals(types)) {
+                result = Optional.of(function);
+                break;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Apply the function to the supplied parameter list, leaving the result on the
      * stack.
@@ -1372,37 +1711,12 @@ public class VeLaInterpreter {
         boolean conforms = function.conforms(params);
 
         if (conforms) {
-            // Apply the function to the actual parameters.
-            Optional<Operand> result = function.apply(params);
-
-            String funcRepr = function.toString();
+            // Apply the function to the actual parameters, leaving any
+            // result of the expected return type on the stack.
+            Optional<Operand> result = function.checkResult(function.apply(params));
 
             if (result.isPresent()) {
-                // The function returned a result.
-                // Does the function have a return type defined?
-                if (function.returnType.isPresent()) {
-                    // Attempt to convert to return type if necessary.
-
-                    Operand convertedResult = result.get().convert(function.getReturnType().get());
-                    if (convertedResult.getType() == function.returnType.get()) {
-                        // The returned result was of the expected type or was converted to it.
-                        stack.push(convertedResult);
-                    } else {
-                        // The returned result was not of the expected type.
-                        throw new VeLaEvalError(String.format(
-                                "The expected return type of %s does not match " + "the actual return type of %s.",
-                                funcRepr, result.get().getType()));
-                    }
-                } else {
-                    throw new VeLaEvalError(
-                            String.format("%s has no return type but a value " + "of type %s was returned.", funcRepr,
-                                    result.get().getType()));
-                }
-            } else {
-                if (function.returnType.isPresent()) {
-                    // No result was returned but one was expected.
-                    throw new VeLaEvalError(String.format("No value was returned by %s.", funcRepr));
-                }
+                stack.push(result.get());
             }
         }
 
@@ -1438,7 +1752,7 @@ public class VeLaInterpreter {
     /**
      * Initialise function executors
      */
-    private void initFunctionExecutors() {
+    private void initFunctionExecutors(List<FunctionExecutor> javaClassFunctionExecutors) {
 
         // Special functions
         addEval();
@@ -1547,6 +1861,27 @@ public class VeLaInterpreter {
                     }
                 });
 
+        String cacheStatsHelp = "Returns a list of [name size weight hits misses evictions] lists, one for each interpreter cache.";
+
+        addFunctionExecutor(
+                new FunctionExecutor(Optional.of("CACHESTATS"), Optional.of(Type.LIST), Optional.of(cacheStatsHelp)) {
+                    @Override
+                    public Optional<Operand> apply(List<Operand> operands) {
+                        List<Operand> statsList = new ArrayList<Operand>();
+                        for (VeLaCache.Statistics stats : getCacheStatistics()) {
+                            List<Operand> fields = new ArrayList<Operand>();
+                            fields.add(new Operand(Type.STRING, stats.getName()));
+                            fields.add(Operand.valueOf(stats.getSize()));
+                            fields.add(Operand.valueOf(stats.getWeight()));
+                            fields.add(Operand.valueOf(stats.getHits()));
+                            fields.add(Operand.valueOf(stats.getMisses()));
+                            fields.add(Operand.valueOf(stats.getEvictions()));
+                            statsList.add(new Operand(Type.LIST, fields));
+                        }
+                        return Optional.of(new Operand(Type.LIST, statsList));
+                    }
+                });
+
         String millisecsHelp = "Returns the number of milliseconds between the current time and midnight, January 1, 1970 UTC";
 
         addFunctionExecutor(new FunctionExecutor(Optional.of("MILLISECONDS"), Optional.of(Type.INTEGER),
@@ -1554,7 +1889,7 @@ public class VeLaInterpreter {
             @Override
             public Optional<Operand> apply(List<Operand> operands) {
                 long milliseconds = System.currentTimeMillis();
-                return Optional.of(new Operand(Type.INTEGER, milliseconds));
+                return Optional.of(Operand.valueOf(milliseconds));
             }
         });
 
@@ -1724,7 +2059,7 @@ public class VeLaInterpreter {
             @Override
             public Optional<Operand> apply(List<Operand> operands) {
                 char chrVal = operands.get(0).stringVal().charAt(0);
-                return Optional.of(new Operand(Type.INTEGER, (int) chrVal));
+                return Optional.of(Operand.valueOf((int) chrVal));
             }
         });
     }
@@ -1760,7 +2095,9 @@ public class VeLaInterpreter {
             public Optional<Operand> apply(List<Operand> operands) {
                 List<Operand> list = operands.get(0).listVal();
                 Operand result;
-                if (!list.isEmpty()) {
+                if (list instanceof RealList && !list.isEmpty()) {
+                    result = new Operand(Type.LIST, ((RealList) list).from(1));
+                } else if (!list.isEmpty()) {
                     List<Operand> tail = new ArrayList<Operand>(list);
                     tail.remove(0);
                     result = new Operand(Type.LIST, tail);
@@ -1801,7 +2138,7 @@ public class VeLaInterpreter {
                 Arrays.asList(Type.LIST), Optional.of(Type.INTEGER), Optional.of(help)) {
             @Override
             public Optional<Operand> apply(List<Operand> operands) {
-                return Optional.of(new Operand(Type.INTEGER, operands.get(0).listVal().size()));
+                return Optional.of(Operand.valueOf(operands.get(0).listVal().size()));
             }
         });
     }
@@ -1816,6 +2153,9 @@ public class VeLaInterpreter {
             public Optional<Operand> apply(List<Operand> operands) {
                 List<Operand> list1 = operands.get(0).listVal();
                 List<Operand> list2 = operands.get(1).listVal();
+                if (list1 instanceof RealList && list2 instanceof RealList) {
+                    return Optional.of(new Operand(Type.LIST, ((RealList) list1).concat((RealList) list2)));
+                }
                 List<Operand> newList = new ArrayList<Operand>();
                 newList.addAll(list1);
                 newList.addAll(list2);
@@ -1832,8 +2172,12 @@ public class VeLaInterpreter {
                 Arrays.asList(Type.LIST, secondParameterType), Optional.of(Type.LIST), Optional.of(help)) {
             @Override
             public Optional<Operand> apply(List<Operand> operands) {
+                List<Operand> list = operands.get(0).listVal();
+                if (list instanceof RealList && operands.get(1).getType() == Type.REAL) {
+                    return Optional.of(new Operand(Type.LIST, ((RealList) list).append(operands.get(1).doubleVal())));
+                }
                 List<Operand> newList = new ArrayList<Operand>();
-                newList.addAll(operands.get(0).listVal());
+                newList.addAll(list);
                 newList.add(operands.get(1));
                 return Optional.of(new Operand(Type.LIST, newList));
             }
@@ -1855,7 +2199,7 @@ public class VeLaInterpreter {
                 Long step = operands.get(2).intVal();
                 List<Operand> resultList = new ArrayList<Operand>();
                 for (long i = first; i <= last; i += step) {
-                    resultList.add(new Operand(Type.INTEGER, i));
+                    resultList.add(Operand.valueOf(i));
                 }
                 return Optional.of(new Operand(Type.LIST, resultList));
             }
@@ -1875,11 +2219,11 @@ public class VeLaInterpreter {
                 Double first = operands.get(0).doubleVal();
                 Double last = operands.get(1).doubleVal();
                 Double step = operands.get(2).doubleVal();
-                List<Operand> resultList = new ArrayList<Operand>();
+                RealList.Builder resultList = new RealList.Builder();
                 for (double i = first; i <= last; i += step) {
-                    resultList.add(new Operand(Type.REAL, i));
+                    resultList.add(i);
                 }
-                return Optional.of(new Operand(Type.LIST, resultList));
+                return Optional.of(new Operand(Type.LIST, resultList.build()));
             }
         });
     }
@@ -1894,7 +2238,7 @@ public class VeLaInterpreter {
             public Optional<Operand> apply(List<Operand> operands) {
                 FunctionExecutor fun = operands.get(0).functionVal();
                 List<Operand> list = operands.get(1).listVal();
-                List<Operand> resultList = new ArrayList<Operand>();
+                RealList.Builder resultList = new RealList.Builder(list.size());
                 for (Operand item : list) {
                     List<Operand> params = Arrays.asList(item);
                     applyFunction(fun, params);
@@ -1905,7 +2249,7 @@ public class VeLaInterpreter {
                         throw new VeLaEvalError("Expected function result");
                     }
                 }
-                return Optional.of(new Operand(Type.LIST, resultList));
+                return Optional.of(new Operand(Type.LIST, resultList.build()));
             }
         });
     }
@@ -1921,7 +2265,7 @@ public class VeLaInterpreter {
             public Optional<Operand> apply(List<Operand> operands) {
                 FunctionExecutor fun = operands.get(0).functionVal();
                 List<Operand> list = operands.get(1).listVal();
-                List<Operand> resultList = new ArrayList<Operand>();
+                RealList.Builder resultList = new RealList.Builder();
                 for (Operand item : list) {
                     List<Operand> params = Arrays.asList(item);
                     applyFunction(fun, params);
@@ -1939,7 +2283,7 @@ public class VeLaInterpreter {
                         throw new VeLaEvalError("Expected boolean value");
                     }
                 }
-                return Optional.of(new Operand(Type.LIST, resultList));
+                return Optional.of(new Operand(Type.LIST, resultList.build()));
             }
         });
     }
@@ -1976,7 +2320,7 @@ public class VeLaInterpreter {
                         throw new VeLaEvalError("Expected boolean value");
                     }
                 }
-                return Optional.of(new Operand(Type.INTEGER, index));
+                return Optional.of(Operand.valueOf(index));
             }
         });
     }
@@ -2017,7 +2361,7 @@ public class VeLaInterpreter {
                         throw new VeLaEvalError("Expected boolean value");
                     }
                 }
-                return Optional.of(new Operand(Type.INTEGER, index));
+                return Optional.of(Operand.valueOf(index));
             }
         });
     }
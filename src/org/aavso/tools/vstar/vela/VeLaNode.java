@@ -0,0 +1,266 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * A node in a tree of closures created from an AST by the closure compiler.
+ * A node whose type is known at compile time can be evaluated to a primitive
+ * value via the corresponding typed evaluation method without allocating an
+ * operand; a node whose type is only known at run time yields an operand.
+ */
+public abstract class VeLaNode {
+
+    private final Type type;
+
+    /**
+     * Constructor
+     *
+     * @param type The type of the node's value if known at compile time, else
+     *             null.
+     */
+    protected VeLaNode(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the type of the node's value if known at compile time, else null
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return whether the type of this node's value is known at compile time
+     */
+    public boolean isStaticallyTyped() {
+        return type != null;
+    }
+
+    /**
+     * Evaluate this node.
+     *
+     * @return The resulting operand.
+     * @throws VeLaEvalError If an evaluation error occurs.
+     */
+    public abstract Operand eval() throws VeLaEvalError;
+
+    /**
+     * Evaluate this node as a real number.
+     *
+     * @return The resulting real value; an integer value is widened.
+     * @throws VeLaEvalError If an evaluation error occurs or the result is not
+     *                       numeric.
+     */
+    public double evalDouble() throws VeLaEvalError {
+        Operand operand = eval();
+
+        switch (operand.getType()) {
+        case REAL:
+            return operand.doubleVal();
+        case INTEGER:
+            return operand.intVal();
+        default:
+            throw new VeLaEvalError("Numeric value expected as result");
+        }
+    }
+
+    /**
+     * Evaluate this node as an integer.
+     *
+     * @return The resulting integer value.
+     * @throws VeLaEvalError If an evaluation error occurs or the result is not an
+     *                       integer.
+     */
+    public long evalInteger() throws VeLaEvalError {
+        Operand operand = eval();
+
+        if (operand.getType() == Type.INTEGER) {
+            return operand.intVal();
+        } else {
+            throw new VeLaEvalError("Integer value expected as result");
+        }
+    }
+
+    /**
+     * Evaluate this node as a Boolean.
+     *
+     * @return The resulting Boolean value.
+     * @throws VeLaEvalError If an evaluation error occurs or the result is not a
+     *                       Boolean.
+     */
+    public boolean evalBoolean() throws VeLaEvalError {
+        Operand operand = eval();
+
+        if (operand.getType() == Type.BOOLEAN) {
+            return operand.booleanVal();
+        } else {
+            throw new VeLaEvalError("Boolean value expected as result");
+        }
+    }
+
+    /**
+     * Evaluate this node as a string.
+     *
+     * @return The resulting string value.
+     * @throws VeLaEvalError If an evaluation error occurs or the result is not a
+     *                       string.
+     */
+    public String evalString() throws VeLaEvalError {
+        Operand operand = eval();
+
+        if (operand.getType() == Type.STRING) {
+            return operand.stringVal();
+        } else {
+            throw new VeLaEvalError("String value expected as result");
+        }
+    }
+
+    /**
+     * A node that yields a constant operand.
+     */
+    public static final class ConstantNode extends VeLaNode {
+        private final Operand value;
+
+        public ConstantNode(Operand value) {
+            super(value.getType());
+            this.value = value;
+        }
+
+        @Override
+        public Operand eval() {
+            return value;
+        }
+    }
+
+    /**
+     * A node that yields a real value.
+     */
+    public static final class DoubleNode extends VeLaNode {
+        private final DoubleSupplier function;
+
+        public DoubleNode(DoubleSupplier function) {
+            super(Type.REAL);
+            this.function = function;
+        }
+
+        @Override
+        public Operand eval() throws VeLaEvalError {
+            return new Operand(Type.REAL, function.getAsDouble());
+        }
+
+        @Override
+        public double evalDouble() throws VeLaEvalError {
+            return function.getAsDouble();
+        }
+    }
+
+    /**
+     * A node that yields an integer value.
+     */
+    public static final class IntegerNode extends VeLaNode {
+        private final LongSupplier function;
+
+        public IntegerNode(LongSupplier function) {
+            super(Type.INTEGER);
+            this.function = function;
+        }
+
+        @Override
+        public Operand eval() throws VeLaEvalError {
+            return Operand.valueOf(function.getAsLong());
+        }
+
+        @Override
+        public long evalInteger() throws VeLaEvalError {
+            return function.getAsLong();
+        }
+
+        @Override
+        public double evalDouble() throws VeLaEvalError {
+            return function.getAsLong();
+        }
+    }
+
+    /**
+     * A node that yields a Boolean value.
+     */
+    public static final class BooleanNode extends VeLaNode {
+        private final BooleanSupplier function;
+
+        public BooleanNode(BooleanSupplier function) {
+            super(Type.BOOLEAN);
+            this.function = function;
+        }
+
+        @Override
+        public Operand eval() throws VeLaEvalError {
+            return Operand.valueOf(function.getAsBoolean());
+        }
+
+        @Override
+        public boolean evalBoolean() throws VeLaEvalError {
+            return function.getAsBoolean();
+        }
+    }
+
+    /**
+     * A node that yields a string value.
+     */
+    public static final class StringNode extends VeLaNode {
+        private final Supplier<String> function;
+
+        public StringNode(Supplier<String> function) {
+            super(Type.STRING);
+            this.function = function;
+        }
+
+        @Override
+        public Operand eval() throws VeLaEvalError {
+            return new Operand(Type.STRING, function.get());
+        }
+
+        @Override
+        public String evalString() throws VeLaEvalError {
+            return function.get();
+        }
+    }
+
+    /**
+     * A node whose type is only known at run time.
+     */
+    public static final class OperandNode extends VeLaNode {
+        private final Supplier<Operand> function;
+
+        public OperandNode(Supplier<Operand> function) {
+            super(null);
+            this.function = function;
+        }
+
+        @Override
+        public Operand eval() throws VeLaEvalError {
+            return function.get();
+        }
+    }
+}
@@ -63,6 +63,7 @@ public class VeLaPrefs {
     public static void setCodeDirs(String codeDirs) {
         VeLaPrefs.codeDirs = codeDirs;
         saveCodeDirs(codeDirs);
+        VeLaRuntime.clearRuntimeCache();
     }
 
     public static List<File> getCodeDirsList() {
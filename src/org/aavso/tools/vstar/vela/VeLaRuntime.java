@@ -0,0 +1,333 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.aavso.tools.vstar.ui.VStar;
+import org.aavso.tools.vstar.ui.resources.ResourceAccessor;
+
+/**
+ * VeLa: VStar expression Language
+ *
+ * An immutable VeLa runtime that can be shared between threads. It holds the
+ * parsed standard library and user-defined code (read from source
+ * directories) from which any number of interpreters, i.e. evaluation
+ * contexts, can be created cheaply. The library code is evaluated once, in a
+ * prototype context, and each new context's global scope is populated from a
+ * copy of the prototype's rather than by evaluating the library code again:
+ * Java class functions are shared while intrinsic and user-defined functions
+ * are bound to the new context. Each context has its own operand stack,
+ * environments and function tables, so bindings made by one context are not
+ * seen by another. A context is created by passing the runtime to an
+ * interpreter constructor. An interpreter is not thread-safe, so each thread
+ * should evaluate VeLa code in its own context.<br/>
+ * 
+ * The parsed standard library is shared by all runtimes and parsed user code
+ * is cached by file path, so that creating a runtime only parses source files
+ * that are new or have been modified (according to their modification time
+ * and size) since they were last parsed. Runtimes for user code directories
+ * are themselves cached by getRuntime(), so long as none of their source
+ * files have changed and the code directory preferences have not changed.
+ */
+public final class VeLaRuntime {
+
+    // Bounds for the source file cache, the weight of an entry being the
+    // length of its key.
+    public static final int MAX_SOURCE_CACHE_ENTRIES = 500;
+    public static final long MAX_SOURCE_CACHE_WEIGHT = 100000;
+
+    // Parsed user code, keyed by absolute path, modification time and size,
+    // and shared between runtimes; entries for modified files are evicted as
+    // the least recently used.
+    private static VeLaCache<String, Optional<AST>> sourceFiles = new VeLaCache<String, Optional<AST>>("SOURCE",
+            MAX_SOURCE_CACHE_ENTRIES, MAX_SOURCE_CACHE_WEIGHT, String::length);
+
+    // Bound for the runtime cache, whose keys are combinations of source
+    // directories, of which there are usually very few.
+    public static final int MAX_RUNTIME_CACHE_ENTRIES = 16;
+
+    // Runtimes with user code, keyed by whether the VStar API is added and
+    // by source directories, least recently used first; guarded by the class
+    // lock.
+    private static Map<List<Object>, VeLaRuntime> runtimes = new LinkedHashMap<List<Object>, VeLaRuntime>(16, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, VeLaRuntime> eldest) {
+            return size() > MAX_RUNTIME_CACHE_ENTRIES;
+        }
+    };
+
+    // Parsed standard library code, shared between runtimes; guarded by the
+    // class lock until initialised.
+    private static List<AST> stdlib = null;
+
+    private static VeLaRuntime defaultRuntime = null;
+    private static VeLaRuntime defaultRuntimeWithoutVStarAPI = null;
+
+    private final boolean addVStarAPI;
+
+    // Each library is a sequence of programs, evaluation of which stops at the
+    // first erroneous program: first the standard library, then one library
+    // per user code directory.
+    private final List<List<AST>> libraries;
+
+    // The source file keys from which the user code libraries were created,
+    // with which to determine whether this runtime is out of date.
+    private final List<String> sourceKeys;
+
+    // The context in which library code was evaluated, from which other
+    // contexts are populated; never evaluates anything else.
+    private final VeLaInterpreter prototype;
+
+    /**
+     * Construct a runtime from the standard library and the VeLa files in the
+     * specified source directories, reading and parsing only those files not
+     * already parsed, then evaluate the library code in a prototype context. A
+     * VeLa error should not bring VStar down, so errors are logged rather than
+     * propagated.
+     *
+     * @param addVStarAPI       Add the VStar API?
+     * @param sourceDirectories A list of source directories containing VeLa
+     *                          source files (ending in ".vl" or ".vela") to be
+     *                          loaded.
+     */
+    public VeLaRuntime(boolean addVStarAPI, List<File> sourceDirectories) {
+        this.addVStarAPI = addVStarAPI;
+
+        // An interpreter with no library code, with which to parse it.
+        VeLaInterpreter parser = new VeLaInterpreter(false, new VeLaRuntime(addVStarAPI));
+
+        List<List<AST>> libraries = new ArrayList<List<AST>>();
+        List<String> sourceKeys = new ArrayList<String>();
+
+        // standard library code
+        libraries.add(getStdLib(parser));
+
+        // user-defined code; ignore all but VeLa files (e.g. could be README
+        // files) and directories
+        for (File dir : sourceDirectories) {
+            List<AST> library = new ArrayList<AST>();
+            try {
+                for (File file : getSourceFiles(dir)) {
+                    String key = sourceKey(file);
+                    sourceKeys.add(key);
+                    getSourceFile(parser, file, key).ifPresent(library::add);
+                }
+            } catch (Throwable t) {
+                VStar.LOGGER.warning("Error when sourcing VeLa code: " + t.getLocalizedMessage());
+            }
+            libraries.add(Collections.unmodifiableList(library));
+        }
+
+        this.libraries = Collections.unmodifiableList(libraries);
+        this.sourceKeys = Collections.unmodifiableList(sourceKeys);
+
+        prototype = new VeLaInterpreter(false, this);
+    }
+
+    /**
+     * Return the shared runtime with the standard library and no user-defined
+     * code.
+     *
+     * @param addVStarAPI Add the VStar API?
+     * @return The runtime.
+     */
+    public static synchronized VeLaRuntime getDefault(boolean addVStarAPI) {
+        if (addVStarAPI) {
+            if (defaultRuntime == null) {
+                defaultRuntime = new VeLaRuntime(true, Collections.emptyList());
+            }
+            return defaultRuntime;
+        } else {
+            if (defaultRuntimeWithoutVStarAPI == null) {
+                defaultRuntimeWithoutVStarAPI = new VeLaRuntime(false, Collections.emptyList());
+            }
+            return defaultRuntimeWithoutVStarAPI;
+        }
+    }
+
+    /**
+     * Return a runtime with the standard library and the VeLa files in the
+     * specified source directories. A runtime previously created for the same
+     * source directories is returned if none of their VeLa files have been
+     * added, removed or modified since, otherwise a new runtime is created.
+     *
+     * @param addVStarAPI       Add the VStar API?
+     * @param sourceDirectories A list of source directories containing VeLa
+     *                          source files (ending in ".vl" or ".vela") to be
+     *                          loaded.
+     * @return The runtime.
+     */
+    public static VeLaRuntime getRuntime(boolean addVStarAPI, List<File> sourceDirectories) {
+        if (sourceDirectories.isEmpty()) {
+            return getDefault(addVStarAPI);
+        }
+
+        List<Object> key = new ArrayList<Object>();
+        key.add(addVStarAPI);
+        for (File dir : sourceDirectories) {
+            key.add(dir.getAbsoluteFile());
+        }
+
+        synchronized (VeLaRuntime.class) {
+            VeLaRuntime runtime = runtimes.get(key);
+
+            if (runtime == null || !runtime.isCurrent(sourceDirectories)) {
+                runtime = new VeLaRuntime(addVStarAPI, sourceDirectories);
+                runtimes.put(key, runtime);
+            }
+
+            return runtime;
+        }
+    }
+
+    /**
+     * Clear the runtime cache, e.g. when the code directory preferences have
+     * changed.
+     */
+    public static synchronized void clearRuntimeCache() {
+        runtimes.clear();
+    }
+
+    /**
+     * @return whether the VStar API is added to contexts of this runtime
+     */
+    public boolean isVStarAPIAdded() {
+        return addVStarAPI;
+    }
+
+    /**
+     * @return the parsed library code, in the order in which it is evaluated
+     */
+    List<List<AST>> getLibraries() {
+        return libraries;
+    }
+
+    /**
+     * @return the context in which library code was evaluated, or null if not
+     *         yet (or never) created, in which case a new context must evaluate
+     *         library code itself
+     */
+    VeLaInterpreter getPrototype() {
+        return prototype;
+    }
+
+    /**
+     * @return the source file cache's statistics
+     */
+    static VeLaCache.Statistics getSourceCacheStatistics() {
+        return sourceFiles.getStatistics();
+    }
+
+    /**
+     * Clear the source file cache, resetting its statistics.
+     */
+    static void clearSourceCache() {
+        sourceFiles.clear();
+    }
+
+    // Helpers
+
+    // Construct a runtime with no library code.
+    private VeLaRuntime(boolean addVStarAPI) {
+        this.addVStarAPI = addVStarAPI;
+        this.libraries = Collections.emptyList();
+        this.sourceKeys = Collections.emptyList();
+        this.prototype = null;
+    }
+
+    // Parse the standard library the first time a runtime is created.
+    private static synchronized List<AST> getStdLib(VeLaInterpreter parser) {
+        if (stdlib == null) {
+            List<AST> library = new ArrayList<AST>();
+            try {
+                AST ast = parser.compile(ResourceAccessor.getVeLaStdLibStr(), false).getAST();
+                if (ast != null) {
+                    library.add(ast);
+                }
+            } catch (Throwable t) {
+                VStar.LOGGER.warning("Error when sourcing VeLa standard library code: " + t.getLocalizedMessage());
+            }
+            stdlib = Collections.unmodifiableList(library);
+        }
+
+        return stdlib;
+    }
+
+    // Return the VeLa files in the specified directory, ignoring all other
+    // files (e.g. could be README files) and directories.
+    private static List<File> getSourceFiles(File dir) {
+        List<File> files = new ArrayList<File>();
+
+        File[] dirFiles = dir.isDirectory() ? dir.listFiles() : null;
+
+        if (dirFiles != null) {
+            for (File file : dirFiles) {
+                if (file.getName().endsWith(".vl") || file.getName().endsWith(".vela")) {
+                    files.add(file);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    // Is this runtime's user code the same as that currently in the specified
+    // source directories?
+    private boolean isCurrent(List<File> sourceDirectories) {
+        List<String> keys = new ArrayList<String>();
+
+        for (File dir : sourceDirectories) {
+            for (File file : getSourceFiles(dir)) {
+                keys.add(sourceKey(file));
+            }
+        }
+
+        return keys.equals(sourceKeys);
+    }
+
+    private static String sourceKey(File file) {
+        return file.getAbsolutePath() + "@" + file.lastModified() + ":" + file.length();
+    }
+
+    // Return the parsed source file, reading and parsing it only if it has
+    // not been parsed since it was last modified. A file that fails to parse
+    // is not cached, so that it is parsed again, and its errors reported, the
+    // next time it is loaded.
+    private static Optional<AST> getSourceFile(VeLaInterpreter parser, File file, String key) {
+        Optional<AST> ast = sourceFiles.get(key);
+
+        if (ast == null) {
+            ast = Optional.ofNullable(parser.compile(file).getAST());
+            if (ast.isPresent()) {
+                sourceFiles.put(key, ast);
+            }
+        }
+
+        return ast;
+    }
+}
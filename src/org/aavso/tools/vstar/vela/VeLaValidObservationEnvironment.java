@@ -18,10 +18,13 @@
 package org.aavso.tools.vstar.vela;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 import org.aavso.tools.vstar.data.Property;
 import org.aavso.tools.vstar.data.ValidObservation;
@@ -32,26 +35,146 @@ import org.aavso.tools.vstar.ui.mediator.message.NewStarMessage;
 import org.aavso.tools.vstar.ui.model.list.ITableColumnInfoSource;
 
 /**
- * A VeLa environment that is backed by a ValidObservation instance.
+ * A VeLa environment that is backed by a ValidObservation instance.<br/>
+ * 
+ * An instance may be used as a cursor over many observations by re-pointing it
+ * at each observation in turn via setObservation(), rather than creating an
+ * environment per observation.
  */
 public class VeLaValidObservationEnvironment extends VeLaEnvironment<Operand> {
 
-    private static Map<String, String> symbol2CanonicalSymbol;
+    /**
+     * Observation properties that are always available, each with its VeLa type
+     * and an accessor, permitting symbols to be resolved to a slot once rather
+     * than for each lookup.
+     */
+    public enum Slot {
+        TIME(Type.REAL, ob -> ob.getJD(), null),
+
+        MAGNITUDE(Type.REAL, ob -> ob.getMag(), null),
+
+        UNCERTAINTY(Type.REAL, ob -> ob.getMagnitude().getUncertainty(), null),
+
+        BAND(Type.STRING, null, ob -> ob.getBand().getDescription()),
+
+        SHORTBAND(Type.STRING, null, ob -> ob.getBand().getShortName()),
+
+        SERIES(Type.STRING, null, ob -> ob.getSeries().getDescription());
+
+        private Type type;
+        private ToDoubleFunction<ValidObservation> realAccessor;
+        private Function<ValidObservation, String> stringAccessor;
+
+        private Slot(Type type, ToDoubleFunction<ValidObservation> realAccessor,
+                Function<ValidObservation, String> stringAccessor) {
+            this.type = type;
+            this.realAccessor = realAccessor;
+            this.stringAccessor = stringAccessor;
+        }
+
+        /**
+         * @return the VeLa type of this slot's value
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * @param ob The observation.
+         * @return the real value of this slot for the observation
+         */
+        public double realValue(ValidObservation ob) {
+            return realAccessor.applyAsDouble(ob);
+        }
+
+        /**
+         * @param ob The observation.
+         * @return the string value of this slot for the observation
+         */
+        public String stringValue(ValidObservation ob) {
+            return stringAccessor.apply(ob);
+        }
+
+        /**
+         * @param ob The observation.
+         * @return the value of this slot for the observation as an operand
+         */
+        public Operand operand(ValidObservation ob) {
+            if (type == Type.REAL) {
+                return new Operand(Type.REAL, realValue(ob));
+            } else {
+                return new Operand(Type.STRING, stringValue(ob));
+            }
+        }
+    }
+
+    // Replaced rather than modified when reset, so that it can be read by
+    // environments in other threads while being repopulated.
+    private static volatile Map<String, String> symbol2CanonicalSymbol;
+
+    private static Map<String, Slot> canonicalSymbol2Slot;
 
     static {
         symbol2CanonicalSymbol = new TreeMap<String, String>();
+
+        canonicalSymbol2Slot = new HashMap<String, Slot>();
+        for (Slot slot : Slot.values()) {
+            canonicalSymbol2Slot.put(slot.name(), slot);
+        }
     }
 
     private static ITableColumnInfoSource columnInfoSource = null;
 
     private ValidObservation ob;
 
+    /**
+     * Construct an environment backed by the specified observation.
+     * 
+     * @param ob The observation.
+     */
     public VeLaValidObservationEnvironment(ValidObservation ob) {
         super();
         this.ob = ob;
         reset();
     }
 
+    /**
+     * Construct an environment to be used as a cursor, not yet backed by an
+     * observation.
+     */
+    public VeLaValidObservationEnvironment() {
+        this(null);
+    }
+
+    /**
+     * Re-point this environment at the specified observation.
+     * 
+     * @param ob The observation.
+     */
+    public void setObservation(ValidObservation ob) {
+        this.ob = ob;
+        cache.clear();
+        constants.clear();
+    }
+
+    /**
+     * @return the observation currently backing this environment
+     */
+    public ValidObservation getObservation() {
+        return ob;
+    }
+
+    /**
+     * Resolve a symbol to an observation property slot.
+     * 
+     * @param name The symbol's name.
+     * @return The optional slot to which the symbol refers.
+     */
+    public Optional<Slot> resolve(String name) {
+        String canonicalName = symbol2CanonicalSymbol.get(name.toUpperCase());
+        return Optional.ofNullable(canonicalName == null ? null : canonicalSymbol2Slot.get(canonicalName));
+    }
+
     @Override
     public Optional<Operand> lookup(String name) {
         boolean contained = false;
@@ -65,18 +188,14 @@ public class VeLaValidObservationEnvironment extends VeLaEnvironment<Operand> {
             name = symbol2CanonicalSymbol.get(name);
         }
 
-        if ("TIME".equals(name)) {
-            operand = operand(name, ob.getJD());
-        } else if ("MAGNITUDE".equals(name)) {
-            operand = operand(name, ob.getMag());
-        } else if ("UNCERTAINTY".equals(name)) {
-            operand = operand(name, ob.getMagnitude().getUncertainty());
-        } else if ("BAND".equals(name)) {
-            operand = operand(name, ob.getBand().getDescription());
-        } else if ("SHORTBAND".equals(name)) {
-            operand = operand(name, ob.getBand().getShortName());
-        } else if ("SERIES".equals(name)) {
-            operand = operand(name, ob.getSeries().getDescription());
+        Slot slot = canonicalSymbol2Slot.get(name);
+
+        if (slot != null) {
+            operand = cache.get(name);
+            if (operand == null) {
+                operand = slot.operand(ob);
+                bind(name, operand, true);
+            }
         } else if ("STANDARDPHASE".equals(name)) {
             contained &= ob.getStandardPhase() != null;
             if (contained) {
@@ -197,9 +316,11 @@ public class VeLaValidObservationEnvironment extends VeLaEnvironment<Operand> {
     public static String[] symbols() {
         reset();
 
-        String[] symbols = new String[symbol2CanonicalSymbol.size()];
+        Map<String, String> symbolMap = symbol2CanonicalSymbol;
+
+        String[] symbols = new String[symbolMap.size()];
         int i = 0;
-        for (String symbol : symbol2CanonicalSymbol.keySet()) {
+        for (String symbol : symbolMap.keySet()) {
             symbols[i++] = symbol.toLowerCase();
         }
 
@@ -216,7 +337,7 @@ public class VeLaValidObservationEnvironment extends VeLaEnvironment<Operand> {
     // Helpers
 
     private static void populateMap() {
-        symbol2CanonicalSymbol.clear();
+        Map<String, String> symbol2CanonicalSymbol = new TreeMap<String, String>();
 
         // Use current observation list column names as VeLa variables
 
@@ -229,9 +350,9 @@ public class VeLaValidObservationEnvironment extends VeLaEnvironment<Operand> {
             NewStarType newStarType = newStarMsg.getNewStarType();
 
             if (analysisType == AnalysisType.RAW_DATA) {
-                columnInfoSource = newStarType.getRawDataTableColumnInfoSource();
+                columnInfoSource = newStarType.getRawDataTableColumnInfoSource(newStarMsg.getDetailSchema());
             } else {
-                columnInfoSource = newStarType.getPhasePlotTableColumnInfoSource();
+                columnInfoSource = newStarType.getPhasePlotTableColumnInfoSource(newStarMsg.getDetailSchema());
             }
 
             if (columnInfoSource != null) {
@@ -268,5 +389,7 @@ public class VeLaValidObservationEnvironment extends VeLaEnvironment<Operand> {
             symbol2CanonicalSymbol.put("PHASE", "STANDARDPHASE");
             symbol2CanonicalSymbol.put("PREVIOUSCYCLEPHASE", "PREVIOUSCYCLEPHASE");
         }
+
+        VeLaValidObservationEnvironment.symbol2CanonicalSymbol = symbol2CanonicalSymbol;
     }
 }
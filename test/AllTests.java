@@ -33,6 +33,7 @@ import org.aavso.tools.vstar.input.database.VSXWebServiceStarInfoSourceTest;
 import org.aavso.tools.vstar.input.text.ObservationFieldSplitterTest;
 import org.aavso.tools.vstar.input.text.TextFormatObservationReaderTest;
 import org.aavso.tools.vstar.plugin.PluginManagerTest;
+import org.aavso.tools.vstar.plugin.TextFormatObservationSinkPluginBaseTest;
 import org.aavso.tools.vstar.ui.NumberSelectionPaneTest;
 import org.aavso.tools.vstar.ui.mediator.message.MessageBaseTest;
 import org.aavso.tools.vstar.ui.mediator.message.ProgressInfoTest;
@@ -110,6 +111,7 @@ public class AllTests {
 		suite.addTestSuite(VSXWebServiceStarInfoSourceTest.class);
 		suite.addTestSuite(ObservationFieldSplitterTest.class);
 		suite.addTestSuite(TextFormatObservationReaderTest.class);
+		suite.addTestSuite(TextFormatObservationSinkPluginBaseTest.class);
 		suite.addTestSuite(PluginManagerTest.class);
 		suite.addTestSuite(DecInfoTest.class);
 		suite.addTestSuite(RAInfoTest.class);
@@ -0,0 +1,90 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for DatasetFingerprint.
+ */
+public class DatasetFingerprintTest extends TestCase {
+
+	public DatasetFingerprintTest(String name) {
+		super(name);
+	}
+
+	public void testEqualDatasets() {
+		Map<SeriesType, List<ValidObservation>> map1 = dataset(10, 0);
+		Map<SeriesType, List<ValidObservation>> map2 = new HashMap<SeriesType, List<ValidObservation>>(
+				dataset(10, 0));
+
+		assertEquals(map1, map2);
+		assertEquals(new DatasetFingerprint(map1), new DatasetFingerprint(
+				map2));
+		assertEquals(new DatasetFingerprint(map1).hashCode(),
+				new DatasetFingerprint(map2).hashCode());
+	}
+
+	public void testDifferentObservations() {
+		assertFalse(new DatasetFingerprint(dataset(10, 0))
+				.equals(new DatasetFingerprint(dataset(10, 1))));
+	}
+
+	public void testDifferentSizes() {
+		DatasetFingerprint fingerprint = new DatasetFingerprint(dataset(10, 0));
+		assertEquals(Integer.valueOf(10),
+				fingerprint.getSeriesSizes().get(SeriesType.Visual));
+		assertFalse(fingerprint.equals(new DatasetFingerprint(dataset(11, 0))));
+	}
+
+	public void testDifferentOrder() {
+		Map<SeriesType, List<ValidObservation>> map1 = dataset(10, 0);
+		Map<SeriesType, List<ValidObservation>> map2 = dataset(10, 0);
+		List<ValidObservation> obs = map2.get(SeriesType.Visual);
+		obs.add(obs.remove(0));
+
+		assertFalse(new DatasetFingerprint(map1).equals(new DatasetFingerprint(
+				map2)));
+	}
+
+	// Helpers
+
+	private Map<SeriesType, List<ValidObservation>> dataset(int n, double offset) {
+		Map<SeriesType, List<ValidObservation>> map = new TreeMap<SeriesType, List<ValidObservation>>();
+
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+		for (int i = 0; i < n; i++) {
+			ValidObservation ob = new ValidObservation();
+			ob.setDateInfo(new DateInfo(2450000 + i));
+			ob.setMagnitude(new Magnitude(10 + offset + i / 10.0, 0.01));
+			ob.setBand(SeriesType.Visual);
+			obs.add(ob);
+		}
+
+		map.put(SeriesType.Visual, obs);
+		map.put(SeriesType.DISCREPANT, new ArrayList<ValidObservation>());
+
+		return map;
+	}
+}
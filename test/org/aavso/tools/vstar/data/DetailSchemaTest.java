@@ -0,0 +1,151 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for DetailSchema and the detail storage of ValidObservation.
+ */
+public class DetailSchemaTest extends TestCase {
+
+	public DetailSchemaTest(String name) {
+		super(name);
+	}
+
+	public void testKeysInOrderOfFirstAppearance() {
+		ValidObservation ob1 = new ValidObservation();
+		ob1.addDetail("SCHEMA_TEST_B", "b", "B");
+		ob1.addDetail("SCHEMA_TEST_A", 1, "A");
+
+		ValidObservation ob2 = new ValidObservation();
+		ob2.addDetail("SCHEMA_TEST_A", 2, "A");
+		ob2.addDetail("SCHEMA_TEST_C", 3.0, "C");
+
+		DetailSchema schema = new DetailSchema();
+		schema.add(ob1);
+		schema.add(ob2);
+		schema.add(ob1);
+
+		assertEquals(3, schema.size());
+		assertEquals(Arrays.asList("SCHEMA_TEST_B", "SCHEMA_TEST_A",
+				"SCHEMA_TEST_C"), schema.getKeys());
+		assertEquals("SCHEMA_TEST_C", schema.getKey(2));
+		assertEquals(1, schema.indexOf("SCHEMA_TEST_A"));
+		assertEquals(-1, schema.indexOf("SCHEMA_TEST_D"));
+		assertEquals("A", schema.getTitle("SCHEMA_TEST_A"));
+		assertEquals(Integer.class, schema.getType("SCHEMA_TEST_A"));
+		assertEquals(Double.class, schema.getType("SCHEMA_TEST_C"));
+	}
+
+	public void testSchemasIndependent() {
+		ValidObservation ob1 = new ValidObservation();
+		ob1.addDetail("SCHEMA_TEST_X", "x", "X");
+
+		ValidObservation ob2 = new ValidObservation();
+		ob2.addDetail("SCHEMA_TEST_Y", "y", "Y");
+
+		DetailSchema schema1 = new DetailSchema();
+		schema1.add(ob1);
+
+		DetailSchema schema2 = new DetailSchema();
+		schema2.add(ob2);
+
+		assertEquals(Arrays.asList("SCHEMA_TEST_X"), schema1.getKeys());
+		assertEquals(Arrays.asList("SCHEMA_TEST_Y"), schema2.getKeys());
+		assertEquals(0, schema2.indexOf("SCHEMA_TEST_Y"));
+	}
+
+	public void testTitlesAndTypesPerDataset() {
+		ValidObservation ob1 = new ValidObservation();
+		ob1.addDetail("SCHEMA_TEST_FLUX", 1.0, "flux");
+
+		ValidObservation ob2 = new ValidObservation();
+		ob2.setDateInfo(new DateInfo(2450000));
+		ob2.setMagnitude(new Magnitude(10, 0));
+		ob2.addDetail("SCHEMA_TEST_FLUX", "1.5", "Flux");
+
+		DetailSchema schema1 = new DetailSchema();
+		schema1.add(ob1);
+
+		DetailSchema schema2 = new DetailSchema();
+		schema2.add(ob2);
+
+		assertEquals("flux", schema1.getTitle("SCHEMA_TEST_FLUX"));
+		assertEquals(Double.class, schema1.getType("SCHEMA_TEST_FLUX"));
+		assertEquals("Flux", schema2.getTitle("SCHEMA_TEST_FLUX"));
+		assertEquals(String.class, schema2.getType("SCHEMA_TEST_FLUX"));
+
+		assertEquals("flux", ob1.getDetailTitle("SCHEMA_TEST_FLUX"));
+		assertEquals("Flux", ob2.getDetailTitle("SCHEMA_TEST_FLUX"));
+		assertEquals("Flux", ob2.copy().getDetailTitle("SCHEMA_TEST_FLUX"));
+
+		// Observations whose details are added in the same way share titles.
+		ValidObservation ob3 = new ValidObservation();
+		ob3.addDetail("SCHEMA_TEST_FLUX", 2.0, "flux");
+		assertSame(ob1.detailTitles(), ob3.detailTitles());
+	}
+
+	public void testDetailArraySizedToSlot() {
+		ValidObservation ob1 = new ValidObservation();
+		ob1.addDetail("SCHEMA_TEST_FIRST", "1", "First");
+
+		ValidObservation ob2 = new ValidObservation();
+		ob2.addDetail("SCHEMA_TEST_LAST", "2", "Last");
+
+		// Adding a later slot does not grow arrays for earlier slots.
+		ValidObservation ob3 = new ValidObservation();
+		ob3.addDetail("SCHEMA_TEST_FIRST", "3", "First");
+		assertEquals(ob1.detailSlotCount(), ob3.detailSlotCount());
+		assertTrue(ob3.detailSlotCount() < ob2.detailSlotCount());
+	}
+
+	public void testObservationDetails() {
+		ValidObservation ob = new ValidObservation();
+		assertTrue(ob.getDetails().isEmpty());
+		assertFalse(ob.detailExists("SCHEMA_TEST_P"));
+		assertSame(Property.NO_VALUE, ob.getDetail("SCHEMA_TEST_P"));
+
+		ob.addDetail("SCHEMA_TEST_P", "p", "P");
+		ob.addDetail("SCHEMA_TEST_Q", "q", "Q");
+		ob.addDetail("SCHEMA_TEST_P", "p2", "P");
+
+		assertEquals("p2", ob.getDetail("SCHEMA_TEST_P").getStrVal());
+		assertEquals(2, ob.getDetails().size());
+		assertTrue(ob.detailTitleExists("SCHEMA_TEST_Q"));
+		assertEquals("Q", ob.getDetailTitle("SCHEMA_TEST_Q"));
+		assertNull(ob.getDetailTitle("SCHEMA_TEST_R"));
+
+		// Observations compare as their detail maps would, however many
+		// detail slots each has allocated.
+		ValidObservation other = new ValidObservation();
+		other.addDetail("SCHEMA_TEST_Q", "q", "Q");
+		assertFalse(ob.equals(other));
+		other.addDetail("SCHEMA_TEST_P", "p2", "P");
+		assertEquals(ob, other);
+		assertEquals(ob.hashCode(), other.hashCode());
+
+		ValidObservation copy = new ValidObservation();
+		copy.addDetail("SCHEMA_TEST_P", "p2", "P");
+		copy.addDetail("SCHEMA_TEST_Q", "q", "Q");
+		copy.addDetail("SCHEMA_TEST_R", "r", "R");
+		assertFalse(ob.equals(copy));
+	}
+}
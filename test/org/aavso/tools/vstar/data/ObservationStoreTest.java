@@ -0,0 +1,299 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.ValidObservation.JDflavour;
+
+/**
+ * Unit tests for ObservationStore.
+ */
+public class ObservationStoreTest extends TestCase {
+
+	public ObservationStoreTest(String name) {
+		super(name);
+	}
+
+	public void testViewsEqualObservations() {
+		List<ValidObservation> obs = obs(3000);
+		ObservationStore store = new ObservationStore(16);
+
+		List<ObservationStore.View> views = new ArrayList<ObservationStore.View>();
+		for (ValidObservation ob : obs) {
+			views.add(store.add(ob));
+		}
+
+		assertEquals(obs.size(), store.size());
+
+		for (int i = 0; i < obs.size(); i++) {
+			ValidObservation ob = obs.get(i);
+			ObservationStore.View view = views.get(i);
+
+			assertEquals(i, view.getIndex());
+			assertEquals(ob, view.toObservation());
+			assertEquals(ob.hashCode(), view.toObservation().hashCode());
+			assertEquals(ob, store.get(i));
+			assertEquals(view, store.view(i));
+			assertEquals(view.hashCode(), store.view(i).hashCode());
+
+			assertEquals(ob.getRecordNumber(), view.getRecordNumber());
+			assertEquals(ob.getJD(), view.getJD());
+			assertEquals(ob.getMag(), view.getMag());
+			assertEquals(ob.getMagnitude(), view.getMagnitude());
+			assertEquals(ob.getBand(), view.getBand());
+			assertEquals(ob.getSeries(), view.getSeries());
+			assertEquals(ob.getValidationType(), view.getValidationType());
+			assertEquals(ob.getDetail("OBS_CODE"), view.getDetail("OBS_CODE"));
+			assertEquals(ob.getDetail("COMP_STAR1"),
+					view.getDetail("COMP_STAR1"));
+
+			assertEquals(ob.getJD(), store.getJD(i));
+			assertEquals(ob.getMag(), store.getMag(i));
+			assertEquals(ob.getMagnitude().getUncertainty(),
+					store.getUncertainty(i));
+		}
+
+		assertEquals(obs, store.asList());
+	}
+
+	public void testViewsNotEqualToObservations() {
+		ValidObservation ob = obs(1).get(0);
+		ObservationStore.View view = new ObservationStore().add(ob);
+
+		// As for observations, equality requires the same class.
+		assertFalse(view.equals(ob));
+		assertFalse(ob.equals(view));
+		assertFalse(ob.equals(new ValidObservation() {
+		}));
+	}
+
+	public void testViewsWriteThrough() {
+		ObservationStore store = new ObservationStore();
+		ObservationStore.View view = store.add(obs(1).get(0));
+		ObservationStore.View other = store.view(0);
+
+		view.setValidationType(ValidationType.DISCREPANT);
+		view.setExcluded(true);
+		view.setStandardPhase(0.25);
+		view.setPreviousCyclePhase(-0.75);
+		view.setSeries(SeriesType.Filtered);
+
+		assertEquals(ValidationType.DISCREPANT, other.getValidationType());
+		assertTrue(other.isExcluded());
+		assertEquals(0.25, other.getStandardPhase());
+		assertEquals(-0.75, other.getPreviousCyclePhase());
+		assertEquals(SeriesType.Filtered, other.getSeries());
+		assertEquals(SeriesType.Visual, other.getBand());
+
+		ValidObservation ob = store.get(0);
+		assertTrue(ob.isDiscrepant());
+		assertTrue(ob.isExcluded());
+		assertEquals(0.25, ob.getStandardPhase());
+		assertEquals(-0.75, ob.getPreviousCyclePhase());
+		assertEquals(SeriesType.Filtered, ob.getSeries());
+		assertEquals(SeriesType.Visual, ob.getBand());
+
+		DetailSchema schema = new DetailSchema();
+		schema.add(ob);
+		assertTrue(schema.contains("OBS_CODE"));
+		assertFalse(schema.contains("CHARTS"));
+
+		view.setStandardPhase(null);
+		assertNull(other.getStandardPhase());
+
+		// Observations created from the store are independent of it.
+		ob.setMag(1);
+		ob.setExcluded(false);
+		assertEquals(1.0, ob.getMag());
+		assertTrue(other.isExcluded());
+		assertFalse(store.get(0).getMag() == 1);
+	}
+
+	public void testDetailsDictionaryEncoded() {
+		ObservationStore store = new ObservationStore();
+		for (ValidObservation ob : obs(1000)) {
+			store.add(ob);
+		}
+
+		assertEquals(7, store.getDistinctDetailCount("OBS_CODE"));
+		assertEquals(0, store.getDistinctDetailCount("NO_SUCH_KEY"));
+	}
+
+	public void testMissingDetailsAndOptionalValues() {
+		ValidObservation ob = new ValidObservation();
+		ob.setDateInfo(new DateInfo(2450000));
+		ob.setMagnitude(new Magnitude(10, 0));
+
+		ObservationStore store = new ObservationStore(1);
+		store.add(ob);
+		ValidObservation view = store.get(store.add(ob).getIndex());
+
+		assertEquals(ob, view);
+		assertNull(view.getHqUncertainty());
+		assertNull(view.getHJD());
+		assertNull(view.getStandardPhase());
+		assertNull(view.getValidationType());
+		assertNull(view.getBand());
+		assertNull(view.getCommentCode());
+		assertFalse(view.detailExists("OBS_CODE"));
+		assertSame(Property.NO_VALUE, view.getDetail("OBS_CODE"));
+		assertTrue(view.getDetails().isEmpty());
+	}
+
+	public void testObservationWithoutDateRejected() {
+		ValidObservation ob = new ValidObservation();
+		ob.setMagnitude(new Magnitude(10, 0));
+
+		try {
+			new ObservationStore().add(ob);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// We expect to get here.
+		}
+	}
+
+	public void testIndexOutOfRange() {
+		ObservationStore store = new ObservationStore();
+		store.add(obs(1).get(0));
+		store.trimToSize();
+
+		try {
+			store.get(1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// We expect to get here.
+		}
+	}
+
+	public void testWriteRead() throws IOException {
+		List<ValidObservation> obs = obs(2000);
+		obs.get(3).setStandardPhase(0.25);
+		obs.get(3).setPreviousCyclePhase(-0.75);
+		obs.get(5).addDetail("STORE_TEST_COUNT", 42, "Count");
+		obs.get(6).addDetail("STORE_TEST_FLAG", true, "Flag");
+
+		ObservationStore store = new ObservationStore();
+		for (ValidObservation ob : obs) {
+			store.add(ob);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		store.write(new DataOutputStream(bytes));
+
+		ObservationStore readStore = ObservationStore.read(ByteBuffer
+				.wrap(bytes.toByteArray()));
+
+		assertEquals(obs.size(), readStore.size());
+		assertEquals(obs, readStore.asList());
+
+		for (int i = 0; i < obs.size(); i++) {
+			ValidObservation ob = obs.get(i);
+			ValidObservation view = readStore.get(i);
+
+			assertEquals(ob.getRecordNumber(), view.getRecordNumber());
+			assertEquals(ob.getMagnitude(), view.getMagnitude());
+			assertEquals(ob.getHJD(), view.getHJD());
+			assertEquals(ob.getHqUncertainty(), view.getHqUncertainty());
+			assertEquals(ob.getJDflavour(), view.getJDflavour());
+			assertEquals(ob.getCommentCode(), view.getCommentCode());
+			assertEquals(ob.getSeries(), view.getSeries());
+			assertEquals(ob.getDetails(), view.getDetails());
+		}
+
+		assertEquals(0.25, readStore.get(3).getStandardPhase());
+		assertEquals(-0.75, readStore.get(3).getPreviousCyclePhase());
+		assertNull(readStore.get(4).getStandardPhase());
+		assertEquals(42, readStore.get(5).getDetail("STORE_TEST_COUNT")
+				.getIntVal());
+		assertTrue(readStore.get(6).getDetail("STORE_TEST_FLAG").getBoolVal());
+		assertEquals(7, readStore.getDistinctDetailCount("OBS_CODE"));
+	}
+
+	public void testReadRejectsOtherData() {
+		byte[] bytes = "not an observation store".getBytes();
+
+		try {
+			ObservationStore.read(ByteBuffer.wrap(bytes));
+			fail();
+		} catch (IOException e) {
+			// We expect to get here.
+		}
+	}
+
+	public void testReadRejectsTruncatedData() throws IOException {
+		ObservationStore store = new ObservationStore();
+		for (ValidObservation ob : obs(100)) {
+			store.add(ob);
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		store.write(new DataOutputStream(bytes));
+		byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 10);
+
+		try {
+			ObservationStore.read(ByteBuffer.wrap(truncated));
+			fail();
+		} catch (IOException e) {
+			// We expect to get here.
+		}
+	}
+
+	// Helpers
+
+	private List<ValidObservation> obs(int n) {
+		SeriesType[] bands = { SeriesType.Visual, SeriesType.Johnson_V,
+				SeriesType.Johnson_B };
+
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+
+		for (int i = 0; i < n; i++) {
+			ValidObservation ob = new ValidObservation();
+			ob.setRecordNumber(i + 1);
+			ob.setDateInfo(new DateInfo(2450000 + i / 4.0));
+			ob.setMagnitude(new Magnitude(10 + (i % 100) / 10.0,
+					i % 5 == 0 ? MagnitudeModifier.FAINTER_THAN
+							: MagnitudeModifier.NO_DELTA, i % 7 == 0,
+					(i % 3) / 100.0));
+			ob.setBand(bands[i % bands.length]);
+			ob.setObsCode("OBS" + (i % 7));
+			ob.setCompStar1(Integer.toString(100 + i % 11));
+			ob.setValidationType(i % 13 == 0 ? ValidationType.DISCREPANT
+					: ValidationType.GOOD);
+			ob.setCommentCode(i % 2 == 0 ? "B" : "");
+			ob.setTransformed(i % 2 == 1);
+			ob.setMType(MTypeType.STD);
+			if (i % 4 == 0) {
+				ob.setHJD(new DateInfo(2450000.001 + i / 4.0));
+				ob.setHqUncertainty(0.05);
+				ob.setJDflavour(JDflavour.HJD);
+			}
+			obs.add(ob);
+		}
+
+		return obs;
+	}
+}
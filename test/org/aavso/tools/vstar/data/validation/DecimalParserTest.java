@@ -0,0 +1,197 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data.validation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.exception.ObservationValidationError;
+
+/**
+ * Unit tests for DecimalParser and for agreement between the validators that
+ * use it and their regex and Double.parseDouble() based equivalents.
+ */
+public class DecimalParserTest extends TestCase {
+
+	private static final String[] VALUES = { "0", "-0", "+1", "1.", ".5",
+			"-.5", "2450001.5", "2459000.123456", "-1.25e-3", "1.25E+3", "1E5",
+			"1e-5", "10.", "123456789012345678", "12345678901234567890",
+			"0.1", "0.30000000000000004", "9007199254740993", "1e22", "1e23",
+			"4.9e-324", "1e-400", "1e400", "NaN", "-Infinity", "1d", " 1",
+			"1 ", "", "-", "+", ".", "1e", "1e+", "1.2.3", "x1", "1x", "--1",
+			"<10", ">10", "10:", "<10.5:", "<:", "<", ":", "1,5" };
+
+	public DecimalParserTest(String name) {
+		super(name);
+	}
+
+	public void testJavaSyntaxAsForDoubleParseDouble() {
+		for (String value : VALUES) {
+			double parsed = DecimalParser.parse(value, DecimalParser.JAVA_SYNTAX);
+			if (!Double.isNaN(parsed)) {
+				assertEquals(value, Double.parseDouble(value), parsed);
+			}
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			String value = Double.toString(random.nextDouble()
+					* Math.pow(10, random.nextInt(20) - 10));
+			double parsed = DecimalParser.parse(value, DecimalParser.JAVA_SYNTAX);
+			if (!Double.isNaN(parsed)) {
+				assertEquals(value, Double.parseDouble(value), parsed);
+			}
+		}
+	}
+
+	public void testCommonValuesConverted() {
+		assertEquals(2454409.02431, DecimalParser.parse("2454409.02431", 0));
+		assertEquals(12.2, DecimalParser.parse("12.2", 0));
+		assertEquals(0.005, DecimalParser.parse("0.005", 0));
+		assertEquals(-1.5, DecimalParser.parse("-1.5", DecimalParser.MINUS));
+		assertEquals(-0.0, DecimalParser.parse("-0", DecimalParser.MINUS));
+		assertEquals(2.325, DecimalParser.parse("23.25e-01", 0));
+	}
+
+	public void testSyntax() {
+		assertTrue(Double.isNaN(DecimalParser.parse("-1", 0)));
+		assertTrue(Double.isNaN(DecimalParser.parse("+1", DecimalParser.MINUS)));
+		assertTrue(Double.isNaN(DecimalParser.parse(".5", 0)));
+		assertTrue(Double.isNaN(DecimalParser.parse("10.", 0)));
+		assertTrue(Double.isNaN(DecimalParser.parse("1e5", 0)));
+		assertTrue(Double.isNaN(DecimalParser.parse(".", DecimalParser.JAVA_SYNTAX)));
+
+		assertEquals(1.0, DecimalParser.parse("+1", DecimalParser.PLUS));
+		assertEquals(0.5, DecimalParser.parse(".5",
+				DecimalParser.EMPTY_INTEGER_PART));
+		assertEquals(10.0, DecimalParser.parse("10.",
+				DecimalParser.EMPTY_FRACTION));
+		assertEquals(1e5, DecimalParser.parse("1e5",
+				DecimalParser.UNSIGNED_EXPONENT));
+	}
+
+	public void testParseWithinString() {
+		assertEquals(12.5, DecimalParser.parse("x12.5y", 1, 5, 0));
+	}
+
+	public void testParseWithinBuffer() {
+		ByteBuffer bytes = ByteBuffer.wrap("x12.5y".getBytes(
+				StandardCharsets.US_ASCII));
+		assertEquals(12.5, DecimalParser.parse(bytes, 1, 5, 0));
+		assertEquals("12.5", new DecimalParser.AsciiView(bytes).subSequence(1,
+				5).toString());
+	}
+
+	public void testBytesParsedAsCharacters() {
+		for (String value : VALUES) {
+			ByteBuffer bytes = ByteBuffer.wrap(("<" + value + ">")
+					.getBytes(StandardCharsets.US_ASCII));
+			double expected = DecimalParser.parse(value,
+					DecimalParser.JAVA_SYNTAX);
+			double parsed = DecimalParser.parse(bytes, 1, bytes.limit() - 1,
+					DecimalParser.JAVA_SYNTAX);
+			assertEquals(value, expected, parsed);
+		}
+
+		// Bytes beyond ASCII are not digits.
+		ByteBuffer bytes = ByteBuffer.wrap(new byte[] { '1', (byte) 0xB9 });
+		assertTrue(Double.isNaN(DecimalParser.parse(bytes, 0, 2,
+				DecimalParser.JAVA_SYNTAX)));
+	}
+
+	public void testJulianDayValidatorAgreesWithRegex() {
+		JulianDayValidator validator = new JulianDayValidator();
+		RegexValidator regexValidator = new RegexValidator(
+				"^(\\d+(\\.\\d+)?(?:(?:e|E)(?:\\-|\\+)\\d+)?)$", "JD");
+
+		for (String value : VALUES) {
+			Double expected = null;
+			try {
+				expected = Double.parseDouble(regexValidator.validate(value)[0]);
+			} catch (ObservationValidationError e) {
+				// Invalid, as the validator should find.
+			}
+
+			try {
+				double actual = validator.validate(value).getJulianDay();
+				assertNotNull(value, expected);
+				assertEquals(value, expected, actual);
+			} catch (ObservationValidationError e) {
+				assertNull(value, expected);
+			}
+		}
+	}
+
+	public void testMagnitudeFieldValidatorAgreesWithRegex() {
+		MagnitudeFieldValidator validator = new MagnitudeFieldValidator();
+		RegexValidator regexValidator = new RegexValidator(
+				"^(<|>)?(\\-?\\d+(?:\\.\\d*)?(?:(?:e|E)(?:\\-|\\+)\\d+)?)(:)?$",
+				"magnitude");
+
+		for (String value : VALUES) {
+			String[] expected = null;
+			try {
+				expected = regexValidator.validate(value);
+			} catch (ObservationValidationError e) {
+				// Invalid, as the validator should find.
+			}
+
+			try {
+				Magnitude actual = validator.validate(value);
+				assertNotNull(value, expected);
+				assertEquals(value, Double.parseDouble(expected[1]),
+						actual.getMagValue());
+				assertEquals(value, "<".equals(expected[0]),
+						actual.isFainterThan());
+				assertEquals(value, ">".equals(expected[0]),
+						actual.isBrighterThan());
+				assertEquals(value, expected[2] != null, actual.isUncertain());
+			} catch (ObservationValidationError e) {
+				assertNull(value, expected);
+			}
+		}
+	}
+
+	public void testObserverCodeValidatorAgreesWithRegex() {
+		ObserverCodeValidator validator = new ObserverCodeValidator();
+		RegexValidator regexValidator = new RegexValidator(
+				"^(([A-Za-z]|[0-9]){1,5})$", "observer code");
+
+		String[] codes = { "A", "PTQ", "ab12Z", "ABCDEF", "A-B", "Ä", " A",
+				"_" };
+
+		for (String code : codes) {
+			String expected = null;
+			try {
+				expected = regexValidator.validate(code)[0];
+			} catch (ObservationValidationError e) {
+				// Invalid, as the validator should find.
+			}
+
+			try {
+				assertEquals(code, expected, validator.validate(code));
+			} catch (ObservationValidationError e) {
+				assertNull(code, expected);
+			}
+		}
+	}
+}
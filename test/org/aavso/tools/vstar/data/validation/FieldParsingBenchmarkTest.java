@@ -0,0 +1,178 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.data.validation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.exception.ObservationValidationError;
+
+/**
+ * Benchmark to quantify the speedup of validating the Julian Day, magnitude,
+ * uncertainty and observer code fields of observations from the sample files
+ * in data/, replicated to a million rows, by parsing plain decimals directly
+ * over matching regex patterns and calling Double.parseDouble(); runs multiple
+ * iterations and prints times.
+ */
+public class FieldParsingBenchmarkTest extends TestCase {
+
+	private static final int ROWS = 1000000;
+	private static final int ITERATIONS = 3;
+
+	private static final String[] FILES = { "data/eta_car_all.tsv",
+			"data/ss_cyg_nov_5_2007_to_2009.csv",
+			"data/ss_cyg_dec_1_63_to_09_with_mtype_affiliation_group.csv" };
+
+	// Field values: JD, magnitude, uncertainty, observer code.
+	private String[][] rows;
+
+	public FieldParsingBenchmarkTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		List<String[]> sampleRows = new ArrayList<String[]>();
+
+		for (String path : FILES) {
+			File file = new File(path);
+			if (!file.exists()) {
+				continue;
+			}
+			String delimiter = path.endsWith(".tsv") ? "\t" : ",";
+			for (String line : Files.readAllLines(file.toPath(),
+					StandardCharsets.ISO_8859_1)) {
+				String[] fields = line.split(delimiter, -1);
+				if (fields.length > 5 && !line.startsWith("#")
+						&& Character.isDigit(line.charAt(0))) {
+					sampleRows.add(new String[] { fields[0].trim(),
+							fields[1].trim(), fields[2].trim(),
+							fields[5].trim() });
+				}
+			}
+		}
+
+		rows = new String[ROWS][];
+		for (int i = 0; i < ROWS && !sampleRows.isEmpty(); i++) {
+			rows[i] = sampleRows.get(i % sampleRows.size());
+		}
+	}
+
+	/**
+	 * Validate fields with regex patterns and Double.parseDouble() and with
+	 * the validators' decimal parsing.
+	 */
+	public void testFieldParsingBenchmark() throws IOException {
+		if (rows.length == 0 || rows[0] == null) {
+			return;
+		}
+
+		RegexValidator jdRegex = new RegexValidator(
+				"^(\\d+(\\.\\d+)?(?:(?:e|E)(?:\\-|\\+)\\d+)?)$", "JD");
+		RegexValidator magRegex = new RegexValidator(
+				"^(<|>)?(\\-?\\d+(?:\\.\\d*)?(?:(?:e|E)(?:\\-|\\+)\\d+)?)(:)?$",
+				"magnitude");
+		RegexValidator obsCodeRegex = new RegexValidator(
+				"^(([A-Za-z]|[0-9]){1,5})$", "observer code");
+
+		JulianDayValidator jdValidator = new JulianDayValidator();
+		MagnitudeFieldValidator magValidator = new MagnitudeFieldValidator();
+		UncertaintyValueValidator uncertaintyValidator = new UncertaintyValueValidator(
+				new InclusiveRangePredicate(0, 1));
+		ObserverCodeValidator obsCodeValidator = new ObserverCodeValidator();
+
+		double[] regexSum = new double[1];
+		long regexNs = time(() -> {
+			double sum = 0;
+			for (String[] row : rows) {
+				sum += Double.parseDouble(jdRegex.validate(row[0])[0]);
+				sum += Double.parseDouble(magRegex.validate(row[1])[1]);
+				if (!row[2].isEmpty()) {
+					sum += Double.parseDouble(row[2]);
+				}
+				if (!row[3].isEmpty()) {
+					obsCodeRegex.validate(row[3]);
+				}
+			}
+			regexSum[0] = sum;
+		});
+
+		double[] parsedSum = new double[1];
+		long parsedNs = time(() -> {
+			double sum = 0;
+			for (String[] row : rows) {
+				sum += jdValidator.validate(row[0]).getJulianDay();
+				sum += magValidator.validate(row[1]).getMagValue();
+				Double uncertainty = uncertaintyValidator.validate(row[2]);
+				if (uncertainty != null) {
+					sum += uncertainty;
+				}
+				obsCodeValidator.validate(row[3]);
+			}
+			parsedSum[0] = sum;
+		});
+
+		assertEquals(regexSum[0], parsedSum[0]);
+
+		report("field validation of " + ROWS + " rows", ITERATIONS,
+				"Regex and Double.parseDouble()", regexNs, "Decimal parser",
+				parsedNs);
+	}
+
+	// Helpers
+
+	private interface Validation {
+		void run() throws ObservationValidationError;
+	}
+
+	private long time(Validation validation) {
+		try {
+			validation.run();
+
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				validation.run();
+			}
+			return System.nanoTime() - start;
+		} catch (ObservationValidationError e) {
+			fail(e.getMessage());
+			return 0;
+		}
+	}
+
+	private void report(String name, int iterations, String slowName,
+			long slowNs, String fastName, long fastNs) {
+		double slowMs = slowNs / 1_000_000.0;
+		double fastMs = fastNs / 1_000_000.0;
+		double speedup = (double) slowNs / (double) fastNs;
+
+		System.out.println("Field parsing benchmark (" + name + ", "
+				+ iterations + " runs each):");
+		System.out.println("  " + slowName + ": "
+				+ String.format("%.2f", slowMs) + " ms total");
+		System.out.println("  " + fastName + ": "
+				+ String.format("%.2f", fastMs) + " ms total");
+		System.out.println("  Speedup: " + String.format("%.2fx", speedup));
+	}
+}
@@ -0,0 +1,374 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.data.ValidationType;
+import org.aavso.tools.vstar.exception.ObservationReadError;
+
+/**
+ * Unit tests for observation ordering in AbstractObservationRetriever, in
+ * insertion and deferred ordering modes.
+ */
+public class AbstractObservationRetrieverTest extends TestCase {
+
+	public AbstractObservationRetrieverTest(String name) {
+		super(name);
+	}
+
+	public void testOrderedSourceInsertsInOrder() throws Exception {
+		TestRetriever retriever = new TestRetriever(true, obs(1000, 42));
+		assertFalse(retriever.isDeferredOrdering());
+
+		retriever.retrieve();
+
+		assertOrdered(retriever);
+	}
+
+	public void testUnorderedSourceDefersOrdering() throws Exception {
+		TestRetriever retriever = new TestRetriever(false, obs(1000, 42));
+		assertTrue(retriever.isDeferredOrdering());
+
+		retriever.retrieve();
+
+		assertOrdered(retriever);
+	}
+
+	public void testDeferredOrderingSelectable() {
+		TestRetriever retriever = new TestRetriever(true, obs(1, 42));
+		retriever.setDeferredOrdering(true);
+		assertTrue(retriever.isDeferredOrdering());
+
+		retriever = new TestRetriever(false, obs(1, 42));
+		retriever.setDeferredOrdering(false);
+		assertFalse(retriever.isDeferredOrdering());
+	}
+
+	public void testModesAgree() throws Exception {
+		List<ValidObservation> obs = obs(5000, 4242);
+
+		TestRetriever inserter = new TestRetriever(true, obs);
+		inserter.retrieve();
+
+		TestRetriever sorter = new TestRetriever(false, obs);
+		sorter.retrieve();
+
+		assertEquals(inserter.getValidObservations(),
+				sorter.getValidObservations());
+
+		Map<SeriesType, List<ValidObservation>> insertedCategories = inserter
+				.getValidObservationCategoryMap();
+		Map<SeriesType, List<ValidObservation>> sortedCategories = sorter
+				.getValidObservationCategoryMap();
+
+		assertEquals(insertedCategories.keySet(), sortedCategories.keySet());
+		for (SeriesType series : insertedCategories.keySet()) {
+			assertEquals(insertedCategories.get(series),
+					sortedCategories.get(series));
+		}
+
+		assertEquals(inserter.getMinMag(), sorter.getMinMag());
+		assertEquals(inserter.getMaxMag(), sorter.getMaxMag());
+	}
+
+	public void testDeferredOrderingIsStable() throws Exception {
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+		for (int i = 0; i < 10; i++) {
+			obs.add(ob(2450000 + (i % 2), 10 + i, SeriesType.Visual));
+		}
+
+		TestRetriever retriever = new TestRetriever(false, obs);
+		retriever.retrieve();
+
+		List<ValidObservation> sorted = retriever.getValidObservations();
+		for (int i = 0; i < 5; i++) {
+			assertSame(obs.get(2 * i), sorted.get(i));
+			assertSame(obs.get(2 * i + 1), sorted.get(i + 5));
+		}
+	}
+
+	public void testModesAgreeOnEqualJDs() throws Exception {
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+		obs.add(ob(2450002, 10, SeriesType.Visual));
+		for (int i = 0; i < 5; i++) {
+			obs.add(ob(2450001, 11 + i, SeriesType.Visual));
+		}
+
+		TestRetriever inserter = new TestRetriever(true, obs);
+		inserter.retrieve();
+
+		TestRetriever sorter = new TestRetriever(false, obs);
+		sorter.retrieve();
+
+		// Observations with the same JD remain in collection order.
+		List<ValidObservation> expected = new ArrayList<ValidObservation>(
+				obs.subList(1, obs.size()));
+		expected.add(obs.get(0));
+
+		assertEquals(expected, inserter.getValidObservations());
+		assertEquals(expected, sorter.getValidObservations());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), inserter.getValidObservations().get(i));
+			assertSame(expected.get(i), sorter.getValidObservations().get(i));
+			assertSame(expected.get(i), inserter
+					.getValidObservationCategoryMap().get(SeriesType.Visual)
+					.get(i));
+		}
+	}
+
+	public void testObservationsAddedAfterRetrievalAreOrdered()
+			throws Exception {
+		TestRetriever retriever = new TestRetriever(false, obs(100, 42));
+		retriever.retrieve();
+		assertOrdered(retriever);
+
+		retriever.collect(obs(100, 24));
+		assertEquals(200, retriever.getValidObservations().size());
+		assertOrdered(retriever);
+	}
+
+	public void testAdditiveLoadMergesInOrder() throws Exception {
+		List<ValidObservation> previous = obs(3000, 42);
+		TestRetriever previousRetriever = new TestRetriever(false, previous);
+		previousRetriever.retrieve();
+
+		List<ValidObservation> obs = obs(2000, 24);
+		TestRetriever retriever = new TestRetriever(false, obs);
+		retriever.retrieve();
+		retriever.collectAllObservations(
+				previousRetriever.getValidObservations(), "test");
+
+		assertEquals(5000, retriever.getValidObservations().size());
+		assertOrdered(retriever);
+
+		// Agrees with collecting all observations in one retriever.
+		List<ValidObservation> all = new ArrayList<ValidObservation>(obs);
+		all.addAll(previous);
+		TestRetriever allRetriever = new TestRetriever(false, all);
+		allRetriever.retrieve();
+
+		for (SeriesType series : allRetriever.getValidObservationCategoryMap()
+				.keySet()) {
+			assertEquals(allRetriever.getValidObservationCategoryMap()
+					.get(series).size(), retriever
+					.getValidObservationCategoryMap().get(series).size());
+		}
+
+		assertEquals(allRetriever.getMinMag(), retriever.getMinMag());
+		assertEquals(allRetriever.getMaxMag(), retriever.getMaxMag());
+	}
+
+	public void testAdditiveLoadPreviousObservationsLastForEqualJD()
+			throws Exception {
+		ValidObservation ob1 = ob(2450001, 10, SeriesType.Visual);
+		ValidObservation ob2 = ob(2450001, 11, SeriesType.Visual);
+		ValidObservation ob3 = ob(2450002, 12, SeriesType.Visual);
+
+		TestRetriever retriever = new TestRetriever(true, obs(0, 42));
+		retriever.collect(Arrays.asList(ob1, ob3));
+		retriever.collectAllObservations(Collections.singletonList(ob2),
+				"test");
+
+		assertEquals(Arrays.asList(ob1, ob2, ob3),
+				retriever.getValidObservations());
+	}
+
+	public void testDetailSchemaPerRetriever() throws Exception {
+		List<ValidObservation> obs1 = obs(10, 42);
+		obs1.get(3).setObsCode("ABC");
+		TestRetriever retriever1 = new TestRetriever(false, obs1);
+		retriever1.retrieve();
+
+		List<ValidObservation> obs2 = obs(10, 24);
+		obs2.get(5).setCompStar1("123");
+		TestRetriever retriever2 = new TestRetriever(true, obs2);
+		retriever2.retrieve();
+
+		assertEquals(Arrays.asList("OBS_CODE"), retriever1.getDetailSchema()
+				.getKeys());
+		assertEquals(Arrays.asList("COMP_STAR1"), retriever2
+				.getDetailSchema().getKeys());
+
+		// Merged observations bring their details with them.
+		retriever2.collectAllObservations(retriever1.getValidObservations(),
+				"test");
+		assertEquals(Arrays.asList("COMP_STAR1", "SOURCE", "OBS_CODE"),
+				retriever2.getDetailSchema().getKeys());
+		assertEquals(Arrays.asList("OBS_CODE"), retriever1.getDetailSchema()
+				.getKeys());
+	}
+
+	public void testPredicateAppliedWhenCollected() throws Exception {
+		List<ValidObservation> obs = obs(1000, 42);
+		ObservationPredicate predicate = new ObservationPredicate(2450050.0,
+				2450100.0, new HashSet<SeriesType>(Arrays.asList(
+						SeriesType.Johnson_V, SeriesType.Johnson_B)), null);
+
+		List<ValidObservation> expected = new ArrayList<ValidObservation>();
+		for (ValidObservation ob : obs) {
+			if (ob.getJD() >= 2450050 && ob.getJD() <= 2450100
+					&& ob.getBand() != SeriesType.Visual) {
+				expected.add(ob);
+			}
+		}
+		Collections.sort(expected,
+				(a, b) -> Double.compare(a.getJD(), b.getJD()));
+
+		TestRetriever retriever = new TestRetriever(false, obs);
+		retriever.setPredicate(predicate);
+		retriever.retrieve();
+		assertEquals(expected, retriever.getValidObservations());
+
+		TestRetriever batchRetriever = new TestRetriever(false, obs, true);
+		batchRetriever.setPredicate(predicate);
+		batchRetriever.retrieve();
+		assertEquals(expected, batchRetriever.getValidObservations());
+		assertOrdered(batchRetriever);
+
+		// Previously loaded observations are not subject to the predicate.
+		TestRetriever additiveRetriever = new TestRetriever(false, obs(0, 42));
+		additiveRetriever.setPredicate(predicate);
+		additiveRetriever.collectAllObservations(obs, "test");
+		assertEquals(obs.size(), additiveRetriever.getValidObservations()
+				.size());
+	}
+
+	// Helpers
+
+	private List<ValidObservation> obs(int n, long seed) {
+		Random random = new Random(seed);
+		SeriesType[] bands = { SeriesType.Visual, SeriesType.Johnson_V,
+				SeriesType.Johnson_B };
+
+		List<Integer> days = new ArrayList<Integer>();
+		for (int i = 0; i < n; i++) {
+			days.add(i);
+		}
+		Collections.shuffle(days, random);
+
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+
+		for (int i = 0; i < n; i++) {
+			// Distinct JDs, out of order, with bands interleaved.
+			SeriesType band = bands[i % bands.length];
+			double jd = 2450000 + days.get(i) / 4.0;
+			ValidObservation ob = ob(jd, 10 + random.nextDouble(), band);
+			if (i % 17 == 0) {
+				ob.setValidationType(ValidationType.DISCREPANT);
+			}
+			obs.add(ob);
+		}
+
+		return obs;
+	}
+
+	private ValidObservation ob(double jd, double mag, SeriesType band) {
+		ValidObservation ob = new ValidObservation();
+		ob.setDateInfo(new DateInfo(jd));
+		ob.setMagnitude(new Magnitude(mag, 0.01));
+		ob.setBand(band);
+		return ob;
+	}
+
+	private void assertOrdered(AbstractObservationRetriever retriever) {
+		assertOrdered(retriever.getValidObservations());
+
+		int count = 0;
+		for (List<ValidObservation> obs : retriever
+				.getValidObservationCategoryMap().values()) {
+			assertOrdered(obs);
+			count += obs.size();
+		}
+
+		assertEquals(retriever.getValidObservations().size(), count);
+	}
+
+	private void assertOrdered(List<ValidObservation> obs) {
+		for (int i = 1; i < obs.size(); i++) {
+			assertTrue(obs.get(i - 1).getJD() <= obs.get(i).getJD());
+		}
+	}
+
+	private static class TestRetriever extends AbstractObservationRetriever {
+
+		private boolean ordered;
+		private List<ValidObservation> obs;
+		private boolean batch;
+
+		public TestRetriever(boolean ordered, List<ValidObservation> obs) {
+			this(ordered, obs, false);
+		}
+
+		public TestRetriever(boolean ordered, List<ValidObservation> obs,
+				boolean batch) {
+			this.ordered = ordered;
+			this.obs = obs;
+			this.batch = batch;
+		}
+
+		@Override
+		public boolean isSourceOrdered() {
+			return ordered;
+		}
+
+		@Override
+		public void retrieveObservations() throws ObservationReadError,
+				InterruptedException {
+			if (batch) {
+				collectBatch(obs);
+			} else {
+				collect(obs);
+			}
+		}
+
+		public void collect(List<ValidObservation> obs)
+				throws ObservationReadError {
+			for (ValidObservation ob : obs) {
+				collectObservation(ob);
+			}
+		}
+
+		public void collectBatch(List<ValidObservation> obs)
+				throws ObservationReadError {
+			collectObservationBatch(obs);
+		}
+
+		@Override
+		public String getSourceType() {
+			return "test";
+		}
+
+		@Override
+		public String getSourceName() {
+			return "test";
+		}
+	}
+}
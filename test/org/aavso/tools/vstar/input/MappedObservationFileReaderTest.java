@@ -0,0 +1,266 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for MappedObservationFileReader.
+ */
+public class MappedObservationFileReaderTest extends TestCase {
+
+	public MappedObservationFileReaderTest(String name) {
+		super(name);
+	}
+
+	public void testLinesAsForBufferedReader() throws IOException {
+		String[] sources = { "", "\n", "a", "a\n", "a\nb", "a\r\nb\r\n",
+				"a\rb\r", "a\n\nb", "a\r\n\r\nb\n", "\r\r\n\n" };
+
+		for (String source : sources) {
+			assertEquals(source, readLines(source), lines(reader(source)));
+		}
+	}
+
+	public void testLineNumbersAndCount() throws IOException {
+		MappedObservationFileReader reader = reader("# comment\n\n  \n1,2\n");
+
+		assertEquals(4, reader.countLines());
+		assertEquals(0, reader.getLineNumber());
+
+		assertTrue(reader.nextLine());
+		assertTrue(reader.isCommentLine('#'));
+		assertTrue(reader.nextLine());
+		assertTrue(reader.isBlankLine());
+		assertTrue(reader.nextLine());
+		assertTrue(reader.isBlankLine());
+		assertTrue(reader.nextLine());
+		assertFalse(reader.isBlankLine());
+		assertFalse(reader.isCommentLine('#'));
+		assertEquals(4, reader.getLineNumber());
+		assertFalse(reader.nextLine());
+	}
+
+	public void testFieldsTrimmedAndTrailingEmptyFieldRetained()
+			throws IOException {
+		MappedObservationFileReader reader = reader(" 2450001.5 \t10.0  \tV\t\n");
+		reader.nextLine();
+
+		assertEquals(4, reader.split('\t'));
+		assertEquals("2450001.5", reader.getField(0));
+		assertEquals("10.0", reader.getField(1));
+		assertTrue(reader.fieldEquals(2, "V", false));
+		assertTrue(reader.fieldEquals(2, "v", true));
+		assertFalse(reader.fieldEquals(2, "v", false));
+		assertTrue(reader.isFieldEmpty(3));
+
+		try {
+			reader.getField(4);
+			fail();
+		} catch (ArrayIndexOutOfBoundsException e) {
+			// We expect to get here.
+		}
+	}
+
+	public void testDoublesAsForDoubleParseDouble() throws IOException {
+		String[] values = { "0", "-0", "+1", "1.", ".5", "2450001.5",
+				"2459000.123456", "-1.25e-3", "1E5", "123456789012345678",
+				"12345678901234567890", "0.1", "0.30000000000000004",
+				"9007199254740993", "1e22", "1e23", "4.9e-324", "1e-400",
+				"NaN", "-Infinity", "1d" };
+
+		for (String value : values) {
+			MappedObservationFileReader reader = reader(value);
+			reader.nextLine();
+			reader.split(',');
+			assertEquals(value, Double.parseDouble(value), reader.getDouble(0));
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			String value = Double.toString(random.nextDouble()
+					* Math.pow(10, random.nextInt(20) - 10));
+			MappedObservationFileReader reader = reader(value);
+			reader.nextLine();
+			reader.split(',');
+			assertEquals(value, Double.parseDouble(value), reader.getDouble(0));
+		}
+	}
+
+	public void testInvalidDoubles() throws IOException {
+		String[] values = { "", "-", ".", "1e", "1e+", "1.2.3", "x1", "1x",
+				"--1" };
+
+		for (String value : values) {
+			MappedObservationFileReader reader = reader(value);
+			reader.nextLine();
+			reader.split(',');
+			try {
+				reader.getDouble(0);
+				fail(value);
+			} catch (NumberFormatException e) {
+				// We expect to get here.
+			}
+		}
+	}
+
+	public void testInts() throws IOException {
+		MappedObservationFileReader reader = reader("0,-12,+34,2147483647,-2147483648,00000000042");
+		reader.nextLine();
+		reader.split(',');
+
+		int[] expected = { 0, -12, 34, Integer.MAX_VALUE, Integer.MIN_VALUE,
+				42 };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], reader.getInt(i));
+		}
+
+		String[] values = { "", "-", "2147483648", "-2147483649", "1.0", "x" };
+		for (String value : values) {
+			reader = reader(value);
+			reader.nextLine();
+			reader.split(',');
+			try {
+				reader.getInt(0);
+				fail(value);
+			} catch (NumberFormatException e) {
+				// We expect to get here.
+			}
+		}
+	}
+
+	public void testMappedFileInRegions() throws IOException {
+		StringBuffer content = new StringBuffer();
+		for (int i = 0; i < 1000; i++) {
+			content.append(2450000 + i);
+			content.append(",");
+			content.append(i % 10 + 0.5);
+			content.append(i % 3 == 0 ? "\r\n" : "\n");
+		}
+
+		File file = File.createTempFile("mapped", ".csv");
+
+		try {
+			Files.write(file.toPath(),
+					content.toString().getBytes(StandardCharsets.UTF_8));
+
+			for (int regionSize : new int[] { 16, 61, 1 << 20 }) {
+				try (FileInputStream stream = new FileInputStream(file)) {
+					MappedObservationFileReader reader = new MappedObservationFileReader(
+							stream, regionSize);
+
+					assertEquals(file.length(), reader.getSize());
+					assertEquals(1000, reader.countLines());
+
+					int i = 0;
+					while (reader.nextLine()) {
+						assertEquals(2, reader.split(','));
+						assertEquals(2450000 + i, reader.getInt(0));
+						assertEquals(i % 10 + 0.5, reader.getDouble(1));
+						i++;
+					}
+					assertEquals(1000, i);
+					assertEquals(file.length(), reader.getPosition());
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testLineLongerThanRegion() throws IOException {
+		File file = File.createTempFile("mapped", ".csv");
+
+		try {
+			Files.write(file.toPath(), "1,2\n2450000.12345,10.5\n3,4\n"
+					.getBytes(StandardCharsets.UTF_8));
+
+			try (FileInputStream stream = new FileInputStream(file)) {
+				MappedObservationFileReader reader = new MappedObservationFileReader(
+						stream, 8);
+
+				assertTrue(reader.nextLine());
+				assertEquals("1,2", reader.getLine());
+
+				try {
+					reader.nextLine();
+					fail();
+				} catch (IOException e) {
+					assertTrue(e.getMessage().startsWith("Line 2 "));
+				}
+			}
+
+			// The first line of the source.
+			Files.write(file.toPath(), "2450000.12345,10.5\n3,4\n"
+					.getBytes(StandardCharsets.UTF_8));
+
+			try (FileInputStream stream = new FileInputStream(file)) {
+				MappedObservationFileReader reader = new MappedObservationFileReader(
+						stream, 8);
+
+				try {
+					reader.nextLine();
+					fail();
+				} catch (IOException e) {
+					assertTrue(e.getMessage().startsWith("Line 1 "));
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	// Helpers
+
+	private MappedObservationFileReader reader(String source)
+			throws IOException {
+		return new MappedObservationFileReader(new ByteArrayInputStream(
+				source.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private List<String> lines(MappedObservationFileReader reader)
+			throws IOException {
+		List<String> lines = new ArrayList<String>();
+		while (reader.nextLine()) {
+			lines.add(reader.getLine());
+		}
+		return lines;
+	}
+
+	private List<String> readLines(String source) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new StringReader(source));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		return lines;
+	}
+}
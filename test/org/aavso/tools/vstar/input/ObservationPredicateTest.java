@@ -0,0 +1,147 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * Unit tests for ObservationPredicate.
+ */
+public class ObservationPredicateTest extends TestCase {
+
+	public ObservationPredicateTest(String name) {
+		super(name);
+	}
+
+	public void testAll() {
+		ObservationPredicate predicate = ObservationPredicate.ALL;
+
+		assertTrue(predicate.acceptsAll());
+		assertFalse(predicate.restrictsJD());
+		assertFalse(predicate.restrictsBand());
+		assertFalse(predicate.restrictsObsCode());
+
+		assertTrue(predicate.accepts(ob(2450000, SeriesType.Visual, null)));
+	}
+
+	public void testJDRangeInclusive() {
+		ObservationPredicate predicate = new ObservationPredicate(2450000.0,
+				2450100.0, null, null);
+
+		assertFalse(predicate.acceptsAll());
+		assertTrue(predicate.restrictsJD());
+
+		assertFalse(predicate.acceptsJD(2449999.9));
+		assertTrue(predicate.acceptsJD(2450000));
+		assertTrue(predicate.acceptsJD(2450100));
+		assertFalse(predicate.acceptsJD(2450100.1));
+	}
+
+	public void testOpenJDRange() {
+		ObservationPredicate predicate = new ObservationPredicate(2450000.0,
+				null, null, null);
+
+		assertFalse(predicate.acceptsJD(2449999));
+		assertTrue(predicate.acceptsJD(Double.MAX_VALUE));
+
+		predicate = new ObservationPredicate(null, 2450000.0, null, null);
+
+		assertTrue(predicate.acceptsJD(0));
+		assertFalse(predicate.acceptsJD(2450001));
+	}
+
+	public void testBandsAndObservers() {
+		ObservationPredicate predicate = new ObservationPredicate(null, null,
+				new HashSet<SeriesType>(Arrays.asList(SeriesType.Johnson_V)),
+				new HashSet<String>(Arrays.asList("ABC", "DEF")));
+
+		assertFalse(predicate.restrictsJD());
+		assertTrue(predicate.restrictsBand());
+		assertTrue(predicate.restrictsObsCode());
+
+		assertTrue(predicate.accepts(ob(2450000, SeriesType.Johnson_V, "ABC")));
+		assertFalse(predicate.accepts(ob(2450000, SeriesType.Johnson_B, "ABC")));
+		assertFalse(predicate.accepts(ob(2450000, SeriesType.Johnson_V, "XYZ")));
+		assertFalse(predicate.accepts(ob(2450000, SeriesType.Johnson_V, null)));
+	}
+
+	public void testObsCodesCaseInsensitive() {
+		ObservationPredicate predicate = new ObservationPredicate(null, null,
+				null, new HashSet<String>(Arrays.asList("abc")));
+
+		assertTrue(predicate.acceptsObsCode("ABC"));
+		assertTrue(predicate.acceptsObsCode("abc"));
+		assertFalse(predicate.acceptsObsCode("XYZ"));
+	}
+
+	public void testCreateFromCriteria() {
+		ObservationPredicate predicate = ObservationPredicate.create(
+				2450000.0, 2450100.0, "Visual, Johnson B,V", "abc DEF,ghi");
+
+		assertEquals(2450000.0, predicate.getMinJD());
+		assertEquals(2450100.0, predicate.getMaxJD());
+		assertEquals(new HashSet<SeriesType>(Arrays.asList(SeriesType.Visual,
+				SeriesType.Johnson_B, SeriesType.Johnson_V)), predicate
+				.getBands());
+		assertEquals(new HashSet<String>(Arrays.asList("ABC", "DEF", "GHI")),
+				predicate.getObsCodes());
+	}
+
+	public void testCreateWithNoCriteria() {
+		assertTrue(ObservationPredicate.create(null, null, null, null)
+				.acceptsAll());
+		assertTrue(ObservationPredicate.create(null, null, " ", "").acceptsAll());
+	}
+
+	public void testCreateWithUnknownBand() {
+		try {
+			ObservationPredicate.create(null, null, "Johnson Q", null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	public void testCreateWithEmptyJDRange() {
+		try {
+			ObservationPredicate.create(2450100.0, 2450000.0, null, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	// Helpers
+
+	private ValidObservation ob(double jd, SeriesType band, String obsCode) {
+		ValidObservation ob = new ValidObservation();
+		ob.setDateInfo(new DateInfo(jd));
+		ob.setMagnitude(new Magnitude(10, 0.01));
+		ob.setBand(band);
+		ob.setObsCode(obsCode);
+		return ob;
+	}
+}
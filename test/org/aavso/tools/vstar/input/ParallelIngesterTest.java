@@ -0,0 +1,174 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.InvalidObservation;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * Unit tests for ParallelIngester.
+ */
+public class ParallelIngesterTest extends TestCase {
+
+	public ParallelIngesterTest(String name) {
+		super(name);
+	}
+
+	public void testChunksMergedByJD() throws Exception {
+		// Each source yields observations at JDs start, start + step, ...,
+		// in reverse order, so each chunk must be sorted before merging. The
+		// first and last sources share JDs.
+		List<double[]> sources = Arrays.asList(new double[] { 0, 3, 100 },
+				new double[] { 1, 3, 100 }, new double[] { 2, 3, 100 },
+				new double[] { 0, 3, 50 });
+
+		ParallelIngester<double[]> ingester = new ParallelIngester<double[]>(
+				2, () -> false);
+
+		List<Integer> decoded = Collections
+				.synchronizedList(new ArrayList<Integer>());
+
+		assertTrue(ingester.ingest(sources, (index, source, validObs,
+				invalidObs) -> {
+			for (int i = (int) source[2] - 1; i >= 0; i--) {
+				validObs.add(ob(source[0] + i * source[1], index));
+			}
+			invalidObs.add(new InvalidObservation("input " + index, "error"));
+		}, decoded::add));
+
+		Collections.sort(decoded);
+		assertEquals(Arrays.asList(0, 1, 2, 3), decoded);
+
+		List<ValidObservation> obs = ingester.getValidObservations();
+		assertEquals(350, obs.size());
+		for (int i = 1; i < obs.size(); i++) {
+			assertTrue(obs.get(i - 1).getJD() <= obs.get(i).getJD());
+		}
+
+		// Observations with equal JDs are in source order.
+		for (int i = 1; i < obs.size(); i++) {
+			if (obs.get(i - 1).getJD() == obs.get(i).getJD()) {
+				assertTrue(obs.get(i - 1).getRecordNumber() < obs.get(i)
+						.getRecordNumber());
+			}
+		}
+
+		List<InvalidObservation> invalidObs = ingester.getInvalidObservations();
+		assertEquals(4, invalidObs.size());
+		for (int i = 0; i < invalidObs.size(); i++) {
+			assertEquals("input " + i, invalidObs.get(i).getInputLine());
+		}
+
+		assertTrue(ingester.getErrors().isEmpty());
+	}
+
+	public void testSourceErrorsRecorded() throws Exception {
+		List<Integer> sources = Arrays.asList(0, 1, 2, 3);
+
+		ParallelIngester<Integer> ingester = new ParallelIngester<Integer>(4,
+				() -> false);
+
+		AtomicInteger decodedCount = new AtomicInteger();
+
+		assertTrue(ingester.ingest(sources, (index, source, validObs,
+				invalidObs) -> {
+			if (source % 2 == 1) {
+				throw new Exception("bad source " + source);
+			}
+			validObs.add(ob(source, index));
+		}, index -> decodedCount.incrementAndGet()));
+
+		assertEquals(4, decodedCount.get());
+
+		assertEquals(2, ingester.getValidObservations().size());
+		assertEquals(0.0, ingester.getValidObservations().get(0).getJD());
+		assertEquals(2.0, ingester.getValidObservations().get(1).getJD());
+
+		assertEquals(Arrays.asList(1, 3), new ArrayList<Integer>(ingester
+				.getErrors().keySet()));
+		assertEquals("bad source 3", ingester.getErrors().get(3).getMessage());
+	}
+
+	public void testStopAbandonsDecoding() throws Exception {
+		List<Integer> sources = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7);
+
+		AtomicBoolean stop = new AtomicBoolean(false);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicInteger decoding = new AtomicInteger();
+
+		ParallelIngester<Integer> ingester = new ParallelIngester<Integer>(2,
+				stop::get);
+
+		Thread stopper = new Thread(() -> {
+			try {
+				started.await();
+			} catch (InterruptedException e) {
+				// Stop anyway.
+			}
+			stop.set(true);
+		});
+		stopper.start();
+
+		// Decoding blocks until interrupted by cancellation.
+		assertFalse(ingester.ingest(sources, (index, source, validObs,
+				invalidObs) -> {
+			decoding.incrementAndGet();
+			started.countDown();
+			Thread.sleep(60000);
+		}, null));
+
+		stopper.join();
+
+		// Sources not yet started are never decoded.
+		assertTrue(decoding.get() <= 2);
+	}
+
+	public void testNoSources() throws Exception {
+		ParallelIngester<Integer> ingester = new ParallelIngester<Integer>(
+				ParallelIngester.DEFAULT_MAX_THREADS, () -> false);
+
+		assertTrue(ingester.ingest(new ArrayList<Integer>(), (index, source,
+				validObs, invalidObs) -> fail(), null));
+
+		assertTrue(ingester.getValidObservations().isEmpty());
+		assertTrue(ingester.getInvalidObservations().isEmpty());
+	}
+
+	// Helpers
+
+	// An observation whose record number identifies its source.
+	private static ValidObservation ob(double jd, int sourceIndex) {
+		ValidObservation ob = new ValidObservation();
+		ob.setDateInfo(new DateInfo(jd));
+		ob.setMagnitude(new Magnitude(10, 0.01));
+		ob.setRecordNumber(sourceIndex);
+		return ob;
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * Unit tests for ObservationCache.
+ */
+public class ObservationCacheTest extends TestCase {
+
+	private File dir;
+
+	public ObservationCacheTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		dir = Files.createTempDirectory("vstar_cache_test").toFile();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	public void testPutGet() throws IOException {
+		ObservationCache cache = new ObservationCache(dir, 1024 * 1024);
+		ObservationCache.Key key = new ObservationCache.Key("test",
+				"000-TEST", "band=V");
+
+		assertNull(cache.get(key));
+
+		List<ValidObservation> obs = obs(1000, 2450000);
+		cache.put(key, 2450000, 2450100, obs);
+
+		ObservationCache.Entry entry = cache.get(key);
+		assertNotNull(entry);
+		assertEquals(2450000.0, entry.getMinJD());
+		assertEquals(2450100.0, entry.getMaxJD());
+		assertEquals(obs.size(), entry.size());
+		assertTrue(entry.covers(2450010, 2450090));
+		assertFalse(entry.covers(2450010, 2450200));
+
+		List<ValidObservation> cached = entry.getObservations(2450000,
+				Double.POSITIVE_INFINITY);
+		assertEquals(obs, cached);
+		for (int i = 0; i < obs.size(); i++) {
+			assertEquals(obs.get(i).getRecordNumber(), cached.get(i)
+					.getRecordNumber());
+		}
+
+		// A range of the observations, up to but excluding the end JD.
+		List<ValidObservation> range = entry.getObservations(2450010,
+				2450020);
+		assertEquals(100, range.size());
+		assertEquals(obs.get(100), range.get(0));
+		assertEquals(obs.get(199), range.get(99));
+
+		// Each request creates its own observations.
+		range.get(0).setExcluded(true);
+		assertNotSame(cached.get(100), range.get(0));
+		assertFalse(entry.getObservations(2450010, 2450020).get(0)
+				.isExcluded());
+
+		// Other keys have no entry.
+		assertNull(cache.get(new ObservationCache.Key("test", "000-TEST",
+				"band=B")));
+		assertNull(cache.get(new ObservationCache.Key("other", "000-TEST",
+				"band=V")));
+	}
+
+	public void testPutReplaces() throws IOException {
+		ObservationCache cache = new ObservationCache(dir, 1024 * 1024);
+		ObservationCache.Key key = new ObservationCache.Key("test",
+				"000-TEST", "");
+
+		cache.put(key, 2450000, 2450100, obs(100, 2450000));
+		cache.put(key, 2450000, 2450200, obs(200, 2450000));
+
+		ObservationCache.Entry entry = cache.get(key);
+		assertEquals(2450200.0, entry.getMaxJD());
+		assertEquals(200, entry.size());
+		assertEquals(1, dir.listFiles().length);
+
+		cache.remove(key);
+		assertNull(cache.get(key));
+	}
+
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		ObservationCache.Key key1 = new ObservationCache.Key("test", "1", "");
+		ObservationCache.Key key2 = new ObservationCache.Key("test", "2", "");
+		ObservationCache.Key key3 = new ObservationCache.Key("test", "3", "");
+
+		// Find the size of an entry, then allow two such entries.
+		ObservationCache sizer = new ObservationCache(dir, Long.MAX_VALUE);
+		sizer.put(key1, 2450000, 2450100, obs(1000, 2450000));
+		long entrySize = sizer.getTotalSize();
+		sizer.clear();
+		assertEquals(0, sizer.getTotalSize());
+
+		ObservationCache cache = new ObservationCache(dir,
+				entrySize * 2 + entrySize / 2);
+
+		// Entries last used long ago, the second after the first.
+		cache.put(key1, 2450000, 2450100, obs(1000, 2450000));
+		File file1 = dir.listFiles()[0];
+		file1.setLastModified(1000000);
+		cache.put(key2, 2450000, 2450100, obs(1000, 2450000));
+		for (File file : dir.listFiles()) {
+			if (!file.equals(file1)) {
+				file.setLastModified(2000000);
+			}
+		}
+
+		// Using the first entry makes the second the least recently used.
+		assertNotNull(cache.get(key1));
+		cache.put(key3, 2450000, 2450100, obs(1000, 2450000));
+
+		assertNotNull(cache.get(key1));
+		assertNull(cache.get(key2));
+		assertNotNull(cache.get(key3));
+		assertTrue(cache.getTotalSize() <= cache.getMaxSize());
+	}
+
+	public void testUnreadableEntryRemoved() throws IOException {
+		ObservationCache cache = new ObservationCache(dir, 1024 * 1024);
+		ObservationCache.Key key = new ObservationCache.Key("test",
+				"000-TEST", "");
+
+		cache.put(key, 2450000, 2450100, obs(10, 2450000));
+
+		File[] files = dir.listFiles();
+		assertEquals(1, files.length);
+		FileOutputStream out = new FileOutputStream(files[0]);
+		out.write("corrupt".getBytes());
+		out.close();
+
+		assertNull(cache.get(key));
+		assertEquals(0, dir.listFiles().length);
+	}
+
+	// Helpers
+
+	private List<ValidObservation> obs(int n, double startJD) {
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+
+		for (int i = 0; i < n; i++) {
+			ValidObservation ob = new ValidObservation();
+			ob.setRecordNumber(i + 1);
+			ob.setDateInfo(new DateInfo(startJD + i / 10.0));
+			ob.setMagnitude(new Magnitude(10 + (i % 50) / 10.0, 0.01));
+			ob.setBand(i % 2 == 0 ? SeriesType.Visual : SeriesType.Johnson_V);
+			ob.setObsCode("OBS" + (i % 3));
+			obs.add(ob);
+		}
+
+		return obs;
+	}
+}
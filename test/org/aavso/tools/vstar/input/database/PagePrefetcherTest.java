@@ -0,0 +1,260 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.input.database;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.plugin.ob.src.impl.AIDWebServiceCSV2ObservationSourcePlugin;
+import org.aavso.tools.vstar.plugin.ob.src.impl.AIDWebServiceCSVObservationSourcePlugin;
+import org.aavso.tools.vstar.plugin.ob.src.impl.AIDWebServiceObservationSourcePluginBase;
+import org.aavso.tools.vstar.ui.mediator.StarInfo;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit tests for PagePrefetcher, and for multi-page AID retrieval against a
+ * local stand-in for the VSX web service.
+ */
+public class PagePrefetcherTest extends TestCase {
+
+	private static final int PAGES = 6;
+	private static final int OBS_PER_PAGE = 50;
+
+	public PagePrefetcherTest(String name) {
+		super(name);
+	}
+
+	public void testPagesHandedOverInOrder() throws Exception {
+		final Random random = new Random(42);
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+
+		PagePrefetcher<Integer> pages = new PagePrefetcher<Integer>(
+				pageNum -> {
+					maxInFlight.accumulateAndGet(inFlight.incrementAndGet(),
+							Math::max);
+					int delay;
+					synchronized (random) {
+						delay = random.nextInt(20);
+					}
+					Thread.sleep(delay);
+					inFlight.decrementAndGet();
+					return pageNum;
+				}, 4, () -> false);
+
+		try {
+			// Only the first page is requested at first.
+			assertEquals(Integer.valueOf(1), pages.next());
+			assertEquals(0, pages.getPagesInFlight());
+
+			for (int i = 2; i <= 50; i++) {
+				assertEquals(Integer.valueOf(i), pages.next());
+				assertTrue(pages.getPagesInFlight() < 4);
+			}
+
+			assertTrue(maxInFlight.get() <= 4);
+			assertTrue(maxInFlight.get() > 1);
+		} finally {
+			pages.close();
+		}
+
+		assertNull(pages.next());
+	}
+
+	public void testStopRequestEndsPages() throws Exception {
+		final AtomicBoolean stop = new AtomicBoolean(false);
+
+		PagePrefetcher<Integer> pages = new PagePrefetcher<Integer>(
+				pageNum -> {
+					if (pageNum > 2) {
+						// Never completes unless cancelled.
+						Thread.sleep(60000);
+					}
+					return pageNum;
+				}, 2, stop::get);
+
+		try {
+			assertEquals(Integer.valueOf(1), pages.next());
+			assertEquals(Integer.valueOf(2), pages.next());
+
+			new Thread(() -> {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+				}
+				stop.set(true);
+			}).start();
+
+			assertNull(pages.next());
+			assertNull(pages.next());
+			assertEquals(0, pages.getPagesInFlight());
+		} finally {
+			pages.close();
+		}
+	}
+
+	public void testFetchErrorPropagated() throws Exception {
+		PagePrefetcher<Integer> pages = new PagePrefetcher<Integer>(
+				pageNum -> {
+					if (pageNum == 3) {
+						throw new IOException("page 3");
+					}
+					return pageNum;
+				}, 3, () -> false);
+
+		try {
+			pages.next();
+			pages.next();
+			pages.next();
+			fail();
+		} catch (IOException e) {
+			assertEquals("page 3", e.getMessage());
+		} finally {
+			pages.close();
+		}
+	}
+
+	public void testCSV2RetrievalAgreesWithSequentialFetching()
+			throws Exception {
+		commonRetrievalAgreesWithSequentialFetching(
+				new AIDWebServiceCSV2ObservationSourcePlugin(),
+				new AIDWebServiceCSV2ObservationSourcePlugin());
+	}
+
+	public void testCSVRetrievalAgreesWithSequentialFetching()
+			throws Exception {
+		commonRetrievalAgreesWithSequentialFetching(
+				new AIDWebServiceCSVObservationSourcePlugin(),
+				new AIDWebServiceCSVObservationSourcePlugin());
+	}
+
+	// Helpers
+
+	private void commonRetrievalAgreesWithSequentialFetching(
+			AIDWebServiceObservationSourcePluginBase sequentialSource,
+			AIDWebServiceObservationSourcePluginBase prefetchingSource)
+			throws Exception {
+
+		final AtomicInteger requests = new AtomicInteger();
+		HttpServer server = startServer(requests);
+
+		try {
+			String urlStr = "http://127.0.0.1:"
+					+ server.getAddress().getPort()
+					+ "/vsx/index.php?view=api.object&csv";
+
+			sequentialSource.setPagesInFlight(1);
+			List<ValidObservation> expected = retrieve(sequentialSource, urlStr);
+			assertEquals(PAGES * OBS_PER_PAGE, expected.size());
+			assertEquals(PAGES, requests.get());
+
+			List<ValidObservation> obs = retrieve(prefetchingSource, urlStr);
+			assertEquals(expected, obs);
+
+			for (int i = 0; i < obs.size(); i++) {
+				assertEquals(i + 1, obs.get(i).getRecordNumber());
+			}
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	private List<ValidObservation> retrieve(
+			AIDWebServiceObservationSourcePluginBase obsSource, String urlStr)
+			throws Exception {
+		obsSource.setInfo(new StarInfo(null, "TEST", "000-TEST"));
+		obsSource.setUrl(urlStr);
+
+		AbstractObservationRetriever retriever = obsSource
+				.getObservationRetriever();
+		retriever.retrieve();
+
+		return retriever.getValidObservations();
+	}
+
+	// A stand-in for the VSX web service, serving pages of CSV observations
+	// after a random delay, all but the last page having an observation
+	// count. Pages beyond the last have no data.
+	private HttpServer startServer(final AtomicInteger requests)
+			throws IOException {
+		final Random random = new Random(4242);
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(
+				"127.0.0.1", 0), 0);
+
+		server.createContext("/vsx", exchange -> {
+			requests.incrementAndGet();
+
+			String query = exchange.getRequestURI().getQuery();
+			int pageNum = Integer.parseInt(query.substring(query
+					.indexOf("page=") + 5));
+
+			StringBuilder page = new StringBuilder(
+					"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			page.append("<VSXObject Name=\"TEST\">");
+
+			if (pageNum <= PAGES) {
+				if (pageNum < PAGES) {
+					page.append("<Count>" + PAGES * OBS_PER_PAGE + "</Count>");
+				}
+
+				page.append("<Data><![CDATA[obsID,JD,mag,uncert,band,by,val\n");
+				for (int i = 0; i < OBS_PER_PAGE; i++) {
+					int id = (pageNum - 1) * OBS_PER_PAGE + i + 1;
+					page.append(id + "," + (2450000 + id * 0.1) + ","
+							+ (10 + (id % 20) / 10.0) + ",0.01,V,ABC,V\n");
+				}
+				page.append("]]></Data>");
+			}
+
+			page.append("</VSXObject>");
+
+			try {
+				int delay;
+				synchronized (random) {
+					delay = random.nextInt(30);
+				}
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+			}
+
+			byte[] bytes = page.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, bytes.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(bytes);
+			out.close();
+		});
+
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		return server;
+	}
+}
@@ -85,7 +85,7 @@ public abstract class VSXWebServiceAIDObservationReaderTestBase extends TestCase
 
 			AbstractObservationRetriever reader = obsSource
 					.getObservationRetriever();
-			reader.retrieveObservations();
+			reader.retrieve();
 			List<ValidObservation> obs = reader.getValidObservations();
 
 			assertEquals(2804, obs.size());
@@ -124,7 +124,7 @@ public abstract class VSXWebServiceAIDObservationReaderTestBase extends TestCase
 
 			AbstractObservationRetriever reader = obsSource
 					.getObservationRetriever();
-			reader.retrieveObservations();
+			reader.retrieve();
 			List<ValidObservation> obs = reader.getValidObservations();
 
 			assertEquals(12, obs.size());
@@ -174,7 +174,7 @@ public abstract class VSXWebServiceAIDObservationReaderTestBase extends TestCase
 
 			AbstractObservationRetriever reader = obsSource
 					.getObservationRetriever();
-			reader.retrieveObservations();
+			reader.retrieve();
 			List<ValidObservation> obs = reader.getValidObservations();
 
 			assertEquals(2, obs.size());
@@ -202,7 +202,7 @@ public abstract class VSXWebServiceAIDObservationReaderTestBase extends TestCase
 
 			AbstractObservationRetriever reader = obsSource
 					.getObservationRetriever();
-			reader.retrieveObservations();
+			reader.retrieve();
 			List<ValidObservation> obs = reader.getValidObservations();
 
 			assertEquals(expectedCount, obs.size());
@@ -135,4 +135,53 @@ public class ObservationSourceAnalyserTest extends TestCase {
 		a.analyse();
 		assertEquals(2, a.getLineCount());
 	}
+
+	public void testHeadAnalysisLeavesSourceUnread() throws Exception {
+		String data = "# header\n2450001.5,10.0\n2450002.5,10.1\n";
+		LineNumberReader reader = new LineNumberReader(new StringReader(data));
+		ObservationSourceAnalyser a = new ObservationSourceAnalyser(reader,
+				"head");
+		a.analyseHead(ObservationSourceAnalyser.DEFAULT_HEAD_LINES);
+		assertEquals(NewStarType.NEW_STAR_FROM_SIMPLE_FILE, a.getNewStarType());
+		assertEquals(ObservationSourceAnalyser.COMMA_DELIM, a.getDelimiter());
+		assertFalse(a.isLineCountKnown());
+
+		// The analysed lines can be read again.
+		assertEquals("# header", reader.readLine());
+	}
+
+	public void testHeadAnalysisWithLongCommentHeader() throws Exception {
+		StringBuffer data = new StringBuffer();
+		for (int i = 0; i < 2500; i++) {
+			data.append(i % 10 == 0 ? "\n" : "# comment " + i + "\n");
+		}
+		data.append("2450001.5\t10.0\n");
+
+		LineNumberReader reader = new LineNumberReader(new StringReader(
+				data.toString()));
+		ObservationSourceAnalyser a = new ObservationSourceAnalyser(reader,
+				"comments");
+		a.analyseHead(ObservationSourceAnalyser.DEFAULT_HEAD_LINES);
+		assertEquals(NewStarType.NEW_STAR_FROM_SIMPLE_FILE, a.getNewStarType());
+		assertEquals(ObservationSourceAnalyser.TAB_DELIM, a.getDelimiter());
+
+		// Whole multiples of the line limit are skipped; the rest are unread.
+		assertEquals(2000, a.getSkippedLines().size());
+		assertEquals("", a.getSkippedLines().get(0));
+		assertEquals("# comment 1999", a.getSkippedLines().get(1999));
+		assertEquals("", reader.readLine());
+		assertEquals("# comment 2001", reader.readLine());
+	}
+
+	public void testHeadAnalysisWithUnknownFormatThrows() throws Exception {
+		String data = "# 1\n# 2\n# 3\n2450001.5\n";
+		ObservationSourceAnalyser a = new ObservationSourceAnalyser(
+				new LineNumberReader(new StringReader(data)), "unknown");
+		try {
+			a.analyseHead(2);
+			fail();
+		} catch (ObservationReadError e) {
+			// We expect to get here.
+		}
+	}
 }
@@ -20,6 +20,8 @@ package org.aavso.tools.vstar.input.text;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -31,6 +33,7 @@ import org.aavso.tools.vstar.data.validation.SimpleTextFormatValidator;
 import org.aavso.tools.vstar.exception.ObservationValidationError;
 import org.aavso.tools.vstar.exception.ObservationValidationWarning;
 import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.ObservationPredicate;
 import org.aavso.tools.vstar.ui.mediator.NewStarType;
 
 import com.csvreader.CsvReader;
@@ -120,6 +123,36 @@ public class TextFormatObservationReaderTest extends TestCase {
 		assertEquals(2450001.5, ob1.getDateInfo().getJulianDay());
 	}
 
+	public void testVeLaFilterAppliedToAdditiveBatch() throws Exception {
+		StringBuffer lines = new StringBuffer();
+		lines.append("2450001.5\t10.0\n");
+		lines.append("2450002.5\t12.0\n");
+		lines.append("2450003.5\t11.0\n");
+		lines.append("2450004.5\t13.0\n");
+
+		List<ValidObservation> existingObs = commonValidTest(
+				lines.toString(), "\t", "");
+
+		String str = "2450000.5\t14.0\n";
+
+		ObservationSourceAnalyser analyser = new ObservationSourceAnalyser(
+				new LineNumberReader(new StringReader(str)), "Some String");
+		analyser.analyse();
+
+		AbstractObservationRetriever reader = new TextFormatObservationReader(
+				new LineNumberReader(new StringReader(str)), analyser,
+				"magnitude > 11.5");
+
+		reader.retrieve();
+		reader.collectAllObservations(existingObs, "New");
+
+		List<ValidObservation> obs = reader.getValidObservations();
+		assertEquals(3, obs.size());
+		assertEquals(2450000.5, obs.get(0).getJD());
+		assertEquals(2450002.5, obs.get(1).getJD());
+		assertEquals(2450004.5, obs.get(2).getJD());
+	}
+
 	public void testSimpleValidOutOfOrderTabSeparatedMultipleLines() {
 		StringBuffer lines = new StringBuffer();
 		lines.append("24550001 3.2 0.2\n");
@@ -192,7 +225,7 @@ public class TextFormatObservationReaderTest extends TestCase {
 			AbstractObservationRetriever simpleTextFormatReader = new TextFormatObservationReader(
 					new LineNumberReader(new StringReader(str)), analyser, "");
 
-			simpleTextFormatReader.retrieveObservations();
+			simpleTextFormatReader.retrieve();
 
 			List<ValidObservation> obs = simpleTextFormatReader
 					.getValidObservations();
@@ -230,6 +263,143 @@ public class TextFormatObservationReaderTest extends TestCase {
 		}
 	}
 
+	// Parallel validation yields the same observations, in the same order and
+	// with the same record numbers, as sequential validation.
+	public void testParallelValidationAgreesWithSequential() throws Exception {
+		StringBuffer lines = new StringBuffer();
+		lines.append("# JD,MAG\n");
+		lines.append("JD,MAG\n");
+		for (int i = 0; i < 3 * TextFormatObservationReader.CHUNK_SIZE; i++) {
+			if (i % 1000 == 500) {
+				lines.append("2450000.5,foo\n");
+			} else if (i % 1000 == 700) {
+				lines.append("\n");
+			}
+			lines.append(2450000.5 + (i * 7919) % 10007);
+			lines.append(",");
+			lines.append(10 + (i % 100) / 100.0);
+			lines.append("\n");
+		}
+
+		TextFormatObservationReader sequential = reader(lines.toString(), 1);
+		sequential.retrieve();
+
+		TextFormatObservationReader parallel = reader(lines.toString(), 4);
+		parallel.retrieve();
+
+		List<ValidObservation> expected = sequential.getValidObservations();
+		List<ValidObservation> actual = parallel.getValidObservations();
+
+		assertEquals(3 * TextFormatObservationReader.CHUNK_SIZE,
+				expected.size());
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getJD(), actual.get(i).getJD());
+			assertEquals(expected.get(i).getMag(), actual.get(i).getMag());
+			assertEquals(expected.get(i).getRecordNumber(), actual.get(i)
+					.getRecordNumber());
+		}
+
+		assertEquals(sequential.getInvalidObservations().size(), parallel
+				.getInvalidObservations().size());
+		for (int i = 0; i < sequential.getInvalidObservations().size(); i++) {
+			assertEquals(sequential.getInvalidObservations().get(i)
+					.getRecordNumber(), parallel.getInvalidObservations()
+					.get(i).getRecordNumber());
+		}
+	}
+
+	// Records rejected by the predicate are skipped, even if invalid, whether
+	// validated sequentially or in parallel.
+	public void testPredicateAppliedToAAVSODownload() throws Exception {
+		StringBuffer lines = new StringBuffer();
+		lines.append("2454531.5,8.4,,,V,FOO,,89,92,80320,,No,1.143,G,8.9,,,W UMA,,STD,,\n");
+		lines.append("2454532.5,9.2,,,B,FOO,,89,92,80320,,No,1.143,G,9.9,,,W UMA,,STD,,\n");
+		lines.append("2454533.5,8.5,,,V,BAR,,89,92,80320,,No,1.143,G,8.9,,,W UMA,,STD,,\n");
+		lines.append("2454534.5,foo,,,B,FOO,,89,92,80320,,No,1.143,G,8.9,,,W UMA,,STD,,\n");
+		lines.append("2454535.5,8.6,,,V,FOO,,89,92,80320,,No,1.143,G,8.9,,,W UMA,,STD,,\n");
+		lines.append("2454536.5,8.7,,,V,FOO,,89,92,80320,,No,1.143,G,8.9,,,W UMA,,STD,,\n");
+		lines.append("2454536.7,foo,,,V,FOO,,89,92,80320,,No,1.143,G,8.9,,,W UMA,,STD,,\n");
+
+		ObservationPredicate predicate = new ObservationPredicate(null,
+				2454535.5, new HashSet<SeriesType>(
+						Arrays.asList(SeriesType.Johnson_V)),
+				new HashSet<String>(Arrays.asList("FOO")));
+
+		for (int threadCount : new int[] { 1, 4 }) {
+			TextFormatObservationReader reader = reader(lines.toString(),
+					threadCount);
+			reader.setPredicate(predicate);
+			reader.retrieve();
+
+			List<ValidObservation> obs = reader.getValidObservations();
+			assertEquals(2, obs.size());
+			assertEquals(2454531.5, obs.get(0).getJD());
+			assertEquals(1, obs.get(0).getRecordNumber());
+			assertEquals(2454535.5, obs.get(1).getJD());
+			assertEquals(5, obs.get(1).getRecordNumber());
+
+			assertTrue(reader.getInvalidObservations().isEmpty());
+		}
+	}
+
+	// A format without bands has unspecified bands.
+	public void testPredicateAppliedToSimpleFormat() throws Exception {
+		StringBuffer lines = new StringBuffer();
+		lines.append("2450001.5,10.0\n");
+		lines.append("2450002.5,foo\n");
+		lines.append("2450003.5,11.0\n");
+
+		TextFormatObservationReader reader = reader(lines.toString(), 1);
+		reader.setPredicate(new ObservationPredicate(2450002.0, null, null,
+				null));
+		reader.retrieve();
+
+		assertEquals(1, reader.getValidObservations().size());
+		assertEquals(2450003.5, reader.getValidObservations().get(0).getJD());
+		assertEquals(1, reader.getInvalidObservations().size());
+
+		reader = reader(lines.toString(), 1);
+		reader.setPredicate(new ObservationPredicate(null, null,
+				new HashSet<SeriesType>(Arrays.asList(SeriesType.Unspecified)),
+				null));
+		reader.retrieve();
+		assertEquals(2, reader.getValidObservations().size());
+
+		reader = reader(lines.toString(), 1);
+		reader.setPredicate(new ObservationPredicate(null, null,
+				new HashSet<SeriesType>(Arrays.asList(SeriesType.Johnson_V)),
+				null));
+		reader.retrieve();
+		assertTrue(reader.getValidObservations().isEmpty());
+		assertTrue(reader.getInvalidObservations().isEmpty());
+	}
+
+	// More comment lines precede the data than the analyser unreads; those
+	// skipped are still read as comments, so directives and record numbers
+	// are unaffected.
+	public void testLongCommentHeader() throws Exception {
+		StringBuffer lines = new StringBuffer();
+		lines.append("#NAME=Long Header\n");
+		for (int i = 1; i < 2500; i++) {
+			lines.append(i % 100 == 0 ? "\n" : "# comment " + i + "\n");
+		}
+		lines.append("2450001.5,10.0\n");
+		lines.append("2450002.5,10.1\n");
+
+		TextFormatObservationReader reader = reader(lines.toString(), 1);
+		reader.retrieve();
+
+		List<ValidObservation> obs = reader.getValidObservations();
+		assertEquals(2, obs.size());
+		assertEquals(2450001.5, obs.get(0).getJD());
+		// Empty lines are not records.
+		assertEquals(2477, obs.get(0).getRecordNumber());
+		assertEquals(2478, obs.get(1).getRecordNumber());
+		assertEquals("LONG HEADER", reader.getStarInfo().getDesignation());
+	}
+
 	// Tests with invalid data.
 
 	// No digit after the magnitude decimal point. Although the format spec says
@@ -278,7 +448,7 @@ public class TextFormatObservationReaderTest extends TestCase {
 					new LineNumberReader(new StringReader(str)), analyser,
 					velaFilterStr);
 
-			simpleTextFormatReader.retrieveObservations();
+			simpleTextFormatReader.retrieve();
 			obs = simpleTextFormatReader.getValidObservations();
 		} catch (Exception e) {
 			fail(e.getMessage());
@@ -287,6 +457,21 @@ public class TextFormatObservationReaderTest extends TestCase {
 		return obs;
 	}
 
+	private TextFormatObservationReader reader(String str, int threadCount)
+			throws Exception {
+		LineNumberReader lineReader = new LineNumberReader(new StringReader(
+				str));
+		ObservationSourceAnalyser analyser = new ObservationSourceAnalyser(
+				lineReader, "Some String");
+		analyser.analyseHead(ObservationSourceAnalyser.DEFAULT_HEAD_LINES);
+
+		TextFormatObservationReader reader = new TextFormatObservationReader(
+				lineReader, analyser, (long) str.length(), "");
+		reader.setThreadCount(threadCount);
+
+		return reader;
+	}
+
 	private void commonInvalidTest(String str) throws IOException {
 		try {
 			CsvReader reader = new CsvReader(new StringReader(str));
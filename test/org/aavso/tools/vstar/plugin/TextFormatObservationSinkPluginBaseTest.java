@@ -0,0 +1,103 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2010  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>. 
+ */
+package org.aavso.tools.vstar.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * Unit tests for TextFormatObservationSinkPluginBase.
+ */
+public class TextFormatObservationSinkPluginBaseTest extends TestCase {
+
+	public TextFormatObservationSinkPluginBaseTest(String name) {
+		super(name);
+	}
+
+	public void testTextSavedToStream() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new TestSink().save(out, obs(), ",");
+
+		assertEquals("2450000.5,10.5,\n2450001.5,11.0,\u00e9toile\n",
+				new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	public void testTextSavedInCharset() throws IOException {
+		TestSink plugin = new TestSink() {
+			@Override
+			public Charset getCharset() {
+				return StandardCharsets.ISO_8859_1;
+			}
+		};
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		plugin.save(out, obs(), " ");
+
+		assertEquals("2450000.5 10.5 \n2450001.5 11.0 \u00e9toile\n",
+				new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+	}
+
+	// Helpers
+
+	private List<ValidObservation> obs() {
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+		obs.add(ob(2450000.5, 10.5, ""));
+		obs.add(ob(2450001.5, 11.0, "\u00e9toile"));
+		return obs;
+	}
+
+	private ValidObservation ob(double jd, double mag, String comments) {
+		ValidObservation ob = new ValidObservation();
+		ob.setDateInfo(new DateInfo(jd));
+		ob.setMagnitude(new Magnitude(mag, 0));
+		ob.setComments(comments);
+		return ob;
+	}
+
+	private static class TestSink extends TextFormatObservationSinkPluginBase {
+		@Override
+		public void save(PrintWriter writer, List<ValidObservation> obs,
+				String delimiter) throws IOException {
+			for (ValidObservation ob : obs) {
+				writer.print(ob.getJD() + delimiter + ob.getMag() + delimiter
+						+ ob.getComments() + "\n");
+			}
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Test";
+		}
+
+		@Override
+		public String getDescription() {
+			return "Test sink";
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.plugin.ob.src.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+import com.csvreader.CsvReader;
+
+/**
+ * Unit tests for AIDPageReader.
+ */
+public class AIDPageReaderTest extends TestCase {
+
+	public AIDPageReaderTest(String name) {
+		super(name);
+	}
+
+	public void testCountElementBeforeData() throws Exception {
+		AIDPageReader page = reader("<VSXObject><Count>1234</Count>"
+				+ "<Data><![CDATA[obsID,JD\n1,2450000.1\n]]></Data></VSXObject>");
+
+		try {
+			assertTrue(page.nextElement("Data"));
+			assertEquals(Integer.valueOf(1234), page.getObsCount());
+			assertEquals("obsID,JD\n1,2450000.1\n",
+					read(page.getElementTextReader()));
+			page.finish();
+			assertEquals(1, page.getDataElementCount());
+			assertEquals(Integer.valueOf(3), page.getNextPageNum(2));
+		} finally {
+			page.close();
+		}
+	}
+
+	public void testCountElementAfterData() throws Exception {
+		AIDPageReader page = reader("<VSXObject><Data><![CDATA[obsID,JD\n]]>"
+				+ "</Data><Count>10</Count></VSXObject>");
+
+		try {
+			assertTrue(page.nextElement("Data"));
+			assertNull(page.getObsCount());
+			read(page.getElementTextReader());
+			page.finish();
+			assertEquals(Integer.valueOf(10), page.getObsCount());
+		} finally {
+			page.close();
+		}
+	}
+
+	public void testNoCountOnLastPage() throws Exception {
+		AIDPageReader page = reader("<VSXObject><Data><![CDATA[obsID,JD\n]]>"
+				+ "</Data></VSXObject>");
+
+		try {
+			assertTrue(page.nextElement("Data"));
+			read(page.getElementTextReader());
+			page.finish();
+			assertNull(page.getObsCount());
+			assertNull(page.getNextPageNum(1));
+		} finally {
+			page.close();
+		}
+	}
+
+	public void testNoData() throws Exception {
+		AIDPageReader page = reader("<VSXObject Name=\"TEST\"></VSXObject>");
+
+		try {
+			assertFalse(page.nextElement("Data"));
+			assertEquals(0, page.getDataElementCount());
+		} finally {
+			page.close();
+		}
+	}
+
+	public void testObservationAttributes() throws Exception {
+		AIDPageReader page = reader("<VSXObject><Data Count=\"500\">"
+				+ "<Observation Id=\"1\" JD=\"2450000.5\" Mag=\"10.1\"/>"
+				+ "<Observation Id=\"2\" JD=\"2450001.5\" Mag=\"&lt;11\"/>"
+				+ "</Data></VSXObject>");
+
+		try {
+			assertTrue(page.nextElement("Observation"));
+			assertEquals(Integer.valueOf(500), page.getObsCount());
+			assertEquals(3, page.getAttributeCount());
+			assertEquals("Id", page.getAttributeName(0));
+			assertEquals("1", page.getAttributeValue(0));
+			assertEquals("JD", page.getAttributeName(1));
+			assertEquals("2450000.5", page.getAttributeValue(1));
+
+			assertTrue(page.nextElement("Observation"));
+			assertEquals("<11", page.getAttributeValue(2));
+
+			assertFalse(page.nextElement("Observation"));
+			assertEquals(1, page.getDataElementCount());
+		} finally {
+			page.close();
+		}
+	}
+
+	public void testLongCSVDataStreamed() throws Exception {
+		final int rows = 20000;
+
+		StringBuilder xml = new StringBuilder(
+				"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		xml.append("<VSXObject><Data><![CDATA[obsID,JD,mag\n");
+		for (int i = 1; i <= rows; i++) {
+			xml.append(i + "," + (2450000 + i * 0.1) + ",10.5\n");
+		}
+		xml.append("]]></Data></VSXObject>");
+
+		AIDPageReader page = reader(xml.toString());
+
+		try {
+			assertTrue(page.nextElement("Data"));
+
+			CsvReader csvReader = new CsvReader(page.getElementTextReader());
+			assertTrue(csvReader.readHeaders());
+			assertEquals("obsID", csvReader.getHeader(0));
+
+			int n = 0;
+			while (csvReader.readRecord()) {
+				n++;
+				assertEquals(Integer.toString(n), csvReader.get("obsID"));
+			}
+			assertEquals(rows, n);
+
+			page.finish();
+			assertEquals(1, page.getDataElementCount());
+		} finally {
+			page.close();
+		}
+	}
+
+	public void testElementInTextIsAnError() throws Exception {
+		AIDPageReader page = reader("<VSXObject><Data>obsID<b/></Data></VSXObject>");
+
+		try {
+			assertTrue(page.nextElement("Data"));
+			read(page.getElementTextReader());
+			fail();
+		} catch (IOException e) {
+			// Expected.
+		} finally {
+			page.close();
+		}
+	}
+
+	// Helpers
+
+	private AIDPageReader reader(String xml) throws Exception {
+		InputStream stream = new ByteArrayInputStream(
+				xml.getBytes(StandardCharsets.UTF_8));
+		return new AIDPageReader(stream);
+	}
+
+	private String read(Reader reader) throws IOException {
+		StringBuilder text = new StringBuilder();
+		char[] buf = new char[7];
+		int n;
+		while ((n = reader.read(buf, 0, buf.length)) != -1) {
+			text.append(buf, 0, n);
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.plugin.ob.src.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.input.ObservationPredicate;
+import org.aavso.tools.vstar.input.cache.ObservationCache;
+import org.aavso.tools.vstar.ui.mediator.StarInfo;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit tests for AID retrieval via the observation cache, against a local
+ * stand-in for the VSX web service.
+ */
+public class AIDWebServiceObservationCacheTest extends TestCase {
+
+	private static final double FIRST_JD = 2450000;
+	private static final int OBS = 100;
+
+	private File dir;
+	private ObservationCache cache;
+	private HttpServer server;
+	private AtomicInteger requests;
+
+	public AIDWebServiceObservationCacheTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		dir = Files.createTempDirectory("vstar_cache_test").toFile();
+		cache = new ObservationCache(dir, 1024 * 1024);
+		requests = new AtomicInteger();
+		server = startServer();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop(0);
+		cache.clear();
+		dir.delete();
+	}
+
+	public void testMissServedFromSourceThenCached() throws Exception {
+		List<ValidObservation> obs = retrieve(FIRST_JD, FIRST_JD + 50, false);
+		assertEquals(51, obs.size());
+		assertEquals(1, requests.get());
+
+		ObservationCache.Entry entry = cache.get(key());
+		assertNotNull(entry);
+		assertTrue(entry.covers(FIRST_JD, FIRST_JD + 50));
+		assertEquals(51, entry.size());
+	}
+
+	public void testCoveredRangeServedFromCache() throws Exception {
+		List<ValidObservation> expected = retrieve(FIRST_JD + 20,
+				FIRST_JD + 30, false);
+
+		retrieve(FIRST_JD, FIRST_JD + 50, false);
+		requests.set(0);
+
+		List<ValidObservation> obs = retrieve(FIRST_JD + 20, FIRST_JD + 30,
+				false);
+		assertEquals(0, requests.get());
+		assertEquals(expected, obs);
+	}
+
+	public void testOnlyTailRetrieved() throws Exception {
+		List<ValidObservation> expected = retrieve(FIRST_JD + 10,
+				FIRST_JD + 80, true);
+
+		retrieve(FIRST_JD, FIRST_JD + 50, true);
+		requests.set(0);
+
+		List<ValidObservation> obs = retrieve(FIRST_JD + 10, FIRST_JD + 80,
+				false);
+		assertEquals(1, requests.get());
+		assertEquals(expected, obs);
+
+		// The entry now covers both ranges.
+		ObservationCache.Entry entry = cache.get(key());
+		assertTrue(entry.covers(FIRST_JD, FIRST_JD + 80));
+		assertEquals(81, entry.size());
+	}
+
+	public void testRefreshRetrievesAll() throws Exception {
+		retrieve(FIRST_JD, FIRST_JD + 50, false);
+		requests.set(0);
+
+		List<ValidObservation> obs = retrieve(FIRST_JD, FIRST_JD + 50, true);
+		assertEquals(1, requests.get());
+		assertEquals(51, obs.size());
+	}
+
+	public void testSelectorCriteriaPushedDown() throws Exception {
+		retrieve(FIRST_JD, FIRST_JD + 50, false);
+
+		// Served from the cache, restricted to the selected JD range, band
+		// and observer.
+		ObservationPredicate predicate = AIDWebServiceObservationSourcePluginBase
+				.createPredicate(FIRST_JD + 20, FIRST_JD + 30,
+						Arrays.asList(SeriesType.Johnson_V), "abc,DEF");
+		List<ValidObservation> obs = retrieve(FIRST_JD + 20, FIRST_JD + 30,
+				false, predicate);
+		assertEquals(11, obs.size());
+		assertEquals(FIRST_JD + 20, obs.get(0).getJD());
+		assertEquals(FIRST_JD + 30, obs.get(obs.size() - 1).getJD());
+
+		predicate = AIDWebServiceObservationSourcePluginBase.createPredicate(
+				null, null, Arrays.asList(SeriesType.Visual), null);
+		obs = retrieve(FIRST_JD, FIRST_JD + 50, false, predicate);
+		assertTrue(obs.isEmpty());
+
+		predicate = AIDWebServiceObservationSourcePluginBase.createPredicate(
+				null, null, new ArrayList<SeriesType>(), "XYZ");
+		obs = retrieve(FIRST_JD, FIRST_JD + 50, false, predicate);
+		assertTrue(obs.isEmpty());
+	}
+
+	// Helpers
+
+	private ObservationCache.Key key() {
+		return new ObservationCache.Key("test", "000-TEST", "");
+	}
+
+	// Retrieve observations for a JD range, as the plug-in does once its
+	// URLs have been added.
+	private List<ValidObservation> retrieve(double minJD, double maxJD,
+			boolean refresh) throws Exception {
+		return retrieve(minJD, maxJD, refresh, ObservationPredicate.ALL);
+	}
+
+	private List<ValidObservation> retrieve(double minJD, double maxJD,
+			boolean refresh, ObservationPredicate predicate) throws Exception {
+		AIDWebServiceCSV2ObservationSourcePlugin obsSource = new AIDWebServiceCSV2ObservationSourcePlugin();
+		obsSource.setPredicate(predicate);
+		obsSource.setObservationCache(cache);
+		obsSource.setRefreshCache(refresh);
+		StarInfo info = new StarInfo(null, "TEST", "000-TEST");
+		obsSource.setInfo(info);
+
+		obsSource.urlStrs = new ArrayList<String>();
+		Double fromJD = obsSource.lookUpCache(key(), minJD, maxJD);
+		if (fromJD != null) {
+			obsSource.urlStrs.add("http://127.0.0.1:"
+					+ server.getAddress().getPort()
+					+ "/vsx/index.php?view=api.object&fromjd=" + fromJD
+					+ "&tojd=" + maxJD + "&csv");
+		}
+
+		AbstractObservationRetriever retriever = obsSource
+				.createObservationRetriever();
+		retriever.retrieve();
+
+		return retriever.getValidObservations();
+	}
+
+	// A stand-in for the VSX web service, serving one page of CSV
+	// observations, one per day, in the requested JD range.
+	private HttpServer startServer() throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(
+				"127.0.0.1", 0), 0);
+
+		server.createContext("/vsx", exchange -> {
+			requests.incrementAndGet();
+
+			Map<String, String> params = new HashMap<String, String>();
+			for (String param : exchange.getRequestURI().getQuery().split("&")) {
+				String[] pair = param.split("=");
+				params.put(pair[0], pair.length == 2 ? pair[1] : "");
+			}
+
+			double fromJD = Double.parseDouble(params.get("fromjd"));
+			double toJD = Double.parseDouble(params.get("tojd"));
+
+			StringBuilder page = new StringBuilder(
+					"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			page.append("<VSXObject Name=\"TEST\">");
+			page.append("<Data><![CDATA[obsID,JD,mag,uncert,band,by,val\n");
+			for (int i = 0; i < OBS; i++) {
+				double jd = FIRST_JD + i;
+				if (fromJD <= jd && jd <= toJD) {
+					page.append((i + 1) + "," + jd + "," + (10 + (i % 20) / 10.0)
+							+ ",0.01,V,ABC,V\n");
+				}
+			}
+			page.append("]]></Data>");
+			page.append("</VSXObject>");
+
+			byte[] bytes = page.toString().getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, bytes.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(bytes);
+			out.close();
+		});
+
+		server.start();
+
+		return server;
+	}
+}
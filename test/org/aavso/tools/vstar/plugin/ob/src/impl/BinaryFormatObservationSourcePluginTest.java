@@ -0,0 +1,210 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.plugin.ob.src.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.data.ValidObservation.JDflavour;
+import org.aavso.tools.vstar.input.AbstractObservationRetriever;
+import org.aavso.tools.vstar.plugin.ob.sink.impl.BinaryFormatObservationSinkPlugin;
+
+/**
+ * Unit tests for VStar binary dataset files, saved by
+ * BinaryFormatObservationSinkPlugin and read by
+ * BinaryFormatObservationSourcePlugin.
+ */
+public class BinaryFormatObservationSourcePluginTest extends TestCase {
+
+	private File file;
+
+	public BinaryFormatObservationSourcePluginTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("vstar_test", ".vstar");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testSaveLoadFile() throws Exception {
+		List<ValidObservation> obs = obs(10000, false);
+		obs.get(7).addDetail("BINARY_TEST_COUNT", 42, "Count");
+
+		save(obs);
+
+		AbstractObservationRetriever retriever = load(new FileInputStream(
+				file));
+
+		assertTrue(retriever.isSourceOrdered());
+		assertEquals(Integer.valueOf(obs.size()),
+				retriever.getNumberOfRecords());
+
+		List<ValidObservation> loaded = retriever.getValidObservations();
+		assertEquals(obs, loaded);
+
+		for (int i = 0; i < obs.size(); i++) {
+			assertEquals(obs.get(i).getRecordNumber(), loaded.get(i)
+					.getRecordNumber());
+			assertEquals(obs.get(i).getDetails(), loaded.get(i).getDetails());
+		}
+
+		assertEquals(42, (int) loaded.get(7)
+				.getDetail("BINARY_TEST_COUNT").getIntVal());
+
+		assertEquals(obs.size() / 2, retriever
+				.getValidObservationCategoryMap().get(SeriesType.Visual).size());
+	}
+
+	public void testSaveLoadStream() throws Exception {
+		List<ValidObservation> obs = obs(100, false);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BinaryFormatObservationSinkPlugin().save(out, obs, "");
+
+		AbstractObservationRetriever retriever = load(new ByteArrayInputStream(
+				out.toByteArray()));
+
+		assertEquals(obs, retriever.getValidObservations());
+	}
+
+	public void testExcludedObservationsNotSaved() throws Exception {
+		List<ValidObservation> obs = obs(100, false);
+		obs.get(10).setExcluded(true);
+
+		save(obs);
+
+		List<ValidObservation> loaded = load(new FileInputStream(file))
+				.getValidObservations();
+
+		assertEquals(99, loaded.size());
+		assertFalse(loaded.contains(obs.get(10)));
+	}
+
+	public void testUnorderedObservationsSorted() throws Exception {
+		List<ValidObservation> obs = obs(1000, true);
+
+		save(obs);
+
+		AbstractObservationRetriever retriever = load(new FileInputStream(
+				file));
+
+		assertFalse(retriever.isSourceOrdered());
+
+		List<ValidObservation> loaded = retriever.getValidObservations();
+		assertEquals(obs.size(), loaded.size());
+		for (int i = 1; i < loaded.size(); i++) {
+			assertTrue(loaded.get(i - 1).getJD() <= loaded.get(i).getJD());
+		}
+	}
+
+	public void testOtherFileRejected() throws Exception {
+		OutputStream out = new FileOutputStream(file);
+		out.write("JD,Magnitude\n2450000.5,10.1\n".getBytes());
+		out.close();
+
+		try {
+			load(new FileInputStream(file));
+			fail();
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	public void testTruncatedFileRejected() throws Exception {
+		save(obs(100, false));
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+
+		try {
+			load(new ByteArrayInputStream(Arrays.copyOf(bytes,
+					bytes.length / 2)));
+			fail();
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+
+	// Helpers
+
+	private void save(List<ValidObservation> obs) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			new BinaryFormatObservationSinkPlugin().save(out, obs, "");
+		} finally {
+			out.close();
+		}
+	}
+
+	private AbstractObservationRetriever load(InputStream stream)
+			throws Exception {
+		try {
+			BinaryFormatObservationSourcePlugin plugin = new BinaryFormatObservationSourcePlugin();
+			List<InputStream> streams = new ArrayList<InputStream>();
+			streams.add(stream);
+			plugin.setInputInfo(streams, file.getName());
+
+			AbstractObservationRetriever retriever = plugin
+					.getObservationRetriever();
+			retriever.retrieve();
+
+			return retriever;
+		} finally {
+			stream.close();
+		}
+	}
+
+	private List<ValidObservation> obs(int n, boolean reversed) {
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+
+		for (int i = 0; i < n; i++) {
+			int day = reversed ? n - i : i;
+			ValidObservation ob = new ValidObservation();
+			ob.setRecordNumber(i + 1);
+			ob.setDateInfo(new DateInfo(2450000 + day / 10.0));
+			ob.setMagnitude(new Magnitude(10 + (i % 50) / 10.0, 0.01));
+			ob.setBand(i % 2 == 0 ? SeriesType.Visual : SeriesType.Johnson_V);
+			ob.setObsCode("OBS" + (i % 3));
+			ob.setJDflavour(JDflavour.JD);
+			obs.add(ob);
+		}
+
+		return obs;
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.ui.mediator.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DatasetFingerprint;
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.aavso.tools.vstar.ui.mediator.NewStarType;
+
+/**
+ * Unit tests for NewStarMessage.
+ */
+public class NewStarMessageTest extends TestCase {
+
+	public NewStarMessageTest(String name) {
+		super(name);
+	}
+
+	public void testFingerprintComputedOnceWhenRequested() {
+		Map<SeriesType, List<ValidObservation>> map = new TreeMap<SeriesType, List<ValidObservation>>();
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+		obs.add(ob(2450000, 10));
+		map.put(SeriesType.Visual, obs);
+
+		NewStarMessage msg = new NewStarMessage(NewStarType.NEW_STAR_FROM_SIMPLE_FILE,
+				null, obs, map, 10, 10, "test");
+
+		// Not computed when the message is created...
+		obs.add(ob(2450001, 11));
+
+		DatasetFingerprint fingerprint = msg.getFingerprint();
+		assertEquals(new DatasetFingerprint(map), fingerprint);
+
+		// ...but kept once computed.
+		obs.add(ob(2450002, 12));
+		assertSame(fingerprint, msg.getFingerprint());
+	}
+
+	public void testFingerprintRecomputedAfterEdits() {
+		Map<SeriesType, List<ValidObservation>> map = new TreeMap<SeriesType, List<ValidObservation>>();
+		List<ValidObservation> obs = new ArrayList<ValidObservation>();
+		obs.add(ob(2450000, 10));
+		obs.add(ob(2450001, 11));
+		map.put(SeriesType.Visual, obs);
+
+		NewStarMessage msg = new NewStarMessage(NewStarType.NEW_STAR_FROM_SIMPLE_FILE,
+				null, obs, map, 10, 11, "test");
+
+		DatasetFingerprint fingerprint = msg.getFingerprint();
+
+		obs.get(0).setExcluded(true);
+		DatasetFingerprint excludedFingerprint = msg.getFingerprint();
+		assertFalse(fingerprint.equals(excludedFingerprint));
+		assertEquals(new DatasetFingerprint(map), excludedFingerprint);
+
+		obs.get(1).setDiscrepant(true);
+		DatasetFingerprint discrepantFingerprint = msg.getFingerprint();
+		assertFalse(excludedFingerprint.equals(discrepantFingerprint));
+		assertEquals(new DatasetFingerprint(map), discrepantFingerprint);
+
+		obs.get(0).setStandardPhase(0.5);
+		assertEquals(new DatasetFingerprint(map), msg.getFingerprint());
+	}
+
+	// Helpers
+
+	private ValidObservation ob(double jd, double mag) {
+		ValidObservation ob = new ValidObservation();
+		ob.setDateInfo(new DateInfo(jd));
+		ob.setMagnitude(new Magnitude(mag, 0.01));
+		ob.setBand(SeriesType.Visual);
+		return ob;
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+/**
+ * Unit tests for Interner.
+ */
+public class InternerTest extends TestCase {
+
+	public InternerTest(String name) {
+		super(name);
+	}
+
+	public void testEqualValuesShareInstance() {
+		Interner<String> interner = new Interner<String>();
+
+		String a = new String("PTQ");
+		String b = new String("PTQ");
+
+		assertSame(a, interner.intern(a));
+		assertSame(a, interner.intern(b));
+		assertNull(interner.intern(null));
+
+		assertEquals(1, interner.size());
+		assertEquals(1, interner.getHitCount());
+		assertEquals(1, interner.getMissCount());
+		assertEquals(0.5, interner.getHitRate());
+	}
+
+	public void testStatisticsResetAndClear() {
+		Interner<String> interner = new Interner<String>(4);
+		assertEquals(0.0, interner.getHitRate());
+
+		String a = new String("V");
+		interner.intern(a);
+		interner.intern(new String("V"));
+
+		interner.resetStatistics();
+		assertEquals(0, interner.getHitCount());
+		assertEquals(0, interner.getMissCount());
+		assertSame(a, interner.intern(new String("V")));
+
+		interner.clear();
+		assertEquals(0, interner.size());
+		assertNotSame(a, interner.intern(new String("V")));
+	}
+
+	public void testDiscardedInstancesRemoved() throws Exception {
+		Interner<String> interner = new Interner<String>();
+
+		for (int i = 0; i < 100; i++) {
+			interner.intern(new String("OBS" + i));
+		}
+
+		for (int i = 0; i < 50 && interner.size() != 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertEquals(0, interner.size());
+
+		// A value equal to a discarded instance becomes canonical.
+		String a = new String("OBS0");
+		assertSame(a, interner.intern(a));
+		assertEquals(1, interner.size());
+	}
+
+	public void testConcurrentInterningYieldsOneInstancePerValue()
+			throws Exception {
+		final Interner<String> interner = new Interner<String>();
+		final int values = 1000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<String[]>> futures = new ArrayList<Future<String[]>>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(new Callable<String[]>() {
+					@Override
+					public String[] call() {
+						String[] interned = new String[values];
+						for (int i = 0; i < values; i++) {
+							interned[i] = interner.intern(new String("OBS" + i));
+						}
+						return interned;
+					}
+				}));
+			}
+
+			String[] first = futures.get(0).get();
+			for (Future<String[]> future : futures) {
+				String[] interned = future.get();
+				for (int i = 0; i < values; i++) {
+					assertSame(first[i], interned[i]);
+				}
+			}
+
+			assertEquals(values, interner.getMissCount());
+			assertEquals(3 * values, interner.getHitCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testObservationValuesInterned() {
+		ValidObservation ob1 = new ValidObservation();
+		ob1.setDateInfo(new DateInfo(2450000.123));
+		ob1.setMagnitude(new Magnitude(10, 0));
+		ob1.setObsCode("ABC");
+
+		ValidObservation.getDateInfoInterner().resetStatistics();
+		assertEquals(0, ValidObservation.getDateInfoInterner().getHitCount());
+
+		ValidObservation ob2 = new ValidObservation();
+		ob2.setDateInfo(new DateInfo(2450000.123));
+		ob2.setObsCode("ABC");
+
+		assertSame(ob1.getDateInfo(), ob2.getDateInfo());
+		assertSame(ob1.getDetail("OBS_CODE"), ob2.getDetail("OBS_CODE"));
+		assertTrue(ValidObservation.getDateInfoInterner().getHitCount() > 0);
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+/**
+ * Java method executor unit tests, covering primitive double functions and
+ * other methods invoked via method handles.
+ */
+public class JavaMethodExecutorTest extends TestCase {
+
+    private VeLaInterpreter vela;
+
+    public JavaMethodExecutorTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+        vela = new VeLaInterpreter(false, false, Collections.emptyList());
+    }
+
+    public void testUnaryDoubleFunction() {
+        FunctionExecutor sin = function("SIN", Type.REAL);
+
+        for (double x = -10; x < 10; x += 0.25) {
+            assertEquals(Math.sin(x), sin.invokeAsDouble(x));
+            assertEquals(Math.sin(x), sin.invoke(new Operand(Type.REAL, x)).get().doubleVal());
+        }
+    }
+
+    public void testBinaryDoubleFunction() {
+        assertEquals(Math.atan2(1, 2), vela.program("atan2(1.0 2.0)").get().doubleVal());
+        assertEquals(Math.atan2(1, 2), function("ATAN2", Type.REAL, Type.REAL)
+                .invoke(new Operand(Type.REAL, 1.0), new Operand(Type.REAL, 2.0)).get().doubleVal());
+    }
+
+    public void testIntegerParametersConverted() {
+        Operand result = vela.program("pow(2 10)").get();
+        assertEquals(Type.REAL, result.getType());
+        assertEquals(1024.0, result.doubleVal());
+    }
+
+    public void testMixedParameterTypes() {
+        Operand result = vela.program("scalb(1.5 3)").get();
+        assertEquals(Type.REAL, result.getType());
+        assertEquals(12.0, result.doubleVal());
+    }
+
+    public void testIntegerResult() {
+        Operand result = vela.program("max(3 7)").get();
+        assertEquals(Type.INTEGER, result.getType());
+        assertEquals(7, result.intVal());
+    }
+
+    public void testInstanceMethod() {
+        Operand result = vela.program("substring(\"variable\" 2 5)").get();
+        assertEquals(Type.STRING, result.getType());
+        assertEquals("ria", result.stringVal());
+    }
+
+    public void testMethodException() {
+        try {
+            vela.program("substring(\"variable\" 42)");
+            fail();
+        } catch (VeLaEvalError e) {
+            assertEquals("Intrinsic function invocation error: SUBSTRING", e.getMessage());
+        }
+    }
+
+    // Helpers
+
+    private FunctionExecutor function(String name, Type... types) {
+        for (FunctionExecutor function : vela.lookupFunctions(name).get()) {
+            if (function.getParameterTypes().equals(Arrays.asList(types))) {
+                return function;
+            }
+        }
+
+        fail("No function " + name);
+        return null;
+    }
+}
@@ -269,4 +269,31 @@ public class OperandTest extends TestCase {
         assertEquals(op.convert(Type.REAL), new Operand(Type.REAL, 42.0));
     }
 
-}
\ No newline at end of file
+    // Representation
+
+    public void testScalarAccessorsOfOtherKinds() {
+        Operand op = new Operand(Type.INTEGER, 4.2);
+        assertEquals(0, op.intVal());
+        assertEquals(4.2, op.doubleVal());
+        assertFalse(op.booleanVal());
+        assertNull(op.stringVal());
+        assertNull(op.listVal());
+    }
+
+    public void testSharedValues() {
+        assertSame(Operand.valueOf(true), Operand.valueOf(1 < 2));
+        assertSame(Operand.valueOf(42), Operand.valueOf(42L));
+        assertEquals(new Operand(Type.INTEGER, 1L << 40), Operand.valueOf(1L << 40));
+        assertEquals(new Operand(Type.BOOLEAN, false), Operand.valueOf(false));
+    }
+
+    public void testDoubleArrayToRealList() {
+        double[] obj = new double[] { 4.2, 42.0 };
+        Operand actual = Operand.object2Operand(Type.LIST, obj);
+        assertTrue(actual.listVal() instanceof RealList);
+        obj[0] = 0;
+        assertEquals(new Operand(Type.LIST, Arrays.asList(new Operand(Type.REAL, 4.2), new Operand(Type.REAL, 42.0))),
+                actual);
+        assertTrue(Arrays.equals(new double[] { 4.2, 42.0 }, (double[]) actual.toObject(double[].class)));
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+/**
+ * Real list unit tests.
+ */
+public class RealListTest extends TestCase {
+
+    private VeLaInterpreter vela;
+
+    public RealListTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+        vela = new VeLaInterpreter(false, false, Collections.emptyList());
+    }
+
+    public void testEqualToOperandList() {
+        RealList reals = new RealList(new double[] { 1.5, 2.5 });
+        List<Operand> operands = Arrays.asList(new Operand(Type.REAL, 1.5), new Operand(Type.REAL, 2.5));
+
+        assertEquals(operands, reals);
+        assertEquals(reals, operands);
+        assertEquals(operands.hashCode(), reals.hashCode());
+        assertEquals(operands.toString(), reals.toString());
+        assertTrue(reals.contains(new Operand(Type.REAL, 2.5)));
+        assertFalse(reals.contains(new Operand(Type.INTEGER, 2)));
+    }
+
+    public void testImmutable() {
+        try {
+            new RealList(new double[] { 1 }).add(new Operand(Type.REAL, 2.0));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+    }
+
+    public void testBuilderOfReals() {
+        RealList.Builder builder = new RealList.Builder(1);
+        for (int i = 0; i < 100; i++) {
+            builder.add(new Operand(Type.REAL, i / 2.0));
+        }
+
+        List<Operand> list = builder.build();
+        assertTrue(list instanceof RealList);
+        assertEquals(100, list.size());
+        assertEquals(49.5, list.get(99).doubleVal());
+    }
+
+    public void testBuilderOfMixedTypes() {
+        RealList.Builder builder = new RealList.Builder();
+        builder.add(1.5);
+        builder.add(Operand.valueOf(2));
+        builder.add(2.5);
+
+        List<Operand> expected = new ArrayList<Operand>();
+        expected.add(new Operand(Type.REAL, 1.5));
+        expected.add(new Operand(Type.INTEGER, 2));
+        expected.add(new Operand(Type.REAL, 2.5));
+
+        List<Operand> list = builder.build();
+        assertFalse(list instanceof RealList);
+        assertEquals(expected, list);
+    }
+
+    public void testRealSequence() {
+        List<Operand> list = vela.program("seq(1.0 3.0 0.5)").get().listVal();
+        assertTrue(list instanceof RealList);
+        assertEquals(5, list.size());
+        assertEquals(3.0, list.get(4).doubleVal());
+    }
+
+    public void testMapFilterReduce() {
+        vela.program("xs <- seq(0.0 100.0 1.0)");
+
+        List<Operand> squares = vela.program("map(function(x:real):real { x*x } xs)").get().listVal();
+        assertTrue(squares instanceof RealList);
+        assertEquals(10000.0, squares.get(100).doubleVal());
+
+        List<Operand> evens = vela.program("filter(function(x:real):boolean { x/2 = 1.0*floor(x/2) } xs)").get()
+                .listVal();
+        assertTrue(evens instanceof RealList);
+        assertEquals(51, evens.size());
+
+        assertEquals(5050.0,
+                vela.program("reduce(function(a:real x:real):real { a+x } xs 0.0)").get().doubleVal());
+    }
+
+    public void testListOperations() {
+        vela.program("xs <- [1.0 2.0 3.0]");
+
+        assertTrue(vela.program("xs").get().listVal() instanceof RealList);
+        assertSameList("[2.0 3.0]", "tail(xs)");
+        assertSameList("[1.0 2.0 3.0 4.0]", "append(xs 4.0)");
+        assertSameList("[1.0 2.0 3.0 \"four\"]", "append(xs \"four\")");
+        assertSameList("[1.0 2.0 3.0 1.0 2.0 3.0]", "concat(xs xs)");
+        assertEquals(new RealList(new double[] { -2, -4, -6 }), vela.program("-(xs * 2)").get().listVal());
+        assertSameList("[]", "tail([1.0])");
+        assertTrue(vela.program("2.0 in xs").get().booleanVal());
+    }
+
+    // Helpers
+
+    private void assertSameList(String expected, String actual) {
+        assertEquals(vela.program(expected).get(), vela.program(actual).get());
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import junit.framework.TestCase;
+
+/**
+ * VeLa cache unit tests.
+ */
+public class VeLaCacheTest extends TestCase {
+
+    public VeLaCacheTest(String name) {
+        super(name);
+    }
+
+    public void testHitsAndMisses() {
+        VeLaCache<String, Integer> cache = new VeLaCache<String, Integer>("test", 10, 100, String::length);
+
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+
+        VeLaCache.Statistics stats = cache.getStatistics();
+        assertEquals(1, stats.getSize());
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0, stats.getEvictions());
+    }
+
+    public void testEntryBoundEvictsLeastRecentlyUsed() {
+        VeLaCache<String, Integer> cache = new VeLaCache<String, Integer>("test", 2, 100, String::length);
+
+        cache.put("a", 1);
+        cache.put("b", 2);
+        // Make "b" the least recently used entry.
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertEquals(Integer.valueOf(1), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(Integer.valueOf(3), cache.get("c"));
+        assertEquals(1, cache.getStatistics().getEvictions());
+    }
+
+    public void testWeightBound() {
+        VeLaCache<String, Integer> cache = new VeLaCache<String, Integer>("test", 100, 10, String::length);
+
+        cache.put("aaaa", 1);
+        cache.put("bbbb", 2);
+        cache.put("cccc", 3);
+
+        VeLaCache.Statistics stats = cache.getStatistics();
+        assertEquals(2, stats.getSize());
+        assertEquals(8, stats.getWeight());
+        assertNull(cache.get("aaaa"));
+
+        // Too heavy to be cached at all.
+        cache.put("ddddddddddd", 4);
+        assertNull(cache.get("ddddddddddd"));
+    }
+
+    public void testReplacementDoesNotChangeWeight() {
+        VeLaCache<String, Integer> cache = new VeLaCache<String, Integer>("test", 10, 100, String::length);
+
+        cache.put("abc", 1);
+        cache.put("abc", 2);
+
+        assertEquals(3, cache.getStatistics().getWeight());
+        assertEquals(Integer.valueOf(2), cache.get("abc"));
+    }
+
+    public void testConcurrentAccessStaysBounded() throws InterruptedException {
+        final VeLaCache<String, Integer> cache = new VeLaCache<String, Integer>("test", 50, 1000, String::length);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 10000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    cache.computeIfAbsent("k" + (offset + i % 100), key -> key.length());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        VeLaCache.Statistics stats = cache.getStatistics();
+        assertTrue(stats.getSize() <= 50);
+        assertEquals(20000, stats.getHits() + stats.getMisses());
+    }
+
+    public void testInterpreterCacheStatistics() {
+        VeLaInterpreter vela = new VeLaInterpreter();
+        vela.program("s <- \"abc\"");
+
+        VeLaInterpreter.clearCaches();
+
+        vela.program("s =~ \"a.c\"");
+        vela.program("s =~ \"a.c\"");
+
+        VeLaCache.Statistics astStats = VeLaInterpreter.getCacheStatistics().get(0);
+        assertEquals(1, astStats.getHits());
+        assertEquals(1, astStats.getMisses());
+
+        VeLaCache.Statistics regexStats = VeLaInterpreter.getCacheStatistics().get(1);
+        assertEquals(1, regexStats.getSize());
+        assertEquals(1, regexStats.getHits());
+    }
+
+    public void testCacheStatsFunction() {
+        VeLaInterpreter vela = new VeLaInterpreter();
+
+        Optional<Operand> result = vela.program("cachestats()");
+
+        assertTrue(result.isPresent());
+        assertEquals(Type.LIST, result.get().getType());
+        List<Operand> stats = result.get().listVal();
+        assertEquals(2, stats.size());
+        assertEquals("AST", stats.get(0).listVal().get(0).stringVal());
+        assertEquals("REGEX", stats.get(1).listVal().get(0).stringVal());
+    }
+}
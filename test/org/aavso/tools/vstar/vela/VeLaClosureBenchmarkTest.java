@@ -0,0 +1,179 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+import junit.framework.TestCase;
+
+/**
+ * Benchmark to quantify speedup of closure compiled over interpreted VeLa
+ * evaluation for a numeric expression and an observation filter (the latter
+ * with slot-resolved observation symbols and a reused observation
+ * environment), and of column-wise batch over per-observation filtering; runs
+ * multiple iterations and prints times.
+ */
+public class VeLaClosureBenchmarkTest extends TestCase {
+
+    private static final int WARMUP = 2;
+    // Each batch run is a single call, so more are needed to warm up.
+    private static final int BATCH_WARMUP = 20;
+    private static final int ITERATIONS = 5;
+    private static final int EVALUATIONS = 20000;
+
+    private VeLaInterpreter vela;
+
+    public VeLaClosureBenchmarkTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+        vela = new VeLaInterpreter(false, false, Collections.emptyList());
+    }
+
+    /**
+     * Evaluate a constant numeric expression with and without closures.
+     */
+    public void testNumericExpressionBenchmark() {
+        String expr = "2.5*3.1 + 4.2^2 - 1.5/0.5 > 20.0";
+
+        CompiledVeLaProgram interpreted = vela.compile(expr, false);
+        CompiledVeLaProgram compiled = vela.compile(expr, true);
+
+        assertEquals(interpreted.evaluate(), compiled.evaluate());
+
+        report("numeric expression", run(interpreted, null), run(compiled, null));
+    }
+
+    /**
+     * Apply an observation filter with and without closures.
+     */
+    public void testObservationFilterBenchmark() {
+        String expr = "band = \"Johnson V\" and magnitude > 12 and uncertainty < 0.1";
+
+        VeLaValidObservationEnvironment.reset();
+
+        List<ValidObservation> obs = new ArrayList<ValidObservation>();
+        for (int i = 0; i < 100; i++) {
+            ValidObservation ob = new ValidObservation();
+            ob.setMagnitude(new Magnitude(11.5 + i / 100.0, 0.01));
+            ob.setDateInfo(new DateInfo(2457849.1 + i));
+            ob.setBand(i % 2 == 0 ? SeriesType.Johnson_V : SeriesType.Visual);
+            obs.add(ob);
+        }
+
+        CompiledVeLaProgram interpreted = vela.compile(expr, false);
+        CompiledVeLaProgram compiled = vela.compileForObservations(expr);
+
+        report("observation filter", run(interpreted, obs), run(compiled, obs));
+    }
+
+    /**
+     * Apply an observation filter to each observation in turn and column-wise
+     * to the whole batch.
+     */
+    public void testBatchFilterBenchmark() {
+        String expr = "band = \"Johnson V\" and magnitude > 12 and uncertainty < 0.1";
+
+        VeLaValidObservationEnvironment.reset();
+
+        List<ValidObservation> obs = new ArrayList<ValidObservation>();
+        for (int i = 0; i < EVALUATIONS * 10; i++) {
+            ValidObservation ob = new ValidObservation();
+            ob.setMagnitude(new Magnitude(11.5 + (i % 100) / 100.0, 0.01));
+            ob.setDateInfo(new DateInfo(2457849.1 + i));
+            ob.setBand(i % 2 == 0 ? SeriesType.Johnson_V : SeriesType.Visual);
+            obs.add(ob);
+        }
+
+        CompiledVeLaProgram filter = vela.compileForObservations(expr);
+        assertTrue(filter.isColumnCompiled());
+
+        long perObservationNs = time(() -> {
+            for (ValidObservation ob : obs) {
+                filter.evaluate(ob);
+            }
+        });
+
+        long batchNs = time(() -> filter.evaluateBatch(obs));
+
+        report("batch filter; interpreted = per observation closures, closures = column-wise batch",
+                perObservationNs, batchNs);
+    }
+
+    // Helpers
+
+    private long time(Runnable runnable) {
+        for (int i = 0; i < BATCH_WARMUP; i++) {
+            runnable.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            runnable.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long run(CompiledVeLaProgram program, List<ValidObservation> obs) {
+        for (int i = 0; i < WARMUP; i++) {
+            evaluate(program, obs);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            evaluate(program, obs);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void evaluate(CompiledVeLaProgram program, List<ValidObservation> obs) {
+        if (obs == null) {
+            for (int i = 0; i < EVALUATIONS; i++) {
+                program.evaluate();
+            }
+        } else {
+            for (int i = 0; i < EVALUATIONS / obs.size(); i++) {
+                for (ValidObservation ob : obs) {
+                    program.evaluate(ob);
+                }
+            }
+        }
+    }
+
+    private void report(String name, long interpretedNs, long compiledNs) {
+        double interpretedMs = interpretedNs / 1_000_000.0;
+        double compiledMs = compiledNs / 1_000_000.0;
+        double speedup = (double) interpretedNs / (double) compiledNs;
+
+        System.out.println("VeLa closure benchmark (" + name + ", " + ITERATIONS + " runs each):");
+        System.out.println("  Interpreted: " + String.format("%.2f", interpretedMs) + " ms total");
+        System.out.println("  Closures   : " + String.format("%.2f", compiledMs) + " ms total");
+        System.out.println("  Speedup (interpreted/closures): " + String.format("%.2fx", speedup));
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+import org.quicktheories.WithQuickTheories;
+
+import junit.framework.TestCase;
+
+/**
+ * VeLa closure compiler unit tests. Each expression is evaluated both by
+ * interpreting its AST and via its closure tree and the results compared.
+ */
+public class VeLaClosureCompilerTest extends TestCase implements WithQuickTheories {
+
+    private VeLaInterpreter vela;
+
+    public VeLaClosureCompilerTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+        vela = new VeLaInterpreter(false, false, Collections.emptyList());
+    }
+
+    public void testIntegerArithmetic() {
+        Operand result = assertSameResult("2+3-5*6/2");
+        assertEquals(Type.INTEGER, result.getType());
+        assertEquals(-10, result.intVal());
+    }
+
+    public void testIntegerPower() {
+        assertEquals(1024, assertSameResult("2^10").intVal());
+        assertEquals(1, assertSameResult("2^0").intVal());
+    }
+
+    public void testIntegerBitwise() {
+        assertSameResult("12 and 10");
+        assertSameResult("12 or 10");
+        assertSameResult("12 xor 10");
+        assertSameResult("1 << 4");
+        assertSameResult("256 >> 2");
+        assertSameResult("not 5");
+    }
+
+    public void testMixedArithmeticUnifiesToReal() {
+        Operand result = assertSameResult("2457580.25+1004*2-1");
+        assertEquals(Type.REAL, result.getType());
+        assertEquals(2459587.25, result.doubleVal(), 0);
+    }
+
+    public void testRealPowerAndNegation() {
+        assertSameResult("-(2.5^3)");
+        assertSameResult("-2.5*4");
+    }
+
+    public void testComparisons() {
+        assertTrue(assertSameResult("3 > 2.5").booleanVal());
+        assertTrue(assertSameResult("3 >= 3").booleanVal());
+        assertFalse(assertSameResult("3 < 2").booleanVal());
+        assertTrue(assertSameResult("2.0 <= 2").booleanVal());
+        assertTrue(assertSameResult("2.0 = 2").booleanVal());
+        assertTrue(assertSameResult("2.1 <> 2").booleanVal());
+    }
+
+    public void testBooleanOperations() {
+        assertTrue(assertSameResult("3 > 2 and 2 > 1").booleanVal());
+        assertTrue(assertSameResult("3 < 2 or 2 > 1").booleanVal());
+        assertTrue(assertSameResult("not (3 > 2 xor 2 > 1)").booleanVal());
+    }
+
+    public void testStringOperations() {
+        assertEquals("foobar", assertSameResult("\"foo\" + \"bar\"").stringVal());
+        assertTrue(assertSameResult("\"abc\" < \"abd\"").booleanVal());
+        assertTrue(assertSameResult("\"bc\" in \"abcd\"").booleanVal());
+        assertTrue(assertSameResult("\"abc\" =~ \"a.c\"").booleanVal());
+        assertEquals("foo42", assertSameResult("\"foo\" + 42").stringVal());
+    }
+
+    public void testListOperations() {
+        assertSameResult("[1 2 3] * 2");
+        assertSameResult("2 in [1 2 3]");
+    }
+
+    public void testSymbols() {
+        vela.program("x <- 4 y <- 2.5");
+        assertEquals(10.0, assertSameResult("x*y").doubleVal(), 0);
+        assertTrue(assertSameResult("x > y and pi > 3").booleanVal());
+    }
+
+    public void testFunctionCallOperands() {
+        assertSameResult("sqrt(16) + 2*abs(-3)");
+    }
+
+    public void testIntegerDivisionByZero() {
+        assertSameError("42/0");
+    }
+
+    public void testRealDivisionByZero() {
+        assertSameError("42.0/0");
+    }
+
+    public void testTypeError() {
+        assertSameError("\"abc\" - 1");
+    }
+
+    public void testUnknownBinding() {
+        assertSameError("unknown + 1");
+    }
+
+    public void testProgramsNotCompiled() {
+        assertFalse(vela.compile("x <- 42").isClosureCompiled());
+        assertFalse(vela.compile("x <- 42 x").isClosureCompiled());
+        assertFalse(vela.compile("sqrt(42)").isClosureCompiled());
+        assertFalse(vela.compile("").isClosureCompiled());
+        assertTrue(vela.compile("42+x").isClosureCompiled());
+        assertFalse(vela.compile("42+x", false).isClosureCompiled());
+    }
+
+    public void testStaticTypes() {
+        assertEquals(Type.BOOLEAN, root("2.5 > 1").getType());
+        assertEquals(Type.REAL, root("2.5 + 1").getType());
+        assertEquals(Type.INTEGER, root("2 + 1").getType());
+        assertFalse(root("x + 1").isStaticallyTyped());
+    }
+
+    public void testObservationSymbolsStaticallyTyped() {
+        VeLaValidObservationEnvironment.reset();
+        VeLaValidObservationEnvironment cursor = new VeLaValidObservationEnvironment();
+        VeLaClosureCompiler compiler = new VeLaClosureCompiler(vela, cursor);
+
+        AST ast = vela.compile("magnitude > 12 and band = \"Visual\"", false).getAST();
+        assertEquals(Type.BOOLEAN, compiler.compile(ast).get().getType());
+
+        ast = vela.compile("obscode = \"ABC\"", false).getAST();
+        assertFalse(compiler.compile(ast).get().isStaticallyTyped());
+    }
+
+    public void testObservationFilter() {
+        ValidObservation ob = new ValidObservation();
+        ob.setMagnitude(new Magnitude(12.02, 0.01));
+        ob.setDateInfo(new DateInfo(2457849.1));
+        ob.setBand(SeriesType.Johnson_V);
+        ob.setObsCode("PLA");
+
+        VeLaValidObservationEnvironment.reset();
+
+        String expr = "band = \"Johnson V\" and magnitude > 12 and uncertainty < 0.1";
+        CompiledVeLaProgram filter = vela.compile(expr);
+        assertTrue(filter.isClosureCompiled());
+
+        Optional<Operand> result = filter.evaluate(new VeLaValidObservationEnvironment(ob));
+        assertTrue(result.isPresent());
+        assertTrue(result.get().booleanVal());
+
+        filter = vela.compileForObservations(expr);
+        assertTrue(filter.isClosureCompiled());
+
+        result = filter.evaluate(ob);
+        assertTrue(result.isPresent());
+        assertTrue(result.get().booleanVal());
+    }
+
+    public void testOverlappingObservationEvaluationRejected() {
+        VeLaValidObservationEnvironment.reset();
+
+        CompiledVeLaProgram filter = vela.compileForObservations("magnitude > 12");
+
+        ValidObservation inner = new ValidObservation();
+        inner.setMagnitude(new Magnitude(11, 0.01));
+
+        // Evaluating the program again while it is being evaluated would
+        // re-point its cursor at another observation.
+        ValidObservation outer = new ValidObservation() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public double getMag() {
+                filter.evaluate(inner);
+                return 13;
+            }
+        };
+        outer.setMagnitude(new Magnitude(13, 0.01));
+
+        try {
+            filter.evaluate(outer);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        // Once evaluation has finished, the program may be evaluated again.
+        assertFalse(filter.evaluate(inner).get().booleanVal());
+    }
+
+    // PBT: integer arithmetic and comparison via closures should agree with
+    // the interpreter.
+    public void testAnyIntegerOperations() {
+        String[] ops = { "+", "-", "*", ">", "<=", "=" };
+        qt().forAll(integers().all(), integers().all(), integers().between(0, ops.length - 1))
+                .check((n, m, i) -> {
+                    String expr = String.format("%d %s %d", (long) n, ops[i], (long) m);
+                    return vela.compile(expr, false).evaluate().get()
+                            .equals(vela.compile(expr, true).evaluate().get());
+                });
+    }
+
+    // Helpers
+
+    private VeLaNode root(String expr) {
+        return new VeLaClosureCompiler(vela).compile(vela.compile(expr, false).getAST()).get();
+    }
+
+    private Operand assertSameResult(String expr) {
+        CompiledVeLaProgram interpreted = vela.compile(expr, false);
+        CompiledVeLaProgram compiled = vela.compile(expr, true);
+
+        assertTrue(compiled.isClosureCompiled());
+
+        Optional<Operand> expected = interpreted.evaluate();
+        Optional<Operand> actual = compiled.evaluate();
+
+        assertTrue(expected.isPresent());
+        assertEquals(expected, actual);
+        assertTrue(vela.getStack().isEmpty());
+
+        return actual.get();
+    }
+
+    private void assertSameError(String expr) {
+        String expected = null;
+        try {
+            vela.compile(expr, false).evaluate();
+            fail();
+        } catch (VeLaEvalError e) {
+            expected = e.getMessage();
+        }
+
+        vela.getStack().clear();
+
+        try {
+            vela.compile(expr, true).evaluate();
+            fail();
+        } catch (VeLaEvalError e) {
+            assertEquals(expected, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.aavso.tools.vstar.data.DateInfo;
+import org.aavso.tools.vstar.data.Magnitude;
+import org.aavso.tools.vstar.data.SeriesType;
+import org.aavso.tools.vstar.data.ValidObservation;
+
+import junit.framework.TestCase;
+
+/**
+ * VeLa column compiler unit tests. Filters are evaluated over a batch of
+ * observations column-wise and compared with the result of evaluating them
+ * for each observation in turn.
+ */
+public class VeLaColumnCompilerTest extends TestCase {
+
+    private VeLaInterpreter vela;
+
+    public VeLaColumnCompilerTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+        vela = new VeLaInterpreter(false, false, Collections.emptyList());
+        VeLaValidObservationEnvironment.reset();
+    }
+
+    public void testNumericFilter() {
+        assertSameMatches("magnitude > 12 and uncertainty < 0.05", obs(100));
+    }
+
+    public void testMixedIntegerAndRealArithmetic() {
+        assertSameMatches("(time - 2457849) * 2 >= 100 or -magnitude < -12.5", obs(100));
+    }
+
+    public void testIntegerOperations() {
+        assertSameMatches("(12 and 10) = 8 xor magnitude <> 12", obs(100));
+    }
+
+    public void testStringFilter() {
+        assertSameMatches("\"ohn\" in series or magnitude > 13", obs(100));
+        assertSameMatches("not (shortband > \"V\")", obs(100));
+    }
+
+    public void testLargeBatchEvaluatedInParallel() {
+        assertSameMatches("band = \"Johnson V\" and magnitude > 12 and uncertainty < 0.1",
+                obs(10 * VeLaColumnCompiler.PARALLEL_THRESHOLD + 7));
+    }
+
+    public void testPrimitiveColumns() {
+        double[] time = { 2457849.1, 2457849.2, 2457849.3 };
+        double[] mag = { 11.5, 12.5, 13.5 };
+        double[] uncertainty = { 0.01, 0.2, 0.01 };
+
+        CompiledVeLaProgram filter = vela.compileForObservations("magnitude > 12 and uncertainty < 0.1");
+
+        boolean[] matches = filter.evaluateBatch(new VeLaColumns(time, mag, uncertainty));
+
+        assertFalse(matches[0]);
+        assertFalse(matches[1]);
+        assertTrue(matches[2]);
+    }
+
+    public void testPrimitiveColumnsMissingColumn() {
+        CompiledVeLaProgram filter = vela.compileForObservations("band = \"Visual\"");
+
+        try {
+            filter.evaluateBatch(new VeLaColumns(new double[1], new double[1], new double[1]));
+            fail();
+        } catch (VeLaEvalError e) {
+            // Expected: no band column.
+        }
+    }
+
+    public void testNotColumnCompiled() {
+        assertFalse(vela.compileForObservations("magnitude + 1").isColumnCompiled());
+        assertFalse(vela.compileForObservations("sqrt(magnitude) > 3").isColumnCompiled());
+        assertFalse(vela.compileForObservations("x <- 42 magnitude > x").isColumnCompiled());
+        assertFalse(vela.compileForObservations("band =~ \"V.*\"").isColumnCompiled());
+        assertTrue(vela.compileForObservations("magnitude > 12").isColumnCompiled());
+    }
+
+    public void testFallbackMatchesPerObservation() {
+        // Function calls are evaluated for each observation in turn.
+        assertSameMatches("sqrt(magnitude) > 3.5", obs(100));
+    }
+
+    public void testDivisionByZero() {
+        String expected = null;
+        try {
+            vela.compileForObservations("magnitude / 0 > 1").evaluate(obs(1).get(0));
+            fail();
+        } catch (VeLaEvalError e) {
+            expected = e.getMessage();
+        }
+
+        try {
+            vela.compileForObservations("magnitude / 0 > 1").evaluateBatch(obs(1));
+            fail();
+        } catch (VeLaEvalError e) {
+            assertEquals(expected, e.getMessage());
+        }
+    }
+
+    // Helpers
+
+    private List<ValidObservation> obs(int n) {
+        List<ValidObservation> obs = new ArrayList<ValidObservation>();
+
+        for (int i = 0; i < n; i++) {
+            ValidObservation ob = new ValidObservation();
+            ob.setMagnitude(new Magnitude(11.5 + (i % 200) / 100.0, (i % 10) / 100.0));
+            ob.setDateInfo(new DateInfo(2457849.1 + i));
+            ob.setBand(i % 3 == 0 ? SeriesType.Johnson_V : SeriesType.Visual);
+            obs.add(ob);
+        }
+
+        return obs;
+    }
+
+    private void assertSameMatches(String expr, List<ValidObservation> obs) {
+        CompiledVeLaProgram filter = vela.compileForObservations(expr);
+
+        boolean[] matches = filter.evaluateBatch(obs);
+
+        assertEquals(obs.size(), matches.length);
+
+        int count = 0;
+        for (int i = 0; i < obs.size(); i++) {
+            Optional<Operand> result = filter.evaluate(obs.get(i));
+            assertEquals(result.get().booleanVal(), matches[i]);
+            if (matches[i]) {
+                count++;
+            }
+        }
+
+        // The filter should discriminate between observations.
+        assertTrue(count > 0 && count < obs.size());
+    }
+}
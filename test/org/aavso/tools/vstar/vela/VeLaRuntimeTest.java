@@ -0,0 +1,226 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * VeLa runtime unit tests.
+ */
+public class VeLaRuntimeTest extends TestCase {
+
+    public VeLaRuntimeTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+    }
+
+    public void testContextsHaveStandardLibrary() {
+        VeLaRuntime runtime = VeLaRuntime.getDefault(false);
+
+        VeLaInterpreter vela = new VeLaInterpreter(false, runtime);
+
+        Operand result = vela.program("zip([1 2] [3 4])").get();
+        assertEquals(Type.LIST, result.getType());
+        assertEquals(2, result.listVal().size());
+    }
+
+    public void testDefaultRuntimeShared() {
+        assertSame(VeLaRuntime.getDefault(true), VeLaRuntime.getDefault(true));
+        assertNotSame(VeLaRuntime.getDefault(true), VeLaRuntime.getDefault(false));
+    }
+
+    public void testContextsAreIndependent() {
+        VeLaRuntime runtime = VeLaRuntime.getDefault(false);
+
+        VeLaInterpreter vela1 = new VeLaInterpreter(false, runtime);
+        VeLaInterpreter vela2 = new VeLaInterpreter(false, runtime);
+
+        vela1.program("x <- 42");
+
+        assertEquals(42, vela1.program("x").get().intVal());
+        assertFalse(vela2.lookupBinding("X").isPresent());
+    }
+
+    public void testParallelEvaluation() throws Exception {
+        VeLaRuntime runtime = VeLaRuntime.getDefault(false);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+            for (int task = 0; task < 16; task++) {
+                final long n = task;
+                results.add(executor.submit(() -> {
+                    VeLaInterpreter vela = new VeLaInterpreter(false, runtime);
+                    boolean ok = true;
+                    for (int i = 0; i < 200; i++) {
+                        vela.program("n <- " + n);
+                        ok &= vela.program("reduce(function(a:ℤ b:ℤ) : ℤ { a+b } [n n 1] 0)").get()
+                                .intVal() == 2 * n + 1;
+                    }
+                    return ok && vela.getStack().isEmpty();
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testContextsHaveOwnLibraryFunctions() throws IOException {
+        File dir = Files.createTempDirectory("vela").toFile();
+        File file = new File(dir, "user.vl");
+
+        try {
+            Files.write(file.toPath(),
+                    Arrays.asList("answer() : ℤ { 42 }", "square <- function(n:ℤ) : ℤ { n*n }"));
+
+            VeLaRuntime runtime = new VeLaRuntime(false, Collections.singletonList(dir));
+            VeLaInterpreter prototype = runtime.getPrototype();
+
+            VeLaInterpreter vela = new VeLaInterpreter(false, runtime);
+
+            // Library, binding and intrinsic functions are evaluated by the
+            // context, not the prototype from which they were copied.
+            assertEquals(42, vela.program("answer()").get().intVal());
+            assertEquals(49, vela.program("square(7)").get().intVal());
+            assertEquals(3, vela.program("eval(\"1+2\")").get().listVal().get(0).intVal());
+            assertEquals(Math.PI, vela.program("pi").get().doubleVal());
+            assertTrue(prototype.getStack().isEmpty());
+
+            assertNotSame(prototype.lookupFunctions("ANSWER").get().get(0),
+                    vela.lookupFunctions("ANSWER").get().get(0));
+            assertNotSame(prototype.lookupFunctions("EVAL").get().get(0), vela.lookupFunctions("EVAL").get().get(0));
+            assertSame(prototype.lookupFunctions("SQRT").get().get(0), vela.lookupFunctions("SQRT").get().get(0));
+
+            // Redefinition in one context is not seen by another.
+            vela.program("answer() : ℤ { 4242 }");
+            assertEquals(42, new VeLaInterpreter(false, runtime).program("answer()").get().intVal());
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+
+    public void testUserCodeCachedByPathAndModificationTime() throws IOException {
+        File dir = Files.createTempDirectory("vela").toFile();
+        File file = new File(dir, "user.vl");
+
+        try {
+            Files.write(file.toPath(), Arrays.asList("answer() : ℤ { 42 }"));
+
+            VeLaCache.Statistics stats = VeLaRuntime.getSourceCacheStatistics();
+
+            new VeLaRuntime(false, Collections.singletonList(dir));
+            assertEquals(stats.getMisses() + 1, VeLaRuntime.getSourceCacheStatistics().getMisses());
+
+            // Unchanged, so not parsed again.
+            VeLaRuntime runtime = new VeLaRuntime(false, Collections.singletonList(dir));
+            assertEquals(stats.getHits() + 1, VeLaRuntime.getSourceCacheStatistics().getHits());
+            assertEquals(42, new VeLaInterpreter(false, runtime).program("answer()").get().intVal());
+
+            // Same size, but modified later.
+            Files.write(file.toPath(), Arrays.asList("answer() : ℤ { 24 }"));
+            file.setLastModified(file.lastModified() + 2000);
+
+            runtime = new VeLaRuntime(false, Collections.singletonList(dir));
+            assertEquals(stats.getMisses() + 2, VeLaRuntime.getSourceCacheStatistics().getMisses());
+            assertEquals(24, new VeLaInterpreter(false, runtime).program("answer()").get().intVal());
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+
+    public void testUserCodeParsedOnce() throws IOException {
+        File dir = Files.createTempDirectory("vela").toFile();
+        File file = new File(dir, "user.vl");
+
+        try {
+            Files.write(file.toPath(), Arrays.asList("answer() : ℤ { 42 }"));
+
+            VeLaRuntime runtime = new VeLaRuntime(false, Collections.singletonList(dir));
+
+            // Changes to user code after the runtime has been created are not
+            // seen by its contexts.
+            Files.write(file.toPath(), Arrays.asList("answer() : ℤ { 4242 }"));
+
+            assertEquals(42, new VeLaInterpreter(false, runtime).program("answer()").get().intVal());
+
+            // ...but are by a new runtime.
+            assertEquals(4242, new VeLaInterpreter(false, false, Collections.singletonList(dir))
+                    .program("answer()").get().intVal());
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+
+    public void testRuntimeCachedUntilUserCodeChanges() throws IOException {
+        File dir = Files.createTempDirectory("vela").toFile();
+        File file = new File(dir, "user.vl");
+
+        try {
+            Files.write(file.toPath(), Arrays.asList("answer() : ℤ { 42 }"));
+
+            List<File> dirs = Collections.singletonList(dir);
+
+            VeLaRuntime runtime = VeLaRuntime.getRuntime(false, dirs);
+            assertSame(runtime, VeLaRuntime.getRuntime(false, dirs));
+            assertNotSame(runtime, VeLaRuntime.getRuntime(true, dirs));
+
+            // A modified file invalidates the cached runtime.
+            Files.write(file.toPath(), Arrays.asList("answer() : ℤ { 4242 }"));
+
+            VeLaRuntime modified = VeLaRuntime.getRuntime(false, dirs);
+            assertNotSame(runtime, modified);
+            assertEquals(4242, new VeLaInterpreter(false, modified).program("answer()").get().intVal());
+
+            // ...as does a change to the code directory preferences.
+            VeLaRuntime.clearRuntimeCache();
+            assertNotSame(modified, VeLaRuntime.getRuntime(false, dirs));
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+
+    public void testDefaultRuntimeWithoutSourceDirectories() {
+        assertSame(VeLaRuntime.getDefault(false), VeLaRuntime.getRuntime(false, Collections.emptyList()));
+    }
+}
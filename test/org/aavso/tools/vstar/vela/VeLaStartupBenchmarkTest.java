@@ -0,0 +1,129 @@
+/**
+ * VStar: a statistical analysis tool for variable star data.
+ * Copyright (C) 2009  AAVSO (http://www.aavso.org/)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.aavso.tools.vstar.vela;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+/**
+ * Benchmark to quantify the speedup of creating a VeLa interpreter from a
+ * shared runtime's prototype context over evaluating the standard library for
+ * each interpreter, and of creating a runtime with cached over freshly parsed
+ * user code; runs multiple iterations and prints times.
+ */
+public class VeLaStartupBenchmarkTest extends TestCase {
+
+    // Creating an interpreter is cheap, so more runs are needed to warm up.
+    private static final int CONTEXT_ITERATIONS = 2000;
+    private static final int RUNTIME_ITERATIONS = 100;
+    private static final int USER_FILES = 10;
+
+    public VeLaStartupBenchmarkTest(String name) {
+        super(name);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+    }
+
+    /**
+     * Create interpreters with and without a shared runtime.
+     */
+    public void testContextBenchmark() {
+        VeLaRuntime runtime = VeLaRuntime.getDefault(false);
+
+        // A new runtime evaluates the standard library in its prototype.
+        long evaluatedNs = time(() -> new VeLaRuntime(false, Collections.emptyList()), CONTEXT_ITERATIONS);
+        long sharedNs = time(() -> new VeLaInterpreter(false, runtime), CONTEXT_ITERATIONS);
+
+        report("interpreter creation", CONTEXT_ITERATIONS, "Evaluated stdlib", evaluatedNs, "Shared runtime", sharedNs);
+    }
+
+    /**
+     * Create runtimes with user code, parsing it each time or once.
+     */
+    public void testUserCodeBenchmark() throws IOException {
+        File dir = Files.createTempDirectory("vela").toFile();
+
+        List<File> files = new ArrayList<File>();
+
+        try {
+            for (int i = 0; i < USER_FILES; i++) {
+                File file = new File(dir, "user" + i + ".vl");
+                Files.write(file.toPath(), Arrays.asList("f" + i + "(xs:list) : list {",
+                        "  map(function(x:ℝ) : ℝ { x*" + i + "+1 } xs)", "}"));
+                files.add(file);
+            }
+
+            List<File> dirs = Collections.singletonList(dir);
+
+            long parsedNs = time(() -> {
+                VeLaRuntime.clearSourceCache();
+                VeLaInterpreter.clearCaches();
+                new VeLaRuntime(false, dirs);
+            }, RUNTIME_ITERATIONS);
+
+            long cachedNs = time(() -> new VeLaRuntime(false, dirs), RUNTIME_ITERATIONS);
+
+            assertEquals(3, new VeLaInterpreter(false, new VeLaRuntime(false, dirs)).program("f2([1])").get().listVal()
+                    .get(0).doubleVal(), 0);
+
+            report("runtime creation with " + USER_FILES + " user files", RUNTIME_ITERATIONS, "Parsed", parsedNs,
+                    "Cached", cachedNs);
+        } finally {
+            for (File file : files) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    // Helpers
+
+    private long time(Runnable runnable, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            runnable.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            runnable.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void report(String name, int iterations, String slowName, long slowNs, String fastName, long fastNs) {
+        double slowMs = slowNs / 1_000_000.0;
+        double fastMs = fastNs / 1_000_000.0;
+        double speedup = (double) slowNs / (double) fastNs;
+
+        System.out.println("VeLa startup benchmark (" + name + ", " + iterations + " runs each):");
+        System.out.println("  " + slowName + ": " + String.format("%.2f", slowMs) + " ms total");
+        System.out.println("  " + fastName + ": " + String.format("%.2f", fastMs) + " ms total");
+        System.out.println("  Speedup: " + String.format("%.2fx", speedup));
+    }
+}
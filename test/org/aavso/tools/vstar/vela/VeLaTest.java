@@ -2054,6 +2054,147 @@ public class VeLaTest extends TestCase implements WithQuickTheories {
         assertEquals(1, filterObs(expr, obs).size());
     }
 
+    // Compiled programs
+
+    public void testCompiledProgramAsFilter() {
+        List<ValidObservation> obs = commonObs();
+        String expr = "magnitude > 12 and (uncertainty > 0 and uncertainty <= 0.01)";
+        assertEquals(1, compiledFilterObs(expr, obs).size());
+    }
+
+    public void testCompiledProgramRepeatedEvaluation() {
+        vela.program("n <- 0");
+        CompiledVeLaProgram prog = vela.compile("n <- n + 1 n");
+        for (int i = 1; i <= 3; i++) {
+            Optional<Operand> result = prog.evaluate();
+            assertTrue(result.isPresent());
+            assertEquals(i, result.get().intVal());
+        }
+    }
+
+    public void testCompiledFilterMatchesInterpretedFilter() {
+        List<ValidObservation> obs = commonObs();
+        String[] exprs = { "mag < 12 and jd >= 2457849.1", "t > 2457849.15 or error = 0.1",
+                "band = \"Johnson V\" and uncertainty < 0.05", "shortband in \"Vis.V\"",
+                "series <> \"Visual\" or magnitude = 11.05" };
+        for (String expr : exprs) {
+            assertEquals(expr, filterObs(expr, obs), compiledFilterObs(expr, obs));
+        }
+    }
+
+    public void testCompiledFilterObservationSlots() {
+        VeLaValidObservationEnvironment cursor = new VeLaValidObservationEnvironment();
+        assertEquals(VeLaValidObservationEnvironment.Slot.TIME, cursor.resolve("jd").get());
+        assertEquals(VeLaValidObservationEnvironment.Slot.MAGNITUDE, cursor.resolve("Mag").get());
+        assertEquals(VeLaValidObservationEnvironment.Slot.UNCERTAINTY, cursor.resolve("error").get());
+        assertFalse(cursor.resolve("obscode").isPresent());
+        assertFalse(cursor.resolve("unknown").isPresent());
+    }
+
+    public void testCompiledProgramObservationCursor() {
+        List<ValidObservation> obs = commonObs();
+        CompiledVeLaProgram prog = vela.compileForObservations("magnitude");
+        for (ValidObservation ob : obs) {
+            assertEquals(ob.getMag(), prog.evaluate(ob).get().doubleVal());
+        }
+    }
+
+    public void testCompiledProgramEnvironmentPopped() {
+        int depth = vela.getEnvironments().size();
+        CompiledVeLaProgram prog = vela.compile("magnitude / 0");
+        try {
+            prog.evaluate(new VeLaValidObservationEnvironment(commonObs().get(0)));
+            fail();
+        } catch (VeLaEvalError e) {
+            assertEquals(depth, vela.getEnvironments().size());
+        }
+    }
+
+    public void testCompiledEmptyProgram() {
+        assertFalse(vela.compile("# comment only").evaluate().isPresent());
+    }
+
+    public void testCompileParseError() {
+        try {
+            vela.compile("1 +* 2");
+            fail();
+        } catch (VeLaParseError e) {
+            // expected
+        }
+    }
+
+    // Direct function invocation
+
+    public void testInvokeAsDouble() {
+        vela.program("f(t:real) : real { 2*t + 1 }");
+        Optional<FunctionExecutor> f = vela.lookupFunction("f", Type.REAL);
+        assertTrue(f.isPresent());
+        // No loss of precision via a formatted function call string.
+        assertEquals(2 * 2459000.123456789 + 1, f.get().invokeAsDouble(2459000.123456789));
+    }
+
+    public void testInvokeAsDoubleIntegerResult() {
+        vela.program("g(t:real) : integer { 42 }");
+        assertEquals(42.0, vela.lookupFunction("g", Type.REAL).get().invokeAsDouble(1.5));
+    }
+
+    public void testInvokeAsDoubleIntrinsic() {
+        Optional<FunctionExecutor> sqrt = vela.lookupFunction("sqrt", Type.REAL);
+        assertTrue(sqrt.isPresent());
+        assertEquals(3.0, sqrt.get().invokeAsDouble(9));
+    }
+
+    public void testInvokeAsDoubleCompiledBody() {
+        vela.program("a <- 2.5 p <- 10.0");
+        vela.program("f(t:real) : real { a * sin(2 * pi * t / p) + sqrt(t) - 1 }");
+
+        UserDefinedFunctionExecutor f = (UserDefinedFunctionExecutor) vela.lookupFunction("f", Type.REAL).get();
+        assertTrue(f.isRealBodyCompiled());
+
+        for (double t = 0; t < 20; t += 0.37) {
+            assertEquals(f.invoke(new Operand(Type.REAL, t)).get().doubleVal(), f.invokeAsDouble(t));
+        }
+        assertTrue(vela.getStack().isEmpty());
+    }
+
+    public void testInvokeAsDoubleCompiledBodyCallsUserFunction() {
+        vela.program("g(t:real) : real { t * t }");
+        vela.program("f(t:real) : real { g(t + 1) - t }");
+
+        UserDefinedFunctionExecutor f = (UserDefinedFunctionExecutor) vela.lookupFunction("f", Type.REAL).get();
+        assertTrue(f.isRealBodyCompiled());
+
+        // The argument of f is restored after that of g has been bound.
+        assertEquals(16.0 - 3, f.invokeAsDouble(3));
+    }
+
+    public void testInvokeAsDoubleInterpretedBody() {
+        // The parameter is needed by code delegated to the interpreter.
+        vela.program("f(t:real) : real { if t > 0 then t else -t }");
+
+        UserDefinedFunctionExecutor f = (UserDefinedFunctionExecutor) vela.lookupFunction("f", Type.REAL).get();
+        assertFalse(f.isRealBodyCompiled());
+        assertEquals(2.5, f.invokeAsDouble(-2.5));
+
+        vela.program("h(t:real) : real { n <- t*2 n+1 }");
+        UserDefinedFunctionExecutor h = (UserDefinedFunctionExecutor) vela.lookupFunction("h", Type.REAL).get();
+        assertFalse(h.isRealBodyCompiled());
+        assertEquals(6.0, h.invokeAsDouble(2.5));
+    }
+
+    public void testInvokeBoundFunction() {
+        vela.program("h <- function(s:string) : string { s + s }");
+        Optional<FunctionExecutor> h = vela.lookupFunction("h", Type.STRING);
+        assertTrue(h.isPresent());
+        assertEquals("abab", h.get().invoke(new Operand(Type.STRING, "ab")).get().stringVal());
+    }
+
+    public void testLookupFunctionNoMatchingParameters() {
+        vela.program("f(t:real) : real { t }");
+        assertFalse(vela.lookupFunction("f", Type.STRING).isPresent());
+        assertFalse(vela.lookupFunction("nosuchfunction", Type.REAL).isPresent());
+    }
+
     // Comments
 
     public void testComments1() {
@@ -2341,6 +2482,24 @@ public class VeLaTest extends TestCase implements WithQuickTheories {
         return filteredObs;
     }
 
+    private List<ValidObservation> compiledFilterObs(String velaFilterExpr, List<ValidObservation> obs) {
+
+        VeLaValidObservationEnvironment.reset();
+
+        List<ValidObservation> filteredObs = new ArrayList<ValidObservation>();
+
+        CompiledVeLaProgram filter = vela.compileForObservations(velaFilterExpr);
+
+        for (ValidObservation ob : obs) {
+            Optional<Operand> result = filter.evaluate(ob);
+            if (result.isPresent() && result.get().booleanVal()) {
+                filteredObs.add(ob);
+            }
+        }
+
+        return filteredObs;
+    }
+
     /**
      * Given an operator string and an integer, return a unary function that takes
      * an integer and returns the result of combining the integer with another using